@@ -0,0 +1,57 @@
+/*
+  Benchmark: phone number lookups, regexp_replace scan vs indexed '_digits' column.
+
+  Run against a scratch copy of the database (creates and drops a temp table):
+    psql -d wnc_helene_test -f docs/benchmarks/phone-lookup.sql
+
+  Compare the 'Execution Time' of each pair of 'explain analyze' outputs. The regexp_replace
+  variant is a sequential scan and grows linearly with row count, the '_digits' variant is an
+  index probe and stays flat.
+ */
+\timing on
+
+create temp table phone_benchmark(
+  id serial primary key,
+  contact_number varchar(32) not null,
+  contact_number_digits varchar(32)
+    generated always as (regexp_replace(contact_number, '[^0-9]+', '', 'g')) stored
+);
+create index on phone_benchmark(contact_number_digits);
+
+-- 1k rows
+insert into phone_benchmark(contact_number)
+select '(828) ' || lpad((g % 1000)::text, 3, '0') || '-' || lpad(g::text, 4, '0')
+from generate_series(1, 1000) g;
+analyze phone_benchmark;
+
+explain analyze
+select id from phone_benchmark
+where regexp_replace(contact_number, '[^0-9]+', '', 'g') = '8280010010';
+explain analyze
+select id from phone_benchmark where contact_number_digits = '8280010010';
+
+-- 10k rows
+insert into phone_benchmark(contact_number)
+select '(919) ' || lpad((g % 1000)::text, 3, '0') || '-' || lpad(g::text, 4, '0')
+from generate_series(1, 9000) g;
+analyze phone_benchmark;
+
+explain analyze
+select id from phone_benchmark
+where regexp_replace(contact_number, '[^0-9]+', '', 'g') = '8280010010';
+explain analyze
+select id from phone_benchmark where contact_number_digits = '8280010010';
+
+-- 100k rows
+insert into phone_benchmark(contact_number)
+select '(704) ' || lpad((g % 1000)::text, 3, '0') || '-' || lpad((g % 10000)::text, 4, '0')
+from generate_series(1, 90000) g;
+analyze phone_benchmark;
+
+explain analyze
+select id from phone_benchmark
+where regexp_replace(contact_number, '[^0-9]+', '', 'g') = '8280010010';
+explain analyze
+select id from phone_benchmark where contact_number_digits = '8280010010';
+
+drop table phone_benchmark;
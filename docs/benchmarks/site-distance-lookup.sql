@@ -0,0 +1,78 @@
+/*
+  Benchmark: site_distance_matrix join, 'OR' of both pair orderings vs canonical ordered key.
+
+  Run against a scratch copy of the database (creates and drops temp tables):
+    psql -d wnc_helene_test -f docs/benchmarks/site-distance-lookup.sql
+
+  The join mimics browse routes: a set of (needy site, giving site) pairs joined to the distance
+  matrix. The 'OR' variant cannot use the (site1_id, site2_id) index for both branches and ends up
+  scanning the matrix, the canonical variant is one index probe per pair. Compare 'Execution Time'
+  of each pair of 'explain analyze' outputs at 1k sites (~500k matrix rows) and 5k sites
+  (~12.5M matrix rows).
+ */
+\timing on
+
+create temp table distance_benchmark(
+  id serial primary key,
+  site1_id integer not null,
+  site2_id integer not null,
+  distance_miles decimal(6,1),
+  drive_time_seconds integer,
+  unique (site1_id, site2_id),
+  check (site1_id < site2_id)
+);
+create index on distance_benchmark(site2_id);
+
+-- 500 random site pairs to look up, in both orders
+create temp table route_benchmark as
+select (random() * 999)::int + 1 needy_site_id, (random() * 999)::int + 1 giving_site_id
+from generate_series(1, 500);
+delete from route_benchmark where needy_site_id = giving_site_id;
+
+-- 1k sites
+insert into distance_benchmark(site1_id, site2_id, distance_miles, drive_time_seconds)
+select s1, s2, 10.0, 600
+from generate_series(1, 1000) s1
+cross join generate_series(1, 1000) s2
+where s1 < s2;
+analyze distance_benchmark;
+analyze route_benchmark;
+
+explain analyze
+select r.*, d.distance_miles
+from route_benchmark r
+left join distance_benchmark d on
+  (d.site1_id = r.needy_site_id and d.site2_id = r.giving_site_id) or
+  (d.site2_id = r.needy_site_id and d.site1_id = r.giving_site_id);
+
+explain analyze
+select r.*, d.distance_miles
+from route_benchmark r
+left join distance_benchmark d on
+  d.site1_id = least(r.needy_site_id, r.giving_site_id)
+  and d.site2_id = greatest(r.needy_site_id, r.giving_site_id);
+
+-- 5k sites
+insert into distance_benchmark(site1_id, site2_id, distance_miles, drive_time_seconds)
+select s1, s2, 10.0, 600
+from generate_series(1, 5000) s1
+cross join generate_series(1, 5000) s2
+where s1 < s2 and s2 > 1000;
+analyze distance_benchmark;
+
+explain analyze
+select r.*, d.distance_miles
+from route_benchmark r
+left join distance_benchmark d on
+  (d.site1_id = r.needy_site_id and d.site2_id = r.giving_site_id) or
+  (d.site2_id = r.needy_site_id and d.site1_id = r.giving_site_id);
+
+explain analyze
+select r.*, d.distance_miles
+from route_benchmark r
+left join distance_benchmark d on
+  d.site1_id = least(r.needy_site_id, r.giving_site_id)
+  and d.site2_id = greatest(r.needy_site_id, r.giving_site_id);
+
+drop table route_benchmark;
+drop table distance_benchmark;
@@ -0,0 +1,29 @@
+/**
+  Phone numbers are stored as they were entered, eg: '(828) 555-1234'. Lookups by phone number
+  compared on 'regexp_replace(phone, ...)', which requires a full table scan and a regex per row.
+
+  The columns below hold the digits-only phone number. They are generated columns, so they are
+  always maintained on write, and they are indexed.
+ */
+alter table site add column contact_number_digits varchar(32)
+  generated always as (regexp_replace(contact_number, '[^0-9]+', '', 'g')) stored;
+alter table site add column og_contact_number_digits varchar(16)
+  generated always as (regexp_replace(og_contact_number, '[^0-9]+', '', 'g')) stored;
+create index site_contact_number_digits_idx on site(contact_number_digits);
+create index site_og_contact_number_digits_idx on site(og_contact_number_digits);
+
+alter table additional_site_manager add column phone_digits varchar(16)
+  generated always as (regexp_replace(phone, '[^0-9]+', '', 'g')) stored;
+create index additional_site_manager_phone_digits_idx on additional_site_manager(phone_digits);
+
+alter table driver add column phone_digits varchar(32)
+  generated always as (regexp_replace(phone, '[^0-9]+', '', 'g')) stored;
+create index driver_phone_digits_idx on driver(phone_digits);
+
+alter table delivery add column driver_number_digits varchar(24)
+  generated always as (regexp_replace(driver_number, '[^0-9]+', '', 'g')) stored;
+create index delivery_driver_number_digits_idx on delivery(driver_number_digits);
+
+alter table wss_user add column phone_digits varchar(11)
+  generated always as (regexp_replace(phone, '[^0-9]+', '', 'g')) stored;
+create index wss_user_phone_digits_idx on wss_user(phone_digits);
@@ -0,0 +1,34 @@
+/*
+  Store each site pair once, smaller site id first (site1_id < site2_id). Readers and writers
+  look up a pair with 'site1_id = least(a, b) and site2_id = greatest(a, b)', which is a single
+  probe of the (site1_id, site2_id) unique index instead of an 'OR' of both orderings.
+ */
+
+-- Dedupe pairs that are stored in both orders, keep the row with the most information
+-- (computed distance first, then known-invalid, then not yet computed).
+delete from site_distance_matrix
+where id in (
+  select id from (
+    select
+      id,
+      row_number() over (
+        partition by least(site1_id, site2_id), greatest(site1_id, site2_id)
+        order by (valid is true) desc, (valid is false) desc, id
+      ) rank
+    from site_distance_matrix
+  ) ranked
+  where ranked.rank > 1
+);
+
+delete from site_distance_matrix where site1_id = site2_id;
+
+update site_distance_matrix
+set site1_id = site2_id, site2_id = site1_id
+where site1_id > site2_id;
+
+alter table site_distance_matrix
+  add constraint site_distance_matrix_ordered check (site1_id < site2_id);
+
+-- (site1_id, site2_id) is covered by the unique constraint 'site_distance_matrix_uk',
+-- this index covers lookups of all distances of one site ('site1_id = x or site2_id = x').
+create index site_distance_matrix_site2_idx on site_distance_matrix(site2_id);
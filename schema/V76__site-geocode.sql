@@ -0,0 +1,14 @@
+/*
+  Sites are geocoded once (and again only when their address changes). Straight line distances
+  computed from the coordinates are used to skip road distance lookups for far apart sites, and
+  as an approximate distance until the road distance is known.
+ */
+alter table site add column latitude double precision;
+alter table site add column longitude double precision;
+
+/** null if the site has not been geocoded yet, false if the address could not be geocoded */
+alter table site add column geocode_valid boolean;
+
+alter table site_distance_matrix add column straight_line_miles decimal(6,1);
+alter table site_distance_matrix
+  add constraint site_distance_straight_line_value check (straight_line_miles >= 0.0);
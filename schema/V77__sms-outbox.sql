@@ -0,0 +1,25 @@
+/*
+  SMS messages waiting to be sent. Messages are written here first and sent in the background,
+  so that they survive a restart and can be retried.
+
+  status: PENDING until sent, then SENT, or FAILED once we give up on a message.
+  next_attempt_at: a PENDING message is sent once this time has passed. A sender claims a
+    message by moving this forward (a lease), if the sender dies the message is claimed again
+    once the lease runs out.
+  attempts: number of times we have tried to send the message
+ */
+create table sms_outbox(
+  id serial primary key,
+  number varchar(32) not null,
+  message text not null,
+  status varchar(16) not null default 'PENDING',
+  attempts integer not null default 0,
+  next_attempt_at timestamptz not null default now(),
+  date_created timestamptz not null default now(),
+  date_sent timestamptz
+);
+alter table sms_outbox owner to wnc_helene;
+alter table sms_outbox
+  add constraint sms_outbox_status check (status in ('PENDING', 'SENT', 'FAILED'));
+
+create index sms_outbox_pending_idx on sms_outbox(next_attempt_at) where status = 'PENDING';
@@ -0,0 +1,20 @@
+/*
+  Weights used to score delivery routes (see RouteWeighting). A route is listed if the weight of
+  its items is more than the distance penalty.
+
+  The weight of an item on a route is the weight of its status at the receiving site, multiplied
+  by the weight of the item. The item weight is item.route_weight if set, otherwise the largest
+  weight of the item's tags (item_tag_route_weight), otherwise 1.0.
+ */
+alter table item_status add column route_weight numeric(6,2) not null default 0;
+update item_status set route_weight = 25 where name = 'Urgently Needed';
+update item_status set route_weight = 10 where name = 'Needed';
+
+alter table item add column route_weight numeric(6,2);
+alter table item add constraint item_route_weight_value check (route_weight >= 0);
+
+create table item_tag_route_weight(
+  tag_name varchar(64) primary key,
+  route_weight numeric(6,2) not null check (route_weight >= 0)
+);
+alter table item_tag_route_weight owner to wnc_helene;
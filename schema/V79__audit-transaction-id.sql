@@ -0,0 +1,15 @@
+/*
+  Id of the transaction that wrote each audit row, for the change feed (ChangeFeedDao).
+
+  Audit ids are assigned at insert but become visible at commit, so a reader going by id can
+  skip a row that commits after a later id. Rows of transactions older than the oldest running
+  transaction (pg_snapshot_xmin) can no longer appear, the change feed reads in (txid, id) order
+  and only up to that point.
+
+  Existing rows all get the id of this migration's transaction.
+ */
+alter table site_audit_trail add column txid xid8 not null default pg_current_xact_id();
+create index site_audit_trail_txid_idx on site_audit_trail(txid, id);
+
+alter table site_item_audit add column txid xid8 not null default pg_current_xact_id();
+create index site_item_audit_txid_idx on site_item_audit(txid, id);
@@ -0,0 +1,5 @@
+/*
+  Numbers are recorded as they are passed to SmsSender, formatting included (for example
+  '+1 (828) 555-1234'), same length as sms_outbox.number.
+ */
+alter table sms_send_history alter number type varchar(32);
@@ -0,0 +1,91 @@
+package com.vanatta.helene.supplies.database.browse.routes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Throughput of scoring route candidates, as done for every route when the route candidate graph
+ * is refreshed.
+ *
+ * <pre>
+ * ./gradlew jmh
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RouteWeightingBenchmark {
+  private static final int CANDIDATE_COUNT = 100_000;
+  private static final int ITEM_COUNT = 2_000;
+  private static final int MAX_ITEMS_PER_ROUTE = 12;
+
+  private RouteWeighting weighting;
+  private RouteWeighting.Candidate[] candidates;
+  private List<DeliveryOption> deliveryOptions;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42);
+    double[] itemWeights = new double[ITEM_COUNT];
+    for (int i = 0; i < ITEM_COUNT; i++) {
+      itemWeights[i] = 0.5 + random.nextDouble();
+    }
+    weighting = RouteWeighting.withWeights(10.0, 25.0, 10.0, itemWeights);
+
+    candidates = new RouteWeighting.Candidate[CANDIDATE_COUNT];
+    deliveryOptions = new ArrayList<>(CANDIDATE_COUNT);
+    for (int c = 0; c < CANDIDATE_COUNT; c++) {
+      int itemCount = 1 + random.nextInt(MAX_ITEMS_PER_ROUTE);
+      int[] itemOrdinals = new int[itemCount];
+      boolean[] urgent = new boolean[itemCount];
+      DeliveryOption deliveryOption =
+          DeliveryOption.builder().distanceMiles(1.0 + random.nextDouble() * 150.0).build();
+      for (int i = 0; i < itemCount; i++) {
+        itemOrdinals[i] = random.nextInt(ITEM_COUNT);
+        urgent[i] = random.nextInt(3) == 0;
+        deliveryOption.addItem(
+            DeliveryOption.Item.builder()
+                .name("item " + itemOrdinals[i])
+                .urgencyCssClass(urgent[i] ? "urgent" : "needed")
+                .wssId(itemOrdinals[i])
+                .build());
+      }
+      candidates[c] =
+          new RouteWeighting.Candidate(itemOrdinals, urgent, deliveryOption.getDistanceMiles());
+      deliveryOptions.add(deliveryOption);
+    }
+  }
+
+  /** Scores routes that were encoded when built, the route candidate graph case. */
+  @Benchmark
+  public int scoreEncodedCandidates() {
+    int passing = 0;
+    for (RouteWeighting.Candidate candidate : candidates) {
+      if (weighting.score(candidate) > 0) {
+        passing++;
+      }
+    }
+    return passing;
+  }
+
+  /** Encodes and scores routes, the database fallback case. */
+  @Benchmark
+  public int encodeAndScoreDeliveryOptions() {
+    int passing = 0;
+    for (DeliveryOption deliveryOption : deliveryOptions) {
+      if (weighting.filter(deliveryOption)) {
+        passing++;
+      }
+    }
+    return passing;
+  }
+}
@@ -0,0 +1,55 @@
+package com.vanatta.helene.supplies.database.delivery;
+
+import com.google.gson.Gson;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost per call of parsing a delivery update webhook payload, with a new Gson per call (as was
+ * done before) vs the shared codec.
+ *
+ * <pre>
+ * ./gradlew jmh
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeliveryUpdateParsingBenchmark {
+  private static final String JSON =
+      """
+      {"deliveryId":91,"itemListWssIds":[296,301,415],"itemList":["Water","Heaters","Diapers"],
+      "driverNumber":["828.000.0000"],"driverName":["Driver"],"dispatcherNumber":["828.000.0001"],
+      "dispatcherName":["Dispatcher"],"deliveryStatus":"Creating Dispatch",
+      "dropOffSiteWssId":[107],"pickupSiteWssId":[101],"targetDeliveryDate":"2024-12-30",
+      "licensePlateNumbers":["ABC-123"],"publicUrlKey":"ASDF","dispatcherCode":"QWER",
+      "pickupSiteName":["Pickup"],"pickupContactName":["Pickup Contact"],
+      "pickupContactPhone":["(828) 000-0002"],"pickupHours":["9-5"],"pickupAddress":["1 Main St"],
+      "pickupCity":["Boone"],"pickupState":["NC"],"dropoffSiteName":["Dropoff"],
+      "dropoffContactName":["Dropoff Contact"],"dropoffContactPhone":["(828) 000-0003"],
+      "dropoffHours":["8-4"],"dropoffAddress":["2 Main St"],"dropoffCity":["Asheville"],
+      "dropoffState":["NC"]}
+      """;
+
+  @Benchmark
+  public DeliveryUpdate newGsonPerCall() {
+    return new Gson().fromJson(JSON, DeliveryUpdate.class);
+  }
+
+  @Benchmark
+  public DeliveryUpdate sharedCodec() {
+    return DeliveryUpdate.parseJson(JSON);
+  }
+
+  /** As done by the webhook, reading the request body without first copying it to a String. */
+  @Benchmark
+  public DeliveryUpdate sharedCodecFromReader() {
+    return DeliveryUpdate.parseJson(new StringReader(JSON));
+  }
+}
@@ -0,0 +1,135 @@
+package com.vanatta.helene.supplies.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.ConnectionFactory;
+
+/**
+ * Limits how many threads use the database at once, to leave headroom in the connection pool.
+ *
+ * <p>With virtual threads, many more requests can run at once than there are connections. Waiting
+ * threads park on a fair semaphore here, rather than in the connection pool's wait queue. If too
+ * many threads are already waiting ('maxWaiting'), or a permit is not available within
+ * 'acquireTimeoutMs', we fail fast with {@link DatabaseBusyException} (HTTP 503) instead of
+ * letting requests pile up and time out.
+ *
+ * <p>A thread takes one permit for its first connection. Connections it opens while still holding
+ * that one (for example a lookup inside a transaction) do not take another permit. The pool is
+ * sized for each permit holder to hold up to 'maxPerThread' connections at once, a thread that
+ * holds more is logged as a warning, it may then wait in the pool. Connections are closed by the
+ * thread that opened them, as Jdbi handles are.
+ */
+@Slf4j
+class ConcurrencyLimitedConnectionFactory implements ConnectionFactory {
+
+  /** Thrown when a database connection is not available, mapped to HTTP 503. */
+  static class DatabaseBusyException extends RuntimeException {
+    DatabaseBusyException(String message) {
+      super(message);
+    }
+  }
+
+  private final DataSource dataSource;
+  private final Semaphore permits;
+  private final int maxPerThread;
+  private final int maxWaiting;
+  private final long acquireTimeoutMs;
+
+  private final AtomicInteger waiting = new AtomicInteger(0);
+  private final AtomicLong rejectedCount = new AtomicLong(0);
+
+  /** Connections held by the current thread, the first one holds a permit. */
+  private final ThreadLocal<Integer> heldByThread = ThreadLocal.withInitial(() -> 0);
+
+  ConcurrencyLimitedConnectionFactory(
+      DataSource dataSource,
+      int maxConcurrent,
+      int maxPerThread,
+      int maxWaiting,
+      long acquireTimeoutMs) {
+    this.dataSource = dataSource;
+    this.permits = new Semaphore(maxConcurrent, true);
+    this.maxPerThread = maxPerThread;
+    this.maxWaiting = maxWaiting;
+    this.acquireTimeoutMs = acquireTimeoutMs;
+  }
+
+  @Override
+  public Connection openConnection() throws SQLException {
+    int held = heldByThread.get();
+    if (held >= maxPerThread) {
+      log.warn(
+          "Thread {} opening database connection {}, the pool is sized for {} per thread",
+          Thread.currentThread(),
+          held + 1,
+          maxPerThread);
+    }
+    if (held == 0) {
+      acquire();
+    }
+    try {
+      Connection connection = dataSource.getConnection();
+      heldByThread.set(held + 1);
+      return connection;
+    } catch (SQLException | RuntimeException e) {
+      if (held == 0) {
+        permits.release();
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public void closeConnection(Connection connection) throws SQLException {
+    int held = heldByThread.get() - 1;
+    if (held <= 0) {
+      heldByThread.remove();
+    } else {
+      heldByThread.set(held);
+    }
+    try {
+      connection.close();
+    } finally {
+      if (held <= 0) {
+        permits.release();
+      }
+    }
+  }
+
+  private void acquire() {
+    // a zero timeout, unlike tryAcquire(), does not barge ahead of threads already waiting
+    try {
+      if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+        return;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DatabaseBusyException("Interrupted waiting for the database");
+    }
+    if (waiting.incrementAndGet() > maxWaiting) {
+      waiting.decrementAndGet();
+      throw rejected("Too many requests waiting for the database: " + maxWaiting);
+    }
+    try {
+      if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+        throw rejected("Timed out after " + acquireTimeoutMs + " ms waiting for the database");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DatabaseBusyException("Interrupted waiting for the database");
+    } finally {
+      waiting.decrementAndGet();
+    }
+  }
+
+  private DatabaseBusyException rejected(String message) {
+    log.warn("{}, total rejected: {}", message, rejectedCount.incrementAndGet());
+    return new DatabaseBusyException(message);
+  }
+}
@@ -5,7 +5,6 @@ import jakarta.servlet.http.HttpServletRequest;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.jdbi.v3.core.Jdbi;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ModelAttribute;
 
@@ -16,6 +15,9 @@ import org.springframework.web.bind.annotation.ModelAttribute;
  *
  * <p>Configures parameters based upon the requested domain. Different deployments are partitioned
  * by the domain name.
+ *
+ * <p>Deployment values are resolved from {@link DeploymentRegistry}, no database access is needed
+ * per request.
  */
 @ControllerAdvice
 @Slf4j
@@ -25,7 +27,7 @@ public class DeploymentAdvice {
   public static final String DEPLOYMENT_SHORT_NAME = "deploymentShortName";
   public static final String DEPLOYMENT_STATE_LIST = "deploymentStateList";
   public static final String DEPLOYMENT_ID = "deploymentId";
-  private final Jdbi jdbi;
+  private final DeploymentRegistry deploymentRegistry;
   private final HostNameLookup hostNameLookup;
 
   @ModelAttribute(DEPLOYMENT_DOMAIN_NAME)
@@ -35,63 +37,29 @@ public class DeploymentAdvice {
 
   @ModelAttribute(DEPLOYMENT_SHORT_NAME)
   public String shortName(HttpServletRequest request) {
-    return getShortNameForHost(jdbi, hostNameLookup.lookupHostName(request));
-  }
-
-  // @VisibleForTesting
-  static String getShortNameForHost(Jdbi jdbi, String domain) {
-    try {
-      return jdbi.withHandle(
-          h ->
-              h.createQuery("select short_name from deployment where lower(domain) = :domain")
-                  .bind("domain", domain)
-                  .mapTo(String.class)
-                  .one());
-    } catch (Exception e) {
-      log.warn(
-          "Unable to lookup short name for domain: {}, if the domain is legit (not an IP address),"
-              + "then this is a real problem. Otherwise ignore this error. Error: {}",
-          domain,
-          e.getMessage());
-      throw e;
-    }
+    return lookupDeployment(hostNameLookup.lookupHostName(request)).getShortName();
   }
 
   @ModelAttribute(DEPLOYMENT_STATE_LIST)
   public List<String> stateList(HttpServletRequest request) {
-    return fetchStateListForHost(jdbi, hostNameLookup.lookupHostName(request));
+    return lookupDeployment(hostNameLookup.lookupHostName(request)).getStates();
   }
 
   @ModelAttribute(DEPLOYMENT_ID)
   public Number deploymentId(HttpServletRequest request) {
-    return fetchDeploymentId(jdbi, hostNameLookup.lookupHostName(request));
-  }
-
-  static Number fetchDeploymentId(Jdbi jdbi, String domain) {
-    return jdbi.withHandle(
-        h ->
-            h.createQuery(
-                    """
-                              select id
-                              from deployment
-                              where domain = :domain
-                            """)
-                .bind("domain", domain)
-                .mapTo(Integer.class)
-                .one());
+    return lookupDeployment(hostNameLookup.lookupHostName(request)).getId();
   }
 
-  static List<String> fetchStateListForHost(Jdbi jdbi, String domain) {
-    return jdbi.withHandle(
-        h ->
-            h.createQuery(
-                    """
-              select state
-              from deployment_states
-              where deployment_id = (select id from deployment where lower(domain) = :domain)
-            """)
-                .bind("domain", domain)
-                .mapTo(String.class)
-                .list());
+  private DeploymentRegistry.Deployment lookupDeployment(String domain) {
+    return deploymentRegistry
+        .lookupByDomain(domain)
+        .orElseThrow(
+            () -> {
+              log.warn(
+                  "Unable to lookup deployment for domain: {}, if the domain is legit (not an IP "
+                      + "address), then this is a real problem. Otherwise ignore this error.",
+                  domain);
+              return new IllegalStateException("No deployment found for domain: " + domain);
+            });
   }
 }
@@ -0,0 +1,108 @@
+package com.vanatta.helene.supplies.database;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Jdbi;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds all deployments (and their list of states) in memory, keyed by domain name. Deployment
+ * data changes very rarely, it is loaded at startup and is reloaded on an explicit {@link
+ * #refresh()}.
+ *
+ * <p>Reads are lock-free, a refresh builds a new map and swaps it in.
+ */
+@Slf4j
+@Component
+public class DeploymentRegistry {
+
+  @Value
+  @Builder
+  public static class Deployment {
+    int id;
+    String domain;
+    String shortName;
+    List<String> states;
+  }
+
+  private final Jdbi jdbi;
+  private volatile Map<String, Deployment> deploymentsByDomain;
+
+  public DeploymentRegistry(Jdbi jdbi) {
+    this.jdbi = jdbi;
+    refresh();
+  }
+
+  /** Reloads all deployments from database. */
+  public void refresh() {
+    deploymentsByDomain = loadDeployments(jdbi);
+    log.info("Loaded deployments: {}", deploymentsByDomain.keySet());
+  }
+
+  public Optional<Deployment> lookupByDomain(String domain) {
+    return Optional.ofNullable(deploymentsByDomain.get(domain.toLowerCase()));
+  }
+
+  /** Returns all domain names that are associated with a deployment. */
+  public List<String> getDomains() {
+    return List.copyOf(deploymentsByDomain.keySet());
+  }
+
+  @Data
+  @NoArgsConstructor
+  public static class DeploymentRow {
+    int id;
+    String domain;
+    String shortName;
+    String state;
+  }
+
+  // @VisibleForTesting
+  static Map<String, Deployment> loadDeployments(Jdbi jdbi) {
+    String query =
+        """
+        select
+          d.id,
+          d.domain,
+          d.short_name,
+          ds.state
+        from deployment d
+        left join deployment_states ds on ds.deployment_id = d.id
+        order by d.id, ds.state
+        """;
+    List<DeploymentRow> rows =
+        jdbi.withHandle(handle -> handle.createQuery(query).mapToBean(DeploymentRow.class).list());
+
+    Map<String, DeploymentRow> deploymentRows = new HashMap<>();
+    Map<String, List<String>> states = new HashMap<>();
+    for (DeploymentRow row : rows) {
+      String domain = row.getDomain().toLowerCase();
+      deploymentRows.putIfAbsent(domain, row);
+      List<String> deploymentStates = states.computeIfAbsent(domain, _ -> new ArrayList<>());
+      if (row.getState() != null) {
+        deploymentStates.add(row.getState());
+      }
+    }
+
+    Map<String, Deployment> deployments = new HashMap<>();
+    deploymentRows.forEach(
+        (domain, row) ->
+            deployments.put(
+                domain,
+                Deployment.builder()
+                    .id(row.getId())
+                    .domain(domain)
+                    .shortName(row.getShortName())
+                    .states(List.copyOf(states.get(domain)))
+                    .build()));
+    return Map.copyOf(deployments);
+  }
+}
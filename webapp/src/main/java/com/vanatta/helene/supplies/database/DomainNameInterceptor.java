@@ -5,7 +5,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.AllArgsConstructor;
-import org.jdbi.v3.core.Jdbi;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -15,33 +14,28 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class DomainNameInterceptor implements WebMvcConfigurer {
 
-  private final List<String> validDomains;
+  private final DeploymentRegistry deploymentRegistry;
 
-  public DomainNameInterceptor(Jdbi jdbi) {
-    validDomains = fetchValidDomains(jdbi);
+  public DomainNameInterceptor(DeploymentRegistry deploymentRegistry) {
+    this.deploymentRegistry = deploymentRegistry;
   }
 
-  static List<String> fetchValidDomains(Jdbi jdbi) {
+  static List<String> fetchValidDomains(DeploymentRegistry deploymentRegistry) {
     List<String> domains = new ArrayList<>();
     domains.add("localhost");
-    domains.addAll(
-        jdbi.withHandle(
-            h ->
-                h.createQuery("select distinct domain from deployment")
-                    .mapTo(String.class)
-                    .list()));
+    domains.addAll(deploymentRegistry.getDomains());
     return domains;
   }
 
   @Override
   public void addInterceptors(InterceptorRegistry registry) {
-    registry.addInterceptor(new DomainInterceptor(validDomains));
+    registry.addInterceptor(new DomainInterceptor(deploymentRegistry));
   }
 
   @AllArgsConstructor
   static class DomainInterceptor implements HandlerInterceptor {
 
-    List<String> validDomains;
+    DeploymentRegistry deploymentRegistry;
 
     @Override
     public boolean preHandle(
@@ -49,7 +43,7 @@ public class DomainNameInterceptor implements WebMvcConfigurer {
 
       String host = request.getHeader("host");
 
-      if (validDomains.stream().anyMatch(host::contains)) {
+      if (fetchValidDomains(deploymentRegistry).stream().anyMatch(host::contains)) {
         return true;
       } else {
         response.sendRedirect("https://wnc-supply-sites.com");
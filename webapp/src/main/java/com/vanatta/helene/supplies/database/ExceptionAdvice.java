@@ -1,5 +1,6 @@
 package com.vanatta.helene.supplies.database;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -8,7 +9,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
  * Exception handler advice class for all SpringMVC controllers.
  *
  * <p>Maps: <br>
- * - IllegalArgumentException -> HTTP 400
+ * - IllegalArgumentException -> HTTP 400 <br>
+ * - DatabaseBusyException -> HTTP 503
  */
 @org.springframework.web.bind.annotation.ControllerAdvice
 public class ExceptionAdvice {
@@ -19,4 +21,13 @@ public class ExceptionAdvice {
     return ResponseEntity.status(HttpStatus.BAD_REQUEST)
         .body("Invalid request. " + (e.getMessage() != null ? e.getMessage() : ""));
   }
+
+  /** Too many requests are waiting for the database, ask the client to try again later. */
+  @ExceptionHandler(ConcurrencyLimitedConnectionFactory.DatabaseBusyException.class)
+  public ResponseEntity<String> handleException(
+      ConcurrencyLimitedConnectionFactory.DatabaseBusyException e) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body("Server is busy, please try again.");
+  }
 }
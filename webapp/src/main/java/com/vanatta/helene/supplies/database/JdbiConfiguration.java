@@ -13,12 +13,22 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 @Slf4j
 public class JdbiConfiguration {
+  private static final long CONNECTION_TIMEOUT_MS = 10_000;
+
+  /**
+   * Connections one request thread holds at most at once: one, plus one opened while the first is
+   * still held (for example a lookup inside a transaction).
+   */
+  private static final int MAX_CONNECTIONS_PER_THREAD = 2;
 
   @Bean
   public Jdbi jdbi(
       @Value("${jdbi.url}") String url,
       @Value("${jdbi.user}") String user,
-      @Value("${jdbi.password}") String password) {
+      @Value("${jdbi.password}") String password,
+      @Value("${jdbi.pool.size}") int poolSize,
+      @Value("${jdbi.max.waiting}") int maxWaiting,
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreadsEnabled) {
     HikariConfig config = new HikariConfig();
     config.setJdbcUrl(url);
     config.setUsername(user);
@@ -28,13 +38,31 @@ public class JdbiConfiguration {
     // https://github.com/brettwooldridge/HikariCP?tab=readme-ov-file#gear-configuration-knobs-baby
 
     // timeout DB connections at 10s instead of default of 30s
-    config.addDataSourceProperty("connectionTimeout", 10_000);
+    config.setConnectionTimeout(CONNECTION_TIMEOUT_MS);
 
     // Keep pool size small (default is 10). Target env is a single core linode.
     // https://github.com/brettwooldridge/HikariCP/wiki/About-Pool-Sizing
-    config.addDataSourceProperty("maximumPoolSize", "4");
+    config.setMaximumPoolSize(poolSize);
     HikariDataSource ds = new HikariDataSource(config);
-    var jdbi = Jdbi.create(ds).installPlugin(new SqlObjectPlugin());
+
+    Jdbi jdbi;
+    if (virtualThreadsEnabled) {
+      // With virtual threads there can be many more requests than connections. Requests then wait
+      // for a connection in the limiter rather than in the pool. Each permit holder can nest
+      // connections up to MAX_CONNECTIONS_PER_THREAD deep, permits are sized so that every holder
+      // can do so without waiting in the pool.
+      var connectionFactory =
+          new ConcurrencyLimitedConnectionFactory(
+              ds,
+              Math.max(1, poolSize / MAX_CONNECTIONS_PER_THREAD),
+              MAX_CONNECTIONS_PER_THREAD,
+              maxWaiting,
+              CONNECTION_TIMEOUT_MS);
+      jdbi = Jdbi.create(connectionFactory);
+    } else {
+      jdbi = Jdbi.create(ds);
+    }
+    jdbi.installPlugin(new SqlObjectPlugin());
     jdbi.setSqlLogger(new Slf4JSqlLogger());
     return jdbi;
   }
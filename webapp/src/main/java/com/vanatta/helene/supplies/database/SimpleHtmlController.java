@@ -1,8 +1,10 @@
 package com.vanatta.helene.supplies.database;
 
 import com.vanatta.helene.supplies.database.auth.LoggedInAdvice;
+import com.vanatta.helene.supplies.database.auth.LoginDao;
 import com.vanatta.helene.supplies.database.auth.UserRole;
 import com.vanatta.helene.supplies.database.data.HostNameLookup;
+import com.vanatta.helene.supplies.database.util.CookieUtil;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -58,7 +60,8 @@ public class SimpleHtmlController {
   }
 
   @GetMapping("/log-out")
-  public RedirectView logout(HttpServletResponse response) {
+  public RedirectView logout(HttpServletRequest request, HttpServletResponse response) {
+    CookieUtil.readAuthCookie(request).ifPresent(token -> LoginDao.revokeAuthToken(jdbi, token));
     Cookie cookie = new Cookie("auth", null);
     cookie.setMaxAge(0);
     cookie.setSecure(true);
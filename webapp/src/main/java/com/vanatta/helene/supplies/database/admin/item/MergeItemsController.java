@@ -1,5 +1,7 @@
 package com.vanatta.helene.supplies.database.admin.item;
 
+import com.vanatta.helene.supplies.database.data.ItemDictionary;
+import com.vanatta.helene.supplies.database.supplies.SupplySearchIndex;
 import com.vanatta.helene.supplies.database.util.DateTimeFormat;
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -231,6 +233,8 @@ public class MergeItemsController {
                     """)
                 .bindList("itemIds", itemsToMergeIds)
                 .execute());
+    ItemDictionary.itemsRemoved(itemsToMergeIds);
+    SupplySearchIndex.markItemsChanged();
   }
 
   private static String itemNameById(Jdbi jdbi, long id) {
@@ -0,0 +1,75 @@
+package com.vanatta.helene.supplies.database.auth;
+
+import com.vanatta.helene.supplies.database.util.TokenBucketRateLimiter;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Throttles login and access code requests, by client IP address and by the phone number (or access
+ * code CSRF token) being logged in to. Checked before any password hashing, database or SMS work,
+ * so that a burst of guesses is cheap to turn away.
+ */
+@Slf4j
+@Component
+public class AuthRateLimiter {
+  private static final int STRIPES = 4096;
+  private static final int LOG_STATS_INTERVAL_MS = 5 * 60 * 1000;
+
+  private final TokenBucketRateLimiter ipLimiter;
+  private final TokenBucketRateLimiter accountLimiter;
+  private long lastLoggedRejected = 0;
+
+  @Autowired
+  public AuthRateLimiter(
+      @Value("${auth.rate.limit.ip.capacity}") int ipCapacity,
+      @Value("${auth.rate.limit.ip.per.minute}") int ipPerMinute,
+      @Value("${auth.rate.limit.account.capacity}") int accountCapacity,
+      @Value("${auth.rate.limit.account.per.minute}") int accountPerMinute) {
+    this.ipLimiter = new TokenBucketRateLimiter(ipCapacity, ipPerMinute, STRIPES);
+    this.accountLimiter = new TokenBucketRateLimiter(accountCapacity, accountPerMinute, STRIPES);
+  }
+
+  /** A limiter that allows (practically) everything, for tests. */
+  public static AuthRateLimiter unlimited() {
+    return new AuthRateLimiter(
+        Integer.MAX_VALUE / 2, Integer.MAX_VALUE / 2, Integer.MAX_VALUE / 2, Integer.MAX_VALUE / 2);
+  }
+
+  /**
+   * Returns false if the client or the account has made too many requests recently.
+   *
+   * @param account Phone number (digits only) or other identifier of the account being accessed,
+   *     may be null.
+   */
+  public boolean tryAcquire(HttpServletRequest request, String account) {
+    // rejections are not logged one by one, they are counted and logged with the stats
+    return ipLimiter.tryAcquire(request.getRemoteAddr())
+        && (account == null || accountLimiter.tryAcquire(account));
+  }
+
+  @Builder
+  @lombok.Value
+  public static class Stats {
+    TokenBucketRateLimiter.Stats ip;
+    TokenBucketRateLimiter.Stats account;
+  }
+
+  public Stats stats() {
+    return Stats.builder().ip(ipLimiter.stats()).account(accountLimiter.stats()).build();
+  }
+
+  @Scheduled(fixedDelay = LOG_STATS_INTERVAL_MS, initialDelay = LOG_STATS_INTERVAL_MS)
+  void logStats() {
+    Stats stats = stats();
+    long rejected = stats.getIp().getRejected() + stats.getAccount().getRejected();
+    if (rejected != lastLoggedRejected) {
+      lastLoggedRejected = rejected;
+      log.info("Auth rate limiter stats: {}", stats);
+    }
+  }
+}
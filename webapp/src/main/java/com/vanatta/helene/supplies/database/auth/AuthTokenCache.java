@@ -0,0 +1,67 @@
+package com.vanatta.helene.supplies.database.auth;
+
+import com.vanatta.helene.supplies.database.util.CookieUtil;
+import com.vanatta.helene.supplies.database.util.HashingUtil;
+import com.vanatta.helene.supplies.database.util.TtlCache;
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.Optional;
+import lombok.Builder;
+import lombok.Value;
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Caches which auth tokens are valid, keyed by the token hash. Valid tokens map to their user,
+ * invalid tokens are cached too (for a shorter time) so that a bad cookie does not cost a query on
+ * every request.
+ *
+ * <p>The cache is bounded (least recently used entries are evicted first). Logging out or revoking
+ * a token calls {@link #invalidate(String)}, changes to users (eg: a user is removed) call {@link
+ * #invalidateAll()}.
+ */
+public class AuthTokenCache {
+  private static final String TOKEN_HASH_ATTRIBUTE = AuthTokenCache.class.getName();
+  private static final int MAX_CACHE_SIZE = 10_000;
+  private static final Duration VALID_TTL = Duration.ofMinutes(5);
+  private static final Duration INVALID_TTL = Duration.ofSeconds(30);
+
+  /** The user that an auth token belongs to. */
+  @Value
+  @Builder
+  public static class AuthUser {
+    long userId;
+    String phoneNumber;
+  }
+
+  private static final TtlCache<String, Optional<AuthUser>> cache =
+      new TtlCache<>(MAX_CACHE_SIZE, user -> user.isPresent() ? VALID_TTL : INVALID_TTL);
+
+  /**
+   * Returns the hash of the request auth cookie, or empty if there is no auth cookie. The hash is
+   * computed once per request.
+   */
+  static Optional<String> readTokenHash(HttpServletRequest request) {
+    String tokenHash = (String) request.getAttribute(TOKEN_HASH_ATTRIBUTE);
+    if (tokenHash == null) {
+      tokenHash = CookieUtil.readAuthCookie(request).map(HashingUtil::sha256).orElse(null);
+      if (tokenHash != null) {
+        request.setAttribute(TOKEN_HASH_ATTRIBUTE, tokenHash);
+      }
+    }
+    return Optional.ofNullable(tokenHash);
+  }
+
+  /** Returns the user of a token (by its hash), or empty if the token is not valid. */
+  static Optional<AuthUser> lookup(Jdbi jdbi, String tokenHash) {
+    return cache.get(tokenHash, hash -> LoginDao.fetchAuthUser(jdbi, hash));
+  }
+
+  /** Drops a single token from the cache, eg: on logout. */
+  public static void invalidate(String tokenHash) {
+    cache.invalidate(tokenHash);
+  }
+
+  public static void invalidateAll() {
+    cache.invalidateAll();
+  }
+}
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Component;
  */
 @Component
 public class CookieAuthenticator {
+  private static final String AUTHENTICATED_ATTRIBUTE = CookieAuthenticator.class.getName();
 
   /** AuthKey value is cached. */
   @Getter private final String authKey;
@@ -29,13 +30,23 @@ public class CookieAuthenticator {
     this.allowUniversalLogin = allowUniversalLogin;
   }
 
+  /** Result is computed once per request, later checks in the same request read it back. */
   public boolean isAuthenticated(HttpServletRequest request) {
+    Boolean authenticated = (Boolean) request.getAttribute(AUTHENTICATED_ATTRIBUTE);
+    if (authenticated == null) {
+      authenticated = checkAuthenticated(request);
+      request.setAttribute(AUTHENTICATED_ATTRIBUTE, authenticated);
+    }
+    return authenticated;
+  }
+
+  private boolean checkAuthenticated(HttpServletRequest request) {
     if (allowUniversalLogin && isAuthenticatedWithUniversalPassword(request)) {
       return true;
     }
-    return CookieUtil.readAuthCookie(request)
-        .map(auth -> LoginDao.isLoggedIn(jdbi, auth))
-        .orElse(false);
+    return AuthTokenCache.readTokenHash(request)
+        .flatMap(tokenHash -> AuthTokenCache.lookup(jdbi, tokenHash))
+        .isPresent();
   }
 
   public boolean isAuthenticatedWithUniversalPassword(HttpServletRequest request) {
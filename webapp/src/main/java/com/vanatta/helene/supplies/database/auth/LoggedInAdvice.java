@@ -1,6 +1,5 @@
 package com.vanatta.helene.supplies.database.auth;
 
-import com.vanatta.helene.supplies.database.util.CookieUtil;
 import com.vanatta.helene.supplies.database.util.HashingUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.ArrayList;
@@ -21,7 +20,7 @@ public class LoggedInAdvice {
   public static final String LOGGED_IN = "loggedIn";
 
   private final CookieAuthenticator cookieAuthenticator;
-  private final Jdbi jdbi;
+  private final UserPrincipalResolver userPrincipalResolver;
 
   @ModelAttribute(LOGGED_IN)
   public boolean loggedIn(HttpServletRequest request) {
@@ -31,23 +30,12 @@ public class LoggedInAdvice {
 
   @ModelAttribute(USER_PHONE)
   public String userPhone(HttpServletRequest request) {
-    String auth = CookieUtil.readAuthCookie(request).orElse(null);
-    if (auth == null) {
-      return null;
-    } else {
-      return fetchPhoneNumberFromAuth(jdbi, auth).orElse(null);
-    }
+    return userPrincipalResolver.resolve(request).map(UserPrincipal::getPhoneNumber).orElse(null);
   }
 
   @ModelAttribute(USER_SITES)
-  public List<Long> userSites(
-      @ModelAttribute(USER_ROLES) List<UserRole> roles, HttpServletRequest request) {
-    String auth = CookieUtil.readAuthCookie(request).orElse(null);
-    if (auth == null) {
-      return List.of();
-    } else {
-      return computeUserSites(jdbi, auth, roles);
-    }
+  public List<Long> userSites(HttpServletRequest request) {
+    return userPrincipalResolver.resolve(request).map(UserPrincipal::getSiteIds).orElse(List.of());
   }
 
   public static List<Long> computeUserSites(Jdbi jdbi, String auth, List<UserRole> roles) {
@@ -55,59 +43,59 @@ public class LoggedInAdvice {
     if (number == null) {
       return List.of();
     } else {
-      if (UserRole.hasGodMode(roles)) {
-        // get list of all sites
-        return jdbi
-            .withHandle(h -> h.createQuery("select id from site").mapTo(Long.class).list())
-            .stream()
-            .sorted()
-            .toList();
-      } else {
-        // get list of sites that user is primary or secondary
-        return jdbi
-            .withHandle(
-                h ->
-                    h.createQuery(
-                            """
-                                select id siteId
-                                from site
-                                where regexp_replace(contact_number, '[^0-9]+', '', 'g') = :number
-                                union
-                                select id siteId
-                                from site
-                                where regexp_replace(og_contact_number, '[^0-9]+', '', 'g') = :number
-                                union
-                                select site_id siteId
-                                from additional_site_manager
-                                where regexp_replace(phone, '[^0-9]+', '', 'g') = :number;
-                                """)
-                        .bind("number", number)
-                        .mapTo(Long.class)
-                        .list())
-            .stream()
-            .sorted()
-            .distinct()
-            .toList();
-      }
+      return computeUserSitesByPhone(jdbi, number, roles);
     }
   }
 
-  @ModelAttribute(LoggedInAdvice.USER_ROLES)
-  public List<UserRole> userRoles(HttpServletRequest request) {
-    String auth = CookieUtil.readAuthCookie(request).orElse(null);
-    if (auth == null) {
-      return List.of();
+  static List<Long> computeUserSitesByPhone(Jdbi jdbi, String number, List<UserRole> roles) {
+    if (UserRole.hasGodMode(roles)) {
+      // get list of all sites
+      return jdbi
+          .withHandle(h -> h.createQuery("select id from site").mapTo(Long.class).list())
+          .stream()
+          .sorted()
+          .toList();
     } else {
-      return computeUserRoles(jdbi, auth);
+      // get list of sites that user is primary or secondary
+      return jdbi
+          .withHandle(
+              h ->
+                  h.createQuery(
+                          """
+                              select id siteId
+                              from site
+                              where contact_number_digits = :number
+                              union
+                              select id siteId
+                              from site
+                              where og_contact_number_digits = :number
+                              union
+                              select site_id siteId
+                              from additional_site_manager
+                              where phone_digits = :number;
+                              """)
+                      .bind("number", number)
+                      .mapTo(Long.class)
+                      .list())
+          .stream()
+          .sorted()
+          .distinct()
+          .toList();
     }
   }
 
+  @ModelAttribute(LoggedInAdvice.USER_ROLES)
+  public List<UserRole> userRoles(HttpServletRequest request) {
+    return userPrincipalResolver.resolve(request).map(UserPrincipal::getRoles).orElse(List.of());
+  }
+
   static List<UserRole> computeUserRoles(Jdbi jdbi, String auth) {
-    String userPhone = fetchPhoneNumberFromAuth(jdbi, auth).orElse(null);
-    if (userPhone == null) {
-      return List.of();
-    }
+    return fetchPhoneNumberFromAuth(jdbi, auth)
+        .map(userPhone -> computeUserRolesByPhone(jdbi, userPhone))
+        .orElse(List.of());
+  }
 
+  static List<UserRole> computeUserRolesByPhone(Jdbi jdbi, String userPhone) {
     List<UserRole> userRoles = new ArrayList<>();
     userRoles.add(UserRole.AUTHORIZED);
 
@@ -148,7 +136,7 @@ public class LoggedInAdvice {
                 h ->
                     h.createQuery(
                             """
-                            select 1 from driver where regexp_replace(phone, '[^0-9]+', '', 'g') = :phone
+                            select 1 from driver where phone_digits = :phone
                           """)
                         .bind("phone", userPhone)
                         .mapTo(Long.class)
@@ -164,11 +152,11 @@ public class LoggedInAdvice {
                 h ->
                     h.createQuery(
                             """
-                          select 1 from site where regexp_replace(contact_number, '[^0-9]+', '', 'g')  = :phone
+                          select 1 from site where contact_number_digits = :phone
                           union
-                          select 1 from site where regexp_replace(og_contact_number, '[^0-9]+', '', 'g')  = :phone
+                          select 1 from site where og_contact_number_digits = :phone
                           union
-                          select 1 from additional_site_manager where regexp_replace(phone, '[^0-9]+', '', 'g') = :phone
+                          select 1 from additional_site_manager where phone_digits = :phone
                         """)
                         .bind("phone", userPhone)
                         .mapTo(Long.class)
@@ -182,18 +170,7 @@ public class LoggedInAdvice {
   }
 
   static Optional<String> fetchPhoneNumberFromAuth(Jdbi jdbi, String authKey) {
-    return jdbi.withHandle(
-        h ->
-            h.createQuery(
-                    """
-                  select
-                    wu.phone
-                  from wss_user_auth_key wuak
-                  join wss_user wu on wuak.wss_user_id = wu.id
-                  where wu.removed = false and wuak.token_sha256 = :hashedToken
-                  """)
-                .bind("hashedToken", HashingUtil.sha256(authKey))
-                .mapTo(String.class)
-                .findOne());
+    return AuthTokenCache.lookup(jdbi, HashingUtil.sha256(authKey))
+        .map(AuthTokenCache.AuthUser::getPhoneNumber);
   }
 }
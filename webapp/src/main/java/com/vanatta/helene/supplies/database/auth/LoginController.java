@@ -2,6 +2,8 @@ package com.vanatta.helene.supplies.database.auth;
 
 import com.vanatta.helene.supplies.database.auth.setup.password.send.access.code.SendAccessTokenDao;
 import com.vanatta.helene.supplies.database.util.CookieUtil;
+import com.vanatta.helene.supplies.database.util.PhoneNumberUtil;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.util.HashMap;
 import java.util.List;
@@ -10,6 +12,7 @@ import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.jdbi.v3.core.Jdbi;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.util.MultiValueMap;
@@ -26,16 +29,22 @@ public class LoginController {
   private final String universalUser;
   private final String universalPassword;
   private final boolean allowUniversalLogin;
+  private final AuthRateLimiter authRateLimiter;
+  private final LoginHistoryRecorder loginHistoryRecorder;
 
   LoginController(
       Jdbi jdbi,
       @Value("${auth.user}") String user,
       @Value("${auth.pass}") String pass,
-      @Value("${allow.universal.login}") boolean allowUniversalLogin) {
+      @Value("${allow.universal.login}") boolean allowUniversalLogin,
+      AuthRateLimiter authRateLimiter,
+      LoginHistoryRecorder loginHistoryRecorder) {
     this.jdbi = jdbi;
     this.universalUser = user;
     this.universalPassword = pass;
     this.allowUniversalLogin = allowUniversalLogin;
+    this.authRateLimiter = authRateLimiter;
+    this.loginHistoryRecorder = loginHistoryRecorder;
   }
 
   @GetMapping("/login/login")
@@ -56,7 +65,9 @@ public class LoginController {
       path = "/doLogin",
       consumes = {MediaType.APPLICATION_FORM_URLENCODED_VALUE})
   public ModelAndView doLogin(
-      @RequestParam MultiValueMap<String, String> params, HttpServletResponse response) {
+      @RequestParam MultiValueMap<String, String> params,
+      HttpServletRequest request,
+      HttpServletResponse response) {
     String user = params.get("user").getFirst();
     String password = params.get("password").getFirst();
     String redirectUri =
@@ -67,8 +78,15 @@ public class LoginController {
       pageParams.put("redirectUri", redirectUri);
       pageParams.put("errorMessage", "Invalid Login");
       return new ModelAndView("login/login", pageParams);
+    } else if (!authRateLimiter.tryAcquire(request, rateLimitAccount(user))) {
+      Map<String, String> pageParams = new HashMap<>();
+      pageParams.put("redirectUri", redirectUri);
+      pageParams.put("errorMessage", "Too many login attempts, please try again in a few minutes.");
+      var modelAndView = new ModelAndView("login/login", pageParams);
+      modelAndView.setStatus(HttpStatus.TOO_MANY_REQUESTS);
+      return modelAndView;
     } else if (PasswordDao.confirmPassword(jdbi, user, password)) {
-      LoginDao.recordLoginSuccess(jdbi, user);
+      loginHistoryRecorder.recordSuccess(user);
       String authToken = LoginDao.generateAuthToken(jdbi, user);
       CookieUtil.setCookie(response, "auth", authToken);
       CookieUtil.setCookie(response, "user", user);
@@ -76,7 +94,7 @@ public class LoginController {
     } else if (universalUser.equalsIgnoreCase(user.trim())
         && universalPassword.equalsIgnoreCase(password.trim())) {
       if (allowUniversalLogin) {
-        LoginDao.recordLoginSuccess(jdbi, user);
+        loginHistoryRecorder.recordSuccess(user);
         String authToken = LoginDao.getAuthKeyOrGenerateIt(jdbi);
         CookieUtil.setCookie(response, "auth", authToken);
         return new ModelAndView("redirect:" + redirectUri);
@@ -87,7 +105,7 @@ public class LoginController {
         && SendAccessTokenDao.isPhoneNumberRegistered(jdbi, user)) {
       return new ModelAndView("redirect:/login/setup-password");
     } else {
-      LoginDao.recordLoginFailure(jdbi, user);
+      loginHistoryRecorder.recordFailure(user);
       log.info("User login failed: {}", user);
       Map<String, String> pageParams = new HashMap<>();
       pageParams.put("redirectUri", redirectUri);
@@ -95,4 +113,19 @@ public class LoginController {
       return new ModelAndView("login/login", pageParams);
     }
   }
+
+  /**
+   * Account key for login rate limiting. Phone numbers are keyed on their digits, so that the same
+   * number in different formats shares one limit. Other user names (eg: the universal login) are
+   * keyed on the trimmed, lower-cased name, rather than all sharing one (empty) key.
+   */
+  // @VisibleForTesting
+  static String rateLimitAccount(String user) {
+    String digits = PhoneNumberUtil.removeNonNumeric(user);
+    if (!digits.isEmpty()) {
+      return digits;
+    }
+    String name = user.trim().toLowerCase();
+    return name.isEmpty() ? null : "user:" + name;
+  }
 }
@@ -2,31 +2,38 @@ package com.vanatta.helene.supplies.database.auth;
 
 import com.vanatta.helene.supplies.database.util.HashingUtil;
 import com.vanatta.helene.supplies.database.util.PhoneNumberUtil;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import lombok.Builder;
+import lombok.Value;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
 
 public class LoginDao {
 
-  public static void recordLoginSuccess(Jdbi jdbi, String phoneNumber) {
-    String insert =
-        """
-        insert into login_history(phone_number, result) values
-        (:phoneNumber, true);
-        """;
-
-    jdbi.withHandle(
-        handle -> handle.createUpdate(insert).bind("phoneNumber", phoneNumber).execute());
+  @Builder
+  @Value
+  public static class LoginAttempt {
+    String phoneNumber;
+    boolean result;
+    Instant loginDate;
   }
 
-  public static void recordLoginFailure(Jdbi jdbi, String phoneNumber) {
-    String insert =
-        """
-        insert into login_history(phone_number, result) values
-        (:phoneNumber, false);
-        """;
-
-    jdbi.withHandle(
-        handle -> handle.createUpdate(insert).bind("phoneNumber", phoneNumber).execute());
+  /** Inserts a batch of login attempts. */
+  static void recordLoginHistory(Jdbi jdbi, List<LoginAttempt> attempts) {
+    jdbi.useHandle(
+        handle -> {
+          PreparedBatch batch =
+              handle.prepareBatch(
+                  """
+                  insert into login_history(phone_number, result, login_date)
+                  values (:phoneNumber, :result, :loginDate)
+                  """);
+          attempts.forEach(attempt -> batch.bindBean(attempt).add());
+          batch.execute();
+        });
   }
 
   public static String generateAuthToken(Jdbi jdbi, String user) {
@@ -52,20 +59,46 @@ public class LoginDao {
     return token;
   }
 
+  /** Checks the token against the {@link AuthTokenCache}, queries the database on a cache miss. */
   public static boolean isLoggedIn(Jdbi jdbi, String tokenValue) {
-    String insert =
+    return AuthTokenCache.lookup(jdbi, HashingUtil.sha256(tokenValue)).isPresent();
+  }
+
+  /** Returns the user of an auth token, empty if there is no such token or the user is removed. */
+  static Optional<AuthTokenCache.AuthUser> fetchAuthUser(Jdbi jdbi, String tokenHash) {
+    String query =
         """
-        select 1 from wss_user_auth_key
-        where token_sha256 = :token
+        select
+          wu.id userId,
+          wu.phone phoneNumber
+        from wss_user_auth_key wuak
+        join wss_user wu on wuak.wss_user_id = wu.id
+        where wu.removed = false and wuak.token_sha256 = :tokenHash
         """;
     return jdbi.withHandle(
-            handle ->
-                handle
-                    .createQuery(insert)
-                    .bind("token", HashingUtil.sha256(tokenValue))
-                    .mapTo(Integer.class)
-                    .findOne())
-        .isPresent();
+        handle ->
+            handle
+                .createQuery(query)
+                .bind("tokenHash", tokenHash)
+                .map(
+                    (rs, _) ->
+                        AuthTokenCache.AuthUser.builder()
+                            .userId(rs.getLong("userId"))
+                            .phoneNumber(rs.getString("phoneNumber"))
+                            .build())
+                .findFirst());
+  }
+
+  /** Deletes an auth token (eg: on logout), the token is no longer valid. */
+  public static void revokeAuthToken(Jdbi jdbi, String tokenValue) {
+    String tokenHash = HashingUtil.sha256(tokenValue);
+    jdbi.withHandle(
+        handle ->
+            handle
+                .createUpdate("delete from wss_user_auth_key where token_sha256 = :tokenHash")
+                .bind("tokenHash", tokenHash)
+                .execute());
+    AuthTokenCache.invalidate(tokenHash);
   }
 
   /** Returns the universal login token */
@@ -0,0 +1,82 @@
+package com.vanatta.helene.supplies.database.auth;
+
+import com.vanatta.helene.supplies.database.util.TruncateString;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Jdbi;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records login attempts to 'login_history' in the background. Attempts are queued in memory and
+ * written in one batch insert every second, so a login request does not wait on the write.
+ */
+@Slf4j
+@Component
+public class LoginHistoryRecorder {
+  private static final int FLUSH_INTERVAL_MS = 1_000;
+
+  /** Attempts beyond this many pending writes are dropped (and counted). */
+  private static final int MAX_PENDING = 10_000;
+
+  private final Jdbi jdbi;
+  private final Queue<LoginDao.LoginAttempt> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger(0);
+  private final AtomicLong droppedCount = new AtomicLong(0);
+
+  LoginHistoryRecorder(Jdbi jdbi) {
+    this.jdbi = jdbi;
+  }
+
+  public void recordSuccess(String phoneNumber) {
+    record(phoneNumber, true);
+  }
+
+  public void recordFailure(String phoneNumber) {
+    record(phoneNumber, false);
+  }
+
+  private void record(String phoneNumber, boolean success) {
+    if (pendingCount.incrementAndGet() > MAX_PENDING) {
+      pendingCount.decrementAndGet();
+      if (droppedCount.incrementAndGet() % 1_000 == 1) {
+        log.warn("Login history queue is full, dropped {} login attempts", droppedCount.get());
+      }
+      return;
+    }
+    pending.add(
+        LoginDao.LoginAttempt.builder()
+            // column is varchar(16), one long value should not fail the whole batch
+            .phoneNumber(TruncateString.truncate(phoneNumber, 16))
+            .result(success)
+            .loginDate(Instant.now())
+            .build());
+  }
+
+  /** Writes all pending login attempts. */
+  @Scheduled(fixedDelay = FLUSH_INTERVAL_MS)
+  @PreDestroy
+  public void flush() {
+    List<LoginDao.LoginAttempt> attempts = new ArrayList<>();
+    LoginDao.LoginAttempt attempt;
+    while ((attempt = pending.poll()) != null) {
+      attempts.add(attempt);
+    }
+    if (attempts.isEmpty()) {
+      return;
+    }
+    pendingCount.addAndGet(-attempts.size());
+    try {
+      LoginDao.recordLoginHistory(jdbi, attempts);
+    } catch (RuntimeException e) {
+      log.error("Failed to write {} login history records", attempts.size(), e);
+    }
+  }
+}
@@ -20,7 +20,7 @@ public class PasswordDao {
         """
         select password_bcrypt
         from wss_user
-        where regexp_replace(phone, '[^0-9]+', '', 'g') = :phoneNumber
+        where phone_digits = :phoneNumber
     """;
     String passwordHash =
         jdbi.withHandle(
@@ -39,8 +39,7 @@ public class PasswordDao {
   }
 
   public static boolean hasPassword(Jdbi jdbi, String phoneNumber) {
-    String select =
-        "select 1 from wss_user where regexp_replace(phone, '[^0-9]+', '', 'g') = :phoneNumber";
+    String select = "select 1 from wss_user where phone_digits = :phoneNumber";
     return jdbi.withHandle(
             handle ->
                 handle
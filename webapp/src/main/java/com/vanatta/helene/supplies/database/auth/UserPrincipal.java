@@ -0,0 +1,16 @@
+package com.vanatta.helene.supplies.database.auth;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+
+/** The logged in user, resolved from the auth cookie. Carries everything we know about the user. */
+@Value
+@Builder
+public class UserPrincipal {
+  String phoneNumber;
+  List<UserRole> roles;
+
+  /** Sites that the user can manage. */
+  List<Long> siteIds;
+}
@@ -0,0 +1,66 @@
+package com.vanatta.helene.supplies.database.auth;
+
+import com.vanatta.helene.supplies.database.util.TtlCache;
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import org.jdbi.v3.core.Jdbi;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the {@link UserPrincipal} of a request. The principal is resolved at most once per
+ * request, and is cached across requests by the hash of the auth token.
+ *
+ * <p>The cache is bounded (least recently used entries are evicted first) and entries expire after
+ * a short TTL. Anything that changes users, roles, site contacts or auth keys should call {@link
+ * #invalidateAll()}.
+ */
+@Component
+public class UserPrincipalResolver {
+  private static final String REQUEST_ATTRIBUTE = UserPrincipalResolver.class.getName();
+  private static final int MAX_CACHE_SIZE = 5_000;
+  private static final Duration TTL = Duration.ofMinutes(5);
+
+  private static final TtlCache<String, Optional<UserPrincipal>> cache =
+      new TtlCache<>(MAX_CACHE_SIZE, TTL);
+
+  public static void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  private final Jdbi jdbi;
+
+  public UserPrincipalResolver(Jdbi jdbi) {
+    this.jdbi = jdbi;
+  }
+
+  /** Returns empty if the request has no auth cookie or the auth cookie is not valid. */
+  @SuppressWarnings("unchecked")
+  public Optional<UserPrincipal> resolve(HttpServletRequest request) {
+    var resolved = (Optional<UserPrincipal>) request.getAttribute(REQUEST_ATTRIBUTE);
+    if (resolved == null) {
+      resolved = AuthTokenCache.readTokenHash(request).flatMap(this::resolve);
+      request.setAttribute(REQUEST_ATTRIBUTE, resolved);
+    }
+    return resolved;
+  }
+
+  private Optional<UserPrincipal> resolve(String tokenHash) {
+    // a logged out or revoked token is dropped from the token cache, check it first
+    Optional<AuthTokenCache.AuthUser> user = AuthTokenCache.lookup(jdbi, tokenHash);
+    if (user.isEmpty()) {
+      return Optional.empty();
+    }
+    return cache.get(tokenHash, hash -> Optional.of(load(jdbi, user.get().getPhoneNumber())));
+  }
+
+  private static UserPrincipal load(Jdbi jdbi, String phone) {
+    List<UserRole> roles = LoggedInAdvice.computeUserRolesByPhone(jdbi, phone);
+    return UserPrincipal.builder()
+        .phoneNumber(phone)
+        .roles(roles)
+        .siteIds(LoggedInAdvice.computeUserSitesByPhone(jdbi, phone, roles))
+        .build();
+  }
+}
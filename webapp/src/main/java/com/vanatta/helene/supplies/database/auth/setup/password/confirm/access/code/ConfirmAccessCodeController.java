@@ -1,6 +1,8 @@
 package com.vanatta.helene.supplies.database.auth.setup.password.confirm.access.code;
 
-import com.google.gson.Gson;
+import com.vanatta.helene.supplies.database.auth.AuthRateLimiter;
+import com.vanatta.helene.supplies.database.util.JsonCodec;
+import jakarta.servlet.http.HttpServletRequest;
 import java.util.UUID;
 import java.util.function.Supplier;
 import lombok.Builder;
@@ -8,6 +10,7 @@ import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.jdbi.v3.core.Jdbi;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -22,19 +25,23 @@ import org.springframework.web.bind.annotation.RequestBody;
 public class ConfirmAccessCodeController {
   private final Jdbi jdbi;
   private final Supplier<String> validationTokenGenerator;
+  private final AuthRateLimiter authRateLimiter;
 
   @Autowired
-  ConfirmAccessCodeController(Jdbi jdbi) {
-    this(jdbi, () -> UUID.randomUUID().toString());
+  ConfirmAccessCodeController(Jdbi jdbi, AuthRateLimiter authRateLimiter) {
+    this(jdbi, authRateLimiter, () -> UUID.randomUUID().toString());
   }
 
-  ConfirmAccessCodeController(Jdbi jdbi, Supplier<String> validationTokenGenerator) {
+  ConfirmAccessCodeController(
+      Jdbi jdbi, AuthRateLimiter authRateLimiter, Supplier<String> validationTokenGenerator) {
     this.jdbi = jdbi;
+    this.authRateLimiter = authRateLimiter;
     this.validationTokenGenerator = validationTokenGenerator;
   }
 
   @PostMapping("/confirm-access-code")
-  ResponseEntity<ConfirmAccessCodeResponse> confirmAccessCode(@RequestBody String input) {
+  ResponseEntity<ConfirmAccessCodeResponse> confirmAccessCode(
+      @RequestBody String input, HttpServletRequest request) {
     log.info("Confirm access code: {}", input);
 
     String validationToken = validationTokenGenerator.get();
@@ -45,6 +52,15 @@ public class ConfirmAccessCodeController {
       throw new IllegalArgumentException("Invalid confirm access code request");
     }
 
+    // limits guesses of the access code, which is keyed by its CSRF token
+    if (!authRateLimiter.tryAcquire(request, "csrf:" + confirmAccessCodeRequest.getCsrf())) {
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+          .body(
+              ConfirmAccessCodeResponse.builder()
+                  .error("Too many attempts, please try again in a few minutes.")
+                  .build());
+    }
+
     int updateCount =
         ConfirmAccessCodeDao.confirmAccessCode(jdbi, confirmAccessCodeRequest, validationToken);
 
@@ -64,7 +80,7 @@ public class ConfirmAccessCodeController {
     String confirmCode;
 
     static ConfirmAccessCodeRequest parse(String json) {
-      return new Gson().fromJson(json, ConfirmAccessCodeRequest.class);
+      return JsonCodec.fromJson(json, ConfirmAccessCodeRequest.class);
     }
 
     boolean isValid() {
@@ -1,14 +1,18 @@
 package com.vanatta.helene.supplies.database.auth.setup.password.send.access.code;
 
-import com.google.gson.Gson;
 import com.vanatta.helene.supplies.database.DeploymentAdvice;
+import com.vanatta.helene.supplies.database.auth.AuthRateLimiter;
 import com.vanatta.helene.supplies.database.twilio.sms.SmsSender;
+import com.vanatta.helene.supplies.database.util.JsonCodec;
+import com.vanatta.helene.supplies.database.util.PhoneNumberUtil;
+import jakarta.servlet.http.HttpServletRequest;
 import java.util.UUID;
 import java.util.function.Supplier;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.jdbi.v3.core.Jdbi;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ModelAttribute;
@@ -23,28 +27,36 @@ public class SendAccessTokenController {
   private final Jdbi jdbi;
   private final Supplier<String> csrfGenerator;
   private final AccessTokenGenerator accessTokenGenerator;
+  private final AuthRateLimiter authRateLimiter;
 
   @Autowired
   SendAccessTokenController(
-      SmsSender smsSender, Jdbi jdbi, AccessTokenGenerator accessTokenGenerator) {
-    this(smsSender, jdbi, accessTokenGenerator, () -> UUID.randomUUID().toString());
+      SmsSender smsSender,
+      Jdbi jdbi,
+      AccessTokenGenerator accessTokenGenerator,
+      AuthRateLimiter authRateLimiter) {
+    this(
+        smsSender, jdbi, accessTokenGenerator, authRateLimiter, () -> UUID.randomUUID().toString());
   }
 
   SendAccessTokenController(
       SmsSender smsSender,
       Jdbi jdbi,
       AccessTokenGenerator accessTokenGenerator,
+      AuthRateLimiter authRateLimiter,
       Supplier<String> csrfGenerator) {
     this.smsSender = smsSender;
     this.jdbi = jdbi;
     this.accessTokenGenerator = accessTokenGenerator;
+    this.authRateLimiter = authRateLimiter;
     this.csrfGenerator = csrfGenerator;
   }
 
   @PostMapping("/send-access-code")
   ResponseEntity<SendAccessCodeResponse> sendAccessCode(
       @RequestBody String request,
-      @ModelAttribute(DeploymentAdvice.DEPLOYMENT_DOMAIN_NAME) String domainName) {
+      @ModelAttribute(DeploymentAdvice.DEPLOYMENT_DOMAIN_NAME) String domainName,
+      HttpServletRequest httpRequest) {
     log.info("Access code request for: {}", request);
 
     SendAccessCodeRequest sendAccessCodeRequest = SendAccessCodeRequest.parse(request);
@@ -56,6 +68,14 @@ public class SendAccessTokenController {
     // check that the user has a registered phone number
     String phoneNumber = sendAccessCodeRequest.getNumber();
 
+    // each access code request sends a (paid) SMS, throttle before doing any work
+    if (!authRateLimiter.tryAcquire(httpRequest, PhoneNumberUtil.removeNonNumeric(phoneNumber))) {
+      return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+          .body(
+              SendAccessCodeResponse.invalid(
+                  "Too many access code requests, please try again in a few minutes."));
+    }
+
     if (!SendAccessTokenDao.isPhoneNumberRegistered(jdbi, phoneNumber)) {
       log.warn("Access code requested for unregistered phone number: {}", phoneNumber);
       return ResponseEntity.status(401)
@@ -85,9 +105,9 @@ public class SendAccessTokenController {
             .accessCode(accessCode)
             .build());
 
-    // send the passcode via SMS
+    // send the passcode via SMS, waits briefly so we can tell the user if their number is invalid
     boolean success =
-        smsSender.send(
+        smsSender.sendAndWait(
             phoneNumber,
             String.format(
                 """
@@ -118,7 +138,7 @@ public class SendAccessTokenController {
     String number;
 
     static SendAccessCodeRequest parse(String json) {
-      return new Gson().fromJson(json, SendAccessCodeRequest.class);
+      return JsonCodec.fromJson(json, SendAccessCodeRequest.class);
     }
 
     boolean isValid() {
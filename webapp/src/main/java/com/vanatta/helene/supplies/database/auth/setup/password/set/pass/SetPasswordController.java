@@ -1,7 +1,7 @@
 package com.vanatta.helene.supplies.database.auth.setup.password.set.pass;
 
-import com.google.gson.Gson;
 import com.vanatta.helene.supplies.database.util.CookieUtil;
+import com.vanatta.helene.supplies.database.util.JsonCodec;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
 import lombok.Value;
@@ -53,7 +53,7 @@ public class SetPasswordController {
     String validationToken;
 
     static SetPasswordRequest parse(String json) {
-      return new Gson().fromJson(json, SetPasswordRequest.class);
+      return JsonCodec.fromJson(json, SetPasswordRequest.class);
     }
   }
 
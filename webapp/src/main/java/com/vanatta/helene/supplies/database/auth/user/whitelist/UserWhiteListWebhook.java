@@ -1,8 +1,12 @@
 package com.vanatta.helene.supplies.database.auth.user.whitelist;
 
-import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.vanatta.helene.supplies.database.auth.AuthTokenCache;
+import com.vanatta.helene.supplies.database.auth.UserPrincipalResolver;
 import com.vanatta.helene.supplies.database.auth.UserRole;
+import com.vanatta.helene.supplies.database.util.JsonCodec;
 import com.vanatta.helene.supplies.database.util.PhoneNumberUtil;
+import java.io.Reader;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -15,7 +19,6 @@ import org.jdbi.v3.core.Jdbi;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 
 /**
  * Webhook that receives JSON payloads that adds users to the registration white list. Only users on
@@ -31,6 +34,9 @@ public class UserWhiteListWebhook {
   @Builder(toBuilder = true)
   @Value
   public static class UserWhiteListRequest {
+    private static final TypeAdapter<UserWhiteListRequest> jsonAdapter =
+        JsonCodec.adapter(UserWhiteListRequest.class);
+
     String phoneNumber;
     List<String> roles;
     Boolean removed;
@@ -40,7 +46,11 @@ public class UserWhiteListWebhook {
     }
 
     static UserWhiteListRequest parse(String input) {
-      return new Gson().fromJson(input, UserWhiteListRequest.class);
+      return JsonCodec.fromJson(input, jsonAdapter);
+    }
+
+    static UserWhiteListRequest parse(Reader input) {
+      return JsonCodec.readBody(input, jsonAdapter);
     }
 
     boolean isValid() {
@@ -57,10 +67,10 @@ public class UserWhiteListWebhook {
   }
 
   @PostMapping("/webhook/whitelist-user")
-  ResponseEntity<String> whiteListUser(@RequestBody String input) {
-    log.info("white list user request received: {}", input);
-
+  ResponseEntity<String> whiteListUser(Reader input) {
     UserWhiteListRequest request = UserWhiteListRequest.parse(input);
+    log.info("white list user request received: {}", request);
+
     if (!request.isValid()) {
       return ResponseEntity.badRequest().build();
     }
@@ -73,6 +83,7 @@ public class UserWhiteListWebhook {
   public static void updateUserAndRoles(Jdbi jdbi, UserWhiteListRequest request) {
     upsertUser(jdbi, request);
     updateRoles(jdbi, request.getPhoneNumber(), request.getRoles());
+    UserPrincipalResolver.invalidateAll();
   }
 
   /** Adds a user to wss_user table, does *not* update roles. */
@@ -88,6 +99,8 @@ public class UserWhiteListWebhook {
                 .bind("phone", request.getPhoneNumber())
                 .bind("removed", request.getRemoved())
                 .execute());
+    // the user may have been removed, tokens of removed users are not valid
+    AuthTokenCache.invalidateAll();
   }
 
   private static void updateRoles(Jdbi jdbi, String phoneNumber, List<String> roles) {
@@ -115,10 +128,10 @@ public class UserWhiteListWebhook {
   }
 
   @PostMapping("/webhook/whitelist-update")
-  ResponseEntity<String> updateUser(@RequestBody String input) {
-    log.info("update white list user request received: {}", input);
-
+  ResponseEntity<String> updateUser(Reader input) {
     UserWhiteListRequest request = UserWhiteListRequest.parse(input);
+    log.info("update white list user request received: {}", request);
+
     if (!request.isValid()) {
       return ResponseEntity.badRequest().build();
     }
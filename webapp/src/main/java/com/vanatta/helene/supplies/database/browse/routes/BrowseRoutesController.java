@@ -4,14 +4,16 @@ import com.vanatta.helene.supplies.database.DeploymentAdvice;
 import com.vanatta.helene.supplies.database.auth.LoggedInAdvice;
 import com.vanatta.helene.supplies.database.auth.UserRole;
 import com.vanatta.helene.supplies.database.data.CountyDao;
+import com.vanatta.helene.supplies.database.supplies.SupplySearchIndex;
 import com.vanatta.helene.supplies.database.supplies.filters.AuthenticatedMode;
 import com.vanatta.helene.supplies.database.util.HtmlSelectOptionsUtil;
 import com.vanatta.helene.supplies.database.util.PhoneNumberUtil;
+import com.vanatta.helene.supplies.database.util.TtlCache;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,8 +35,32 @@ public class BrowseRoutesController {
 
   private final Jdbi jdbi;
   private final String mapsApiKey;
+  private final RouteCandidateGraph routeCandidateGraph;
+
+  /**
+   * Scored and sorted routes, and the site and county drop downs, are cached for a short time.
+   * Paging through results reads from the cache. Cache keys include the site data change version
+   * (and the distance version for routes), a write to sites, inventory, items or deliveries is seen
+   * by the next request rather than after the cache expires.
+   */
+  private final TtlCache<RouteQuery, List<DeliveryOption>> routeCache;
+
+  private final TtlCache<ListQuery, List<String>> countyCache;
+  private final TtlCache<ListQuery, List<Site>> siteCache;
+
+  /** Routes are cached per deployment (state list), site and county. */
+  private record RouteQuery(
+      List<String> stateList,
+      long siteWssId,
+      String county,
+      long siteVersion,
+      long distanceVersion) {}
+
+  /** Drop down lists are cached per deployment (state list). */
+  private record ListQuery(List<String> stateList, long siteVersion) {}
 
   static final int PAGE_SIZE = 5;
+  private static final int MAX_CACHED_QUERIES = 1_000;
 
   public static final String BROWSE_ROUTES_PATH = "/browse/routes";
 
@@ -57,9 +83,18 @@ public class BrowseRoutesController {
     ;
   }
 
-  BrowseRoutesController(Jdbi jdbi, @Value("${google.maps.api.key}") String mapsApiKey) {
+  BrowseRoutesController(
+      Jdbi jdbi,
+      @Value("${google.maps.api.key}") String mapsApiKey,
+      RouteCandidateGraph routeCandidateGraph,
+      @Value("${browse.routes.cache.seconds}") int cacheSeconds) {
     this.jdbi = jdbi;
     this.mapsApiKey = mapsApiKey;
+    this.routeCandidateGraph = routeCandidateGraph;
+    Duration ttl = Duration.ofSeconds(cacheSeconds);
+    this.routeCache = new TtlCache<>(MAX_CACHED_QUERIES, ttl);
+    this.countyCache = new TtlCache<>(MAX_CACHED_QUERIES, ttl);
+    this.siteCache = new TtlCache<>(MAX_CACHED_QUERIES, ttl);
   }
 
   @GetMapping(BROWSE_ROUTES_PATH)
@@ -84,11 +119,17 @@ public class BrowseRoutesController {
             : Long.parseLong(siteWssId);
 
     Map<String, Object> templateParams = new HashMap<>();
+    long siteVersion = SupplySearchIndex.currentChangeVersion();
+    var listQuery = new ListQuery(List.copyOf(stateList), siteVersion);
 
     List<String> counties = new ArrayList<>();
     counties.add("");
     counties.addAll(
-        CountyDao.fetchActiveCountyList(jdbi, AuthenticatedMode.AUTHENTICATED, stateList));
+        countyCache.get(
+            listQuery,
+            query ->
+                CountyDao.fetchActiveCountyList(
+                    jdbi, AuthenticatedMode.AUTHENTICATED, query.stateList())));
     templateParams.put(
         TemplateParams.countyList.name(),
         HtmlSelectOptionsUtil.createItemListingWithFuzzyStartsWith(county, counties));
@@ -98,11 +139,16 @@ public class BrowseRoutesController {
             : counties.stream().filter(c -> c.startsWith(county)).findAny().orElse(null);
 
     List<DeliveryOption> deliveryOptions =
-        BrowseRoutesDao.findDeliveryOptions(jdbi, siteWssIdCleaned, currentCounty, stateList)
-            .stream()
-            .filter(RouteWeighting::filter)
-            .sorted(Comparator.comparingDouble(DeliveryOption::sortScore))
-            .toList();
+        routeCache.get(
+            new RouteQuery(
+                List.copyOf(stateList),
+                siteWssIdCleaned,
+                currentCounty,
+                siteVersion,
+                RouteCandidateGraph.currentDistanceVersion()),
+            query ->
+                routeCandidateGraph.findRoutes(
+                    query.siteWssId(), query.county(), query.stateList()));
     int pageCount = (int) Math.ceil(((double) deliveryOptions.size()) / PAGE_SIZE);
     page = Math.min(page, pageCount);
 
@@ -134,7 +180,8 @@ public class BrowseRoutesController {
     sites.add(Site.BLANK);
 
     sites.addAll(
-        BrowseRoutesDao.fetchSites(jdbi, stateList).stream()
+        siteCache.get(listQuery, query -> BrowseRoutesDao.fetchSites(jdbi, query.stateList()))
+            .stream()
             .map(s -> s.getWssId() == siteWssIdCleaned ? s.toBuilder().selected(true).build() : s)
             .toList());
     templateParams.put(TemplateParams.siteList.name(), sites);
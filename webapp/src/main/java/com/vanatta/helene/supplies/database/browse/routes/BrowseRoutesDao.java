@@ -64,6 +64,8 @@ public class BrowseRoutesDao {
                             .toHours(deliveryOptionDbResult.hours)
                             .driveTimeSeconds(deliveryOptionDbResult.driveTimeSeconds)
                             .distanceMiles(deliveryOptionDbResult.distanceMiles)
+                            .approximateDistanceMiles(
+                                deliveryOptionDbResult.approximateDistanceMiles)
                             .build())
                 .addItem(
                     DeliveryOption.Item.builder()
@@ -110,6 +112,7 @@ public class BrowseRoutesDao {
     int itemCount;
     Integer driveTimeSeconds;
     Double distanceMiles;
+    Double approximateDistanceMiles;
   }
 
   // TODO: improve testing
@@ -220,7 +223,8 @@ public class BrowseRoutesDao {
             i.wss_id AS itemWssId,
             ni.urgency AS urgency,
             sdm.drive_time_seconds AS driveTimeSeconds,
-            sdm.distance_miles AS distanceMiles
+            sdm.distance_miles AS distanceMiles,
+            sdm.straight_line_miles AS approximateDistanceMiles
         FROM
             oversupply_sites fromOverSupply
         JOIN
@@ -235,8 +239,8 @@ public class BrowseRoutesDao {
             county toCounty ON toSite.county_id = toCounty.id
         LEFT JOIN
             site_distance_matrix sdm on
-              (sdm.site1_id = ni.site_id and sdm.site2_id = fromOverSupply.site_id) or
-              (sdm.site2_id = ni.site_id and sdm.site1_id = fromOverSupply.site_id)
+              sdm.site1_id = least(ni.site_id, fromOverSupply.site_id)
+              and sdm.site2_id = greatest(ni.site_id, fromOverSupply.site_id)
         JOIN
             item i ON fromOverSupply.item_id = i.id
         WHERE 1 = 1
@@ -9,12 +9,17 @@ import java.util.Comparator;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.Value;
 
 @Value
 @Builder(toBuilder = true)
 @AllArgsConstructor
 public class DeliveryOption {
+  /** Road distances are typically this much longer than the straight line distance. */
+  static final double ROAD_DISTANCE_FACTOR = 1.3;
+
   @Value
   @Builder
   static class Item {
@@ -43,18 +48,43 @@ public class DeliveryOption {
 
   Integer driveTimeSeconds;
   Double distanceMiles;
+
+  /** Straight line distance between the two sites, known before the road distance is. */
+  Double approximateDistanceMiles;
+
   @Builder.Default List<Item> items = new ArrayList<>();
 
+  /**
+   * This route encoded for {@link RouteWeighting}, set when routes are built by {@link
+   * RouteCandidateGraph}. Null otherwise, the route is then encoded when it is scored.
+   */
+  @EqualsAndHashCode.Exclude @ToString.Exclude RouteWeighting.Candidate weightingCandidate;
+
   List<Long> getItemWssIds() {
     return getItems().stream().map(Item::getWssId).sorted().toList();
   }
 
+  /**
+   * Road distance if known, otherwise an estimate from the straight line distance. Null if the
+   * sites have not been geocoded yet.
+   */
+  Double estimatedDistanceMiles() {
+    if (distanceMiles != null) {
+      return distanceMiles;
+    } else if (approximateDistanceMiles != null) {
+      return approximateDistanceMiles * ROAD_DISTANCE_FACTOR;
+    } else {
+      return null;
+    }
+  }
+
   /** lower numbers sort first */
   double sortScore() {
-    if (distanceMiles == null) {
+    Double estimatedDistance = estimatedDistanceMiles();
+    if (estimatedDistance == null) {
       return 1000.0 - items.size();
     } else {
-      return distanceMiles;
+      return estimatedDistance;
     }
   }
 
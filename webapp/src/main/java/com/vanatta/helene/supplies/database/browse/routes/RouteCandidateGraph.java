@@ -0,0 +1,687 @@
+package com.vanatta.helene.supplies.database.browse.routes;
+
+import com.vanatta.helene.supplies.database.data.ItemStatus;
+import com.vanatta.helene.supplies.database.data.SiteType;
+import com.vanatta.helene.supplies.database.supplies.SupplySearchIndex;
+import com.vanatta.helene.supplies.database.supplies.site.details.NeedsMatchingDao;
+import com.vanatta.helene.supplies.database.supplies.site.details.SiteDetailController;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Jdbi;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory bipartite graph of sites that have items to give (oversupply, or available items at a
+ * supply hub) and sites that need those items. Used to answer 'browse routes' and 'needs matching'
+ * without computing an oversupply x need cross join on every request.
+ *
+ * <p>Every (from site, to site) pair with at least one matching item is a route candidate. Route
+ * candidates are built once, scored with {@link RouteWeighting} and kept sorted, requests then only
+ * filter and page through them. Route weights are reloaded with every full rebuild.
+ *
+ * <p>Site and inventory changes are picked up from the change log kept by {@link
+ * SupplySearchIndex}, only the routes of the changed sites are recomputed. Distance changes are
+ * recorded with {@link #markDistanceChanged(long, long)}. A full rebuild runs periodically to pick
+ * up any writes that bypass the DAOs.
+ */
+@Slf4j
+@Component
+public class RouteCandidateGraph {
+  private static final int FULL_REBUILD_INTERVAL_MS = 10 * 60 * 1000;
+
+  private static final AtomicLong distanceVersion = new AtomicLong(0);
+  private static final Map<Long, Long> distanceChanges = new ConcurrentHashMap<>();
+
+  /** Records that the distance between two sites has been computed or reset. */
+  public static void markDistanceChanged(long site1Id, long site2Id) {
+    synchronized (distanceVersion) {
+      long version = distanceVersion.incrementAndGet();
+      distanceChanges.put(site1Id, version);
+      distanceChanges.put(site2Id, version);
+    }
+  }
+
+  static long currentDistanceVersion() {
+    synchronized (distanceVersion) {
+      return distanceVersion.get();
+    }
+  }
+
+  private final Jdbi jdbi;
+  private final boolean enabled;
+
+  private volatile Snapshot snapshot;
+
+  /** Weights of the last full rebuild, also used when the graph is not enabled. */
+  private volatile RouteWeighting weighting;
+
+  @Autowired
+  public RouteCandidateGraph(Jdbi jdbi, @Value("${routes.graph.enabled}") boolean enabled) {
+    this.jdbi = jdbi;
+    this.enabled = enabled;
+  }
+
+  /**
+   * Returns routes that pass {@link RouteWeighting}, best routes first. Same results as {@link
+   * BrowseRoutesDao#findDeliveryOptions} with weighting and sorting applied. Falls back to the
+   * database query if the graph is not enabled.
+   *
+   * @param siteWssId Optional, only routes to or from this site.
+   * @param currentCounty Optional, encoded as "county, state", only routes to or from this county.
+   */
+  public List<DeliveryOption> findRoutes(
+      Long siteWssId, String currentCounty, List<String> stateList) {
+    if (!enabled) {
+      return rank(
+          BrowseRoutesDao.findDeliveryOptions(jdbi, siteWssId, currentCounty, stateList),
+          currentWeighting());
+    }
+
+    boolean filterSite = siteWssId != null && siteWssId != 0L;
+    boolean filterCounty = currentCounty != null && currentCounty.contains(",");
+    String county = filterCounty ? currentCounty.split(",")[0].trim() : null;
+    String state = filterCounty ? currentCounty.split(",")[1].trim() : null;
+    Set<String> states = new HashSet<>(stateList);
+
+    return currentSnapshot().scoredRoutes.stream()
+        .filter(r -> states.contains(r.getFromState()) && states.contains(r.getToState()))
+        .filter(
+            r ->
+                !filterSite
+                    || r.getFromSiteWssId() == siteWssId
+                    || r.getToSiteWssId() == siteWssId)
+        .filter(
+            r ->
+                !filterCounty
+                    || (county.equals(r.getFromCounty()) && state.equals(r.getFromState()))
+                    || (county.equals(r.getToCounty()) && state.equals(r.getToState())))
+        .toList();
+  }
+
+  /**
+   * Returns sites that can give items needed by a given site. Same results as {@link
+   * NeedsMatchingDao#executeByInternalId}.
+   */
+  public List<NeedsMatchingDao.NeedsMatchingDbResult> findNeedsMatches(
+      long siteId, List<String> stateList) {
+    if (!enabled) {
+      return NeedsMatchingDao.fetchNeedsMatches(jdbi, siteId, stateList);
+    }
+    Snapshot current = currentSnapshot();
+    SiteNode needySite = current.sites.get(siteId);
+    if (needySite == null) {
+      return List.of();
+    }
+    Set<String> states = new HashSet<>(stateList);
+
+    List<NeedsMatchingDao.NeedsMatchingDbResult> results = new ArrayList<>();
+    needySite.neededItems.forEach(
+        (itemId, urgency) -> {
+          ItemNode item = current.items.get(itemId);
+          for (long giverId : current.giversByItem.getOrDefault(itemId, Set.of())) {
+            SiteNode giver = current.sites.get(giverId);
+            if (item == null || giver == null || !states.contains(giver.state)) {
+              continue;
+            }
+            Distance distance = current.distances.get(SitePair.of(siteId, giverId));
+            results.add(
+                NeedsMatchingDao.NeedsMatchingDbResult.builder()
+                    .siteId(giver.id)
+                    .siteName(giver.name)
+                    .siteAddress(giver.address)
+                    .city(giver.city)
+                    .county(giver.county)
+                    .state(giver.state)
+                    .itemName(item.name)
+                    .urgency(urgency)
+                    .driveTimeSeconds(distance == null ? null : distance.driveTimeSeconds)
+                    .distanceMiles(distance == null ? null : distance.distanceMiles)
+                    .build());
+          }
+        });
+    results.sort(Comparator.comparing(r -> r.getItemName().toLowerCase()));
+    return results;
+  }
+
+  /** Throws away all data and reloads the graph from database. */
+  @Scheduled(fixedDelay = FULL_REBUILD_INTERVAL_MS, initialDelay = FULL_REBUILD_INTERVAL_MS)
+  public void rebuild() {
+    RouteWeighting routeWeighting = RouteWeighting.load(jdbi);
+    weighting = routeWeighting;
+    if (!enabled) {
+      return;
+    }
+    synchronized (this) {
+      long siteVersion = SupplySearchIndex.currentChangeVersion();
+      long distVersion = currentDistanceVersion();
+      Map<Long, SiteNode> sites = new HashMap<>();
+      loadSites(jdbi, null).forEach(site -> sites.put(site.id, site));
+      snapshot =
+          Snapshot.build(
+              siteVersion,
+              distVersion,
+              loadItems(jdbi),
+              sites,
+              loadDistances(jdbi, null),
+              routeWeighting,
+              new HashMap<>(),
+              null);
+      log.info("Route candidate graph rebuilt, route count: {}", snapshot.routes.size());
+    }
+  }
+
+  private RouteWeighting currentWeighting() {
+    RouteWeighting current = weighting;
+    if (current == null) {
+      current = RouteWeighting.load(jdbi);
+      weighting = current;
+    }
+    return current;
+  }
+
+  private Snapshot currentSnapshot() {
+    Snapshot current = snapshot;
+    if (current != null
+        && current.siteVersion == SupplySearchIndex.currentChangeVersion()
+        && current.distanceVersion == currentDistanceVersion()) {
+      return current;
+    }
+    synchronized (this) {
+      current = snapshot;
+      if (current == null || SupplySearchIndex.itemsChangedSince(current.siteVersion)) {
+        rebuild();
+        return snapshot;
+      }
+      long siteVersion = SupplySearchIndex.currentChangeVersion();
+      long distVersion = currentDistanceVersion();
+      if (current.siteVersion == siteVersion && current.distanceVersion == distVersion) {
+        return current;
+      }
+
+      List<Long> changedSites =
+          SupplySearchIndex.sitesChangedBetween(current.siteVersion, siteVersion);
+      long distSince = current.distanceVersion;
+      Set<Long> changedDistances = new HashSet<>(changedSites);
+      distanceChanges.forEach(
+          (site, version) -> {
+            if (version > distSince && version <= distVersion) {
+              changedDistances.add(site);
+            }
+          });
+
+      Map<Long, SiteNode> sites = new HashMap<>(current.sites);
+      if (!changedSites.isEmpty()) {
+        changedSites.forEach(sites::remove);
+        loadSites(jdbi, changedSites).forEach(site -> sites.put(site.id, site));
+      }
+      Map<SitePair, Distance> distances = new HashMap<>(current.distances);
+      if (!changedDistances.isEmpty()) {
+        distances
+            .keySet()
+            .removeIf(
+                pair ->
+                    changedDistances.contains(pair.site1Id)
+                        || changedDistances.contains(pair.site2Id));
+        distances.putAll(loadDistances(jdbi, changedDistances));
+      }
+      snapshot =
+          Snapshot.build(
+              siteVersion,
+              distVersion,
+              current.items,
+              sites,
+              distances,
+              current.weighting,
+              new HashMap<>(current.routes),
+              changedDistances);
+      return snapshot;
+    }
+  }
+
+  /** Tie break between routes with the same score: closest first, then more items first. */
+  static final Comparator<DeliveryOption> ROUTE_ORDER =
+      Comparator.comparingDouble(DeliveryOption::sortScore)
+          .thenComparing(Comparator.comparingInt(DeliveryOption::getItemCount).reversed())
+          .thenComparing(DeliveryOption::getToSiteName);
+
+  /**
+   * Returns routes that pass 'weighting', highest score first, ties sorted by {@link
+   * #ROUTE_ORDER}. Each route is scored once.
+   */
+  static List<DeliveryOption> rank(Collection<DeliveryOption> routes, RouteWeighting weighting) {
+    record Scored(DeliveryOption route, double score) {}
+    return routes.stream()
+        .map(route -> new Scored(route, weighting.score(route)))
+        .filter(scored -> scored.score() > 0)
+        .sorted(
+            Comparator.comparingDouble(Scored::score)
+                .reversed()
+                .thenComparing(Scored::route, ROUTE_ORDER))
+        .map(Scored::route)
+        .toList();
+  }
+
+  /** Immutable view of the graph, replaced as a whole on every refresh. */
+  private static class Snapshot {
+    final long siteVersion;
+    final long distanceVersion;
+    final Map<Long, ItemNode> items;
+    final Map<Long, SiteNode> sites;
+    final Map<SitePair, Distance> distances;
+    final Map<Long, Set<Long>> giversByItem;
+    final Map<Long, Set<Long>> needersByItem;
+    final RouteWeighting weighting;
+
+    /** All route candidates, keyed by (from site, to site). */
+    final Map<SitePair, DeliveryOption> routes;
+
+    /** Route candidates that pass the route weighting, best first, see {@link #rank}. */
+    final List<DeliveryOption> scoredRoutes;
+
+    private Snapshot(
+        long siteVersion,
+        long distanceVersion,
+        Map<Long, ItemNode> items,
+        Map<Long, SiteNode> sites,
+        Map<SitePair, Distance> distances,
+        Map<Long, Set<Long>> giversByItem,
+        Map<Long, Set<Long>> needersByItem,
+        RouteWeighting weighting,
+        Map<SitePair, DeliveryOption> routes) {
+      this.siteVersion = siteVersion;
+      this.distanceVersion = distanceVersion;
+      this.items = items;
+      this.sites = sites;
+      this.distances = distances;
+      this.giversByItem = giversByItem;
+      this.needersByItem = needersByItem;
+      this.weighting = weighting;
+      this.routes = routes;
+      this.scoredRoutes = rank(routes.values(), weighting);
+    }
+
+    /**
+     * Builds a snapshot from sites and distances. If 'changedSites' is null, all routes are
+     * computed, otherwise 'routes' holds the previous routes and only routes to or from changed
+     * sites are recomputed. Routes are encoded for scoring as they are computed, 'routes' must
+     * have been encoded with the same 'weighting'.
+     */
+    static Snapshot build(
+        long siteVersion,
+        long distanceVersion,
+        Map<Long, ItemNode> items,
+        Map<Long, SiteNode> sites,
+        Map<SitePair, Distance> distances,
+        RouteWeighting weighting,
+        Map<SitePair, DeliveryOption> routes,
+        Collection<Long> changedSites) {
+      Map<Long, Set<Long>> giversByItem = new HashMap<>();
+      Map<Long, Set<Long>> needersByItem = new HashMap<>();
+      for (SiteNode site : sites.values()) {
+        if (!site.active) {
+          continue;
+        }
+        site.givingItems.forEach(
+            itemId -> giversByItem.computeIfAbsent(itemId, _ -> new HashSet<>()).add(site.id));
+        if (site.acceptingDonations) {
+          site.neededItems
+              .keySet()
+              .forEach(
+                  itemId ->
+                      needersByItem.computeIfAbsent(itemId, _ -> new HashSet<>()).add(site.id));
+        }
+      }
+
+      Set<SitePair> toCompute = new HashSet<>();
+      if (changedSites == null) {
+        routes.clear();
+        giversByItem.forEach(
+            (itemId, givers) ->
+                givers.forEach(
+                    giver ->
+                        needersByItem
+                            .getOrDefault(itemId, Set.of())
+                            .forEach(needer -> toCompute.add(new SitePair(giver, needer)))));
+      } else {
+        Set<Long> changed = new HashSet<>(changedSites);
+        routes
+            .keySet()
+            .removeIf(pair -> changed.contains(pair.site1Id) || changed.contains(pair.site2Id));
+        for (long siteId : changed) {
+          SiteNode site = sites.get(siteId);
+          if (site == null) {
+            continue;
+          }
+          site.givingItems.forEach(
+              itemId ->
+                  needersByItem
+                      .getOrDefault(itemId, Set.of())
+                      .forEach(needer -> toCompute.add(new SitePair(siteId, needer))));
+          site.neededItems
+              .keySet()
+              .forEach(
+                  itemId ->
+                      giversByItem
+                          .getOrDefault(itemId, Set.of())
+                          .forEach(giver -> toCompute.add(new SitePair(giver, siteId))));
+        }
+      }
+
+      for (SitePair route : toCompute) {
+        DeliveryOption deliveryOption =
+            buildRoute(
+                items,
+                sites.get(route.site1Id),
+                sites.get(route.site2Id),
+                distances.get(SitePair.of(route.site1Id, route.site2Id)));
+        if (deliveryOption != null) {
+          routes.put(
+              route,
+              deliveryOption.toBuilder()
+                  .weightingCandidate(weighting.encode(deliveryOption))
+                  .build());
+        }
+      }
+      return new Snapshot(
+          siteVersion,
+          distanceVersion,
+          items,
+          sites,
+          distances,
+          giversByItem,
+          needersByItem,
+          weighting,
+          routes);
+    }
+
+    private static DeliveryOption buildRoute(
+        Map<Long, ItemNode> items, SiteNode from, SiteNode to, Distance distance) {
+      if (from == null || to == null || !from.active || !to.active || !to.acceptingDonations) {
+        return null;
+      }
+      List<DeliveryOption.Item> routeItems = new ArrayList<>();
+      for (long itemId : from.givingItems) {
+        String urgency = to.neededItems.get(itemId);
+        ItemNode item = items.get(itemId);
+        if (urgency != null && item != null) {
+          routeItems.add(
+              DeliveryOption.Item.builder()
+                  .name(item.name)
+                  .urgencyCssClass(ItemStatus.fromTextValue(urgency).getCssClass())
+                  .wssId(item.wssId)
+                  .build());
+        }
+      }
+      if (routeItems.isEmpty()) {
+        return null;
+      }
+      routeItems.sort(Comparator.comparing(i -> i.getName().toLowerCase()));
+
+      return DeliveryOption.builder()
+          .fromSiteName(from.name)
+          .fromSiteLink(SiteDetailController.buildSiteLink(from.id))
+          .fromSiteWssId(from.wssId)
+          .fromAddress(from.address)
+          .fromCity(from.city)
+          .fromCounty(from.county)
+          .fromState(from.state)
+          .fromHours(from.hours)
+          .toSiteName(to.name)
+          .toSiteLink(SiteDetailController.buildSiteLink(to.id))
+          .toSiteWssId(to.wssId)
+          .toAddress(to.address)
+          .toCity(to.city)
+          .toCounty(to.county)
+          .toState(to.state)
+          .toHours(to.hours)
+          .driveTimeSeconds(distance == null ? null : distance.driveTimeSeconds)
+          .distanceMiles(distance == null ? null : distance.distanceMiles)
+          .approximateDistanceMiles(distance == null ? null : distance.straightLineMiles)
+          .items(routeItems)
+          .build();
+    }
+  }
+
+  /**
+   * A pair of sites. Used directed for routes (site1 gives to site2) and undirected for distances,
+   * see {@link #of(long, long)}.
+   */
+  @lombok.Value
+  static class SitePair {
+    long site1Id;
+    long site2Id;
+
+    /** Undirected pair, smaller site id first. */
+    static SitePair of(long siteA, long siteB) {
+      return new SitePair(Math.min(siteA, siteB), Math.max(siteA, siteB));
+    }
+  }
+
+  @lombok.Value
+  private static class Distance {
+    Integer driveTimeSeconds;
+    Double distanceMiles;
+    Double straightLineMiles;
+  }
+
+  @lombok.Value
+  private static class ItemNode {
+    String name;
+    long wssId;
+  }
+
+  private static class SiteNode {
+    long id;
+    long wssId;
+    String name;
+    String address;
+    String city;
+    String county;
+    String state;
+    String hours;
+    boolean active;
+    boolean acceptingDonations;
+
+    /** item id -> urgency (item status text) */
+    final Map<Long, String> neededItems = new HashMap<>();
+
+    final Set<Long> givingItems = new HashSet<>();
+  }
+
+  @NoArgsConstructor
+  @Data
+  public static class ItemRow {
+    long id;
+    String name;
+    Long wssId;
+  }
+
+  private static Map<Long, ItemNode> loadItems(Jdbi jdbi) {
+    String query = "select i.id, i.name, i.wss_id from item i";
+    Map<Long, ItemNode> items = new HashMap<>();
+    jdbi.withHandle(handle -> handle.createQuery(query).mapToBean(ItemRow.class).list())
+        .forEach(
+            row -> items.put(row.id, new ItemNode(row.name, row.wssId == null ? 0L : row.wssId)));
+    return items;
+  }
+
+  @NoArgsConstructor
+  @Data
+  public static class SiteRow {
+    long id;
+    Long wssId;
+    String name;
+    String address;
+    String city;
+    String county;
+    String state;
+    String hours;
+    String siteType;
+    boolean active;
+    boolean acceptingDonations;
+  }
+
+  @NoArgsConstructor
+  @Data
+  public static class InventoryRow {
+    long siteId;
+    long itemId;
+    String itemStatus;
+  }
+
+  /** Loads sites (active or not) and their inventory, if siteIds is null all sites are loaded. */
+  private static List<SiteNode> loadSites(Jdbi jdbi, List<Long> siteIds) {
+    String siteQuery =
+        """
+        select
+          s.id,
+          s.wss_id,
+          s.name,
+          s.address,
+          s.city,
+          c.name county,
+          c.state,
+          s.hours,
+          st.name siteType,
+          s.active,
+          s.accepting_donations
+        from site s
+        join county c on c.id = s.county_id
+        join site_type st on st.id = s.site_type_id
+        where 1 = 1
+        """
+            + (siteIds == null ? "" : " and s.id in (<siteIds>)");
+
+    String inventoryQuery =
+        """
+        select
+          si.site_id siteId,
+          si.item_id itemId,
+          ist.name itemStatus
+        from site_item si
+        join item_status ist on ist.id = si.item_status_id
+        where 1 = 1
+        """
+            + (siteIds == null ? "" : " and si.site_id in (<siteIds>)");
+
+    if (siteIds != null && siteIds.isEmpty()) {
+      return List.of();
+    }
+    List<SiteRow> siteRows =
+        jdbi.withHandle(
+            handle -> {
+              var query = handle.createQuery(siteQuery);
+              if (siteIds != null) {
+                query.bindList("siteIds", siteIds);
+              }
+              return query.mapToBean(SiteRow.class).list();
+            });
+    List<InventoryRow> inventoryRows =
+        jdbi.withHandle(
+            handle -> {
+              var query = handle.createQuery(inventoryQuery);
+              if (siteIds != null) {
+                query.bindList("siteIds", siteIds);
+              }
+              return query.mapToBean(InventoryRow.class).list();
+            });
+
+    Map<Long, SiteNode> sites = new HashMap<>();
+    for (SiteRow row : siteRows) {
+      SiteNode site = new SiteNode();
+      site.id = row.id;
+      site.wssId = row.wssId == null ? 0L : row.wssId;
+      site.name = row.name;
+      site.address = row.address;
+      site.city = row.city;
+      site.county = row.county;
+      site.state = row.state;
+      site.hours = row.hours;
+      site.active = row.active;
+      site.acceptingDonations = row.acceptingDonations;
+      sites.put(site.id, site);
+    }
+
+    Set<Long> supplyHubs = new HashSet<>();
+    siteRows.stream()
+        .filter(row -> SiteType.SUPPLY_HUB.getText().equals(row.siteType))
+        .forEach(row -> supplyHubs.add(row.id));
+
+    for (InventoryRow row : inventoryRows) {
+      SiteNode site = sites.get(row.siteId);
+      if (site == null) {
+        continue;
+      }
+      ItemStatus status = ItemStatus.fromTextValue(row.itemStatus);
+      if (status.isNeeded()) {
+        site.neededItems.put(row.itemId, status.getText());
+      } else if (status == ItemStatus.OVERSUPPLY
+          || (status == ItemStatus.AVAILABLE && supplyHubs.contains(site.id))) {
+        site.givingItems.add(row.itemId);
+      }
+    }
+    return List.copyOf(sites.values());
+  }
+
+  @NoArgsConstructor
+  @Data
+  public static class DistanceRow {
+    long site1Id;
+    long site2Id;
+    Integer driveTimeSeconds;
+    Double distanceMiles;
+    Double straightLineMiles;
+  }
+
+  /** Loads known distances, if siteIds is null then all distances are loaded. */
+  private static Map<SitePair, Distance> loadDistances(Jdbi jdbi, Collection<Long> siteIds) {
+    String query =
+        """
+        select
+          sdm.site1_id,
+          sdm.site2_id,
+          sdm.drive_time_seconds,
+          sdm.distance_miles,
+          sdm.straight_line_miles
+        from site_distance_matrix sdm
+        where (
+          sdm.drive_time_seconds is not null
+          or sdm.distance_miles is not null
+          or sdm.straight_line_miles is not null)
+        """
+            + (siteIds == null
+                ? ""
+                : " and (sdm.site1_id in (<siteIds>) or sdm.site2_id in (<siteIds>))");
+
+    Map<SitePair, Distance> distances = new HashMap<>();
+    jdbi.withHandle(
+            handle -> {
+              var q = handle.createQuery(query);
+              if (siteIds != null) {
+                q.bindList("siteIds", List.copyOf(siteIds));
+              }
+              return q.mapToBean(DistanceRow.class).list();
+            })
+        .forEach(
+            row ->
+                distances.put(
+                    SitePair.of(row.site1Id, row.site2Id),
+                    new Distance(
+                        row.driveTimeSeconds, row.distanceMiles, row.straightLineMiles)));
+    return distances;
+  }
+}
@@ -1,82 +1,200 @@
 package com.vanatta.helene.supplies.database.browse.routes;
 
+import com.vanatta.helene.supplies.database.data.ItemStatus;
+import java.util.HashMap;
 import java.util.List;
-import java.util.function.Function;
-import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Value;
-
+import java.util.Map;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * Scores delivery routes: the weight of the items on the route minus a distance penalty. Routes
+ * that score zero or less are "silly", eg: send toothbrushes 300 miles, vs an important route like
+ * "send urgently needed electric blankets 20 miles". Only routes with a positive score are listed,
+ * highest score first.
+ *
+ * <p>Weights are configured in the database, see V78__route-weights.sql. The weight of an item is
+ * the weight of its status (needed or urgently needed) times the weight of the item (per item, or
+ * else per tag). The distance penalty is (distance / 10 miles)^2.
+ *
+ * <p>Weights are loaded into arrays indexed by item ordinal. A route is encoded once, when it is
+ * built, into a {@link Candidate} (item ordinals and urgency flags), scoring a candidate then
+ * allocates nothing.
+ */
 public class RouteWeighting {
+  /** Ordinal of an item that has no weight of its own, it is weighted by its status only. */
+  static final int NO_ORDINAL = -1;
+
+  static final double DEFAULT_NEEDED_WEIGHT = 10.0;
+  static final double DEFAULT_URGENT_WEIGHT = 25.0;
+  static final double DISTANCE_SCALE_MILES = 10.0;
+
+  /** If we don't know the distance between two sites, use a ballpark of about 100 miles. */
+  static final double UNKNOWN_DISTANCE_MILES = 100.0;
 
-  @Builder
-  @Value
-  @AllArgsConstructor
-  public static class RouteData {
-    double distance;
-    List<Item> items;
-
-    RouteData(DeliveryOption deliveryOption) {
-      // if we don't know the distance between two sites.. just use a ballpark of about 100 miles.
-      this.distance =
-          deliveryOption.getDistanceMiles() == null ? 100.0 : deliveryOption.getDistanceMiles();
-      this.items =
-          deliveryOption.getItems().stream()
-              .map(
-                  deliveryItem ->
-                      Item.builder()
-                          .name(deliveryItem.getName())
-                          .priority(
-                              deliveryItem.getUrgencyCssClass().equals("urgent")
-                                  ? "URGENT"
-                                  : "NORMAL")
-                          .build())
-              .toList();
+  /**
+   * A route encoded for scoring.
+   *
+   * @param itemOrdinals Ordinal of each item on the route, or {@link #NO_ORDINAL}.
+   * @param urgent For each item, true if the item is urgently needed.
+   */
+  record Candidate(int[] itemOrdinals, boolean[] urgent, double distanceMiles) {}
+
+  private final Map<Long, Integer> ordinalByItemWssId;
+  private final double neededWeight;
+  private final double urgentWeight;
+
+  /** Weight of each item (by ordinal) when needed, and when urgently needed. */
+  private final double[] neededWeights;
+
+  private final double[] urgentWeights;
+  private final double distancePenaltyFactor;
+
+  private RouteWeighting(
+      Map<Long, Integer> ordinalByItemWssId,
+      double neededWeight,
+      double urgentWeight,
+      double[] itemWeights,
+      double distanceScaleMiles) {
+    this.ordinalByItemWssId = ordinalByItemWssId;
+    this.neededWeight = neededWeight;
+    this.urgentWeight = urgentWeight;
+    this.neededWeights = new double[itemWeights.length];
+    this.urgentWeights = new double[itemWeights.length];
+    for (int i = 0; i < itemWeights.length; i++) {
+      neededWeights[i] = neededWeight * itemWeights[i];
+      urgentWeights[i] = urgentWeight * itemWeights[i];
     }
+    this.distancePenaltyFactor = 1.0 / (distanceScaleMiles * distanceScaleMiles);
+  }
+
+  /** Weighting with the default weights and no per item weights. */
+  static RouteWeighting defaults() {
+    return withWeights(DEFAULT_NEEDED_WEIGHT, DEFAULT_URGENT_WEIGHT, DISTANCE_SCALE_MILES);
+  }
+
+  /**
+   * Weighting with given weights, items are not looked up by wss id. For tests and benchmarks,
+   * where candidates are built with item ordinals directly.
+   *
+   * @param itemWeights Weight of each item, by item ordinal.
+   */
+  // @VisibleForTesting
+  static RouteWeighting withWeights(
+      double neededWeight, double urgentWeight, double distanceScaleMiles, double... itemWeights) {
+    return new RouteWeighting(
+        Map.of(), neededWeight, urgentWeight, itemWeights, distanceScaleMiles);
+  }
 
-    @Builder
-    @Value
-    static class Item {
-      String name;
-      String priority;
+  @NoArgsConstructor
+  @Data
+  public static class StatusWeightRow {
+    String name;
+    double routeWeight;
+  }
+
+  @NoArgsConstructor
+  @Data
+  public static class ItemWeightRow {
+    long wssId;
+    double routeWeight;
+  }
+
+  /** Loads weights from the database, items are given ordinals in the order they are loaded. */
+  static RouteWeighting load(Jdbi jdbi) {
+    String statusQuery = "select name, route_weight from item_status";
+    String itemQuery =
+        """
+        select
+          i.wss_id,
+          coalesce(i.route_weight, max(tw.route_weight), 1.0) route_weight
+        from item i
+        left join item_tag it on it.item_id = i.id
+        left join item_tag_route_weight tw on tw.tag_name = it.tag_name
+        where i.wss_id is not null
+        group by i.id
+        order by i.id
+        """;
+
+    double neededWeight = DEFAULT_NEEDED_WEIGHT;
+    double urgentWeight = DEFAULT_URGENT_WEIGHT;
+    for (StatusWeightRow row :
+        jdbi.withHandle(
+            handle -> handle.createQuery(statusQuery).mapToBean(StatusWeightRow.class).list())) {
+      ItemStatus status = ItemStatus.fromTextValue(row.name);
+      if (status == ItemStatus.NEEDED) {
+        neededWeight = row.routeWeight;
+      } else if (status == ItemStatus.URGENTLY_NEEDED) {
+        urgentWeight = row.routeWeight;
+      }
+    }
+
+    List<ItemWeightRow> itemRows =
+        jdbi.withHandle(
+            handle -> handle.createQuery(itemQuery).mapToBean(ItemWeightRow.class).list());
+    Map<Long, Integer> ordinalByItemWssId = new HashMap<>();
+    double[] itemWeights = new double[itemRows.size()];
+    for (int i = 0; i < itemRows.size(); i++) {
+      ordinalByItemWssId.put(itemRows.get(i).wssId, i);
+      itemWeights[i] = itemRows.get(i).routeWeight;
     }
+    return new RouteWeighting(
+        ordinalByItemWssId, neededWeight, urgentWeight, itemWeights, DISTANCE_SCALE_MILES);
   }
 
-  public static boolean filter(DeliveryOption deliveryOption) {
-    return filter(new RouteData(deliveryOption));
+  /** Encodes a route for scoring, done once per route. */
+  Candidate encode(DeliveryOption deliveryOption) {
+    List<DeliveryOption.Item> items = deliveryOption.getItems();
+    int[] itemOrdinals = new int[items.size()];
+    boolean[] urgent = new boolean[items.size()];
+    for (int i = 0; i < items.size(); i++) {
+      DeliveryOption.Item item = items.get(i);
+      itemOrdinals[i] = ordinalByItemWssId.getOrDefault(item.getWssId(), NO_ORDINAL);
+      urgent[i] = ItemStatus.URGENTLY_NEEDED.getCssClass().equals(item.getUrgencyCssClass());
+    }
+    Double estimatedDistance = deliveryOption.estimatedDistanceMiles();
+    return new Candidate(
+        itemOrdinals,
+        urgent,
+        estimatedDistance == null ? UNKNOWN_DISTANCE_MILES : estimatedDistance);
   }
 
-  public static boolean filter(RouteData input) {
-    return filter(input, _ -> 10.0, _ -> 25.0, d -> Math.pow(d / 10, 2));
+  /** Scores a route, routes that score more than zero are good enough to be listed. */
+  double score(Candidate candidate) {
+    return score(candidate.itemOrdinals, candidate.urgent, candidate.distanceMiles);
   }
 
   /**
-   * For a given input, applies a weighting algorithm and returs true if the 'route data' passes.
-   * False if it does not. False implies the route is "silly", eg: send toothbrushes 300 miles, vs
-   * an important route like "send urgently needed electric blankets 20 miles"
+   * Scores a route given as parallel arrays of item ordinals and urgency flags.
+   *
+   * @return Weight of the items minus the distance penalty, negative infinity if the distance is
+   *     not positive.
    */
-  public static boolean filter(
-      RouteData input,
-      Function<String, Double> normalWeight,
-      Function<String, Double> urgentWeight,
-      Function<Double, Double> distanceWeight) {
-    if (input.distance <= 0.0) {
-      return false;
+  double score(int[] itemOrdinals, boolean[] urgent, double distanceMiles) {
+    if (distanceMiles <= 0.0) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    double score = 0.0;
+    for (int i = 0; i < itemOrdinals.length; i++) {
+      int ordinal = itemOrdinals[i];
+      if (ordinal == NO_ORDINAL) {
+        score += urgent[i] ? urgentWeight : neededWeight;
+      } else {
+        score += urgent[i] ? urgentWeights[ordinal] : neededWeights[ordinal];
+      }
     }
+    return score - distanceMiles * distanceMiles * distancePenaltyFactor;
+  }
+
+  /** Scores a route, encodes it first if it was not encoded when built. */
+  double score(DeliveryOption deliveryOption) {
+    Candidate candidate = deliveryOption.getWeightingCandidate();
+    return score(candidate == null ? encode(deliveryOption) : candidate);
+  }
 
-    double itemWeightScore =
-        input.getItems().stream()
-            .filter(i -> i.getPriority().equals("NORMAL"))
-            .map(RouteData.Item::getName)
-            .mapToDouble(normalWeight::apply)
-            .sum();
-    double priorityItemWeightScore =
-        input.getItems().stream()
-            .filter(i -> i.getPriority().equals("URGENT"))
-            .map(RouteData.Item::getName)
-            .mapToDouble(urgentWeight::apply)
-            .sum();
-    double distanceWeightScore = distanceWeight.apply(input.distance);
-    return (itemWeightScore + priorityItemWeightScore - distanceWeightScore) > 0;
+  boolean filter(DeliveryOption deliveryOption) {
+    return score(deliveryOption) > 0;
   }
 
   /*
@@ -1,25 +1,42 @@
 package com.vanatta.helene.supplies.database.data;
 
+import com.google.gson.annotations.SerializedName;
 import com.vanatta.helene.supplies.database.delivery.Delivery;
 import com.vanatta.helene.supplies.database.util.DateTimeFormat;
 import com.vanatta.helene.supplies.database.util.HttpGetSender;
+import jakarta.annotation.Nullable;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+@Slf4j
 @Component
 public class GoogleDistanceApi {
   private final String apiKey;
+  private final String googleMapsApiUrl;
   private final Supplier<LocalDateTime> timeSupplier;
 
-  private static final String googleMapsApiUrl =
+  public static final String GOOGLE_MAPS_API_URL =
       "https://maps.googleapis.com/maps/api/distancematrix/json";
 
+  /** Google allows at most 25 origins and 25 destinations in one distance matrix request. */
+  public static final int MAX_ORIGINS = 25;
+
+  public static final int MAX_DESTINATIONS = 25;
+
+  /** Google allows at most 100 elements (origins x destinations) in one request. */
+  public static final int MAX_ELEMENTS = 100;
+
   // @VisibleForTesting
   public static GoogleDistanceApi stubbed() {
     return new GoogleDistanceApi("") {
@@ -31,15 +48,23 @@ public class GoogleDistanceApi {
   }
 
   @Autowired
-  public GoogleDistanceApi(@Value("${google.maps.api.key}") String apiKey) {
+  public GoogleDistanceApi(
+      @Value("${google.maps.api.key}") String apiKey,
+      @Value("${google.maps.distance.url}") String googleMapsApiUrl) {
     this.apiKey = apiKey;
+    this.googleMapsApiUrl = googleMapsApiUrl;
     this.timeSupplier = () -> LocalDateTime.now(ZoneId.of("America/New_York"));
   }
 
+  public GoogleDistanceApi(String apiKey) {
+    this(apiKey, GOOGLE_MAPS_API_URL);
+  }
+
   // @VisibleForTesting
   public GoogleDistanceApi(
       @Value("${google.maps.api.key}") String apiKey, Supplier<LocalDateTime> timeSupplier) {
     this.apiKey = apiKey;
+    this.googleMapsApiUrl = GOOGLE_MAPS_API_URL;
     this.timeSupplier = timeSupplier;
   }
 
@@ -62,6 +87,55 @@ public class GoogleDistanceApi {
         .build();
   }
 
+  /**
+   * Queries distances from each origin to each destination in one request. Returns a matrix of
+   * results, indexed by [origin][destination].
+   *
+   * <p>Returns empty if the request as a whole failed (eg: OVER_QUERY_LIMIT, REQUEST_DENIED), none
+   * of the distances are known and they should be asked again later. An element of the matrix is
+   * null if that one distance failed for a reason other than the addresses not being found.
+   */
+  public Optional<GoogleDistanceResponse[][]> queryDistances(
+      List<SiteAddress> origins, List<SiteAddress> destinations) {
+    if (origins.size() > MAX_ORIGINS
+        || destinations.size() > MAX_DESTINATIONS
+        || origins.size() * destinations.size() > MAX_ELEMENTS) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Too many addresses for one request, origins: %s, destinations: %s",
+              origins.size(), destinations.size()));
+    }
+    Map<String, String> params =
+        Map.of(
+            "key",
+            apiKey,
+            "origins",
+            origins.stream().map(SiteAddress::toEncodedUrlValue).collect(Collectors.joining("|")),
+            "destinations",
+            destinations.stream()
+                .map(SiteAddress::toEncodedUrlValue)
+                .collect(Collectors.joining("|")));
+
+    GoogleDistanceJson json =
+        HttpGetSender.sendRequest(googleMapsApiUrl, params, GoogleDistanceJson.class);
+    if (json == null || !json.isComplete(origins.size(), destinations.size())) {
+      log.warn(
+          "Distance matrix request failed, status: {}, error: {}",
+          json == null ? null : json.status,
+          json == null ? null : json.errorMessage);
+      return Optional.empty();
+    }
+
+    GoogleDistanceResponse[][] results =
+        new GoogleDistanceResponse[origins.size()][destinations.size()];
+    for (int i = 0; i < origins.size(); i++) {
+      for (int j = 0; j < destinations.size(); j++) {
+        results[i][j] = json.getResponse(i, j);
+      }
+    }
+    return Optional.of(results);
+  }
+
   public String estimateEta(Delivery delivery) {
     var from =
         SiteAddress.builder()
@@ -90,6 +164,14 @@ public class GoogleDistanceApi {
   }
 
   public static class GoogleDistanceJson {
+    /** Element statuses where the addresses themselves are the problem, asking again won't help. */
+    private static final Set<String> NOT_FOUND_STATUSES = Set.of("NOT_FOUND", "ZERO_RESULTS");
+
+    String status;
+
+    @SerializedName("error_message")
+    String errorMessage;
+
     DistanceMatrixRow[] rows;
 
     static class DistanceMatrixRow {
@@ -114,16 +196,65 @@ public class GoogleDistanceApi {
       return "OK".equalsIgnoreCase(rows[0].elements[0].status);
     }
 
+    /**
+     * True if the request succeeded (top level status is OK) and there is a row for each origin
+     * with an element for each destination.
+     */
+    boolean isComplete(int rowCount, int elementCount) {
+      if (!"OK".equalsIgnoreCase(status) || rows == null || rows.length != rowCount) {
+        return false;
+      }
+      for (DistanceMatrixRow row : rows) {
+        if (row == null || row.elements == null || row.elements.length != elementCount) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns the result for one origin (row) and destination (element). The result is invalid if
+     * the addresses were not found or there is no route between them (NOT_FOUND, ZERO_RESULTS).
+     * Returns null for any other failure, or a missing row or element, when it is not known whether
+     * the distance can be computed.
+     */
+    @Nullable
+    GoogleDistanceResponse getResponse(int row, int element) {
+      if (rows == null
+          || rows.length <= row
+          || rows[row].elements == null
+          || rows[row].elements.length <= element) {
+        return null;
+      }
+      var result = rows[row].elements[element];
+      if (result.status != null && NOT_FOUND_STATUSES.contains(result.status.toUpperCase())) {
+        return GoogleDistanceResponse.builder().valid(false).build();
+      }
+      if (!"OK".equalsIgnoreCase(result.status)
+          || result.distance == null
+          || result.duration == null) {
+        return null;
+      }
+      return GoogleDistanceResponse.builder()
+          .distance(metersToMiles(result.distance.value))
+          .duration(result.duration.value)
+          .valid(true)
+          .build();
+    }
+
+    private static double metersToMiles(long meters) {
+      double miles = meters / 1609.34;
+      // round to the nearest tenth
+      return Math.round(miles * 10) / 10.0;
+    }
+
     Double getDistance() {
       if (rows.length == 0
           || rows[0].elements.length == 0
           || rows[0].elements[0].distance == null) {
         return null;
       }
-      long meters = rows[0].elements[0].distance.value;
-      double miles = meters / 1609.34;
-      // round to the nearest tenth
-      return Math.round(miles * 10) / 10.0;
+      return metersToMiles(rows[0].elements[0].distance.value);
     }
 
     // returns time duration in seconds
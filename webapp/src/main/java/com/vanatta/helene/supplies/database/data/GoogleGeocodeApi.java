@@ -0,0 +1,123 @@
+package com.vanatta.helene.supplies.database.data;
+
+import com.google.gson.annotations.SerializedName;
+import com.vanatta.helene.supplies.database.util.HttpGetSender;
+import jakarta.annotation.Nullable;
+import java.util.Map;
+import java.util.Optional;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/** Looks up the coordinates (latitude & longitude) of an address. */
+@Slf4j
+@Component
+public class GoogleGeocodeApi {
+  private final String apiKey;
+  private final String googleGeocodeUrl;
+
+  public static final String GOOGLE_GEOCODE_URL =
+      "https://maps.googleapis.com/maps/api/geocode/json";
+
+  @Autowired
+  public GoogleGeocodeApi(
+      @Value("${google.maps.api.key}") String apiKey,
+      @Value("${google.maps.geocode.url}") String googleGeocodeUrl) {
+    this.apiKey = apiKey;
+    this.googleGeocodeUrl = googleGeocodeUrl;
+  }
+
+  /**
+   * Returns the coordinates of an address. A failed request (eg: OVER_QUERY_LIMIT, a network error)
+   * is returned as FAILED, as opposed to NOT_FOUND, when the address is known not to exist.
+   */
+  public GeocodeResult geocode(SiteAddress address) {
+    Map<String, String> params = Map.of("key", apiKey, "address", address.toEncodedUrlValue());
+    GoogleGeocodeJson json;
+    try {
+      json = HttpGetSender.sendRequest(googleGeocodeUrl, params, GoogleGeocodeJson.class);
+    } catch (RuntimeException e) {
+      log.warn("Geocode request failed, address: {}", address, e);
+      return GeocodeResult.builder().status(GeocodeStatus.FAILED).build();
+    }
+    if (json == null) {
+      return GeocodeResult.builder().status(GeocodeStatus.FAILED).build();
+    }
+    GeocodeStatus status = json.getStatus();
+    if (status == GeocodeStatus.FAILED) {
+      log.warn("Geocode request failed, status: {}, error: {}", json.status, json.errorMessage);
+    }
+    return GeocodeResult.builder()
+        .status(status)
+        .coordinates(status == GeocodeStatus.OK ? json.getCoordinates().orElseThrow() : null)
+        .build();
+  }
+
+  public enum GeocodeStatus {
+    OK,
+    /** The address does not exist (ZERO_RESULTS), asking again will not help. */
+    NOT_FOUND,
+    /** The request failed, the address should be asked again later. */
+    FAILED
+  }
+
+  @Builder
+  @lombok.Value
+  public static class GeocodeResult {
+    GeocodeStatus status;
+
+    /** Null unless status is OK. */
+    @Nullable Coordinates coordinates;
+  }
+
+  @Builder
+  @lombok.Value
+  public static class Coordinates {
+    double latitude;
+    double longitude;
+  }
+
+  public static class GoogleGeocodeJson {
+    String status;
+
+    @SerializedName("error_message")
+    String errorMessage;
+
+    Result[] results;
+
+    static class Result {
+      Geometry geometry;
+
+      static class Geometry {
+        Location location;
+
+        static class Location {
+          double lat;
+          double lng;
+        }
+      }
+    }
+
+    GeocodeStatus getStatus() {
+      if ("ZERO_RESULTS".equalsIgnoreCase(status)) {
+        return GeocodeStatus.NOT_FOUND;
+      }
+      return getCoordinates().isPresent() ? GeocodeStatus.OK : GeocodeStatus.FAILED;
+    }
+
+    Optional<Coordinates> getCoordinates() {
+      if (!"OK".equalsIgnoreCase(status)
+          || results == null
+          || results.length == 0
+          || results[0].geometry == null
+          || results[0].geometry.location == null) {
+        return Optional.empty();
+      }
+      var location = results[0].geometry.location;
+      return Optional.of(
+          Coordinates.builder().latitude(location.lat).longitude(location.lng).build());
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.vanatta.helene.supplies.database.data;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory dictionary of item ids (name, id, wss_id) and item status ids. Lets DAOs bind ids
+ * directly instead of resolving them by name with a sub-select in every statement.
+ *
+ * <p>Loaded at startup. Items are added by {@code InventoryDao#addNewItem} and removed by item
+ * merges. An item that is not in the dictionary (eg: inserted by a script) is looked up in the
+ * database on first use and then remembered.
+ */
+@Slf4j
+@Component
+public class ItemDictionary {
+
+  private record ItemIds(long id, long wssId, String name) {}
+
+  private static final RowMapper<ItemIds> ITEM_IDS_MAPPER =
+      (rs, _) -> new ItemIds(rs.getLong("id"), rs.getLong("wss_id"), rs.getString("name"));
+
+  private static final Map<String, ItemIds> itemsByName = new ConcurrentHashMap<>();
+  private static final Map<Long, ItemIds> itemsByWssId = new ConcurrentHashMap<>();
+  private static final Map<Long, ItemIds> itemsById = new ConcurrentHashMap<>();
+  private static final Map<String, Long> statusIds = new ConcurrentHashMap<>();
+
+  ItemDictionary(Jdbi jdbi) {
+    reload(jdbi);
+  }
+
+  /** Replaces the dictionary contents with what is in the database. */
+  public static synchronized void reload(Jdbi jdbi) {
+    clear();
+    jdbi.withHandle(
+            handle ->
+                handle
+                    .createQuery("select id, wss_id, name from item")
+                    .map(ITEM_IDS_MAPPER)
+                    .list())
+        .forEach(ItemDictionary::put);
+    jdbi.useHandle(ItemDictionary::loadStatuses);
+    log.info("Item dictionary loaded, items: {}", itemsById.size());
+  }
+
+  /** Forgets everything, entries are loaded again from database as they are needed. */
+  public static void clear() {
+    itemsByName.clear();
+    itemsByWssId.clear();
+    itemsById.clear();
+    statusIds.clear();
+  }
+
+  public static Optional<Long> itemId(Jdbi jdbi, String itemName) {
+    ItemIds item = itemsByName.get(itemName);
+    if (item == null) {
+      item = lookup(jdbi, "name = :value", itemName).orElse(null);
+    }
+    return Optional.ofNullable(item).map(ItemIds::id);
+  }
+
+  public static Optional<Long> itemIdByWssId(Jdbi jdbi, long wssId) {
+    ItemIds item = itemsByWssId.get(wssId);
+    if (item == null) {
+      item = lookup(jdbi, "wss_id = :value", wssId).orElse(null);
+    }
+    return Optional.ofNullable(item).map(ItemIds::id);
+  }
+
+  /**
+   * @throws IllegalArgumentException if the status name is not valid.
+   */
+  public static long itemStatusId(Jdbi jdbi, String statusName) {
+    if (statusIds.isEmpty()) {
+      jdbi.useHandle(ItemDictionary::loadStatuses);
+    }
+    return statusId(statusName);
+  }
+
+  /**
+   * Same as {@link #itemStatusId(Jdbi, String)}, for use inside a transaction: if statuses need to
+   * be loaded, they are read on 'handle' rather than on a second connection.
+   */
+  public static long itemStatusId(Handle handle, String statusName) {
+    if (statusIds.isEmpty()) {
+      loadStatuses(handle);
+    }
+    return statusId(statusName);
+  }
+
+  private static long statusId(String statusName) {
+    Long id = statusIds.get(statusName);
+    if (id == null) {
+      throw new IllegalArgumentException("Invalid item status: " + statusName);
+    }
+    return id;
+  }
+
+  public static long itemStatusId(Jdbi jdbi, ItemStatus itemStatus) {
+    return itemStatusId(jdbi, itemStatus.getText());
+  }
+
+  /** Call when a new item is added. */
+  public static void itemAdded(long id, long wssId, String name) {
+    put(new ItemIds(id, wssId, name));
+  }
+
+  /** Call when items are deleted. */
+  public static void itemsRemoved(Collection<Long> itemIds) {
+    for (long itemId : itemIds) {
+      ItemIds item = itemsById.remove(itemId);
+      if (item != null) {
+        itemsByName.remove(item.name());
+        itemsByWssId.remove(item.wssId());
+      }
+    }
+  }
+
+  private static void put(ItemIds item) {
+    itemsByName.put(item.name(), item);
+    itemsByWssId.put(item.wssId(), item);
+    itemsById.put(item.id(), item);
+  }
+
+  private static Optional<ItemIds> lookup(Jdbi jdbi, String whereClause, Object value) {
+    Optional<ItemIds> item =
+        jdbi.withHandle(
+            handle ->
+                handle
+                    .createQuery("select id, wss_id, name from item where " + whereClause)
+                    .bind("value", value)
+                    .map(ITEM_IDS_MAPPER)
+                    .findOne());
+    item.ifPresent(ItemDictionary::put);
+    return item;
+  }
+
+  private static void loadStatuses(Handle handle) {
+    handle
+        .createQuery("select name, id from item_status")
+        .map((rs, _) -> Map.entry(rs.getString("name"), rs.getLong("id")))
+        .forEach(e -> statusIds.put(e.getKey(), e.getValue()));
+  }
+}
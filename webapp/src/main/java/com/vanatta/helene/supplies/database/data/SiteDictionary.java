@@ -0,0 +1,45 @@
+package com.vanatta.helene.supplies.database.data;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jdbi.v3.core.Jdbi;
+
+/**
+ * In-memory map of site wss_id to site id, so that webhooks (eg: delivery updates) can bind site
+ * ids directly instead of resolving them with a sub-select in every statement.
+ *
+ * <p>Sites are looked up on first use and then remembered, a site's wss_id does not change and
+ * sites are not deleted. Unknown wss_ids are not remembered, the site may be added later.
+ */
+public class SiteDictionary {
+
+  private static final Map<Long, Long> siteIdsByWssId = new ConcurrentHashMap<>();
+
+  public static Optional<Long> siteIdByWssId(Jdbi jdbi, Long wssId) {
+    if (wssId == null) {
+      return Optional.empty();
+    }
+    Long siteId = siteIdsByWssId.get(wssId);
+    if (siteId == null) {
+      siteId =
+          jdbi.withHandle(
+                  handle ->
+                      handle
+                          .createQuery("select id from site where wss_id = :wssId")
+                          .bind("wssId", wssId)
+                          .mapTo(Long.class)
+                          .findOne())
+              .orElse(null);
+      if (siteId != null) {
+        siteIdsByWssId.put(wssId, siteId);
+      }
+    }
+    return Optional.ofNullable(siteId);
+  }
+
+  /** Forgets everything, entries are loaded again from database as they are needed. */
+  public static void clear() {
+    siteIdsByWssId.clear();
+  }
+}
@@ -3,6 +3,7 @@ package com.vanatta.helene.supplies.database.delivery;
 import com.vanatta.helene.supplies.database.DeploymentAdvice;
 import com.vanatta.helene.supplies.database.twilio.sms.SmsSender;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -80,29 +81,22 @@ class DeliveryConfirmationController {
     switch (newStatus) {
       case PENDING -> {}
       case DRIVER_EN_ROUTE -> {
-        notificationStateMachine
-            .driverEnRoute(delivery, domainName)
-            .forEach(message -> smsSender.send(message.getPhone(), message.getMessage()));
+        sendMessages(notificationStateMachine.driverEnRoute(delivery, domainName));
         sendDeliveryUpdate.send(deliveryKey, DeliveryStatus.DELIVERY_IN_PROGRESS, domainName);
         DeliveryDao.updateDeliveryStatus(jdbi, deliveryKey, DeliveryStatus.DELIVERY_IN_PROGRESS);
       }
       case ARRIVED_AT_PICKUP -> {
-        notificationStateMachine
-            .driverArrivedToPickup(delivery, domainName)
-            .forEach(message -> smsSender.send(message.getPhone(), message.getMessage()));
+        sendMessages(notificationStateMachine.driverArrivedToPickup(delivery, domainName));
         sendDeliveryUpdate.send(deliveryKey, DeliveryStatus.DELIVERY_IN_PROGRESS, domainName);
         DeliveryDao.updateDeliveryStatus(jdbi, deliveryKey, DeliveryStatus.DELIVERY_IN_PROGRESS);
       }
       case DEPARTED_PICKUP -> {
-        notificationStateMachine
-            .driverLeavingPickup(delivery, domainName)
-            .forEach(message -> smsSender.send(message.getPhone(), message.getMessage()));
+        sendMessages(notificationStateMachine.driverLeavingPickup(delivery, domainName));
         sendDeliveryUpdate.send(deliveryKey, DeliveryStatus.DELIVERY_IN_PROGRESS, domainName);
         DeliveryDao.updateDeliveryStatus(jdbi, deliveryKey, DeliveryStatus.DELIVERY_IN_PROGRESS);
       }
       case ARRIVED_AT_DROP_OFF -> {
-        NotificationStateMachine.driverArrivedToDropOff(delivery)
-            .forEach(message -> smsSender.send(message.getPhone(), message.getMessage()));
+        sendMessages(NotificationStateMachine.driverArrivedToDropOff(delivery));
         sendDeliveryUpdate.send(deliveryKey, DeliveryStatus.DELIVERY_COMPLETED, domainName);
         DeliveryDao.updateDeliveryStatus(jdbi, deliveryKey, DeliveryStatus.DELIVERY_COMPLETED);
       }
@@ -145,7 +139,7 @@ class DeliveryConfirmationController {
       var messages =
           notificationStateMachine.requestConfirmations(
               DeliveryDao.fetchDeliveryByPublicKey(jdbi, deliveryKey).orElseThrow(), domainName);
-      messages.forEach(message -> smsSender.send(message.getPhone(), message.getMessage()));
+      sendMessages(messages);
       sendDeliveryUpdate.send(deliveryKey, DeliveryStatus.CONFIRMING, domainName);
       DeliveryDao.updateDeliveryStatus(jdbi, deliveryKey, DeliveryStatus.CONFIRMING);
     } else if (!delivery.getConfirmations().isEmpty()) {
@@ -164,7 +158,7 @@ class DeliveryConfirmationController {
       delivery = DeliveryDao.fetchDeliveryByPublicKey(jdbi, deliveryKey).orElseThrow();
 
       var messages = notificationStateMachine.confirm(delivery, domainName);
-      messages.forEach(message -> smsSender.send(message.getPhone(), message.getMessage()));
+      sendMessages(messages);
       if (delivery.isConfirmed()) {
         sendDeliveryUpdate.send(deliveryKey, DeliveryStatus.CONFIRMED, domainName);
         DeliveryDao.updateDeliveryStatus(jdbi, deliveryKey, DeliveryStatus.CONFIRMED);
@@ -203,7 +197,7 @@ class DeliveryConfirmationController {
     var messages =
         notificationStateMachine.cancel(
             DeliveryDao.fetchDeliveryByPublicKey(jdbi, deliveryKey).orElseThrow(), domainName);
-    messages.forEach(message -> smsSender.send(message.getPhone(), message.getMessage()));
+    sendMessages(messages);
     sendDeliveryUpdate.send(deliveryKey, DeliveryStatus.DELIVERY_CANCELLED, domainName);
     DeliveryDao.updateDeliveryStatus(jdbi, deliveryKey, DeliveryStatus.DELIVERY_CANCELLED);
     return ResponseEntity.ok(
@@ -211,4 +205,12 @@ class DeliveryConfirmationController {
            {"status": "cancelled"}
            """);
   }
+
+  /** Messages are sent in the background, we do not wait for them to be sent. */
+  private void sendMessages(List<NotificationStateMachine.SmsMessage> messages) {
+    smsSender.sendAll(
+        messages.stream()
+            .map(message -> new SmsSender.Sms(message.getPhone(), message.getMessage()))
+            .toList());
+  }
 }
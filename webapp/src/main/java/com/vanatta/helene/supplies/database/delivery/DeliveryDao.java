@@ -1,177 +1,222 @@
 package com.vanatta.helene.supplies.database.delivery;
 
+import com.vanatta.helene.supplies.database.data.ItemDictionary;
+import com.vanatta.helene.supplies.database.data.SiteDictionary;
+import com.vanatta.helene.supplies.database.supplies.SupplySearchIndex;
 import com.vanatta.helene.supplies.database.util.SecretCodeGenerator;
+import jakarta.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
 
 @Slf4j
 public class DeliveryDao {
 
-  public static void upsert(Jdbi jdbi, DeliveryUpdate deliveryUpdate) {
+  /** Result of a delivery upsert. */
+  @Value
+  public static class UpsertResult {
+    long deliveryId;
+
+    /** Status of the delivery before the upsert, null if the delivery is new. */
+    @Nullable String previousStatus;
+  }
+
+  /**
+   * Inserts or updates a delivery (by airtable id) and replaces its items, in one transaction.
+   * Site and item ids are resolved from the in-memory dictionaries, the previous status is
+   * returned by the upsert itself.
+   */
+  public static UpsertResult upsert(Jdbi jdbi, DeliveryUpdate deliveryUpdate) {
+    // all parts of the statement see the same snapshot, 'previous' is the row before the upsert
     String upsert =
         """
-        insert into delivery(
-          from_site_id, to_site_id, delivery_status, target_delivery_date,
-          dispatcher_name, dispatcher_number, driver_name, driver_number,
-          driver_license_plates, airtable_id, dispatcher_notes, public_url_key,
-          dispatch_code, driver_code,
-          pickup_site_name, pickup_contact_name, pickup_contact_phone,
-          pickup_hours, pickup_address, pickup_city, pickup_state,
-          dropoff_site_name, dropoff_contact_name, dropoff_contact_phone,
-          dropoff_hours, dropoff_address, dropoff_city, dropoff_state)
-        values(
-          (select id from site where wss_id = :fromSiteWssId),
-          (select id from site where wss_id = :toSiteWssId),
-          :deliveryStatus,
-          to_date(:targetDeliveryDate, 'YYYY-MM-DD'),
-          :dispatcherName,
-          :dispatcherNumber,
-          :driverName,
-          :driverNumber,
-          :driverLicensePlateNumbers,
-          :airtableId,
-          :dispatcherNotes,
-          :publicUrlKey,
-          :dispatchCode,
-          :driverCode,
-          :pickupSiteName,
-          :pickupContactName,
-          :pickupContactPhone,
-          :pickupHours,
-          :pickupAddress,
-          :pickupCity,
-          :pickupState,
-          :dropoffSiteName,
-          :dropoffContactName,
-          :dropoffContactPhone,
-          :dropoffHours,
-          :dropoffAddress,
-          :dropoffCity,
-          :dropoffState
-        ) on conflict(airtable_id) do update set
-          from_site_id = (select id from site where wss_id = :fromSiteWssId),
-          to_site_id = (select id from site where wss_id = :toSiteWssId),
-          delivery_status = :deliveryStatus,
-          target_delivery_date = to_date(:targetDeliveryDate, 'YYYY-MM-DD'), -- 2024-12-13 SELECT TO_DATE('20170103','YYYYMMDD');
-          dispatcher_name = :dispatcherName,
-          dispatcher_number = :dispatcherNumber,
-          driver_name = :driverName,
-          driver_number = :driverNumber,
-          driver_license_plates = :driverLicensePlateNumbers,
-          dispatcher_notes = :dispatcherNotes,
-          dispatch_code = :dispatchCode,
-          pickup_site_name = :pickupSiteName,
-          pickup_contact_name = :pickupContactName,
-          pickup_contact_phone = :pickupContactPhone,
-          pickup_hours = :pickupHours,
-          pickup_address = :pickupAddress,
-          pickup_city = :pickupCity,
-          pickup_state = :pickupState,
-          dropoff_site_name = :dropoffSiteName,
-          dropoff_contact_name = :dropoffContactName,
-          dropoff_contact_phone = :dropoffContactPhone,
-          dropoff_hours = :dropoffHours,
-          dropoff_address = :dropoffAddress,
-          dropoff_city = :dropoffCity,
-          dropoff_state = :dropoffState
+        with previous as (
+          select delivery_status from delivery where airtable_id = :airtableId
+        ),
+        upserted as (
+          insert into delivery(
+            from_site_id, to_site_id, delivery_status, target_delivery_date,
+            dispatcher_name, dispatcher_number, driver_name, driver_number,
+            driver_license_plates, airtable_id, dispatcher_notes, public_url_key,
+            dispatch_code, driver_code,
+            pickup_site_name, pickup_contact_name, pickup_contact_phone,
+            pickup_hours, pickup_address, pickup_city, pickup_state,
+            dropoff_site_name, dropoff_contact_name, dropoff_contact_phone,
+            dropoff_hours, dropoff_address, dropoff_city, dropoff_state)
+          values(
+            :fromSiteId,
+            :toSiteId,
+            :deliveryStatus,
+            to_date(:targetDeliveryDate, 'YYYY-MM-DD'),
+            :dispatcherName,
+            :dispatcherNumber,
+            :driverName,
+            :driverNumber,
+            :driverLicensePlateNumbers,
+            :airtableId,
+            :dispatcherNotes,
+            :publicUrlKey,
+            :dispatchCode,
+            :driverCode,
+            :pickupSiteName,
+            :pickupContactName,
+            :pickupContactPhone,
+            :pickupHours,
+            :pickupAddress,
+            :pickupCity,
+            :pickupState,
+            :dropoffSiteName,
+            :dropoffContactName,
+            :dropoffContactPhone,
+            :dropoffHours,
+            :dropoffAddress,
+            :dropoffCity,
+            :dropoffState
+          ) on conflict(airtable_id) do update set
+            from_site_id = :fromSiteId,
+            to_site_id = :toSiteId,
+            delivery_status = :deliveryStatus,
+            target_delivery_date = to_date(:targetDeliveryDate, 'YYYY-MM-DD'), -- eg: 2024-12-13
+            dispatcher_name = :dispatcherName,
+            dispatcher_number = :dispatcherNumber,
+            driver_name = :driverName,
+            driver_number = :driverNumber,
+            driver_license_plates = :driverLicensePlateNumbers,
+            dispatcher_notes = :dispatcherNotes,
+            dispatch_code = :dispatchCode,
+            pickup_site_name = :pickupSiteName,
+            pickup_contact_name = :pickupContactName,
+            pickup_contact_phone = :pickupContactPhone,
+            pickup_hours = :pickupHours,
+            pickup_address = :pickupAddress,
+            pickup_city = :pickupCity,
+            pickup_state = :pickupState,
+            dropoff_site_name = :dropoffSiteName,
+            dropoff_contact_name = :dropoffContactName,
+            dropoff_contact_phone = :dropoffContactPhone,
+            dropoff_hours = :dropoffHours,
+            dropoff_address = :dropoffAddress,
+            dropoff_city = :dropoffCity,
+            dropoff_state = :dropoffState
+          returning id
+        )
+        select
+          upserted.id deliveryId,
+          (select delivery_status from previous) previousStatus
+        from upserted
         """;
-    jdbi.withHandle(
-        handle ->
-            handle
-                .createUpdate(upsert)
-                .bind("fromSiteWssId", firstValue(deliveryUpdate.getPickupSiteWssId()))
-                .bind("toSiteWssId", firstValue(deliveryUpdate.getDropOffSiteWssId()))
-                .bind("deliveryStatus", deliveryUpdate.getDeliveryStatus())
-                .bind("targetDeliveryDate", deliveryUpdate.getTargetDeliveryDate())
-                .bind("dispatcherName", firstValue(deliveryUpdate.getDispatcherName()))
-                .bind("dispatcherNumber", firstValue(deliveryUpdate.getDispatcherNumber()))
-                .bind("driverName", firstValue(deliveryUpdate.getDriverName()))
-                .bind("driverNumber", firstValue(deliveryUpdate.getDriverNumber()))
-                .bind(
-                    "driverLicensePlateNumbers",
-                    firstValue(deliveryUpdate.getLicensePlateNumbers()))
-                .bind("airtableId", deliveryUpdate.getDeliveryId())
-                .bind("dispatcherNotes", deliveryUpdate.getDispatcherNotes())
-                .bind("dispatchCode", deliveryUpdate.getDispatcherCode())
-                .bind("driverCode", SecretCodeGenerator.generateCode())
-                .bind("publicUrlKey", deliveryUpdate.getPublicUrlKey())
-                .bind("pickupSiteName", firstValue(deliveryUpdate.getPickupSiteName()))
-                .bind("pickupContactName", firstValue(deliveryUpdate.getPickupContactName()))
-                .bind("pickupContactPhone", firstValue(deliveryUpdate.getPickupContactPhone()))
-                .bind("pickupHours", firstValue(deliveryUpdate.getPickupHours()))
-                .bind("pickupAddress", firstValue(deliveryUpdate.getPickupAddress()))
-                .bind("pickupCity", firstValue(deliveryUpdate.getPickupCity()))
-                .bind("pickupState", firstValue(deliveryUpdate.getPickupState()))
-                .bind("dropoffSiteName", firstValue(deliveryUpdate.getDropoffSiteName()))
-                .bind("dropoffContactName", firstValue(deliveryUpdate.getDropoffContactName()))
-                .bind("dropoffContactPhone", firstValue(deliveryUpdate.getDropoffContactPhone()))
-                .bind("dropoffHours", firstValue(deliveryUpdate.getDropoffHours()))
-                .bind("dropoffAddress", firstValue(deliveryUpdate.getDropoffAddress()))
-                .bind("dropoffCity", firstValue(deliveryUpdate.getDropoffCity()))
-                .bind("dropoffState", firstValue(deliveryUpdate.getDropoffState()))
-                .execute());
 
-    String deletePreviousItems =
-        """
-      delete from delivery_item where delivery_id =
-        (select id from delivery where airtable_id = :deliveryId)
-    """;
+    Long fromSiteId =
+        SiteDictionary.siteIdByWssId(jdbi, firstValue(deliveryUpdate.getPickupSiteWssId()))
+            .orElse(null);
+    Long toSiteId =
+        SiteDictionary.siteIdByWssId(jdbi, firstValue(deliveryUpdate.getDropOffSiteWssId()))
+            .orElse(null);
+    List<Long> itemWssIds =
+        Optional.ofNullable(deliveryUpdate.getItemListWssIds()).orElse(List.of());
+    List<Long> itemIds = new ArrayList<>();
+    for (long itemWssId : itemWssIds) {
+      ItemDictionary.itemIdByWssId(jdbi, itemWssId)
+          .filter(itemId -> !itemIds.contains(itemId))
+          .ifPresentOrElse(
+              itemIds::add,
+              () ->
+                  log.warn(
+                      "Delivery update, unknown or duplicate item wss id: {}, delivery: {}",
+                      itemWssId,
+                      deliveryUpdate.getDeliveryId()));
+    }
+    List<String> itemNames = Optional.ofNullable(deliveryUpdate.getItemList()).orElse(List.of());
 
-    jdbi.withHandle(
-        handle ->
-            handle
-                .createUpdate(deletePreviousItems)
-                .bind("deliveryId", deliveryUpdate.getDeliveryId())
-                .execute());
+    UpsertResult result =
+        jdbi.inTransaction(
+            handle -> {
+              UpsertResult upsertResult =
+                  handle
+                      .createQuery(upsert)
+                      .bind("fromSiteId", fromSiteId)
+                      .bind("toSiteId", toSiteId)
+                      .bind("deliveryStatus", deliveryUpdate.getDeliveryStatus())
+                      .bind("targetDeliveryDate", deliveryUpdate.getTargetDeliveryDate())
+                      .bind("dispatcherName", firstValue(deliveryUpdate.getDispatcherName()))
+                      .bind("dispatcherNumber", firstValue(deliveryUpdate.getDispatcherNumber()))
+                      .bind("driverName", firstValue(deliveryUpdate.getDriverName()))
+                      .bind("driverNumber", firstValue(deliveryUpdate.getDriverNumber()))
+                      .bind(
+                          "driverLicensePlateNumbers",
+                          firstValue(deliveryUpdate.getLicensePlateNumbers()))
+                      .bind("airtableId", deliveryUpdate.getDeliveryId())
+                      .bind("dispatcherNotes", deliveryUpdate.getDispatcherNotes())
+                      .bind("dispatchCode", deliveryUpdate.getDispatcherCode())
+                      .bind("driverCode", SecretCodeGenerator.generateCode())
+                      .bind("publicUrlKey", deliveryUpdate.getPublicUrlKey())
+                      .bind("pickupSiteName", firstValue(deliveryUpdate.getPickupSiteName()))
+                      .bind("pickupContactName", firstValue(deliveryUpdate.getPickupContactName()))
+                      .bind(
+                          "pickupContactPhone", firstValue(deliveryUpdate.getPickupContactPhone()))
+                      .bind("pickupHours", firstValue(deliveryUpdate.getPickupHours()))
+                      .bind("pickupAddress", firstValue(deliveryUpdate.getPickupAddress()))
+                      .bind("pickupCity", firstValue(deliveryUpdate.getPickupCity()))
+                      .bind("pickupState", firstValue(deliveryUpdate.getPickupState()))
+                      .bind("dropoffSiteName", firstValue(deliveryUpdate.getDropoffSiteName()))
+                      .bind(
+                          "dropoffContactName", firstValue(deliveryUpdate.getDropoffContactName()))
+                      .bind(
+                          "dropoffContactPhone",
+                          firstValue(deliveryUpdate.getDropoffContactPhone()))
+                      .bind("dropoffHours", firstValue(deliveryUpdate.getDropoffHours()))
+                      .bind("dropoffAddress", firstValue(deliveryUpdate.getDropoffAddress()))
+                      .bind("dropoffCity", firstValue(deliveryUpdate.getDropoffCity()))
+                      .bind("dropoffState", firstValue(deliveryUpdate.getDropoffState()))
+                      .map(
+                          (rs, _) ->
+                              new UpsertResult(
+                                  rs.getLong("deliveryId"), rs.getString("previousStatus")))
+                      .one();
 
-    // insert all the latest items
-    String insert =
-        """
-    insert into delivery_item(delivery_id, item_id)
-    values(
-      (select id from delivery where airtable_id = :airtableId),
-      (select id from item where wss_id = :itemWssId)
-    )
-    """;
-    List<Long> itemIds = deliveryUpdate.getItemListWssIds();
-    if (itemIds != null) {
-      for (long itemWssId : itemIds) {
-        jdbi.withHandle(
-            handle ->
-                handle
-                    .createUpdate(insert)
-                    .bind("airtableId", deliveryUpdate.getDeliveryId())
-                    .bind("itemWssId", itemWssId)
-                    .execute());
-      }
-    }
-    // insert items that are provided by name (sometimes items won't have a WSS-ID)
-    String insertByName =
-        """
-    insert into delivery_item(delivery_id, item_name)
-    values(
-      (select id from delivery where airtable_id = :airtableId),
-      :itemName
-    )
-    """;
-    List<String> itemNames = deliveryUpdate.getItemList();
-    if (itemNames != null) {
-      for (String itemName : itemNames) {
-        jdbi.withHandle(
-            handle ->
-                handle
-                    .createUpdate(insertByName)
-                    .bind("airtableId", deliveryUpdate.getDeliveryId())
+              handle
+                  .createUpdate("delete from delivery_item where delivery_id = :deliveryId")
+                  .bind("deliveryId", upsertResult.getDeliveryId())
+                  .execute();
+
+              // insert all the latest items, items are provided by wss id and by name
+              // (sometimes items won't have a WSS-ID)
+              PreparedBatch insert =
+                  handle.prepareBatch(
+                      """
+                      insert into delivery_item(delivery_id, item_id, item_name)
+                      values(:deliveryId, :itemId, :itemName)
+                      """);
+              for (Long itemId : itemIds) {
+                insert
+                    .bind("deliveryId", upsertResult.getDeliveryId())
+                    .bind("itemId", itemId)
+                    .bind("itemName", (String) null)
+                    .add();
+              }
+              for (String itemName : itemNames) {
+                insert
+                    .bind("deliveryId", upsertResult.getDeliveryId())
+                    .bind("itemId", (Long) null)
                     .bind("itemName", itemName)
-                    .execute());
-      }
-    }
+                    .add();
+              }
+              if (insert.size() > 0) {
+                insert.execute();
+              }
+              return upsertResult;
+            });
+    SupplySearchIndex.markDeliveriesChanged();
+    return result;
   }
 
   private static <T> T firstValue(List<T> input) {
@@ -193,6 +238,7 @@ public class DeliveryDao {
                 .bind("publicKey", publicKey)
                 .bind("deliveryStatus", deliveryStatus.getAirtableName())
                 .execute());
+    SupplySearchIndex.markDeliveriesChanged();
   }
 
   // get
@@ -200,6 +246,9 @@ public class DeliveryDao {
   @AllArgsConstructor
   @NoArgsConstructor
   public static class DeliveryData {
+    /** Internal database id, used to join items and confirmations and for paging. */
+    long id;
+
     long deliveryId;
     String publicUrlKey;
     String deliveryStatus;
@@ -241,6 +290,22 @@ public class DeliveryDao {
     private String cancelReason;
   }
 
+  /**
+   * Default number of deliveries loaded for a site or a driver. Deliveries are ordered newest
+   * first, so old (typically completed) deliveries are not loaded at all.
+   */
+  public static final int DEFAULT_PAGE_SIZE = 50;
+
+  /**
+   * A page of deliveries, newest first. 'nextCursor' is null when there are no more deliveries,
+   * otherwise it can be passed back to fetch the next (older) page.
+   */
+  @Value
+  public static class DeliveryPage {
+    List<Delivery> deliveries;
+    @Nullable String nextCursor;
+  }
+
   public static Optional<Delivery> fetchDeliveryByPublicKey(Jdbi jdbi, String publicUrlKey) {
     String whereClause = "d.public_url_key = :id";
     var results = fetchDeliveries(jdbi, whereClause, publicUrlKey);
@@ -251,28 +316,88 @@ public class DeliveryDao {
     }
   }
 
+  private static final String BY_SITE_ID =
+      """
+      d.from_site_id = :id
+      or d.to_site_id = :id
+      """;
+
+  /** Fetches all deliveries of a site, prefer the paged variant for anything user facing. */
   public static List<Delivery> fetchDeliveriesBySiteId(Jdbi jdbi, Long siteId) {
-    String whereClause =
-        """
-    d.from_site_id = :id
-    or d.to_site_id = :id
-    """;
-    return fetchDeliveries(jdbi, whereClause, siteId);
+    return fetchDeliveries(jdbi, BY_SITE_ID, siteId);
   }
 
+  public static DeliveryPage fetchDeliveriesBySiteId(
+      Jdbi jdbi, long siteId, int limit, @Nullable String cursor) {
+    return fetchDeliveryPage(jdbi, BY_SITE_ID, siteId, limit, cursor);
+  }
+
+  private static final String BY_DRIVER_PHONE = "d.driver_number_digits = :id";
+
+  /** Fetches all deliveries of a driver, prefer the paged variant for anything user facing. */
   public static List<Delivery> fetchDeliveriesByDriverPhoneNumber(Jdbi jdbi, String driverPhone) {
-    String whereClause =
-        """
-              regexp_replace(d.driver_number, '[^0-9]+', '', 'g') = :id
-            """;
-    return fetchDeliveries(jdbi, whereClause, driverPhone);
+    return fetchDeliveries(jdbi, BY_DRIVER_PHONE, driverPhone);
+  }
+
+  public static DeliveryPage fetchDeliveriesByDriverPhoneNumber(
+      Jdbi jdbi, String driverPhone, int limit, @Nullable String cursor) {
+    return fetchDeliveryPage(jdbi, BY_DRIVER_PHONE, driverPhone, limit, cursor);
   }
 
   private static List<Delivery> fetchDeliveries(Jdbi jdbi, String whereClause, Object idValue) {
+    return toDeliveries(jdbi, selectDeliveryData(jdbi, whereClause, idValue, null, null));
+  }
+
+  private static DeliveryPage fetchDeliveryPage(
+      Jdbi jdbi, String whereClause, Object idValue, int limit, @Nullable String cursor) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Invalid delivery page limit: " + limit);
+    }
+    // fetch one extra row to know if there is a next page
+    List<DeliveryData> rows = selectDeliveryData(jdbi, whereClause, idValue, limit + 1, cursor);
+    String nextCursor = null;
+    if (rows.size() > limit) {
+      rows = rows.subList(0, limit);
+      nextCursor = toCursor(rows.getLast());
+    }
+    return new DeliveryPage(toDeliveries(jdbi, rows), nextCursor);
+  }
+
+  /**
+   * Deliveries are ordered by (target date, id) descending, deliveries without a target date
+   * first. The cursor is the sort key of the last delivery of a page, eg: "2024-12-13:42". A
+   * missing target date is encoded as 'infinity' so that the comparison in SQL stays simple.
+   */
+  private static String toCursor(DeliveryData lastRow) {
+    String date =
+        lastRow.getTargetDeliveryDate() == null ? "infinity" : lastRow.getTargetDeliveryDate();
+    return date + ":" + lastRow.getId();
+  }
+
+  private static List<DeliveryData> selectDeliveryData(
+      Jdbi jdbi,
+      String whereClause,
+      Object idValue,
+      @Nullable Integer limit,
+      @Nullable String cursor) {
+
+    String cursorDate = null;
+    Long cursorId = null;
+    if (cursor != null) {
+      int split = cursor.lastIndexOf(':');
+      try {
+        cursorDate = cursor.substring(0, split);
+        cursorId = Long.parseLong(cursor.substring(split + 1));
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException("Invalid delivery cursor: " + cursor, e);
+      }
+    }
+
     String select =
         String.format(
             """
     select
+      d.id,
       d.airtable_id deliveryId,
       d.public_url_key publicUrlKey,
       d.delivery_status deliveryStatus,
@@ -312,74 +437,129 @@ public class DeliveryDao {
     left join site toSite on toSite.id = d.to_site_id
     left join county toCounty on toCounty.id = toSite.county_id
     where (%s)
-    order by d.target_delivery_date desc
+    %s
+    order by coalesce(d.target_delivery_date, 'infinity'::date) desc, d.id desc
+    %s
     """,
-            whereClause);
-    List<Delivery> deliveries =
-        jdbi
-            .withHandle(
-                handle ->
-                    handle
-                        .createQuery(select)
-                        .bind("id", idValue)
-                        .mapToBean(DeliveryData.class)
-                        .list())
-            .stream()
-            .map(Delivery::new)
-            .toList();
+            whereClause,
+            cursor == null
+                ? ""
+                : """
+                  and (coalesce(d.target_delivery_date, 'infinity'::date), d.id)
+                     < (cast(:cursorDate as date), :cursorId)
+                  """,
+            limit == null ? "" : "limit :limit");
+
+    final String date = cursorDate;
+    final Long id = cursorId;
+    return jdbi.withHandle(
+        handle -> {
+          var query = handle.createQuery(select).bind("id", idValue);
+          if (cursor != null) {
+            query.bind("cursorDate", date).bind("cursorId", id);
+          }
+          if (limit != null) {
+            query.bind("limit", limit);
+          }
+          return query.mapToBean(DeliveryData.class).list();
+        });
+  }
+
+  @Data
+  @NoArgsConstructor
+  public static class DeliveryItemRow {
+    long deliveryId;
+    String name;
+  }
+
+  @Data
+  @NoArgsConstructor
+  public static class DeliveryConfirmationRow {
+    long deliveryId;
+    String confirmRole;
+    Boolean confirmed;
+    String code;
+  }
+
+  /**
+   * Converts delivery rows to deliveries, items and confirmations of all deliveries are fetched
+   * with one query each and are then matched up to their delivery by delivery id.
+   */
+  private static List<Delivery> toDeliveries(Jdbi jdbi, List<DeliveryData> rows) {
+    if (rows.isEmpty()) {
+      return List.of();
+    }
+    List<Long> ids = rows.stream().map(DeliveryData::getId).toList();
 
     String selectDeliveryItems =
         """
-      select distinct A.name
+      select distinct A.deliveryId, A.name
       from
       (
       select
+        di.delivery_id deliveryId,
         i.name
       from delivery_item di
       join item i on i.id = di.item_id
-      where di.delivery_id = (select id from delivery where airtable_id = :deliveryId)
+      where di.delivery_id in (<ids>)
       union
       select
+        di.delivery_id deliveryId,
         di.item_name name
       from delivery_item di
-      where di.delivery_id = (select id from delivery where airtable_id = :deliveryId)
+      where di.delivery_id in (<ids>)
+        and di.item_name is not null
       ) A
-      order by A.name;
       """;
 
     String selectConfirmations =
         """
       select
+         dc.delivery_id deliveryId,
          dc.confirm_type confirmRole,
          dc.delivery_accepted confirmed,
          dc.secret_code code
       from delivery_confirmation dc
-      join delivery d on d.id = dc.delivery_id
-      where d.public_url_key = :publicUrlKey
+      where dc.delivery_id in (<ids>)
       """;
 
-    for (Delivery delivery : deliveries) {
-      List<String> items =
-          jdbi.withHandle(
-              handle ->
-                  handle
-                      .createQuery(selectDeliveryItems)
-                      .bind("deliveryId", delivery.getDeliveryNumber())
-                      .mapTo(String.class)
-                      .list());
-      delivery.addItems(items.stream().filter(Objects::nonNull).sorted().toList());
-
-      List<DeliveryConfirmation> confirmations =
-          jdbi.withHandle(
-              handle ->
-                  handle
-                      .createQuery(selectConfirmations)
-                      .bind("publicUrlKey", delivery.getPublicKey())
-                      .mapToBean(DeliveryConfirmation.class)
-                      .list());
-      delivery.addConfirmations(confirmations);
-    }
+    Map<Long, List<String>> itemsByDelivery = new HashMap<>();
+    Map<Long, List<DeliveryConfirmation>> confirmationsByDelivery = new HashMap<>();
+    jdbi.useHandle(
+        handle -> {
+          handle
+              .createQuery(selectDeliveryItems)
+              .bindList("ids", ids)
+              .mapToBean(DeliveryItemRow.class)
+              .forEach(
+                  row ->
+                      itemsByDelivery
+                          .computeIfAbsent(row.getDeliveryId(), _ -> new ArrayList<>())
+                          .add(row.getName()));
+          handle
+              .createQuery(selectConfirmations)
+              .bindList("ids", ids)
+              .mapToBean(DeliveryConfirmationRow.class)
+              .forEach(
+                  row ->
+                      confirmationsByDelivery
+                          .computeIfAbsent(row.getDeliveryId(), _ -> new ArrayList<>())
+                          .add(
+                              DeliveryConfirmation.builder()
+                                  .confirmRole(row.getConfirmRole())
+                                  .confirmed(row.getConfirmed())
+                                  .code(row.getCode())
+                                  .build()));
+        });
 
+    List<Delivery> deliveries = new ArrayList<>();
+    for (DeliveryData row : rows) {
+      Delivery delivery = new Delivery(row);
+      delivery.addItems(
+          itemsByDelivery.getOrDefault(row.getId(), List.of()).stream().sorted().toList());
+      delivery.addConfirmations(confirmationsByDelivery.getOrDefault(row.getId(), List.of()));
+      deliveries.add(delivery);
+    }
     return deliveries;
   }
 }
@@ -1,7 +1,9 @@
 package com.vanatta.helene.supplies.database.delivery;
 
-import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.vanatta.helene.supplies.database.util.JsonCodec;
 import jakarta.annotation.Nonnull;
+import java.io.Reader;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -14,6 +16,9 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class DeliveryUpdate {
+  private static final TypeAdapter<DeliveryUpdate> jsonAdapter =
+      JsonCodec.adapter(DeliveryUpdate.class);
+
   @Nonnull Long deliveryId;
 
   /**
@@ -58,7 +63,11 @@ public class DeliveryUpdate {
   List<String> dropoffState;
 
   static DeliveryUpdate parseJson(String inputJson) {
-    return new Gson().fromJson(inputJson, DeliveryUpdate.class);
+    return JsonCodec.fromJson(inputJson, jsonAdapter);
+  }
+
+  static DeliveryUpdate parseJson(Reader input) {
+    return JsonCodec.readBody(input, jsonAdapter);
   }
 
   boolean isComplete() {
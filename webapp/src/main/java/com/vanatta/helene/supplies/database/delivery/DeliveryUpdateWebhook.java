@@ -1,13 +1,14 @@
 package com.vanatta.helene.supplies.database.delivery;
 
 import com.vanatta.helene.supplies.database.manage.inventory.InventoryDao;
+import java.io.Reader;
+import java.util.Optional;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jdbi.v3.core.Jdbi;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 
 /** Webhook to receive delivery updates from airtable. */
 @Controller
@@ -21,17 +22,14 @@ class DeliveryUpdateWebhook {
   private final Jdbi jdbi;
 
   @PostMapping(PATH_UPDATE_DELIVERY)
-  ResponseEntity<String> upsertDelivery(@RequestBody String body) {
-    log.info("Delivery update endpoint received: {}", body);
+  ResponseEntity<String> upsertDelivery(Reader body) {
     DeliveryUpdate deliveryUpdate = DeliveryUpdate.parseJson(body);
+    log.info("Delivery update endpoint received: {}", deliveryUpdate);
 
     String oldStatus =
-        DeliveryDao.fetchDeliveryByPublicKey(jdbi, deliveryUpdate.getPublicUrlKey())
-            .map(Delivery::getDeliveryStatus)
+        Optional.ofNullable(DeliveryDao.upsert(jdbi, deliveryUpdate).getPreviousStatus())
             .orElse("");
 
-    DeliveryDao.upsert(jdbi, deliveryUpdate);
-
     // if the delivery was already completed, and we get an update and the delivery is still
     // complete, then
     // we should skip any automations.
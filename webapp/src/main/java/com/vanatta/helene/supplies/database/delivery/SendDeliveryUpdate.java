@@ -1,6 +1,6 @@
 package com.vanatta.helene.supplies.database.delivery;
 
-import com.vanatta.helene.supplies.database.util.HttpPostSender;
+import com.vanatta.helene.supplies.database.util.OutboundDispatcher;
 import jakarta.annotation.Nonnull;
 import lombok.Builder;
 import org.jdbi.v3.core.Jdbi;
@@ -12,7 +12,7 @@ import org.springframework.stereotype.Component;
 public class SendDeliveryUpdate {
 
   public static SendDeliveryUpdate disabled() {
-    return new SendDeliveryUpdate(null, false, null);
+    return new SendDeliveryUpdate(null, false, null, null);
   }
 
   @Builder
@@ -29,15 +29,18 @@ public class SendDeliveryUpdate {
   private final Jdbi jdbi;
   private final boolean enabled;
   private final String airtableWebhookUrl;
+  private final OutboundDispatcher outboundDispatcher;
 
   SendDeliveryUpdate(
       Jdbi jdbi,
       @Value("${make.enabled}") boolean enabled,
-      @Value("${airtable.webhook.delivery.update}") String airtableWebhookUrl) {
+      @Value("${airtable.webhook.delivery.update}") String airtableWebhookUrl,
+      OutboundDispatcher outboundDispatcher) {
 
     this.jdbi = jdbi;
     this.enabled = enabled;
     this.airtableWebhookUrl = airtableWebhookUrl;
+    this.outboundDispatcher = outboundDispatcher;
   }
 
   void send(String publicKey, DeliveryStatus newStatus, String domainName) {
@@ -45,7 +48,7 @@ public class SendDeliveryUpdate {
       return;
     }
     UpdateDeliveryJson updateDeliveryJson = createPayload(jdbi, publicKey, newStatus, domainName);
-    HttpPostSender.sendAsJson(airtableWebhookUrl, updateDeliveryJson);
+    outboundDispatcher.send(airtableWebhookUrl, updateDeliveryJson);
   }
 
   UpdateDeliveryJson createPayload(
@@ -1,7 +1,9 @@
 package com.vanatta.helene.supplies.database.driver;
 
-import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.vanatta.helene.supplies.database.util.JsonCodec;
 import com.vanatta.helene.supplies.database.util.TruncateString;
+import java.io.Reader;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,6 +14,8 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Data
 public class Driver {
+  private static final TypeAdapter<Driver> jsonAdapter = JsonCodec.adapter(Driver.class);
+
   Long airtableId;
   private String fullName;
   private String phone;
@@ -33,6 +37,10 @@ public class Driver {
   }
 
   static Driver parseJson(String json) {
-    return new Gson().fromJson(json, Driver.class);
+    return JsonCodec.fromJson(json, jsonAdapter);
+  }
+
+  static Driver parseJson(Reader input) {
+    return JsonCodec.readBody(input, jsonAdapter);
   }
 }
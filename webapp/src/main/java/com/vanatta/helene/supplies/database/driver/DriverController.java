@@ -1,10 +1,10 @@
 package com.vanatta.helene.supplies.database.driver;
 
 import com.vanatta.helene.supplies.database.auth.LoggedInAdvice;
-import com.vanatta.helene.supplies.database.delivery.Delivery;
 import com.vanatta.helene.supplies.database.delivery.DeliveryDao;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import lombok.AllArgsConstructor;
@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
 @Controller
@@ -35,11 +36,14 @@ public class DriverController {
     canLift50lbs,
     palletCapacity,
     driverDeliveries,
+    moreDeliveriesLink,
     ;
   }
 
   @GetMapping("/driver/portal")
-  ModelAndView showDriverPortal(@ModelAttribute(LoggedInAdvice.USER_PHONE) String userPhone) {
+  ModelAndView showDriverPortal(
+      @ModelAttribute(LoggedInAdvice.USER_PHONE) String userPhone,
+      @RequestParam(required = false) String deliveriesBefore) {
     Driver driver =
         Optional.ofNullable(userPhone)
             .flatMap(phone -> DriverDao.lookupByPhone(jdbi, phone))
@@ -49,7 +53,9 @@ public class DriverController {
       return new ModelAndView("redirect:/");
     }
 
-    List<Delivery> deliveries = DeliveryDao.fetchDeliveriesByDriverPhoneNumber(jdbi, userPhone);
+    DeliveryDao.DeliveryPage deliveries =
+        DeliveryDao.fetchDeliveriesByDriverPhoneNumber(
+            jdbi, userPhone, DeliveryDao.DEFAULT_PAGE_SIZE, deliveriesBefore);
 
     Map<String, Object> params = new HashMap<>();
     params.put(PageParams.location.name(), Optional.ofNullable(driver.getLocation()).orElse(""));
@@ -61,7 +67,13 @@ public class DriverController {
     params.put(PageParams.active.name(), driver.isActive());
     params.put(PageParams.canLift50lbs.name(), driver.isCan_lift_50lbs());
     params.put(PageParams.palletCapacity.name(), driver.getPallet_capacity());
-    params.put(PageParams.driverDeliveries.name(), deliveries);
+    params.put(PageParams.driverDeliveries.name(), deliveries.getDeliveries());
+    params.put(
+        PageParams.moreDeliveriesLink.name(),
+        deliveries.getNextCursor() == null
+            ? null
+            : "/driver/portal?deliveriesBefore="
+                + URLEncoder.encode(deliveries.getNextCursor(), StandardCharsets.UTF_8));
 
     return new ModelAndView("driver/portal", params);
   }
@@ -1,7 +1,10 @@
 package com.vanatta.helene.supplies.database.driver;
 
-import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.vanatta.helene.supplies.database.auth.UserPrincipalResolver;
+import com.vanatta.helene.supplies.database.util.JsonCodec;
 import com.vanatta.helene.supplies.database.util.PhoneNumberUtil;
+import java.io.Reader;
 import java.util.Optional;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -28,7 +31,7 @@ public class DriverDao {
                       comments,
                       can_lift_50lbs,
                       pallet_capacity
-                    from driver where regexp_replace(phone, '[^0-9]+', '', 'g') = :phone
+                    from driver where phone_digits = :phone
                     """)
                 .bind("phone", PhoneNumberUtil.removeNonNumeric(phoneNumber))
                 .mapToBean(Driver.class)
@@ -80,6 +83,7 @@ public class DriverDao {
                 .bind("can_lift_50lbs", driver.isCan_lift_50lbs())
                 .bind("pallet_capacity", driver.getPallet_capacity())
                 .execute());
+    UserPrincipalResolver.invalidateAll();
   }
 
   @Builder
@@ -87,6 +91,9 @@ public class DriverDao {
   @NoArgsConstructor
   @Data
   public static class DriverUpdate {
+    private static final TypeAdapter<DriverUpdate> jsonAdapter =
+        JsonCodec.adapter(DriverUpdate.class);
+
     long airtableId;
     String fieldName;
     String newValue;
@@ -109,7 +116,11 @@ public class DriverDao {
     }
 
     static DriverUpdate parseJson(String json) {
-      return new Gson().fromJson(json, DriverUpdate.class);
+      return JsonCodec.fromJson(json, jsonAdapter);
+    }
+
+    static DriverUpdate parseJson(Reader input) {
+      return JsonCodec.readBody(input, jsonAdapter);
     }
   }
 
@@ -139,7 +150,7 @@ public class DriverDao {
                           active = (
                             select not active
                             from driver
-                            where regexp_replace(phone, '[^0-9]+', '', 'g') = :phone
+                            where phone_digits = :phone
                           ),
                           last_updated = now()
                         where phone = :phone
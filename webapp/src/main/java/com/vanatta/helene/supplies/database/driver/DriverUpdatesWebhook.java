@@ -1,12 +1,12 @@
 package com.vanatta.helene.supplies.database.driver;
 
+import java.io.Reader;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jdbi.v3.core.Jdbi;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 
 @Controller
 @Slf4j
@@ -16,14 +16,14 @@ public class DriverUpdatesWebhook {
   private final Jdbi jdbi;
 
   @PostMapping("/webhook/driver/upsert")
-  ResponseEntity<String> receiveDriverUpdates(@RequestBody String driver) {
-    log.info("Received driver upsert: {}", driver);
+  ResponseEntity<String> receiveDriverUpdates(Reader driver) {
     Driver driverJson = Driver.parseJson(driver);
+    log.info("Received driver upsert: {}", driverJson);
     try {
       DriverDao.upsert(jdbi, driverJson);
     } catch (Exception e) {
       if (e.getMessage().contains("duplicate key")) {
-        log.warn("Duplicate driver received: {}", driver);
+        log.warn("Duplicate driver received: {}", driverJson);
         return ResponseEntity.badRequest()
             .body("Duplicate driver, phone number already exists with another driver");
       } else {
@@ -35,10 +35,9 @@ public class DriverUpdatesWebhook {
   }
 
   @PostMapping("/webhook/driver/update-field")
-  ResponseEntity<String> receiveDriveFieldUpdate(@RequestBody String update) {
-    log.info("Received driver field update: {}", update);
-
+  ResponseEntity<String> receiveDriveFieldUpdate(Reader update) {
     DriverDao.DriverUpdate driverUpdate = DriverDao.DriverUpdate.parseJson(update);
+    log.info("Received driver field update: {}", driverUpdate);
     DriverDao.update(jdbi, driverUpdate);
 
     return ResponseEntity.ok("ok");
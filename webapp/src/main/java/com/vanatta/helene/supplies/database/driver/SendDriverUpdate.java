@@ -1,7 +1,6 @@
 package com.vanatta.helene.supplies.database.driver;
 
-import com.vanatta.helene.supplies.database.util.HttpPostSender;
-import com.vanatta.helene.supplies.database.util.ThreadRunner;
+import com.vanatta.helene.supplies.database.util.OutboundDispatcher;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
@@ -9,17 +8,20 @@ import org.springframework.stereotype.Component;
 public class SendDriverUpdate {
 
   static SendDriverUpdate disabled() {
-    return new SendDriverUpdate(false, null);
+    return new SendDriverUpdate(false, null, null);
   }
 
   final boolean enabled;
   final String airtableWebhookUrl;
+  final OutboundDispatcher outboundDispatcher;
 
   SendDriverUpdate(
       @Value("${make.enabled}") boolean makeEnabled,
-      @Value("${airtable.webhook.driver.update}") String updateDriverWebhook) {
+      @Value("${airtable.webhook.driver.update}") String updateDriverWebhook,
+      OutboundDispatcher outboundDispatcher) {
     this.airtableWebhookUrl = updateDriverWebhook;
     this.enabled = makeEnabled;
+    this.outboundDispatcher = outboundDispatcher;
   }
 
   void sendUpdate(Driver driver) {
@@ -27,6 +29,6 @@ public class SendDriverUpdate {
       return;
     }
 
-    ThreadRunner.run(() -> HttpPostSender.sendAsJson(airtableWebhookUrl, driver));
+    outboundDispatcher.send(airtableWebhookUrl, driver);
   }
 }
@@ -1,31 +1,53 @@
 package com.vanatta.helene.supplies.database.export.bulk;
 
+import com.google.gson.stream.JsonWriter;
+import com.vanatta.helene.supplies.database.util.JsonCodec;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.jdbi.v3.core.Jdbi;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Controller for special bulk data export endpoints. These endpoints serve large JSON data payloads
  * useful for grabbing all the data.
  *
  * <p>For sending updates when item status changes, see classes like {@see SendSiteUpdate}
+ *
+ * <p>Both export endpoints accept an optional 'state' parameter (repeatable) to export only sites
+ * in those states.
+ *
+ * <p>For keeping a copy of the data in sync, '/export/changes' returns just the site and inventory
+ * changes since a cursor.
  */
 @RestController
 @AllArgsConstructor
 public class BulkDataExportController {
+  static final int CHANGES_DEFAULT_LIMIT = 500;
+  static final int CHANGES_MAX_LIMIT = 2000;
 
   private final Jdbi jdbi;
 
   @GetMapping("/export/data")
-  ResponseEntity<ExportDataJson> exportData() {
+  ResponseEntity<ExportDataJson> exportData(
+      @RequestParam(value = "state", required = false) List<String> states) {
     List<BulkDataExportDao.ItemExportDbEntry> items = BulkDataExportDao.getAllItems(jdbi);
-    List<BulkDataExportDao.SiteExportJson> sites = BulkDataExportDao.fetchAllSites(jdbi);
+    List<BulkDataExportDao.SiteExportJson> sites = BulkDataExportDao.fetchAllSites(jdbi, states);
 
     return ResponseEntity.ok(
         ExportDataJson.builder() //
@@ -34,6 +56,98 @@ public class BulkDataExportController {
             .build());
   }
 
+  /**
+   * Same JSON as '/export/data', but sites are read from the database a page at a time and each
+   * page is written to the response before the next is read. Memory use stays flat no matter how
+   * many sites there are, and no database connection is held while writing to the client. Response
+   * is gzipped if the client accepts gzip.
+   */
+  @GetMapping("/export/data/stream")
+  ResponseEntity<StreamingResponseBody> exportDataStream(
+      @RequestParam(value = "state", required = false) List<String> states,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+    boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+    StreamingResponseBody body =
+        outputStream -> {
+          if (gzip) {
+            var gzipStream = new GZIPOutputStream(outputStream, 8192);
+            writeExportData(gzipStream, states);
+            gzipStream.finish();
+          } else {
+            writeExportData(outputStream, states);
+          }
+        };
+
+    var response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+    if (gzip) {
+      response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    return response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).body(body);
+  }
+
+  /** Writes items, then sites, a page at a time as they are read from DB. */
+  // @VisibleForTesting
+  void writeExportData(OutputStream outputStream, List<String> states) throws IOException {
+    JsonWriter writer =
+        new JsonWriter(
+            new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)));
+    // nulls are written so that the streamed JSON has the same shape as the non-streamed JSON
+    writer.setSerializeNulls(true);
+
+    writer.beginObject();
+    // items are few (hundreds), read in one go
+    writer.name("items").beginArray();
+    for (BulkDataExportDao.ItemExportDbEntry item : BulkDataExportDao.getAllItems(jdbi)) {
+      JsonCodec.writeWithNulls(writer, item, BulkDataExportDao.ItemExportDbEntry.class);
+    }
+    writer.endArray();
+
+    writer.name("sites").beginArray();
+    BulkDataExportDao.streamAllSites(
+        jdbi,
+        states,
+        site -> JsonCodec.writeWithNulls(writer, site, BulkDataExportDao.SiteExportJson.class));
+    writer.endArray();
+    writer.endObject();
+    // flush rather than close, the servlet container owns the output stream
+    writer.flush();
+  }
+
+  /**
+   * Returns site and inventory changes after the 'since' cursor, oldest first. Start with no
+   * cursor, then pass the 'nextCursor' of each response as 'since' in the next request. When
+   * 'hasMore' is false the consumer is caught up, poll again later with the last 'nextCursor'.
+   */
+  @GetMapping("/export/changes")
+  ResponseEntity<ChangeFeedJson> exportChanges(
+      @RequestParam(value = "since", required = false) String since,
+      @RequestParam(value = "limit", required = false) Integer limit) {
+    int pageSize = limit == null ? CHANGES_DEFAULT_LIMIT : limit;
+    if (pageSize < 1 || pageSize > CHANGES_MAX_LIMIT) {
+      throw new IllegalArgumentException(
+          "Invalid limit: " + limit + ", must be between 1 and " + CHANGES_MAX_LIMIT);
+    }
+    ChangeFeedDao.Cursor cursor = ChangeFeedDao.Cursor.parse(since);
+    var page = ChangeFeedDao.fetchChanges(jdbi, cursor, pageSize);
+    return ResponseEntity.ok(
+        ChangeFeedJson.builder()
+            .changes(page.getChanges())
+            .nextCursor(page.getNextCursor().toToken())
+            .hasMore(page.isHasMore())
+            .build());
+  }
+
+  @Data
+  @Builder
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class ChangeFeedJson {
+    List<ChangeFeedDao.Change> changes;
+    String nextCursor;
+    boolean hasMore;
+  }
+
   @Data
   @Builder
   @AllArgsConstructor
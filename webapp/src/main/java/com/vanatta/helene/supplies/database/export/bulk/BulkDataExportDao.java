@@ -1,16 +1,25 @@
 package com.vanatta.helene.supplies.database.export.bulk;
 
+import jakarta.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.Value;
+import org.jdbi.v3.core.Handle;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.Query;
 
 class BulkDataExportDao {
+  /**
+   * Sites read per page when streaming. Each page is read with its own short lived connection, a
+   * connection is never held while the page is written to a (possibly slow) client.
+   */
+  static final int STREAM_PAGE_SIZE = 200;
 
   @Data
   @AllArgsConstructor
@@ -30,9 +39,61 @@ class BulkDataExportDao {
   }
 
   static List<SiteExportJson> fetchAllSites(Jdbi jdbi) {
+    return fetchAllSites(jdbi, null);
+  }
+
+  /** Fetches sites, optionally only those in 'states' (null or empty for all states). */
+  static List<SiteExportJson> fetchAllSites(Jdbi jdbi, @Nullable List<String> states) {
+    return jdbi
+        .withHandle(
+            handle ->
+                createSitesQuery(handle, states, 0, null).mapToBean(SiteDataResult.class).list())
+        .stream()
+        .map(SiteExportJson::new)
+        .toList();
+  }
+
+  /**
+   * Same as {@link #fetchAllSites(Jdbi, List)}, but reads sites a page at a time (keyset on site
+   * id) and hands each site to 'consumer'. Sites are never all held in memory at once.
+   *
+   * <p>Pages are read separately, a site changed during the export may be seen as of before or
+   * after the change.
+   */
+  static void streamAllSites(
+      Jdbi jdbi, @Nullable List<String> states, Consumer<SiteExportJson> consumer) {
+    streamAllSites(jdbi, states, STREAM_PAGE_SIZE, consumer);
+  }
+
+  // @VisibleForTesting
+  static void streamAllSites(
+      Jdbi jdbi, @Nullable List<String> states, int pageSize, Consumer<SiteExportJson> consumer) {
+    long afterSiteId = 0;
+    while (true) {
+      long after = afterSiteId;
+      List<SiteDataResult> page =
+          jdbi.withHandle(
+              handle ->
+                  createSitesQuery(handle, states, after, pageSize)
+                      .mapToBean(SiteDataResult.class)
+                      .list());
+      page.stream().map(SiteExportJson::new).forEach(consumer);
+      if (page.size() < pageSize) {
+        return;
+      }
+      afterSiteId = page.getLast().getSiteId();
+    }
+  }
+
+  /** Sites with an id greater than 'afterSiteId', in id order, at most 'limit' (null for all). */
+  private static Query createSitesQuery(
+      Handle handle, @Nullable List<String> states, long afterSiteId, @Nullable Integer limit) {
+    boolean filterStates = states != null && !states.isEmpty();
     String fetchSiteDataQuery =
-        """
+        String.format(
+            """
             select
+              s.id siteId,
               s.name siteName,
               s.wss_id wssId,
               case when st.name = 'Distribution Center' then 'POD,POC' else 'POD,POC,HUB' end siteType,
@@ -57,16 +118,23 @@ class BulkDataExportDao {
             left join site_item si on s.id = si.site_id
             left join item i on i.id = si.item_id
             left join item_status its on its.id = si.item_status_id
-            group by s.name, s.wss_id, siteType, s.contact_number, s.address, s.city,
+            where s.id > :afterSiteId %s
+            group by s.id, s.name, s.wss_id, siteType, s.contact_number, s.address, s.city,
              c.state, s.website, county, donationStatus, s.active
-            """;
-
-    return jdbi
-        .withHandle(
-            handle -> handle.createQuery(fetchSiteDataQuery).mapToBean(SiteDataResult.class).list())
-        .stream()
-        .map(SiteExportJson::new)
-        .toList();
+            order by s.id
+            %s
+            """,
+            filterStates ? "and c.state in (<states>)" : "",
+            limit == null ? "" : "limit :limit");
+
+    Query query = handle.createQuery(fetchSiteDataQuery).bind("afterSiteId", afterSiteId);
+    if (filterStates) {
+      query.bindList("states", states);
+    }
+    if (limit != null) {
+      query.bind("limit", limit);
+    }
+    return query;
   }
 
   /** Data that can be sent as JSON to sevice. */
@@ -120,6 +188,7 @@ class BulkDataExportDao {
   @Data
   @NoArgsConstructor
   public static class SiteDataResult {
+    long siteId;
     String siteName;
     long wssId;
     String siteType;
@@ -0,0 +1,202 @@
+package com.vanatta.helene.supplies.database.export.bulk;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Value;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.mapper.reflect.BeanMapper;
+
+/**
+ * Reads site changes (from 'site_audit_trail') and inventory changes (from 'site_item_audit') in
+ * order, starting after a cursor.
+ *
+ * <p>The cursor holds the position of the last change consumed from each table, the id of the
+ * transaction that wrote it and its audit id. Each table is read in (transaction id, audit id)
+ * order and the two are merged by change date, so every page consumes a prefix of each table and
+ * the cursor only ever moves forward.
+ *
+ * <p>Audit ids are assigned at insert but become visible at commit, a later id can become visible
+ * before an earlier one. Changes are only read from transactions older than the oldest transaction
+ * still running (the snapshot xmin). Those are all finished, no row can be added before the cursor
+ * afterwards.
+ */
+class ChangeFeedDao {
+
+  @Value
+  @Builder
+  static class Cursor {
+    long siteTxid;
+    long siteAuditId;
+    long itemTxid;
+    long itemAuditId;
+
+    static final Cursor START = new Cursor(0, 0, 0, 0);
+
+    /** Parses a cursor token, null or blank is the start of the feed. */
+    static Cursor parse(String token) {
+      if (token == null || token.isBlank()) {
+        return START;
+      }
+      String[] split = token.split("-");
+      try {
+        if (split.length != 4) {
+          throw new NumberFormatException();
+        }
+        return new Cursor(
+            Long.parseLong(split[0]),
+            Long.parseLong(split[1]),
+            Long.parseLong(split[2]),
+            Long.parseLong(split[3]));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid cursor: " + token);
+      }
+    }
+
+    String toToken() {
+      return siteTxid + "-" + siteAuditId + "-" + itemTxid + "-" + itemAuditId;
+    }
+  }
+
+  public enum ChangeType {
+    SITE,
+    INVENTORY,
+  }
+
+  /** One change, JSON friendly. */
+  @Data
+  @Builder
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Change {
+    ChangeType type;
+    long auditId;
+    long siteWssId;
+    String siteName;
+
+    /** For site changes the name of the field, for inventory changes the name of the item. */
+    String field;
+
+    String oldValue;
+    String newValue;
+    OffsetDateTime changedDate;
+  }
+
+  @Value
+  @Builder
+  static class ChangePage {
+    List<Change> changes;
+    Cursor nextCursor;
+    boolean hasMore;
+  }
+
+  /** A change and the id of the transaction that wrote it. */
+  private record AuditRow(long txid, Change change) {}
+
+  static ChangePage fetchChanges(Jdbi jdbi, Cursor since, int limit) {
+    String siteChangesQuery =
+        """
+        select
+          sat.txid::text::bigint txid,
+          'SITE' type,
+          sat.id auditId,
+          s.wss_id siteWssId,
+          s.name siteName,
+          sat.field_name field,
+          sat.old_value,
+          sat.new_value,
+          sat.changed_date
+        from site_audit_trail sat
+        join site s on s.id = sat.site_id
+        where (sat.txid, sat.id) > (:sinceTxid::text::xid8, :sinceId)
+          and sat.txid < pg_snapshot_xmin(pg_current_snapshot())
+        order by sat.txid, sat.id
+        limit :limit
+        """;
+    String inventoryChangesQuery =
+        """
+        select
+          sia.txid::text::bigint txid,
+          'INVENTORY' type,
+          sia.id auditId,
+          s.wss_id siteWssId,
+          s.name siteName,
+          i.name field,
+          sia.old_value,
+          sia.new_value,
+          sia.changed_date
+        from site_item_audit sia
+        join site s on s.id = sia.site_id
+        left join item i on i.id = sia.item_id
+        where (sia.txid, sia.id) > (:sinceTxid::text::xid8, :sinceId)
+          and sia.txid < pg_snapshot_xmin(pg_current_snapshot())
+        order by sia.txid, sia.id
+        limit :limit
+        """;
+
+    // fetch one more than the limit from each table so we know if there is more to come
+    List<AuditRow> siteChanges =
+        fetch(jdbi, siteChangesQuery, since.getSiteTxid(), since.getSiteAuditId(), limit + 1);
+    List<AuditRow> inventoryChanges =
+        fetch(jdbi, inventoryChangesQuery, since.getItemTxid(), since.getItemAuditId(), limit + 1);
+
+    List<Change> changes = new ArrayList<>();
+    AuditRow lastSite = null;
+    AuditRow lastInventory = null;
+    int siteIndex = 0;
+    int inventoryIndex = 0;
+    while (changes.size() < limit
+        && (siteIndex < siteChanges.size() || inventoryIndex < inventoryChanges.size())) {
+      boolean takeSite =
+          inventoryIndex >= inventoryChanges.size()
+              || (siteIndex < siteChanges.size()
+                  && !siteChanges
+                      .get(siteIndex)
+                      .change()
+                      .getChangedDate()
+                      .isAfter(inventoryChanges.get(inventoryIndex).change().getChangedDate()));
+      if (takeSite) {
+        lastSite = siteChanges.get(siteIndex++);
+        changes.add(lastSite.change());
+      } else {
+        lastInventory = inventoryChanges.get(inventoryIndex++);
+        changes.add(lastInventory.change());
+      }
+    }
+
+    Cursor nextCursor =
+        Cursor.builder()
+            .siteTxid(lastSite == null ? since.getSiteTxid() : lastSite.txid())
+            .siteAuditId(lastSite == null ? since.getSiteAuditId() : lastSite.change().getAuditId())
+            .itemTxid(lastInventory == null ? since.getItemTxid() : lastInventory.txid())
+            .itemAuditId(
+                lastInventory == null
+                    ? since.getItemAuditId()
+                    : lastInventory.change().getAuditId())
+            .build();
+    return ChangePage.builder()
+        .changes(changes)
+        .nextCursor(nextCursor)
+        .hasMore(siteIndex < siteChanges.size() || inventoryIndex < inventoryChanges.size())
+        .build();
+  }
+
+  private static List<AuditRow> fetch(
+      Jdbi jdbi, String query, long sinceTxid, long sinceId, int limit) {
+    RowMapper<Change> changeMapper = BeanMapper.of(Change.class);
+    return jdbi.withHandle(
+        handle ->
+            handle
+                .createQuery(query)
+                .bind("sinceTxid", sinceTxid)
+                .bind("sinceId", sinceId)
+                .bind("limit", limit)
+                .map((rs, ctx) -> new AuditRow(rs.getLong("txid"), changeMapper.map(rs, ctx)))
+                .list());
+  }
+}
@@ -1,5 +1,6 @@
 package com.vanatta.helene.supplies.database.export.update;
 
+import com.vanatta.helene.supplies.database.util.OutboundDispatcher;
 import org.jdbi.v3.core.Jdbi;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -12,24 +13,27 @@ public class SendDataUpdateConfiguration {
   @Bean
   SendSiteUpdate sendSiteUpdate(
       Jdbi jdbi,
+      OutboundDispatcher outboundDispatcher,
       @Value("${make.webhook.upsertSite}") String siteUpsertWebhook,
       @Value("${make.enabled}") boolean enabled) {
-    return new SendSiteUpdate(jdbi, siteUpsertWebhook, enabled);
+    return new SendSiteUpdate(jdbi, siteUpsertWebhook, enabled, outboundDispatcher);
   }
 
   @Bean
   SendNewItemUpdate newItemUpdate(
       Jdbi jdbi,
+      OutboundDispatcher outboundDispatcher,
       @Value("${make.enabled}") boolean enabled,
       @Value("${make.webhook.newItem}") String newItemWebhook) {
-    return new SendNewItemUpdate(jdbi, newItemWebhook, enabled);
+    return new SendNewItemUpdate(jdbi, newItemWebhook, enabled, outboundDispatcher);
   }
 
   @Bean
   SendInventoryUpdate sendInventoryUpdate(
       Jdbi jdbi,
+      OutboundDispatcher outboundDispatcher,
       @Value("${make.webhook.updateInventory}") String siteUpsertWebhook,
       @Value("${make.enabled}") boolean enabled) {
-    return new SendInventoryUpdate(jdbi, siteUpsertWebhook, enabled);
+    return new SendInventoryUpdate(jdbi, siteUpsertWebhook, enabled, outboundDispatcher);
   }
 }
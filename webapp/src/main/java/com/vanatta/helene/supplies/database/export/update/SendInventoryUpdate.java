@@ -1,7 +1,7 @@
 package com.vanatta.helene.supplies.database.export.update;
 
-import com.vanatta.helene.supplies.database.util.HttpPostSender;
-import com.vanatta.helene.supplies.database.util.ThreadRunner;
+import com.vanatta.helene.supplies.database.util.OutboundDispatcher;
+import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,11 +18,12 @@ public class SendInventoryUpdate {
   private final Jdbi jdbi;
   private final String webhookUrl;
   private final boolean enabled;
+  private final OutboundDispatcher outboundDispatcher;
 
+  /** Looks up the current item data and sends it, both in the background. */
   public void send(long siteId, String itemName) {
     if (enabled) {
-      SiteDataDbResult siteDataDbResult = fetchItemForSite(jdbi, siteId, itemName);
-      HttpPostSender.sendAsJson(webhookUrl, siteDataDbResult);
+      outboundDispatcher.sendLater(webhookUrl, () -> fetchItemForSite(jdbi, siteId, itemName));
     }
   }
 
@@ -60,7 +61,23 @@ public class SendInventoryUpdate {
               .itemStatus("Removed")
               .itemNeedWssId(wssId)
               .build();
-      ThreadRunner.run(() -> HttpPostSender.sendAsJson(webhookUrl, dataToSend));
+      outboundDispatcher.send(webhookUrl, dataToSend);
+    }
+  }
+
+  /**
+   * Sends many inventory changes of one site, one message per changed item (removed items have
+   * status "Removed"). Each message is the same single item payload as {@link #send(long, String)},
+   * the data is already known and is not looked up again.
+   */
+  public void sendChanges(List<SiteDataDbResult> changes) {
+    changes.forEach(this::send);
+  }
+
+  /** Sends one item change in the background. */
+  public void send(SiteDataDbResult change) {
+    if (enabled) {
+      outboundDispatcher.send(webhookUrl, change);
     }
   }
 
@@ -1,6 +1,6 @@
 package com.vanatta.helene.supplies.database.export.update;
 
-import com.vanatta.helene.supplies.database.util.HttpPostSender;
+import com.vanatta.helene.supplies.database.util.OutboundDispatcher;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,14 +12,15 @@ public class SendNewItemUpdate {
   private final Jdbi jdbi;
   private final String webhookUrl;
   private final boolean enabled;
+  private final OutboundDispatcher outboundDispatcher;
 
   public void sendNewItem(String itemName) {
     if (enabled) {
-      // do not send this request on a new thread.
+      // do not send this request in the background.
       // We need to be sure that this request is the first to be sent out before we send
       // another request to attach the item to a site.
       ItemFromDatabase item = lookupItem(jdbi, itemName);
-      HttpPostSender.sendAsJson(webhookUrl, item);
+      outboundDispatcher.sendNow(webhookUrl, item);
     }
   }
 
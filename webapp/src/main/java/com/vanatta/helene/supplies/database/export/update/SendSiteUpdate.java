@@ -2,8 +2,7 @@ package com.vanatta.helene.supplies.database.export.update;
 
 import com.vanatta.helene.supplies.database.data.DonationStatus;
 import com.vanatta.helene.supplies.database.data.SiteType;
-import com.vanatta.helene.supplies.database.util.HttpPostSender;
-import com.vanatta.helene.supplies.database.util.ThreadRunner;
+import com.vanatta.helene.supplies.database.util.OutboundDispatcher;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.AllArgsConstructor;
@@ -25,10 +24,11 @@ public class SendSiteUpdate {
   private final Jdbi jdbi;
   private final String webhookUrl;
   private final boolean enabled;
+  private final OutboundDispatcher outboundDispatcher;
 
   // @VisibleForTesting
   public static SendSiteUpdate newDisabled() {
-    return new SendSiteUpdate(null, null, false);
+    return new SendSiteUpdate(null, null, false, null);
   }
 
   static long fetchWssIdByAirtableId(Jdbi jdbi, long airtableId) {
@@ -46,11 +46,8 @@ public class SendSiteUpdate {
     if (!enabled) {
       return;
     }
-    ThreadRunner.run(
-        () -> {
-          var siteExportJson = lookupSite(jdbi, siteId);
-          HttpPostSender.sendAsJson(webhookUrl, siteExportJson);
-        });
+    var siteExportJson = lookupSite(jdbi, siteId);
+    outboundDispatcher.send(webhookUrl, siteExportJson);
   }
 
   static SiteExportJson lookupSite(Jdbi jdbi, long siteId) {
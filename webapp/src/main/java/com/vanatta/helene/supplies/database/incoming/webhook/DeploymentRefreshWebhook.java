@@ -0,0 +1,27 @@
+package com.vanatta.helene.supplies.database.incoming.webhook;
+
+import com.vanatta.helene.supplies.database.DeploymentRegistry;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+
+/**
+ * Webhook to reload deployment data (domains, short names, states). Should be invoked whenever the
+ * 'deployment' or 'deployment_states' tables are changed.
+ */
+@Slf4j
+@Controller
+@AllArgsConstructor
+public class DeploymentRefreshWebhook {
+
+  private final DeploymentRegistry deploymentRegistry;
+
+  @PostMapping("/webhook/deployment/refresh")
+  ResponseEntity<String> refreshDeployments() {
+    log.info("Received request to refresh deployments");
+    deploymentRegistry.refresh();
+    return ResponseEntity.ok("ok");
+  }
+}
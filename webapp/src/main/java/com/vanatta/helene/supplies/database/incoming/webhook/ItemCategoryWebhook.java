@@ -1,7 +1,9 @@
 package com.vanatta.helene.supplies.database.incoming.webhook;
 
-import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
 import com.vanatta.helene.supplies.database.manage.inventory.ItemTagDao;
+import com.vanatta.helene.supplies.database.util.JsonCodec;
+import java.io.Reader;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Value;
@@ -10,7 +12,6 @@ import org.jdbi.v3.core.Jdbi;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 
 /** Webhook for receiving info about category information. */
 @Slf4j
@@ -21,10 +22,10 @@ public class ItemCategoryWebhook {
   private final Jdbi jdbi;
 
   @PostMapping("/webhook/inventory/update-item-tags")
-  ResponseEntity<String> updateItemTags(@RequestBody String input) {
-    log.info("Received item category info: {}", input);
-
+  ResponseEntity<String> updateItemTags(Reader input) {
     ItemTagsInput itemTagsInput = ItemTagsInput.parse(input);
+    log.info("Received item category info: {}", itemTagsInput);
+
     ItemTagDao.updateDescriptionTags(jdbi, itemTagsInput.getWssId(), itemTagsInput.getTags());
 
     return ResponseEntity.ok("ok");
@@ -32,11 +33,18 @@ public class ItemCategoryWebhook {
 
   @Value
   static class ItemTagsInput {
+    private static final TypeAdapter<ItemTagsInput> jsonAdapter =
+        JsonCodec.adapter(ItemTagsInput.class);
+
     Long wssId;
     List<String> tags;
 
     static ItemTagsInput parse(String input) {
-      return new Gson().fromJson(input, ItemTagsInput.class);
+      return JsonCodec.fromJson(input, jsonAdapter);
+    }
+
+    static ItemTagsInput parse(Reader input) {
+      return JsonCodec.readBody(input, jsonAdapter);
     }
   }
 }
@@ -1,17 +1,18 @@
 package com.vanatta.helene.supplies.database.incoming.webhook;
 
-import com.google.gson.Gson;
-import com.google.gson.internal.LinkedTreeMap;
+import com.google.gson.TypeAdapter;
 import com.vanatta.helene.supplies.database.util.HttpPostSender;
+import com.vanatta.helene.supplies.database.util.JsonCodec;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 import org.jdbi.v3.core.Jdbi;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -50,34 +51,50 @@ public class NeedsMatchingController {
     List<String> itemList;
   }
 
+  /** Request from the MAKE webhook, site ids are lists (airtable linked records). */
+  @Builder
+  @lombok.Value
+  static class AddSuppliesRequest {
+    private static final TypeAdapter<AddSuppliesRequest> jsonAdapter =
+        JsonCodec.adapter(AddSuppliesRequest.class);
+
+    long deliveryId;
+    List<Long> fromSiteWssId;
+    List<Long> toSiteWssId;
+
+    static AddSuppliesRequest parse(Reader input) {
+      return JsonCodec.readBody(input, jsonAdapter);
+    }
+  }
+
   /**
    * Given inputs: [from site, to site, delivery id]<br>
    * Compute which needs can be sent from site to the to site.<br>
    * Invoke make job to update the target delivery id with the computed needs.
    */
   @PostMapping(PATH_ADD_NEEDS)
-  ResponseEntity<String> addSuppliesToDelivery(
-      @RequestBody String body) { // Map<String, String> body) {
-    log.info("{}, received data: {}", PATH_ADD_NEEDS, body);
-    LinkedTreeMap json = new Gson().fromJson(body, LinkedTreeMap.class);
-    long deliveryId = ((Double) json.get("deliveryId")).longValue();
+  ResponseEntity<String> addSuppliesToDelivery(Reader body) {
+    AddSuppliesRequest request = AddSuppliesRequest.parse(body);
+    log.info("{}, received data: {}", PATH_ADD_NEEDS, request);
+    long deliveryId = request.getDeliveryId();
 
-    List<Double> fromSite = (List<Double>) json.get("fromSiteWssId");
-    List<Double> toSite = (List<Double>) json.get("toSiteWssId");
+    List<Long> fromSite = Optional.ofNullable(request.getFromSiteWssId()).orElse(List.of());
+    List<Long> toSite = Optional.ofNullable(request.getToSiteWssId()).orElse(List.of());
 
     if (fromSite.isEmpty() || toSite.isEmpty()) {
       log.warn(
           "Add items requested, except the requested sites are not in WSS though. "
               + "No results are being returned. Request: {}",
-          body);
+          request);
       return ResponseEntity.ok("No matches, sites are not in WSS");
     }
 
-    long fromWssId = fromSite.getFirst().longValue();
-    long toSiteWssId = toSite.getFirst().longValue();
+    long fromWssId = fromSite.getFirst();
+    long toSiteWssId = toSite.getFirst();
 
     List<String> neededItems = computeNeedsMatch(jdbi, fromWssId, toSiteWssId);
-    log.info("Received needs computation request: {}, matched with needs: {}", body, neededItems);
+    log.info(
+        "Received needs computation request: {}, matched with needs: {}", request, neededItems);
 
     if (!neededItems.isEmpty() && makeEnabled) {
       var computedNeed =
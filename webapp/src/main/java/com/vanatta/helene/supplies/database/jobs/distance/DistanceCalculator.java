@@ -1,34 +1,86 @@
 package com.vanatta.helene.supplies.database.jobs.distance;
 
 import com.vanatta.helene.supplies.database.data.GoogleDistanceApi;
+import com.vanatta.helene.supplies.database.data.GoogleGeocodeApi;
 import com.vanatta.helene.supplies.database.data.SiteAddress;
-import com.vanatta.helene.supplies.database.supplies.site.details.SiteDetailDao;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 import org.jdbi.v3.core.Jdbi;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-/** Runs periodically, looks for site-site links that have no distance. */
+/**
+ * Runs periodically, looks for site-site links that have no distance.
+ *
+ * <p>In batched mode, pending pairs are grouped by a common site. Each group is sent as one
+ * distance matrix request (one origin, up to 25 destinations). Origins that share the same list of
+ * destinations are combined into one request (up to 25 origins). Each run sends at most
+ * 'maxRequests' requests, remaining pairs are picked up by the next run. A pair is only stored as
+ * invalid when Google cannot find an address or a route, if a request fails as a whole (eg: over
+ * the query limit) nothing is stored and the run stops.
+ *
+ * <p>Before asking for road distances, sites are geocoded (once, and again when their address
+ * changes) and a straight line distance is computed for every pair. Pairs that are further apart
+ * than 'maxStraightLineMiles' (in a straight line) are not sent for a road distance computation.
+ * Geocode requests count against the same 'maxRequests' budget.
+ */
 @Slf4j
 @Component
 public class DistanceCalculator {
   private static final int EVERY_MINUTE_IN_MS = 3 * 60 * 1000;
   private final Jdbi jdbi;
   private final GoogleDistanceApi googleDistanceApi;
+  /** Null to skip geocoding. */
+  private final GoogleGeocodeApi googleGeocodeApi;
   private final boolean enabled;
   private final long delayBetweenRequestsInMs;
+  private final boolean batched;
+  private final int maxRequests;
+  private final double maxStraightLineMiles;
 
+  // @VisibleForTesting
   DistanceCalculator(
       Jdbi jdbi,
       GoogleDistanceApi googleDistanceApi,
+      boolean enabled,
+      int delayBetweenRequestsInMs) {
+    this(
+        jdbi,
+        googleDistanceApi,
+        null,
+        enabled,
+        delayBetweenRequestsInMs,
+        false,
+        Integer.MAX_VALUE,
+        0);
+  }
+
+  @Autowired
+  DistanceCalculator(
+      Jdbi jdbi,
+      GoogleDistanceApi googleDistanceApi,
+      GoogleGeocodeApi googleGeocodeApi,
       @Value("${distance.calculator.enabled}") boolean enabled,
-      @Value("${distance.calculator.delay.ms}") int delayBetweenRequestsInMs) {
+      @Value("${distance.calculator.delay.ms}") int delayBetweenRequestsInMs,
+      @Value("${distance.calculator.batched}") boolean batched,
+      @Value("${distance.calculator.max.requests}") int maxRequests,
+      @Value("${distance.calculator.max.straight.line.miles}") double maxStraightLineMiles) {
     this.jdbi = jdbi;
     this.googleDistanceApi = googleDistanceApi;
+    this.googleGeocodeApi = googleGeocodeApi;
     this.enabled = enabled;
     this.delayBetweenRequestsInMs = delayBetweenRequestsInMs;
+    this.batched = batched;
+    this.maxRequests = maxRequests;
+    this.maxStraightLineMiles = maxStraightLineMiles;
   }
 
   @Scheduled(fixedDelay = EVERY_MINUTE_IN_MS)
@@ -37,35 +89,114 @@ public class DistanceCalculator {
       return;
     }
 
-    List<DistanceDao.SitePair> sitePairs = DistanceDao.fetchUncalculatedPairs(jdbi);
+    // geocode and distance requests share one budget per run
+    int requestBudget = maxRequests;
+    if (googleGeocodeApi != null) {
+      requestBudget -= geocodeSites(requestBudget);
+    }
+    computeStraightLineDistances();
+
+    List<DistanceDao.SitePair> sitePairs =
+        DistanceDao.fetchUncalculatedPairs(jdbi, maxStraightLineMiles);
     if (!sitePairs.isEmpty()) {
       log.info("Distance calculator is computing: {} distances", sitePairs.size());
     }
 
-    for (DistanceDao.SitePair sitePair : sitePairs) {
-      SiteDetailDao.SiteDetailData from = SiteDetailDao.lookupSiteById(jdbi, sitePair.getSiteId1());
-      SiteDetailDao.SiteDetailData to = SiteDetailDao.lookupSiteById(jdbi, sitePair.getSiteId2());
-
-      var fromAddress =
-          SiteAddress.builder()
-              .address(from.getAddress())
-              .city(from.getCity())
-              .state(from.getState())
-              .build();
-      var toAddress =
-          SiteAddress.builder()
-              .address(to.getAddress())
-              .city(to.getCity())
-              .state(to.getState())
-              .build();
+    if (batched) {
+      calculateBatched(sitePairs, requestBudget);
+    } else {
+      calculateOneByOne(sitePairs, requestBudget);
+    }
+  }
 
+  /**
+   * Geocodes sites that have no coordinates yet. A site is marked as not found only when Google
+   * does not find its address, if a request fails the site is left for the next run.
+   *
+   * @return Number of requests sent.
+   */
+  private int geocodeSites(int requestBudget) {
+    List<DistanceDao.SiteToGeocode> sites = DistanceDao.fetchSitesToGeocode(jdbi);
+    if (!sites.isEmpty()) {
+      log.info("Distance calculator is geocoding: {} sites", sites.size());
+    }
+    int requestCount = 0;
+    for (DistanceDao.SiteToGeocode site : sites) {
+      if (requestCount >= requestBudget) {
+        log.info("Distance calculator request budget used up geocoding: {}", requestBudget);
+        break;
+      }
+      requestCount++;
+      GoogleGeocodeApi.GeocodeResult result =
+          googleGeocodeApi.geocode(
+              SiteAddress.builder()
+                  .address(site.getAddress())
+                  .city(site.getCity())
+                  .state(site.getState())
+                  .build());
+      switch (result.getStatus()) {
+        case OK ->
+            DistanceDao.updateGeocode(
+                jdbi,
+                site.getSiteId(),
+                result.getCoordinates().getLatitude(),
+                result.getCoordinates().getLongitude());
+        case NOT_FOUND -> {
+          log.warn("Unable to geocode site id: {}, address: {}", site.getSiteId(), site);
+          DistanceDao.updateGeocode(jdbi, site.getSiteId(), null, null);
+        }
+        case FAILED -> {
+          // eg: over the query limit, the remaining requests would fail as well
+          log.warn("Distance calculator, geocode request failed, stopping until next run");
+          return requestCount;
+        }
+      }
+      if (!pause()) {
+        break;
+      }
+    }
+    return requestCount;
+  }
+
+  /** Computes straight line distance for all pairs that have coordinates but no such distance. */
+  // @VisibleForTesting
+  void computeStraightLineDistances() {
+    List<DistanceDao.PairCoordinates> pairs = DistanceDao.fetchPairsMissingStraightLine(jdbi);
+    if (pairs.isEmpty()) {
+      return;
+    }
+    int count = pairs.size();
+    double[] lat1 = new double[count];
+    double[] lon1 = new double[count];
+    double[] lat2 = new double[count];
+    double[] lon2 = new double[count];
+    for (int i = 0; i < count; i++) {
+      DistanceDao.PairCoordinates pair = pairs.get(i);
+      lat1[i] = pair.getLatitude1();
+      lon1[i] = pair.getLongitude1();
+      lat2[i] = pair.getLatitude2();
+      lon2[i] = pair.getLongitude2();
+    }
+    double[] miles = StraightLineDistance.haversineMiles(lat1, lon1, lat2, lon2);
+    DistanceDao.updateStraightLineDistances(jdbi, pairs, miles);
+    log.info("Distance calculator computed: {} straight line distances", count);
+  }
+
+  private void calculateOneByOne(List<DistanceDao.SitePair> sitePairs, int requestBudget) {
+    int requestCount = 0;
+    for (DistanceDao.SitePair sitePair : sitePairs) {
+      if (requestCount >= requestBudget) {
+        log.info("Distance calculator request budget used up: {}", requestBudget);
+        break;
+      }
+      requestCount++;
       GoogleDistanceApi.GoogleDistanceResponse distanceResponse =
-          googleDistanceApi.queryDistance(fromAddress, toAddress);
+          googleDistanceApi.queryDistance(address1(sitePair), address2(sitePair));
 
       log.info(
-          "Distance between : {}, and: {}, is: {}",
-          from.getSiteName(),
-          to.getSiteName(),
+          "Distance between site ids: {}, and: {}, is: {}",
+          sitePair.getSiteId1(),
+          sitePair.getSiteId2(),
           distanceResponse);
       if (distanceResponse.isValid()) {
         DistanceDao.updateDistance(
@@ -78,14 +209,189 @@ public class DistanceCalculator {
         DistanceDao.updateDistanceInvalid(jdbi, sitePair.getSiteId1(), sitePair.getSiteId2());
       }
 
-      // brief sleep so we can space out the API calls somewhat.
-      try {
-        Thread.sleep(delayBetweenRequestsInMs);
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-        log.warn("Distance calculation process interrupted cleanly, aborting..");
+      if (!pause()) {
         break;
       }
     }
   }
+
+  private void calculateBatched(List<DistanceDao.SitePair> sitePairs, int requestBudget) {
+    List<DistanceRequest> requests = groupIntoRequests(sitePairs);
+    if (requests.size() > requestBudget) {
+      log.info(
+          "Distance calculator request budget: {}, deferring {} requests to next run",
+          requestBudget,
+          requests.size() - requestBudget);
+      requests = requests.subList(0, requestBudget);
+    }
+
+    for (DistanceRequest request : requests) {
+      var response =
+          googleDistanceApi.queryDistances(
+              request.origins.stream().map(SiteLocation::getAddress).toList(),
+              request.destinations.stream().map(SiteLocation::getAddress).toList());
+      if (response.isEmpty()) {
+        // eg: over the query limit, the remaining requests would fail as well
+        log.warn("Distance calculator, distance matrix request failed, stopping until next run");
+        break;
+      }
+      var results = response.get();
+
+      List<DistanceDao.DistanceUpdate> updates = new ArrayList<>();
+      for (int i = 0; i < request.origins.size(); i++) {
+        for (int j = 0; j < request.destinations.size(); j++) {
+          var result = results[i][j];
+          if (result == null) {
+            // not known if this distance can be computed, left pending for the next run
+            continue;
+          }
+          updates.add(
+              DistanceDao.DistanceUpdate.builder()
+                  .site1Id(request.origins.get(i).siteId)
+                  .site2Id(request.destinations.get(j).siteId)
+                  .distance(result.getDistance())
+                  .durationSeconds(result.getDuration())
+                  .valid(result.isValid())
+                  .build());
+        }
+      }
+      DistanceDao.updateDistances(jdbi, updates);
+      log.info(
+          "Distance calculator, computed {} distances with one request, valid: {}",
+          updates.size(),
+          updates.stream().filter(DistanceDao.DistanceUpdate::isValid).count());
+
+      if (!pause()) {
+        break;
+      }
+    }
+  }
+
+  /** Brief sleep so we can space out the API calls somewhat. Returns false if interrupted. */
+  private boolean pause() {
+    try {
+      Thread.sleep(delayBetweenRequestsInMs);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.warn("Distance calculation process interrupted cleanly, aborting..");
+      return false;
+    }
+  }
+
+  @Builder
+  @lombok.Value
+  static class SiteLocation {
+    long siteId;
+    SiteAddress address;
+  }
+
+  /**
+   * One distance matrix request, every origin is paired with every destination and every one of
+   * those pairs is pending.
+   */
+  @Builder
+  @lombok.Value
+  static class DistanceRequest {
+    List<SiteLocation> origins;
+    List<SiteLocation> destinations;
+  }
+
+  /**
+   * Groups pending pairs into distance matrix requests. Distances are symmetric, so the site with
+   * the most pending pairs is made the origin and its partners the destinations (eg: a newly added
+   * site becomes one origin with all other sites as destinations). Repeats until all pairs are
+   * grouped. Then origins with identical destination lists are combined into one request, up to
+   * {@link GoogleDistanceApi#MAX_ELEMENTS} origin-destination pairs per request.
+   */
+  // @VisibleForTesting
+  static List<DistanceRequest> groupIntoRequests(List<DistanceDao.SitePair> sitePairs) {
+    Map<Long, SiteLocation> locations = new HashMap<>();
+    Map<Long, List<Long>> partners = new HashMap<>();
+    for (DistanceDao.SitePair pair : sitePairs) {
+      locations.putIfAbsent(
+          pair.getSiteId1(),
+          SiteLocation.builder().siteId(pair.getSiteId1()).address(address1(pair)).build());
+      locations.putIfAbsent(
+          pair.getSiteId2(),
+          SiteLocation.builder().siteId(pair.getSiteId2()).address(address2(pair)).build());
+      partners.computeIfAbsent(pair.getSiteId1(), _ -> new ArrayList<>()).add(pair.getSiteId2());
+      partners.computeIfAbsent(pair.getSiteId2(), _ -> new ArrayList<>()).add(pair.getSiteId1());
+    }
+
+    // origin site id -> chunks of destination site ids
+    Map<Long, List<List<Long>>> destinationsByOrigin = new LinkedHashMap<>();
+    while (!partners.isEmpty()) {
+      long origin =
+          partners.entrySet().stream()
+              .max(
+                  Comparator.<Map.Entry<Long, List<Long>>>comparingInt(e -> e.getValue().size())
+                      .thenComparing(Map.Entry::getKey, Comparator.reverseOrder()))
+              .orElseThrow()
+              .getKey();
+      List<Long> destinations = partners.remove(origin).stream().sorted().toList();
+      for (long destination : destinations) {
+        List<Long> remaining = partners.get(destination);
+        remaining.remove(Long.valueOf(origin));
+        if (remaining.isEmpty()) {
+          partners.remove(destination);
+        }
+      }
+      List<List<Long>> chunks = new ArrayList<>();
+      for (int i = 0; i < destinations.size(); i += GoogleDistanceApi.MAX_DESTINATIONS) {
+        chunks.add(
+            destinations.subList(
+                i, Math.min(destinations.size(), i + GoogleDistanceApi.MAX_DESTINATIONS)));
+      }
+      destinationsByOrigin.put(origin, chunks);
+    }
+
+    // destination ids -> origins ids, combines origins that need the same destinations
+    Map<List<Long>, List<Long>> originsByDestinations = new LinkedHashMap<>();
+    destinationsByOrigin.forEach(
+        (origin, chunks) ->
+            chunks.forEach(
+                chunk ->
+                    originsByDestinations
+                        .computeIfAbsent(chunk, _ -> new ArrayList<>())
+                        .add(origin)));
+
+    List<DistanceRequest> requests = new ArrayList<>();
+    originsByDestinations.forEach(
+        (destinations, origins) -> {
+          int originsPerRequest =
+              Math.min(
+                  GoogleDistanceApi.MAX_ORIGINS,
+                  Math.max(1, GoogleDistanceApi.MAX_ELEMENTS / destinations.size()));
+          for (int i = 0; i < origins.size(); i += originsPerRequest) {
+            requests.add(
+                DistanceRequest.builder()
+                    .origins(
+                        origins
+                            .subList(i, Math.min(origins.size(), i + originsPerRequest))
+                            .stream()
+                            .map(locations::get)
+                            .toList())
+                    .destinations(destinations.stream().map(locations::get).toList())
+                    .build());
+          }
+        });
+    return requests;
+  }
+
+  private static SiteAddress address1(DistanceDao.SitePair sitePair) {
+    return SiteAddress.builder()
+        .address(sitePair.getAddress1())
+        .city(sitePair.getCity1())
+        .state(sitePair.getState1())
+        .build();
+  }
+
+  private static SiteAddress address2(DistanceDao.SitePair sitePair) {
+    return SiteAddress.builder()
+        .address(sitePair.getAddress2())
+        .city(sitePair.getCity2())
+        .state(sitePair.getState2())
+        .build();
+  }
 }
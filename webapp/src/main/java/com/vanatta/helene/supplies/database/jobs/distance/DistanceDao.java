@@ -1,9 +1,14 @@
 package com.vanatta.helene.supplies.database.jobs.distance;
 
+import com.vanatta.helene.supplies.database.browse.routes.RouteCandidateGraph;
+import jakarta.annotation.Nullable;
 import java.util.List;
 import java.util.Optional;
+import lombok.Builder;
 import lombok.Data;
+import lombok.Value;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
 
 public class DistanceDao {
 
@@ -16,7 +21,7 @@ public class DistanceDao {
 
   /**
    * Returns the computed distance between two sites. Order of the sites does not matter, distances
-   * are bi-directional.
+   * are bi-directional and each pair is stored once, with the smaller site id as 'site1_id'.
    *
    * <p>Return empty if there is no distance computation. Typically because the address of one site
    * cannot be found or is otherwise invalid.
@@ -29,8 +34,8 @@ public class DistanceDao {
       drive_time_seconds durationSeconds,
       valid
     from site_distance_matrix
-    where (site1_id = :site1Id and site2_id = :site2Id)
-       or (site1_id = :site2Id and site2_id = :site1Id)
+    where site1_id = least(:site1Id, :site2Id)
+      and site2_id = greatest(:site1Id, :site2Id)
     """;
     return jdbi.withHandle(
         handle ->
@@ -49,7 +54,7 @@ public class DistanceDao {
         """
         update site_distance_matrix
         set distance_miles = :distance, drive_time_seconds = :durationSeconds, valid = true
-        where (site1_id = :site1Id and site2_id = :site2Id) or (site1_id = :site2Id and site2_id = :site1Id)
+        where site1_id = least(:site1Id, :site2Id) and site2_id = greatest(:site1Id, :site2Id)
         """;
 
     jdbi.withHandle(
@@ -61,6 +66,7 @@ public class DistanceDao {
                 .bind("site1Id", site1Id)
                 .bind("site2Id", site2Id)
                 .execute());
+    RouteCandidateGraph.markDistanceChanged(site1Id, site2Id);
   }
 
   public static void updateDistanceInvalid(Jdbi jdbi, long site1Id, long site2Id) {
@@ -68,7 +74,7 @@ public class DistanceDao {
         """
         update site_distance_matrix
         set valid = false
-        where (site1_id = :site1Id and site2_id = :site2Id) or (site1_id = :site2Id and site2_id = :site1Id)
+        where site1_id = least(:site1Id, :site2Id) and site2_id = greatest(:site1Id, :site2Id)
         """;
 
     jdbi.withHandle(
@@ -78,6 +84,53 @@ public class DistanceDao {
                 .bind("site1Id", site1Id)
                 .bind("site2Id", site2Id)
                 .execute());
+    RouteCandidateGraph.markDistanceChanged(site1Id, site2Id);
+  }
+
+  @Value
+  @Builder
+  public static class DistanceUpdate {
+    long site1Id;
+    long site2Id;
+
+    /** Null if the distance could not be computed */
+    @Nullable Double distance;
+
+    @Nullable Long durationSeconds;
+
+    boolean valid;
+  }
+
+  /**
+   * Writes a batch of computed distances in one round trip. Invalid results are stored as invalid
+   * (valid = false, no distance).
+   */
+  public static void updateDistances(Jdbi jdbi, List<DistanceUpdate> updates) {
+    if (updates.isEmpty()) {
+      return;
+    }
+    String update =
+        """
+        update site_distance_matrix
+        set distance_miles = :distance, drive_time_seconds = :durationSeconds, valid = :valid
+        where site1_id = least(:site1Id, :site2Id) and site2_id = greatest(:site1Id, :site2Id)
+        """;
+    jdbi.useHandle(
+        handle -> {
+          PreparedBatch batch = handle.prepareBatch(update);
+          for (DistanceUpdate distanceUpdate : updates) {
+            boolean valid = distanceUpdate.isValid();
+            batch
+                .bind("distance", valid ? distanceUpdate.getDistance() : null)
+                .bind("durationSeconds", valid ? distanceUpdate.getDurationSeconds() : null)
+                .bind("valid", valid)
+                .bind("site1Id", distanceUpdate.getSite1Id())
+                .bind("site2Id", distanceUpdate.getSite2Id())
+                .add();
+          }
+          batch.execute();
+        });
+    updates.forEach(u -> RouteCandidateGraph.markDistanceChanged(u.getSite1Id(), u.getSite2Id()));
   }
 
   @Data
@@ -99,6 +152,16 @@ public class DistanceDao {
    * sites are.
    */
   static List<SitePair> fetchUncalculatedPairs(Jdbi jdbi) {
+    return fetchUncalculatedPairs(jdbi, 0);
+  }
+
+  /**
+   * Same as {@link #fetchUncalculatedPairs(Jdbi)}, but skips pairs whose straight line distance is
+   * greater than 'maxStraightLineMiles'. Those sites are too far apart to be useful for deliveries
+   * and there is no point spending an API call on them. Pairs without a known straight line
+   * distance are always returned. A limit of zero (or less) returns all pairs.
+   */
+  static List<SitePair> fetchUncalculatedPairs(Jdbi jdbi, double maxStraightLineMiles) {
     String query =
         """
     select
@@ -115,9 +178,126 @@ public class DistanceDao {
     join county c1 on c1.id = s1.county_id
     join site s2 on s2.id = sdm.site2_id
     join county c2 on c2.id = s2.county_id
-    where sdm.valid is null and s1.active = true and s2.active = true;
+    where sdm.valid is null and s1.active = true and s2.active = true
+      and (
+        :maxMiles <= 0
+        or sdm.straight_line_miles is null
+        or sdm.straight_line_miles <= :maxMiles)
     """;
 
-    return jdbi.withHandle(handle -> handle.createQuery(query).mapToBean(SitePair.class).list());
+    return jdbi.withHandle(
+        handle ->
+            handle
+                .createQuery(query)
+                .bind("maxMiles", maxStraightLineMiles)
+                .mapToBean(SitePair.class)
+                .list());
+  }
+
+  @Data
+  public static class SiteToGeocode {
+    long siteId;
+    String address;
+    String city;
+    String state;
+  }
+
+  /** Returns active sites that have not been geocoded yet (or whose address has since changed). */
+  static List<SiteToGeocode> fetchSitesToGeocode(Jdbi jdbi) {
+    String query =
+        """
+        select
+          s.id siteId,
+          s.address,
+          s.city,
+          c.state
+        from site s
+        join county c on c.id = s.county_id
+        where s.active = true and s.geocode_valid is null
+        order by s.id
+        """;
+    return jdbi.withHandle(
+        handle -> handle.createQuery(query).mapToBean(SiteToGeocode.class).list());
+  }
+
+  /** Stores the coordinates of a site, null coordinates marks the site address as not found. */
+  static void updateGeocode(
+      Jdbi jdbi, long siteId, @Nullable Double latitude, @Nullable Double longitude) {
+    String update =
+        """
+        update site
+        set latitude = :latitude, longitude = :longitude, geocode_valid = :valid
+        where id = :siteId
+        """;
+    jdbi.withHandle(
+        handle ->
+            handle
+                .createUpdate(update)
+                .bind("latitude", latitude)
+                .bind("longitude", longitude)
+                .bind("valid", latitude != null && longitude != null)
+                .bind("siteId", siteId)
+                .execute());
+  }
+
+  @Data
+  public static class PairCoordinates {
+    long siteId1;
+    double latitude1;
+    double longitude1;
+    long siteId2;
+    double latitude2;
+    double longitude2;
+  }
+
+  /** Returns pairs that have no straight line distance yet, where both sites are geocoded. */
+  static List<PairCoordinates> fetchPairsMissingStraightLine(Jdbi jdbi) {
+    String query =
+        """
+        select
+          s1.id siteId1,
+          s1.latitude latitude1,
+          s1.longitude longitude1,
+          s2.id siteId2,
+          s2.latitude latitude2,
+          s2.longitude longitude2
+        from site_distance_matrix sdm
+        join site s1 on s1.id = sdm.site1_id
+        join site s2 on s2.id = sdm.site2_id
+        where sdm.straight_line_miles is null
+          and s1.geocode_valid = true
+          and s2.geocode_valid = true
+        """;
+    return jdbi.withHandle(
+        handle -> handle.createQuery(query).mapToBean(PairCoordinates.class).list());
+  }
+
+  /**
+   * Stores straight line distances, 'miles' is parallel to 'pairs'. Written in one batch, there
+   * can be many thousands of these when a large number of sites are first geocoded.
+   */
+  static void updateStraightLineDistances(Jdbi jdbi, List<PairCoordinates> pairs, double[] miles) {
+    if (pairs.isEmpty()) {
+      return;
+    }
+    String update =
+        """
+        update site_distance_matrix
+        set straight_line_miles = :miles
+        where site1_id = least(:site1Id, :site2Id) and site2_id = greatest(:site1Id, :site2Id)
+        """;
+    jdbi.useHandle(
+        handle -> {
+          PreparedBatch batch = handle.prepareBatch(update);
+          for (int i = 0; i < pairs.size(); i++) {
+            batch
+                .bind("miles", Math.round(miles[i] * 10) / 10.0)
+                .bind("site1Id", pairs.get(i).getSiteId1())
+                .bind("site2Id", pairs.get(i).getSiteId2())
+                .add();
+          }
+          batch.execute();
+        });
+    pairs.forEach(p -> RouteCandidateGraph.markDistanceChanged(p.getSiteId1(), p.getSiteId2()));
   }
 }
@@ -0,0 +1,27 @@
+package com.vanatta.helene.supplies.database.jobs.distance;
+
+/** Great circle ("as the crow flies") distances between coordinates, using the haversine formula. */
+class StraightLineDistance {
+  private static final double EARTH_RADIUS_MILES = 3958.8;
+
+  /**
+   * Computes the distance for each pair of coordinates, all arrays are parallel: element 'i' of
+   * each array describes pair 'i'. Written as a single pass over primitive arrays so that a large
+   * number of pairs can be computed quickly.
+   */
+  static double[] haversineMiles(double[] lat1, double[] lon1, double[] lat2, double[] lon2) {
+    int count = lat1.length;
+    double[] miles = new double[count];
+    for (int i = 0; i < count; i++) {
+      double phi1 = Math.toRadians(lat1[i]);
+      double phi2 = Math.toRadians(lat2[i]);
+      double halfDeltaPhi = (phi2 - phi1) / 2;
+      double halfDeltaLambda = Math.toRadians(lon2[i] - lon1[i]) / 2;
+      double sinPhi = Math.sin(halfDeltaPhi);
+      double sinLambda = Math.sin(halfDeltaLambda);
+      double a = sinPhi * sinPhi + Math.cos(phi1) * Math.cos(phi2) * sinLambda * sinLambda;
+      miles[i] = 2 * EARTH_RADIUS_MILES * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+    return miles;
+  }
+}
@@ -1,7 +1,9 @@
 package com.vanatta.helene.supplies.database.manage;
 
+import com.vanatta.helene.supplies.database.auth.UserPrincipalResolver;
 import com.vanatta.helene.supplies.database.data.SiteType;
 import com.vanatta.helene.supplies.database.manage.SelectSiteController.SiteSelection;
+import com.vanatta.helene.supplies.database.supplies.SupplySearchIndex;
 import jakarta.annotation.Nullable;
 import java.util.Arrays;
 import java.util.List;
@@ -114,17 +116,34 @@ public class ManageSiteDao {
     }
     addToAuditTrail(
         jdbi, siteId, field, oldValue, newValue == null || newValue.isBlank() ? "-" : newValue);
+    SupplySearchIndex.markSiteChanged(siteId);
+    if (field == SiteField.CONTACT_NUMBER) {
+      UserPrincipalResolver.invalidateAll();
+    }
 
     // if location as changed, then we need to delete previous distances and re-calculate
+    // (the site is geocoded again too, which then re-computes straight line distances)
     if (field.isLocationField()) {
       String deleteDistances =
           """
           update site_distance_matrix
-          set distance_miles = null, drive_time_seconds = null, valid = null
+          set distance_miles = null,
+            drive_time_seconds = null,
+            valid = null,
+            straight_line_miles = null
           where site1_id = :siteId or site2_id = :siteId
           """;
-      jdbi.withHandle(
-          handle -> handle.createUpdate(deleteDistances).bind("siteId", siteId).execute());
+      String deleteGeocode =
+          """
+          update site
+          set latitude = null, longitude = null, geocode_valid = null
+          where id = :siteId
+          """;
+      jdbi.useHandle(
+          handle -> {
+            handle.createUpdate(deleteDistances).bind("siteId", siteId).execute();
+            handle.createUpdate(deleteGeocode).bind("siteId", siteId).execute();
+          });
     }
   }
 
@@ -376,6 +395,7 @@ public class ManageSiteDao {
     if (updateCount == 0) {
       throw new IllegalArgumentException("Invalid site id: " + siteId);
     }
+    SupplySearchIndex.markSiteChanged(siteId);
   }
 
   public static void updateInactiveReason(Jdbi jdbi, long siteId, String inactiveReason) {
@@ -466,6 +486,7 @@ public class ManageSiteDao {
         "update site set inventory_last_updated = now() where id = :siteId";
     jdbi.withHandle(
         handle -> handle.createUpdate(updateSiteLastUpdated).bind("siteId", siteId).execute());
+    SupplySearchIndex.markSiteChanged(siteId);
   }
 
   public static void updateSiteType(Jdbi jdbi, long siteId, SiteType siteType) {
@@ -481,5 +502,6 @@ public class ManageSiteDao {
                 .bind("siteId", siteId)
                 .bind("siteTypeName", siteType.getText())
                 .execute());
+    SupplySearchIndex.markSiteChanged(siteId);
   }
 }
@@ -1,5 +1,7 @@
 package com.vanatta.helene.supplies.database.manage.add.site;
 
+import com.vanatta.helene.supplies.database.auth.UserPrincipalResolver;
+import com.vanatta.helene.supplies.database.supplies.SupplySearchIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.statement.UnableToExecuteStatementException;
@@ -85,11 +87,14 @@ public class AddSiteDao {
           String.format(
               """
               insert into site_distance_matrix(site1_id, site2_id)
-              select id, %s from site where id != %s
+              select least(id, %s), greatest(id, %s) from site where id != %s
               """,
-              siteId, siteId);
+              siteId, siteId, siteId);
 
       jdbi.withHandle(handle -> handle.createUpdate(addToDimensionMatrix).execute());
+      SupplySearchIndex.markSiteChanged(siteId);
+      // new sites change the site list of site managers and of admins
+      UserPrincipalResolver.invalidateAll();
 
       return siteId;
     } catch (UnableToExecuteStatementException e) {
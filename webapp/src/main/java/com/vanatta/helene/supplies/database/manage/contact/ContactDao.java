@@ -1,5 +1,6 @@
 package com.vanatta.helene.supplies.database.manage.contact;
 
+import com.vanatta.helene.supplies.database.auth.UserPrincipalResolver;
 import java.util.List;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -22,16 +23,19 @@ public class ContactDao {
     )
     """;
 
-    return jdbi.withHandle(
-        handle ->
-            handle
-                .createUpdate(insert)
-                .bind("siteId", siteId)
-                .bind("name", name)
-                .bind("phone", phone)
-                .executeAndReturnGeneratedKeys("id")
-                .mapTo(Long.class)
-                .one());
+    long id =
+        jdbi.withHandle(
+            handle ->
+                handle
+                    .createUpdate(insert)
+                    .bind("siteId", siteId)
+                    .bind("name", name)
+                    .bind("phone", phone)
+                    .executeAndReturnGeneratedKeys("id")
+                    .mapTo(Long.class)
+                    .one());
+    UserPrincipalResolver.invalidateAll();
+    return id;
   }
 
   static void updateAdditionalSiteManager(Jdbi jdbi, long siteId, SiteManager siteManager) {
@@ -51,6 +55,7 @@ public class ContactDao {
                 .bind("siteId", siteId)
                 .bind("id", siteManager.getId())
                 .execute());
+    UserPrincipalResolver.invalidateAll();
   }
 
   static List<SiteManager> getManagers(Jdbi jdbi, long siteId) {
@@ -79,6 +84,7 @@ public class ContactDao {
                 .bind("siteId", siteId)
                 .bind("managerId", managerId)
                 .execute());
+    UserPrincipalResolver.invalidateAll();
   }
 
   @Builder(toBuilder = true)
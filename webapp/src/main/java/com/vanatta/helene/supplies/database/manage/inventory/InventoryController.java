@@ -9,7 +9,6 @@ import com.vanatta.helene.supplies.database.manage.ManageSiteDao.ItemTagData;
 import com.vanatta.helene.supplies.database.manage.SelectSiteController;
 import com.vanatta.helene.supplies.database.manage.UserSiteAuthorization;
 import com.vanatta.helene.supplies.database.supplies.site.details.SiteDetailDao;
-import com.vanatta.helene.supplies.database.util.ThreadRunner;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -225,7 +224,7 @@ public class InventoryController {
     log.info(
         "Activating item: {}, site: {}, status: {}", itemName, siteData.getSiteName(), itemStatus);
     InventoryDao.updateSiteItemActive(jdbi, Long.parseLong(siteId), itemName, itemStatus);
-    ThreadRunner.run(() -> sendInventoryUpdate.send(Long.parseLong(siteId), itemName));
+    sendInventoryUpdate.send(Long.parseLong(siteId), itemName);
 
     return ResponseEntity.ok("Updated");
   }
@@ -253,11 +252,7 @@ public class InventoryController {
 
     InventoryDao.getInventoryWssId(jdbi, Long.parseLong(siteId), itemName)
         .ifPresent(
-            wssId ->
-                ThreadRunner.run(
-                    () ->
-                        sendInventoryUpdate.sendItemRemoval(
-                            itemName, siteData.getSiteName(), wssId)));
+            wssId -> sendInventoryUpdate.sendItemRemoval(itemName, siteData.getSiteName(), wssId));
     InventoryDao.updateSiteItemInactive(jdbi, Long.parseLong(siteId), itemName);
     return ResponseEntity.ok("Updated");
   }
@@ -285,10 +280,62 @@ public class InventoryController {
       InventoryDao.updateItemStatus(jdbi, Long.parseLong(siteId), itemName, newStatus);
       var latestStatus = ItemStatus.fromTextValue(newStatus);
       if (oldStatus != latestStatus) {
-        ThreadRunner.run(() -> sendInventoryUpdate.send(Long.parseLong(siteId), itemName));
+        sendInventoryUpdate.send(Long.parseLong(siteId), itemName);
       }
     }
 
     return ResponseEntity.ok("Updated");
   }
+
+  @Data
+  @NoArgsConstructor
+  static class BulkUpdateRequest {
+    String siteId;
+    List<InventoryDao.ItemChange> changes;
+  }
+
+  /**
+   * Applies many item changes to a site at once (items added, removed, or status changed). All
+   * changes are applied in one transaction, either all of them are applied or none are. Returns the
+   * number of items that were changed.
+   */
+  @PostMapping("/manage/bulk-update-site-items")
+  @ResponseBody
+  ResponseEntity<String> bulkUpdateSiteItems(
+      @ModelAttribute(LoggedInAdvice.USER_SITES) List<Long> sites,
+      @RequestBody BulkUpdateRequest request) {
+    SiteDetailDao.SiteDetailData siteData =
+        UserSiteAuthorization.isAuthorizedForSite(jdbi, sites, request.getSiteId()).orElse(null);
+    if (siteData == null) {
+      return ResponseEntity.status(401).build();
+    }
+    if (request.getChanges() == null || request.getChanges().isEmpty()) {
+      return ResponseEntity.badRequest().body("No changes");
+    }
+    if (request.getChanges().stream().anyMatch(c -> c.getItemName() == null)) {
+      throw new IllegalArgumentException("Invalid item name, none specified.");
+    }
+
+    log.info(
+        "Bulk updating {} items, site: {}", request.getChanges().size(), siteData.getSiteName());
+    List<InventoryDao.AppliedChange> applied =
+        InventoryDao.bulkUpdateSiteItems(
+            jdbi, Long.parseLong(request.getSiteId()), request.getChanges());
+
+    sendInventoryUpdate.sendChanges(
+        applied.stream()
+            .map(
+                change ->
+                    SendInventoryUpdate.SiteDataDbResult.builder()
+                        .siteName(siteData.getSiteName())
+                        .itemName(change.getItemName())
+                        .itemNeedWssId(change.getItemWssId())
+                        .itemStatus(
+                            change.getNewValue().equals("inactive")
+                                ? "Removed"
+                                : change.getNewValue())
+                        .build())
+            .toList());
+    return ResponseEntity.ok(String.valueOf(applied.size()));
+  }
 }
@@ -1,11 +1,24 @@
 package com.vanatta.helene.supplies.database.manage.inventory;
 
+import com.vanatta.helene.supplies.database.data.ItemDictionary;
 import com.vanatta.helene.supplies.database.data.ItemStatus;
 import com.vanatta.helene.supplies.database.manage.ManageSiteDao;
+import com.vanatta.helene.supplies.database.supplies.SupplySearchIndex;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Handle;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
 
 @Slf4j
 public class InventoryDao {
@@ -34,14 +47,12 @@ public class InventoryDao {
 
   public static void updateSiteItemActive(
       Jdbi jdbi, long siteId, String itemName, String itemStatus) {
+    long itemId = requireItemId(jdbi, itemName);
+    long itemStatusId = ItemDictionary.itemStatusId(jdbi, itemStatus);
     String insert =
         """
-          insert into site_item(site_id, item_id, item_status_id) values
-             (
-                :siteId,
-                (select id from item where name = :itemName),
-                (select id from item_status where name = :itemStatus)
-             )
+          insert into site_item(site_id, item_id, item_status_id)
+          values (:siteId, :itemId, :itemStatusId)
           """;
     try {
       jdbi.withHandle(
@@ -49,8 +60,8 @@ public class InventoryDao {
               handle
                   .createUpdate(insert)
                   .bind("siteId", siteId)
-                  .bind("itemName", itemName)
-                  .bind("itemStatus", itemStatus)
+                  .bind("itemId", itemId)
+                  .bind("itemStatusId", itemStatusId)
                   .execute());
       updateSiteItemAudit(jdbi, siteId, itemName, "inactive", "active");
     } catch (Exception e) {
@@ -82,37 +93,36 @@ public class InventoryDao {
           new_value
         ) values (
           :siteId,
-          (select id from item where name = :itemName),
+          :itemId,
           :oldValue,
           :newValue
         );
         """;
+    Long itemId = ItemDictionary.itemId(jdbi, itemName).orElse(null);
     jdbi.withHandle(
         handle ->
             handle
                 .createUpdate(insertIntoAudit)
                 .bind("siteId", siteId)
-                .bind("itemName", itemName)
+                .bind("itemId", itemId)
                 .bind("oldValue", oldValue)
                 .bind("newValue", newValue)
                 .execute());
   }
 
   static void updateSiteItemInactive(Jdbi jdbi, long siteId, String itemName) {
-    String delete =
-        """
-            delete from site_item
-            where site_id = :siteId
-              and item_id = (select id from item where name = :itemName)
-            """;
+    Long itemId = ItemDictionary.itemId(jdbi, itemName).orElse(null);
+    String delete = "delete from site_item where site_id = :siteId and item_id = :itemId";
     int deleteCount =
-        jdbi.withHandle(
-            handle ->
-                handle
-                    .createUpdate(delete)
-                    .bind("siteId", siteId)
-                    .bind("itemName", itemName)
-                    .execute());
+        itemId == null
+            ? 0
+            : jdbi.withHandle(
+                handle ->
+                    handle
+                        .createUpdate(delete)
+                        .bind("siteId", siteId)
+                        .bind("itemId", itemId)
+                        .execute());
     if (deleteCount > 0) {
       updateSiteItemAudit(jdbi, siteId, itemName, "active", "inactive");
     }
@@ -123,13 +133,15 @@ public class InventoryDao {
     if (!ItemStatus.allItemStatus().contains(itemStatus)) {
       throw new IllegalArgumentException("Invalid item status: " + itemStatus);
     }
+    long itemId = requireItemId(jdbi, itemName);
+    long itemStatusId = ItemDictionary.itemStatusId(jdbi, itemStatus);
     String oldStatusQuery =
         """
         select its.name
         from site_item si
         join item_status its on its.id = si.item_status_id
         where si.site_id = :siteId
-          and si.item_id = (select id from item where name = :itemName)
+          and si.item_id = :itemId
         """;
     String oldStatus =
         jdbi.withHandle(
@@ -137,17 +149,17 @@ public class InventoryDao {
                 handle
                     .createQuery(oldStatusQuery)
                     .bind("siteId", siteId)
-                    .bind("itemName", itemName)
+                    .bind("itemId", itemId)
                     .mapTo(String.class)
                     .one());
 
     String update =
         """
       update site_item
-      set item_status_id = (select id from item_status where name = :itemStatus),
+      set item_status_id = :itemStatusId,
          last_updated = now()
       where site_id = :siteId
-         and item_id = (select id from item where name = :itemName)
+         and item_id = :itemId
       """;
     int updateCount =
         jdbi.withHandle(
@@ -155,8 +167,8 @@ public class InventoryDao {
                 handle
                     .createUpdate(update)
                     .bind("siteId", siteId)
-                    .bind("itemName", itemName)
-                    .bind("itemStatus", itemStatus)
+                    .bind("itemId", itemId)
+                    .bind("itemStatusId", itemStatusId)
                     .execute());
 
     if (updateCount != 1) {
@@ -166,6 +178,244 @@ public class InventoryDao {
     ManageSiteDao.updateSiteInventoryLastUpdated(jdbi, siteId);
   }
 
+  private static long requireItemId(Jdbi jdbi, String itemName) {
+    return ItemDictionary.itemId(jdbi, itemName)
+        .orElseThrow(() -> new IllegalArgumentException("Invalid item name: " + itemName));
+  }
+
+  /** One requested change to an item of a site's inventory. */
+  @Data
+  @Builder
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class ItemChange {
+    String itemName;
+
+    /** False to remove the item from the site. */
+    boolean active;
+
+    /** Status of the item when active, ignored otherwise. */
+    String itemStatus;
+  }
+
+  /** An inventory change that was applied. */
+  @Value
+  @Builder
+  public static class AppliedChange {
+    String itemName;
+    long itemWssId;
+
+    /** "inactive" if the item was added */
+    String oldValue;
+
+    /** "inactive" if the item was removed */
+    String newValue;
+  }
+
+  @Data
+  @NoArgsConstructor
+  public static class SiteItemRow {
+    long itemId;
+    String itemName;
+    String itemStatus;
+    Long wssId;
+  }
+
+  @Value
+  public static class AuditRow {
+    long siteId;
+    long itemId;
+    String oldValue;
+    String newValue;
+  }
+
+  /**
+   * Applies a batch of inventory changes to a site in one transaction. Inserts, updates and deletes
+   * are each sent as one JDBC batch, audit rows are written with one multi-row insert and the
+   * site's 'inventory_last_updated' is touched once, all in the same transaction. Changes that
+   * would not change anything (eg: setting an item to the status it already has) are skipped.
+   *
+   * @return The changes that were applied, in the order they were requested.
+   * @throws IllegalArgumentException if an item name or status is not valid, nothing is applied.
+   */
+  public static List<AppliedChange> bulkUpdateSiteItems(
+      Jdbi jdbi, long siteId, List<ItemChange> changes) {
+    if (changes.isEmpty()) {
+      return List.of();
+    }
+    for (ItemChange change : changes) {
+      if (change.isActive() && !ItemStatus.allItemStatus().contains(change.getItemStatus())) {
+        throw new IllegalArgumentException(
+            "Invalid item status: " + change.getItemStatus() + ", item: " + change.getItemName());
+      }
+    }
+
+    List<AppliedChange> applied =
+        jdbi.inTransaction(
+            handle -> {
+              List<AppliedChange> result = applySiteItemChanges(handle, siteId, changes);
+              if (!result.isEmpty()) {
+                handle
+                    .createUpdate(
+                        "update site set inventory_last_updated = now() where id = :siteId")
+                    .bind("siteId", siteId)
+                    .execute();
+              }
+              return result;
+            });
+    if (!applied.isEmpty()) {
+      SupplySearchIndex.markSiteChanged(siteId);
+    }
+    return applied;
+  }
+
+  private static List<AppliedChange> applySiteItemChanges(
+      Handle handle, long siteId, List<ItemChange> changes) {
+    // last change wins if the same item is listed more than once. Names are matched exactly, as
+    // they are stored, same as the single item updates.
+    Map<String, ItemChange> changesByName = new LinkedHashMap<>();
+    changes.forEach(c -> changesByName.put(c.getItemName(), c));
+
+    String currentQuery =
+        """
+        select
+          i.id itemId,
+          i.name itemName,
+          its.name itemStatus,
+          si.wss_id
+        from item i
+        left join site_item si on si.item_id = i.id and si.site_id = :siteId
+        left join item_status its on its.id = si.item_status_id
+        where i.name in (<itemNames>)
+        """;
+    Map<String, SiteItemRow> current = new HashMap<>();
+    handle
+        .createQuery(currentQuery)
+        .bind("siteId", siteId)
+        .bindList("itemNames", List.copyOf(changesByName.keySet()))
+        .mapToBean(SiteItemRow.class)
+        .forEach(row -> current.put(row.getItemName(), row));
+
+    PreparedBatch inserts =
+        handle.prepareBatch(
+            """
+            insert into site_item(site_id, item_id, item_status_id)
+            values (:siteId, :itemId, :statusId)
+            """);
+    PreparedBatch updates =
+        handle.prepareBatch(
+            """
+            update site_item
+            set item_status_id = :statusId, last_updated = now()
+            where site_id = :siteId and item_id = :itemId
+            """);
+    List<Long> deletes = new ArrayList<>();
+    List<AuditRow> audits = new ArrayList<>();
+    List<AppliedChange> applied = new ArrayList<>();
+    // wss ids of inserted items are only known after the insert, resolved below
+    List<String> insertedNames = new ArrayList<>();
+
+    for (var entry : changesByName.entrySet()) {
+      String itemName = entry.getKey();
+      ItemChange change = entry.getValue();
+      SiteItemRow row = current.get(itemName);
+      if (row == null) {
+        throw new IllegalArgumentException("Invalid item name: " + itemName);
+      }
+      boolean present = row.getItemStatus() != null;
+
+      if (!change.isActive()) {
+        if (present) {
+          deletes.add(row.getItemId());
+          audits.add(new AuditRow(siteId, row.getItemId(), "active", "inactive"));
+          applied.add(appliedChange(itemName, row.getWssId(), row.getItemStatus(), "inactive"));
+        }
+      } else if (!present) {
+        inserts
+            .bind("siteId", siteId)
+            .bind("itemId", row.getItemId())
+            .bind("statusId", ItemDictionary.itemStatusId(handle, change.getItemStatus()))
+            .add();
+        audits.add(new AuditRow(siteId, row.getItemId(), "inactive", "active"));
+        insertedNames.add(itemName);
+        applied.add(appliedChange(itemName, null, "inactive", change.getItemStatus()));
+      } else if (!row.getItemStatus().equals(change.getItemStatus())) {
+        updates
+            .bind("siteId", siteId)
+            .bind("itemId", row.getItemId())
+            .bind("statusId", ItemDictionary.itemStatusId(handle, change.getItemStatus()))
+            .add();
+        audits.add(
+            new AuditRow(siteId, row.getItemId(), row.getItemStatus(), change.getItemStatus()));
+        applied.add(
+            appliedChange(itemName, row.getWssId(), row.getItemStatus(), change.getItemStatus()));
+      }
+    }
+
+    if (inserts.size() > 0) {
+      inserts.execute();
+    }
+    if (updates.size() > 0) {
+      updates.execute();
+    }
+    if (!deletes.isEmpty()) {
+      handle
+          .createUpdate("delete from site_item where site_id = :siteId and item_id in (<itemIds>)")
+          .bind("siteId", siteId)
+          .bindList("itemIds", deletes)
+          .execute();
+    }
+    if (!audits.isEmpty()) {
+      handle
+          .createUpdate(
+              """
+              insert into site_item_audit(site_id, item_id, old_value, new_value)
+              values <audits>
+              """)
+          .bindMethodsList(
+              "audits", audits, List.of("getSiteId", "getItemId", "getOldValue", "getNewValue"))
+          .execute();
+    }
+
+    if (insertedNames.isEmpty()) {
+      return applied;
+    }
+    Map<String, Long> insertedWssIds = new HashMap<>();
+    handle
+        .createQuery(
+            """
+            select i.name, si.wss_id
+            from site_item si
+            join item i on i.id = si.item_id
+            where si.site_id = :siteId and i.name in (<itemNames>)
+            """)
+        .bind("siteId", siteId)
+        .bindList("itemNames", insertedNames)
+        .map((rs, _) -> Map.entry(rs.getString("name"), rs.getLong("wss_id")))
+        .forEach(e -> insertedWssIds.put(e.getKey(), e.getValue()));
+    return applied.stream()
+        .map(
+            a ->
+                insertedWssIds.containsKey(a.getItemName()) && a.getOldValue().equals("inactive")
+                    ? appliedChange(
+                        a.getItemName(),
+                        insertedWssIds.get(a.getItemName()),
+                        a.getOldValue(),
+                        a.getNewValue())
+                    : a)
+        .toList();
+  }
+
+  private static AppliedChange appliedChange(
+      String itemName, Long wssId, String oldValue, String newValue) {
+    return AppliedChange.builder()
+        .itemName(itemName)
+        .itemWssId(wssId == null ? 0 : wssId)
+        .oldValue(oldValue)
+        .newValue(newValue)
+        .build();
+  }
+
   /**
    * Adds a brand new item to database, inserts into item table. No-op if the item already exists.
    * Item will exist when this method is done.
@@ -191,8 +441,17 @@ public class InventoryDao {
       return false;
     } else {
       try {
-        String insert = "insert into item(name) values(:itemName)";
-        jdbi.withHandle(handle -> handle.createUpdate(insert).bind("itemName", itemName).execute());
+        String insert = "insert into item(name) values(:itemName) returning id, wss_id";
+        var ids =
+            jdbi.withHandle(
+                handle ->
+                    handle
+                        .createQuery(insert)
+                        .bind("itemName", itemName)
+                        .map((rs, _) -> new long[] {rs.getLong("id"), rs.getLong("wss_id")})
+                        .one());
+        ItemDictionary.itemAdded(ids[0], ids[1], itemName);
+        SupplySearchIndex.markItemsChanged();
       } catch (Exception e) {
         if (e.getMessage().contains("duplicate key")) {
           return false;
@@ -205,18 +464,17 @@ public class InventoryDao {
   }
 
   public static Optional<Long> getInventoryWssId(Jdbi jdbi, long siteId, String itemName) {
-    String query =
-        """
-        select wss_id from site_item
-        where site_id = :siteId
-          and item_id = (select id from item where name = :itemName)
-        """;
+    Long itemId = ItemDictionary.itemId(jdbi, itemName).orElse(null);
+    if (itemId == null) {
+      return Optional.empty();
+    }
+    String query = "select wss_id from site_item where site_id = :siteId and item_id = :itemId";
     return jdbi.withHandle(
         handle ->
             handle
                 .createQuery(query)
                 .bind("siteId", siteId)
-                .bind("itemName", itemName)
+                .bind("itemId", itemId)
                 .mapTo(Long.class)
                 .findOne());
   }
@@ -237,7 +495,7 @@ public class InventoryDao {
     String update =
         """
         update site_item set
-          item_status_id = (select id from item_status where name = 'Available')
+          item_status_id = :availableStatusId
         where id in (<inventoryIds>)
         """;
 
@@ -253,8 +511,19 @@ public class InventoryDao {
     if (inventoryIds.isEmpty()) {
       return;
     } else {
-      jdbi.withHandle(
-          handle -> handle.createUpdate(update).bindList("inventoryIds", inventoryIds).execute());
+      List<Long> siteIds =
+          jdbi.withHandle(
+              handle ->
+                  handle
+                      .createUpdate(update)
+                      .bind(
+                          "availableStatusId",
+                          ItemDictionary.itemStatusId(jdbi, ItemStatus.AVAILABLE))
+                      .bindList("inventoryIds", inventoryIds)
+                      .executeAndReturnGeneratedKeys("site_id")
+                      .mapTo(Long.class)
+                      .list());
+      siteIds.stream().distinct().forEach(SupplySearchIndex::markSiteChanged);
     }
   }
 
@@ -1,41 +1,45 @@
 package com.vanatta.helene.supplies.database.manage.inventory;
 
+import com.vanatta.helene.supplies.database.data.ItemDictionary;
+import com.vanatta.helene.supplies.database.supplies.SupplySearchIndex;
 import java.util.List;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
 
 public class ItemTagDao {
 
   public static void updateDescriptionTags(Jdbi jdbi, long wssId, List<String> tags) {
-    // remove previous tags
-    jdbi.withHandle(
-        h ->
-            h.createUpdate(
-                    """
-                       delete from item_tag where item_id =
-                            (select id from item where wss_id = :wssId)
-                       """)
-                .bind("wssId", wssId)
-                .execute());
+    long itemId =
+        ItemDictionary.itemIdByWssId(jdbi, wssId)
+            .orElseThrow(() -> new IllegalArgumentException("Invalid item wss id: " + wssId));
+
+    jdbi.useTransaction(
+        handle -> {
+          // remove previous tags
+          handle
+              .createUpdate("delete from item_tag where item_id = :itemId")
+              .bind("itemId", itemId)
+              .execute();
 
-    for (String tag : tags) {
-      String tagToInsert = tag.trim();
-      if (tagToInsert.isBlank() || tagToInsert.contains(",")) {
-        continue;
-      }
-      jdbi.withHandle(
-          h ->
-              h.createUpdate(
-                      """
-                   insert into item_tag(item_id, tag_name)
-                   values(
-                     (select id from item where wss_id = :wssId),
-                      :tagName
-                   ) on conflict(item_id, tag_name) do nothing
-                   """)
-                  .bind("wssId", wssId)
-                  .bind("tagName", tagToInsert)
-                  .execute());
-    }
+          PreparedBatch insert =
+              handle.prepareBatch(
+                  """
+                  insert into item_tag(item_id, tag_name)
+                  values(:itemId, :tagName)
+                  on conflict(item_id, tag_name) do nothing
+                  """);
+          for (String tag : tags) {
+            String tagToInsert = tag.trim();
+            if (tagToInsert.isBlank() || tagToInsert.contains(",")) {
+              continue;
+            }
+            insert.bind("itemId", itemId).bind("tagName", tagToInsert).add();
+          }
+          if (insert.size() > 0) {
+            insert.execute();
+          }
+        });
+    SupplySearchIndex.markItemsChanged();
   }
 
   public static List<String> fetchAllDescriptionTags(Jdbi jdbi) {
@@ -28,6 +28,7 @@ public class SuppliesController {
 
   private final Jdbi jdbi;
   private final CookieAuthenticator cookieAuthenticator;
+  private final SupplySearchIndex supplySearchIndex;
 
   @GetMapping("/supplies/needs")
   public ModelAndView needs() {
@@ -87,7 +88,7 @@ public class SuppliesController {
     request = request.toBuilder().isAuthenticatedUser(isAuthenticated).build();
 
     List<SuppliesDao.SuppliesQueryResult> results =
-        SuppliesDao.getSupplyResults(jdbi, request, stateList, deploymentId);
+        supplySearchIndex.search(request, stateList, deploymentId);
 
     Map<Long, SiteSupplyData> aggregatedResults = new HashMap<>();
 
@@ -60,6 +60,10 @@ public class SuppliesDao {
         and c.state in (<stateList>)
       """);
 
+    // explicitly requested states may cross deployments, search all deployments in that case
+    if (request.getStates().isEmpty()) {
+      query.append("and s.deployment_id in (<deploymentIdList>)\n");
+    }
     if (!request.getSites().isEmpty()) {
       query.append("and s.name in (<sites>)\n");
     }
@@ -169,8 +173,9 @@ public class SuppliesDao {
             queryBuilder.bindList("stateList", stateList);
           }
 
-          // todo: This needs to be hooked up
-          queryBuilder.bindList("deploymentIdList", List.of(deploymentId));
+          if (request.getStates().isEmpty()) {
+            queryBuilder.bindList("deploymentIdList", List.of(deploymentId));
+          }
 
           return queryBuilder.mapToBean(SuppliesQueryResult.class).list();
         });
@@ -0,0 +1,551 @@
+package com.vanatta.helene.supplies.database.supplies;
+
+import com.vanatta.helene.supplies.database.data.ItemStatus;
+import com.vanatta.helene.supplies.database.data.SiteType;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jdbi.v3.core.Jdbi;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory copy of the data needed to answer supply searches (the '/supplies/site-data'
+ * endpoint). Equivalent to {@link SuppliesDao#getSupplyResults} but answered from memory.
+ *
+ * <p>Sites are partitioned by deployment. Each site holds a compact inventory: item ids and the
+ * ordinal of each item's status. Item names and tags (as bitsets over a tag dictionary) are held
+ * once in an item dictionary.
+ *
+ * <p>DAOs that write site, inventory, item or delivery data call the static 'mark*Changed' methods.
+ * Those record what changed, the next search then reloads just the changed sites. Writes that
+ * bypass the DAOs are picked up by a periodic full rebuild.
+ */
+@Slf4j
+@Component
+public class SupplySearchIndex {
+  private static final int FULL_REBUILD_INTERVAL_MS = 10 * 60 * 1000;
+
+  private static final AtomicLong changeVersion = new AtomicLong(0);
+  private static final Map<Long, Long> siteChanges = new ConcurrentHashMap<>();
+  private static volatile long itemsChangedVersion = 0;
+  private static volatile long deliveriesChangedVersion = 0;
+  private static volatile long filterDataVersion = 0;
+
+  /** Records that site data or the inventory of a site has changed. */
+  public static void markSiteChanged(long siteId) {
+    synchronized (changeVersion) {
+      long version = changeVersion.incrementAndGet();
+      siteChanges.put(siteId, version);
+      filterDataVersion = version;
+    }
+  }
+
+  /** Records that items (names, tags) have been added, removed or changed. */
+  public static void markItemsChanged() {
+    synchronized (changeVersion) {
+      itemsChangedVersion = changeVersion.incrementAndGet();
+      filterDataVersion = itemsChangedVersion;
+    }
+  }
+
+  /** Records that delivery data has changed, affects the 'last delivery' date of sites. */
+  public static void markDeliveriesChanged() {
+    synchronized (changeVersion) {
+      deliveriesChangedVersion = changeVersion.incrementAndGet();
+    }
+  }
+
+  /**
+   * Current change version. Other in-memory views of site data can remember the version they were
+   * built from and ask which sites changed since then.
+   */
+  public static long currentChangeVersion() {
+    synchronized (changeVersion) {
+      return changeVersion.get();
+    }
+  }
+
+  /**
+   * Version of the last site or item change. Sites carry their county, so county changes are
+   * included. Delivery changes do not move this version.
+   */
+  public static long currentFilterDataVersion() {
+    return filterDataVersion;
+  }
+
+  /** Returns ids of sites that changed after version 'since', up to and including 'until'. */
+  public static List<Long> sitesChangedBetween(long since, long until) {
+    return siteChanges.entrySet().stream()
+        .filter(e -> e.getValue() > since && e.getValue() <= until)
+        .map(Map.Entry::getKey)
+        .toList();
+  }
+
+  /** True if items were added, renamed or merged after version 'since'. */
+  public static boolean itemsChangedSince(long since) {
+    return itemsChangedVersion > since;
+  }
+
+  private final Jdbi jdbi;
+  private final boolean enabled;
+
+  private volatile Snapshot snapshot;
+
+  @Autowired
+  public SupplySearchIndex(Jdbi jdbi, @Value("${supplies.index.enabled}") boolean enabled) {
+    this.jdbi = jdbi;
+    this.enabled = enabled;
+  }
+
+  /**
+   * Same contract as {@link SuppliesDao#getSupplyResults}. Falls back to the database query if the
+   * index is not enabled.
+   */
+  public List<SuppliesDao.SuppliesQueryResult> search(
+      SiteSupplyRequest request, List<String> stateList, Number deploymentId) {
+    if (!enabled) {
+      return SuppliesDao.getSupplyResults(jdbi, request, stateList, deploymentId);
+    }
+    Snapshot current = currentSnapshot();
+
+    Set<String> states =
+        new HashSet<>(request.getStates().isEmpty() ? stateList : request.getStates());
+    Set<String> sites =
+        new HashSet<>(request.getSites().stream().map(s -> s.replace("&amp;", "&")).toList());
+    // as in the database query, a malformed county matches no site rather than being ignored
+    boolean filterCounties = !request.getCounties().isEmpty();
+    Set<String> counties = new HashSet<>();
+    for (String c : request.getCounties()) {
+      if (c.contains(",")) {
+        counties.add(c.split(",")[0].trim() + "," + c.split(",")[1].trim());
+      } else {
+        log.warn(
+            "Supply search, county filter, received unexpected county "
+                + "result that was not in this format 'county,sate': {}",
+            c);
+      }
+    }
+
+    boolean filterItems = !request.getItems().isEmpty();
+    Set<Long> itemIds = new HashSet<>();
+    for (String itemName : request.getItems()) {
+      Long itemId = current.itemIdsByName.get(itemName);
+      if (itemId != null) {
+        itemIds.add(itemId);
+      }
+    }
+
+    boolean filterStatus =
+        !request.getItemStatus().isEmpty()
+            && request.getItemStatus().size() < SiteSupplyRequest.ITEM_STATUS_COUNT;
+    boolean[] statusAllowed = new boolean[ItemStatus.values().length];
+    for (ItemStatus status : ItemStatus.values()) {
+      statusAllowed[status.ordinal()] = request.getItemStatus().contains(status.getText());
+    }
+
+    boolean filterSiteType =
+        !request.getSiteType().isEmpty() && request.getSiteType().size() < SiteType.values().length;
+    boolean filterAccepting = request.getAcceptingDonations() != request.getNotAcceptingDonations();
+
+    // explicitly requested states may cross deployments, search all sites in that case
+    Collection<SiteEntry> candidates =
+        request.getStates().isEmpty()
+            ? current.sitesByDeployment.getOrDefault(deploymentId.longValue(), List.of())
+            : current.sites.values();
+
+    List<SuppliesDao.SuppliesQueryResult> results = new ArrayList<>();
+    for (SiteEntry site : candidates) {
+      if (!states.contains(site.state)
+          || (!sites.isEmpty() && !sites.contains(site.name))
+          || (filterCounties && !counties.contains(site.county + "," + site.state))
+          || (filterSiteType && !request.getSiteType().contains(site.siteType))
+          || (filterAccepting && site.acceptingDonations != request.getAcceptingDonations())
+          || (!request.getIsAuthenticatedUser() && !site.publiclyVisible)) {
+        continue;
+      }
+
+      int matchCount = 0;
+      for (int i = 0; i < site.itemIds.length; i++) {
+        if ((filterItems && !itemIds.contains(site.itemIds[i]))
+            || (filterStatus && !statusAllowed[site.statusOrdinals[i]])) {
+          continue;
+        }
+        ItemEntry item = current.items.get(site.itemIds[i]);
+        if (item == null) {
+          continue;
+        }
+        matchCount++;
+        results.add(toResult(site, item, ItemStatus.values()[site.statusOrdinals[i]]));
+      }
+      // a site without any items is only a match if we are not filtering on items
+      if (matchCount == 0 && !filterItems && !filterStatus) {
+        results.add(toResult(site, null, null));
+      }
+    }
+    return results;
+  }
+
+  private static SuppliesDao.SuppliesQueryResult toResult(
+      SiteEntry site, ItemEntry item, ItemStatus itemStatus) {
+    var result = new SuppliesDao.SuppliesQueryResult();
+    result.setSiteId(site.id);
+    result.setAcceptingDonations(site.acceptingDonations);
+    result.setGivingDonations(site.givingDonations);
+    result.setSite(site.name);
+    result.setSiteType(site.siteType);
+    result.setCounty(site.county);
+    result.setState(site.state);
+    result.setInventoryLastUpdated(site.inventoryLastUpdated);
+    result.setLastDeliveryDate(site.lastDeliveryDate);
+    if (item != null) {
+      result.setItem(item.name);
+      result.setItemTags(item.tagCsv);
+      result.setItemStatus(itemStatus.getText());
+    }
+    return result;
+  }
+
+  /** Throws away all data and reloads the index from database. */
+  @Scheduled(fixedDelay = FULL_REBUILD_INTERVAL_MS, initialDelay = FULL_REBUILD_INTERVAL_MS)
+  public void rebuild() {
+    if (!enabled) {
+      return;
+    }
+    synchronized (this) {
+      long version = currentChangeVersion();
+      snapshot = Snapshot.build(version, loadItems(jdbi), loadSites(jdbi, null));
+      log.info("Supply search index rebuilt, site count: {}", snapshot.sites.size());
+    }
+  }
+
+  private Snapshot currentSnapshot() {
+    Snapshot current = snapshot;
+    if (current != null && current.version == changeVersion.get()) {
+      return current;
+    }
+    synchronized (this) {
+      current = snapshot;
+      if (current == null) {
+        rebuild();
+        return snapshot;
+      }
+      long version = currentChangeVersion();
+      if (current.version == version) {
+        return current;
+      }
+      if (itemsChangedSince(current.version)) {
+        // item renames & merges change item order of every site, reload everything
+        rebuild();
+        return snapshot;
+      }
+
+      long since = current.version;
+      List<Long> changedSites = sitesChangedBetween(since, version);
+
+      Map<Long, SiteEntry> sites = new HashMap<>(current.sites);
+      if (!changedSites.isEmpty()) {
+        changedSites.forEach(sites::remove);
+        loadSites(jdbi, changedSites).forEach(site -> sites.put(site.id, site));
+      }
+      if (deliveriesChangedVersion > since) {
+        Map<Long, LocalDate> lastDeliveries = loadLastDeliveryDates(jdbi);
+        // entries are shared with the current snapshot, searches may be reading them, replace
+        // rather than update them
+        sites.replaceAll((id, site) -> site.withLastDeliveryDate(lastDeliveries.get(id)));
+      }
+      snapshot = Snapshot.build(version, current.items, sites.values());
+      return snapshot;
+    }
+  }
+
+  /** Immutable view of the index, replaced as a whole on every refresh. */
+  private static class Snapshot {
+    final long version;
+    final Map<Long, ItemEntry> items;
+    final Map<String, Long> itemIdsByName;
+    final Map<Long, SiteEntry> sites;
+    final Map<Long, List<SiteEntry>> sitesByDeployment;
+
+    private Snapshot(
+        long version,
+        Map<Long, ItemEntry> items,
+        Map<String, Long> itemIdsByName,
+        Map<Long, SiteEntry> sites,
+        Map<Long, List<SiteEntry>> sitesByDeployment) {
+      this.version = version;
+      this.items = items;
+      this.itemIdsByName = itemIdsByName;
+      this.sites = sites;
+      this.sitesByDeployment = sitesByDeployment;
+    }
+
+    static Snapshot build(
+        long version, Map<Long, ItemEntry> items, Collection<SiteEntry> siteEntries) {
+      Map<String, Long> itemIdsByName = new HashMap<>();
+      items.forEach((id, item) -> itemIdsByName.put(item.name, id));
+
+      Map<Long, SiteEntry> sites = new HashMap<>();
+      Map<Long, List<SiteEntry>> sitesByDeployment = new HashMap<>();
+      for (SiteEntry site : siteEntries) {
+        sites.put(site.id, site);
+        sitesByDeployment.computeIfAbsent(site.deploymentId, _ -> new ArrayList<>()).add(site);
+      }
+      return new Snapshot(version, items, itemIdsByName, sites, sitesByDeployment);
+    }
+  }
+
+  private static class ItemEntry {
+    final String name;
+    final BitSet tags;
+    final String tagCsv;
+
+    ItemEntry(String name, BitSet tags, List<String> tagDictionary) {
+      this.name = name;
+      this.tags = tags;
+      if (tags.isEmpty()) {
+        tagCsv = null;
+      } else {
+        List<String> tagNames = new ArrayList<>();
+        tags.stream().forEach(bit -> tagNames.add(tagDictionary.get(bit)));
+        tagCsv = String.join(",", tagNames);
+      }
+    }
+  }
+
+  private static class SiteEntry {
+    long id;
+    long deploymentId;
+    String name;
+    String siteType;
+    String county;
+    String state;
+    boolean acceptingDonations;
+    boolean givingDonations;
+    boolean publiclyVisible;
+    LocalDate inventoryLastUpdated;
+    LocalDate lastDeliveryDate;
+
+    // item ids & statuses are parallel arrays, ordered by status sort order and then item name
+    long[] itemIds;
+    byte[] statusOrdinals;
+
+    /** Returns a copy of this entry with a different last delivery date. */
+    SiteEntry withLastDeliveryDate(LocalDate date) {
+      SiteEntry copy = new SiteEntry();
+      copy.id = id;
+      copy.deploymentId = deploymentId;
+      copy.name = name;
+      copy.siteType = siteType;
+      copy.county = county;
+      copy.state = state;
+      copy.acceptingDonations = acceptingDonations;
+      copy.givingDonations = givingDonations;
+      copy.publiclyVisible = publiclyVisible;
+      copy.inventoryLastUpdated = inventoryLastUpdated;
+      copy.lastDeliveryDate = date;
+      copy.itemIds = itemIds;
+      copy.statusOrdinals = statusOrdinals;
+      return copy;
+    }
+  }
+
+  @NoArgsConstructor
+  @Data
+  public static class ItemRow {
+    long id;
+    String name;
+    String tagName;
+  }
+
+  private static Map<Long, ItemEntry> loadItems(Jdbi jdbi) {
+    String query =
+        """
+        select i.id, i.name, it.tag_name
+        from item i
+        left join item_tag it on it.item_id = i.id
+        order by i.id
+        """;
+    List<ItemRow> rows =
+        jdbi.withHandle(handle -> handle.createQuery(query).mapToBean(ItemRow.class).list());
+
+    List<String> tagDictionary = new ArrayList<>();
+    Map<String, Integer> tagBits = new HashMap<>();
+    Map<Long, String> names = new HashMap<>();
+    Map<Long, BitSet> tags = new HashMap<>();
+    for (ItemRow row : rows) {
+      names.put(row.id, row.name);
+      BitSet itemTags = tags.computeIfAbsent(row.id, _ -> new BitSet());
+      if (row.tagName != null) {
+        int bit =
+            tagBits.computeIfAbsent(
+                row.tagName,
+                tag -> {
+                  tagDictionary.add(tag);
+                  return tagDictionary.size() - 1;
+                });
+        itemTags.set(bit);
+      }
+    }
+
+    Map<Long, ItemEntry> items = new HashMap<>();
+    names.forEach((id, name) -> items.put(id, new ItemEntry(name, tags.get(id), tagDictionary)));
+    return items;
+  }
+
+  @NoArgsConstructor
+  @Data
+  public static class SiteRow {
+    long siteId;
+    long deploymentId;
+    String site;
+    String siteType;
+    String county;
+    String state;
+    boolean acceptingDonations;
+    boolean givingDonations;
+    boolean publiclyVisible;
+    LocalDate inventoryLastUpdated;
+    LocalDate lastDeliveryDate;
+  }
+
+  @NoArgsConstructor
+  @Data
+  public static class InventoryRow {
+    long siteId;
+    long itemId;
+    String itemStatus;
+  }
+
+  /** Loads active sites, if siteIds is null then all active sites are loaded. */
+  private static List<SiteEntry> loadSites(Jdbi jdbi, List<Long> siteIds) {
+    String siteQuery =
+        """
+        select
+          s.id siteId,
+          s.deployment_id deploymentId,
+          s.name site,
+          st.name siteType,
+          c.name county,
+          c.state state,
+          s.accepting_donations acceptingDonations,
+          s.distributing_supplies givingDonations,
+          s.publicly_visible publiclyVisible,
+          s.inventory_last_updated inventoryLastUpdated,
+          (
+            select max(d.target_delivery_date)
+            from delivery d
+            where d.to_site_id = s.id and d.delivery_status = 'Delivery Completed'
+          ) lastDeliveryDate
+        from site s
+        join site_type st on st.id = s.site_type_id
+        join county c on c.id = s.county_id
+        where s.active = true
+        """
+            + (siteIds == null ? "" : " and s.id in (<siteIds>)");
+
+    String inventoryQuery =
+        """
+        select
+          si.site_id siteId,
+          si.item_id itemId,
+          ist.name itemStatus
+        from site_item si
+        join site s on s.id = si.site_id
+        join item i on i.id = si.item_id
+        join item_status ist on ist.id = si.item_status_id
+        where s.active = true
+        """
+            + (siteIds == null ? "" : " and s.id in (<siteIds>)")
+            + "\norder by si.site_id, ist.sort_order, i.name";
+
+    List<SiteRow> siteRows =
+        jdbi.withHandle(
+            handle -> {
+              var query = handle.createQuery(siteQuery);
+              if (siteIds != null) {
+                query.bindList("siteIds", siteIds);
+              }
+              return query.mapToBean(SiteRow.class).list();
+            });
+    if (siteRows.isEmpty()) {
+      return List.of();
+    }
+    List<InventoryRow> inventoryRows =
+        jdbi.withHandle(
+            handle -> {
+              var query = handle.createQuery(inventoryQuery);
+              if (siteIds != null) {
+                query.bindList("siteIds", siteIds);
+              }
+              return query.mapToBean(InventoryRow.class).list();
+            });
+
+    Map<Long, List<InventoryRow>> inventoryBySite = new HashMap<>();
+    inventoryRows.forEach(
+        row -> inventoryBySite.computeIfAbsent(row.siteId, _ -> new ArrayList<>()).add(row));
+
+    List<SiteEntry> sites = new ArrayList<>(siteRows.size());
+    for (SiteRow row : siteRows) {
+      SiteEntry site = new SiteEntry();
+      site.id = row.siteId;
+      site.deploymentId = row.deploymentId;
+      site.name = row.site;
+      site.siteType = row.siteType;
+      site.county = row.county;
+      site.state = row.state;
+      site.acceptingDonations = row.acceptingDonations;
+      site.givingDonations = row.givingDonations;
+      site.publiclyVisible = row.publiclyVisible;
+      site.inventoryLastUpdated = row.inventoryLastUpdated;
+      site.lastDeliveryDate = row.lastDeliveryDate;
+
+      List<InventoryRow> inventory = inventoryBySite.getOrDefault(row.siteId, List.of());
+      site.itemIds = new long[inventory.size()];
+      site.statusOrdinals = new byte[inventory.size()];
+      for (int i = 0; i < inventory.size(); i++) {
+        site.itemIds[i] = inventory.get(i).itemId;
+        site.statusOrdinals[i] =
+            (byte) ItemStatus.fromTextValue(inventory.get(i).itemStatus).ordinal();
+      }
+      sites.add(site);
+    }
+    return sites;
+  }
+
+  @NoArgsConstructor
+  @Data
+  public static class LastDeliveryRow {
+    long siteId;
+    LocalDate lastDeliveryDate;
+  }
+
+  private static Map<Long, LocalDate> loadLastDeliveryDates(Jdbi jdbi) {
+    String query =
+        """
+        select
+          d.to_site_id siteId,
+          max(d.target_delivery_date) lastDeliveryDate
+        from delivery d
+        where d.delivery_status = 'Delivery Completed' and d.to_site_id is not null
+        group by d.to_site_id
+        """;
+    Map<Long, LocalDate> lastDeliveries = new HashMap<>();
+    jdbi.withHandle(handle -> handle.createQuery(query).mapToBean(LastDeliveryRow.class).list())
+        .forEach(row -> lastDeliveries.put(row.siteId, row.lastDeliveryDate));
+    return lastDeliveries;
+  }
+}
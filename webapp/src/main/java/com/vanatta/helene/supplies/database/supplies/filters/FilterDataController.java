@@ -3,11 +3,21 @@ package com.vanatta.helene.supplies.database.supplies.filters;
 import com.vanatta.helene.supplies.database.DeploymentAdvice;
 import com.vanatta.helene.supplies.database.auth.CookieAuthenticator;
 import com.vanatta.helene.supplies.database.data.CountyDao;
+import com.vanatta.helene.supplies.database.supplies.SupplySearchIndex;
+import com.vanatta.helene.supplies.database.util.HashingUtil;
+import com.vanatta.helene.supplies.database.util.JsonCodec;
 import jakarta.servlet.http.HttpServletRequest;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jdbi.v3.core.Jdbi;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
@@ -16,24 +26,50 @@ import org.springframework.web.bind.annotation.RestController;
 /**
  * FilterData are the controls which allow for filtering by site/item/county. These are relatively
  * dynamic data that come from database.
+ *
+ * <p>Filter data is held in memory as a snapshot per deployment (state list) and authentication
+ * mode. A snapshot is rebuilt when the {@link SupplySearchIndex} filter data version moves (site,
+ * county and item writes, but not deliveries), or when it is older than {@link
+ * #MAX_SNAPSHOT_AGE_MS}. Responses carry an ETag computed from the snapshot content, requests with
+ * a matching 'If-None-Match' get a 304.
  */
 @Slf4j
 @RestController
 @AllArgsConstructor
 public class FilterDataController {
+  /** Snapshots are rebuilt after this long to pick up any writes that bypass the DAOs. */
+  private static final long MAX_SNAPSHOT_AGE_MS = 10 * 60 * 1000;
+
+  /** ETags from a previous run of the application should never match. */
+  private static final String BOOT_ID = Long.toHexString(System.currentTimeMillis());
+
   private final Jdbi jdbi;
   private final CookieAuthenticator cookieAuthenticator;
+  private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
 
   @CrossOrigin
   @GetMapping(value = "/supplies/filter-data")
-  public FilterDataResponse getFilterData(
+  public ResponseEntity<FilterDataResponse> getFilterData(
       HttpServletRequest request,
       @ModelAttribute(DeploymentAdvice.DEPLOYMENT_STATE_LIST) List<String> stateList) {
     AuthenticatedMode authenticatedMode =
         cookieAuthenticator.isAuthenticated(request)
             ? AuthenticatedMode.AUTHENTICATED
             : AuthenticatedMode.NOT_AUTHENTICATED;
-    return getFilterData(authenticatedMode, stateList);
+    Snapshot snapshot = getSnapshot(authenticatedMode, stateList);
+
+    if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), snapshot.etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(snapshot.etag)
+          .cacheControl(CacheControl.noCache())
+          .varyBy(HttpHeaders.COOKIE)
+          .build();
+    }
+    return ResponseEntity.ok()
+        .eTag(snapshot.etag)
+        .cacheControl(CacheControl.noCache())
+        .varyBy(HttpHeaders.COOKIE)
+        .body(snapshot.response);
   }
 
   // @VisibleForTesting
@@ -50,4 +86,46 @@ public class FilterDataController {
         .states(stateList)
         .build();
   }
+
+  @lombok.Value
+  static class Snapshot {
+    long version;
+    long createdAt;
+    FilterDataResponse response;
+    String etag;
+  }
+
+  // @VisibleForTesting
+  Snapshot getSnapshot(AuthenticatedMode authenticatedMode, List<String> stateList) {
+    String key = authenticatedMode + ":" + String.join(",", stateList);
+    // read the version before loading data, a write during the load then causes a reload next time
+    long version = SupplySearchIndex.currentFilterDataVersion();
+    Snapshot snapshot = snapshots.get(key);
+    if (snapshot == null
+        || snapshot.version != version
+        || System.currentTimeMillis() - snapshot.createdAt > MAX_SNAPSHOT_AGE_MS) {
+      FilterDataResponse response = getFilterData(authenticatedMode, stateList);
+      String etag =
+          "\""
+              + BOOT_ID
+              + "-"
+              + HashingUtil.sha256(JsonCodec.toJson(response)).substring(0, 20)
+              + "\"";
+      snapshot = new Snapshot(version, System.currentTimeMillis(), response, etag);
+      snapshots.put(key, snapshot);
+    }
+    return snapshot;
+  }
+
+  /** 'If-None-Match' can be a list of ETags, or '*'. Comparison is weak (ignores 'W/' prefix). */
+  // @VisibleForTesting
+  static boolean etagMatches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+      return false;
+    }
+    return Arrays.stream(ifNoneMatch.split(","))
+        .map(String::trim)
+        .map(value -> value.startsWith("W/") ? value.substring(2) : value)
+        .anyMatch(value -> value.equals("*") || value.equals(etag));
+  }
 }
@@ -153,6 +153,12 @@ public class NeedsMatchingDao {
 
   public static List<NeedsMatchingResult> executeByInternalId(
       Jdbi jdbi, long siteId, List<String> stateList) {
+    return aggregate(fetchNeedsMatches(jdbi, siteId, stateList));
+  }
+
+  /** Returns one row per (site with oversupply, item needed by the given site). */
+  public static List<NeedsMatchingDbResult> fetchNeedsMatches(
+      Jdbi jdbi, long siteId, List<String> stateList) {
     String query =
         """
          WITH needy_items AS (
@@ -194,8 +200,8 @@ public class NeedsMatchingDao {
                 site s ON os.site_id = s.id
             LEFT JOIN
                 site_distance_matrix sdm on
-                  (sdm.site1_id = :siteId and sdm.site2_id = os.site_id) or
-                  (sdm.site2_id = :siteId and sdm.site1_id = os.site_id)
+                  sdm.site1_id = least(:siteId, os.site_id)
+                  and sdm.site2_id = greatest(:siteId, os.site_id)
             JOIN
                 county c on c.id = s.county_id
             JOIN
@@ -216,16 +222,13 @@ public class NeedsMatchingDao {
         from need_match A
         ORDER BY A.siteId
         """;
-    List<NeedsMatchingDbResult> dbResults =
-        jdbi.withHandle(
-            handle ->
-                handle
-                    .createQuery(query)
-                    .bind("siteId", siteId)
-                    .bindList("stateList", stateList)
-                    .mapToBean(NeedsMatchingDbResult.class)
-                    .list());
-
-    return aggregate(dbResults);
+    return jdbi.withHandle(
+        handle ->
+            handle
+                .createQuery(query)
+                .bind("siteId", siteId)
+                .bindList("stateList", stateList)
+                .mapToBean(NeedsMatchingDbResult.class)
+                .list());
   }
 }
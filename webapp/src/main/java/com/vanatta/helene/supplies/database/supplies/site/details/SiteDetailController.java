@@ -3,6 +3,7 @@ package com.vanatta.helene.supplies.database.supplies.site.details;
 import com.vanatta.helene.supplies.database.DeploymentAdvice;
 import com.vanatta.helene.supplies.database.auth.CookieAuthenticator;
 import com.vanatta.helene.supplies.database.auth.LoggedInAdvice;
+import com.vanatta.helene.supplies.database.browse.routes.RouteCandidateGraph;
 import com.vanatta.helene.supplies.database.data.ItemStatus;
 import com.vanatta.helene.supplies.database.delivery.Delivery;
 import com.vanatta.helene.supplies.database.delivery.DeliveryDao;
@@ -10,22 +11,22 @@ import com.vanatta.helene.supplies.database.delivery.DeliveryStatus;
 import com.vanatta.helene.supplies.database.manage.contact.SiteContactController;
 import com.vanatta.helene.supplies.database.manage.inventory.InventoryController;
 import com.vanatta.helene.supplies.database.manage.receiving.SiteReceivingController;
-import com.vanatta.helene.supplies.database.supplies.SiteSupplyRequest;
 import com.vanatta.helene.supplies.database.supplies.SuppliesController;
-import com.vanatta.helene.supplies.database.supplies.SuppliesDao;
 import com.vanatta.helene.supplies.database.util.ListSplitter;
+import com.vanatta.helene.supplies.database.util.PageAssembly;
 import jakarta.servlet.http.HttpServletRequest;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
-import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.jdbi.v3.core.Jdbi;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
@@ -33,7 +34,6 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 
 @Controller
-@AllArgsConstructor
 @Slf4j
 public class SiteDetailController {
 
@@ -41,6 +41,27 @@ public class SiteDetailController {
 
   private final Jdbi jdbi;
   private final CookieAuthenticator cookieAuthenticator;
+  private final RouteCandidateGraph routeCandidateGraph;
+
+  /**
+   * Sections of the page loaded at the same time, each holds a database connection while it loads.
+   * Kept low so that one page view cannot take most of the connections.
+   */
+  private static final int MAX_CONCURRENT_SECTIONS = 2;
+
+  /** Deadline to load all sections of the page. */
+  private final Duration deadline;
+
+  SiteDetailController(
+      Jdbi jdbi,
+      CookieAuthenticator cookieAuthenticator,
+      RouteCandidateGraph routeCandidateGraph,
+      @Value("${site.detail.deadline.ms}") long deadlineMs) {
+    this.jdbi = jdbi;
+    this.cookieAuthenticator = cookieAuthenticator;
+    this.routeCandidateGraph = routeCandidateGraph;
+    this.deadline = Duration.ofMillis(deadlineMs);
+  }
 
   public static String buildSiteLink(long siteId) {
     return PATH_SITE_DETAIL + "?id=" + siteId;
@@ -85,6 +106,9 @@ public class SiteDetailController {
     HAS_OUTGOING_DELIVERIES("hasOutgoingDeliveries"),
     OUTGOING_DELIVERIES("outgoingDeliveries"),
 
+    /** Link to the next (older) page of deliveries, null if there are no more. */
+    MORE_DELIVERIES_LINK("moreDeliveriesLink"),
+
     showEditLinks("showEditLinks"),
     ;
     final String text;
@@ -94,18 +118,18 @@ public class SiteDetailController {
   public ModelAndView siteDetail(
       @ModelAttribute(LoggedInAdvice.USER_SITES) List<Long> userSites,
       @ModelAttribute(DeploymentAdvice.DEPLOYMENT_STATE_LIST) List<String> stateList,
-      @ModelAttribute(DeploymentAdvice.DEPLOYMENT_ID) Number deploymentId,
       @RequestParam(required = false) Long id,
       @RequestParam(required = false) Long airtableId,
       @RequestParam(required = false) Long wssId,
+      @RequestParam(required = false) String deliveriesBefore,
       HttpServletRequest request) {
     return siteDetail(
         userSites,
         stateList,
-        deploymentId,
         id,
         airtableId,
         wssId,
+        deliveriesBefore,
         cookieAuthenticator.isAuthenticated(request));
   }
 
@@ -113,10 +137,10 @@ public class SiteDetailController {
   public ModelAndView siteDetail(
       List<Long> userSites,
       List<String> stateList,
-      Number deploymentId,
       Long id,
       Long airtableId,
       Long wssId,
+      String deliveriesBefore,
       boolean isLoggedIn) {
     if (id == null && airtableId == null && wssId == null) {
       return new ModelAndView("redirect:" + SuppliesController.PATH_SUPPLY_SEARCH);
@@ -141,7 +165,8 @@ public class SiteDetailController {
     }
     assert id != null;
 
-    SiteDetailDao.SiteDetailData siteDetailData = SiteDetailDao.lookupSiteById(jdbi, id);
+    final long siteId = id;
+    SiteDetailDao.SiteDetailData siteDetailData = SiteDetailDao.lookupSiteById(jdbi, siteId);
 
     // if site not found, not accessible, or for logged in only users, then redirect
     if (siteDetailData == null
@@ -150,6 +175,49 @@ public class SiteDetailController {
       return new ModelAndView("redirect:" + SuppliesController.PATH_SUPPLY_SEARCH);
     }
 
+    try (var page = PageAssembly.withDeadline(deadline, MAX_CONCURRENT_SECTIONS)) {
+      // The other sections of the page are independent of each other, they are loaded together.
+      var inventorySection =
+          page.load("inventory", () -> SiteDetailDao.lookupSiteInventory(jdbi, siteId));
+      LoggedInSections loggedInSections =
+          isLoggedIn ? loadLoggedInSections(page, siteId, stateList, deliveriesBefore) : null;
+
+      return buildPage(
+          userSites, id, isLoggedIn, siteDetailData, inventorySection.get(), loggedInSections);
+    }
+  }
+
+  /** Sections of the page that are only shown to logged in users. */
+  private record LoggedInSections(
+      PageAssembly.Section<List<SiteDetailDao.SiteContact>> additionalContacts,
+      PageAssembly.Section<DeliveryDao.DeliveryPage> deliveries,
+      PageAssembly.Section<List<NeedsMatchingDao.NeedsMatchingResult>> needsMatching) {}
+
+  private LoggedInSections loadLoggedInSections(
+      PageAssembly page, long siteId, List<String> stateList, String deliveriesBefore) {
+    return new LoggedInSections(
+        page.load(
+            "additionalContacts", () -> SiteDetailDao.lookupAdditionalSiteContacts(jdbi, siteId)),
+        page.load(
+            "deliveries",
+            () ->
+                DeliveryDao.fetchDeliveriesBySiteId(
+                    jdbi, siteId, DeliveryDao.DEFAULT_PAGE_SIZE, deliveriesBefore)),
+        page.load(
+            "needsMatching",
+            () ->
+                NeedsMatchingDao.aggregate(
+                    routeCandidateGraph.findNeedsMatches(siteId, stateList))));
+  }
+
+  private ModelAndView buildPage(
+      List<Long> userSites,
+      long id,
+      boolean isLoggedIn,
+      SiteDetailDao.SiteDetailData siteDetailData,
+      List<SiteDetailDao.SiteInventoryItem> inventory,
+      LoggedInSections loggedInSections) {
+
     Map<String, Object> siteDetails = new HashMap<>();
 
     siteDetails.put(TemplateParams.showEditLinks.text, userSites.contains(id));
@@ -199,16 +267,8 @@ public class SiteDetailController {
         String.format("%s, %s", urlEncode(addressLine1), urlEncode(addressLine2)));
 
     // site supplies
-    List<SuppliesDao.SuppliesQueryResult> supplies =
-        SuppliesDao.getSupplyResults(
-            jdbi,
-            SiteSupplyRequest.builder().sites(List.of(siteDetailData.siteName)).build(),
-            stateList,
-            deploymentId);
-
     List<InventoryItem> needs =
-        supplies.stream()
-            .filter(i -> i.getItem() != null)
+        inventory.stream()
             .filter(i -> ItemStatus.fromTextValue(i.getItemStatus()).isNeeded())
             .map(InventoryItem::new)
             .sorted(Comparator.comparing(InventoryItem::getName))
@@ -224,8 +284,7 @@ public class SiteDetailController {
     siteDetails.put(TemplateParams.HAS_NEEDS.text, needs.isEmpty() ? null : true);
 
     List<InventoryItem> available =
-        supplies.stream()
-            .filter(i -> i.getItem() != null)
+        inventory.stream()
             .filter(i -> !ItemStatus.fromTextValue(i.getItemStatus()).isNeeded())
             .map(InventoryItem::new)
             .sorted(Comparator.comparing(InventoryItem::getName))
@@ -254,8 +313,7 @@ public class SiteDetailController {
               : siteDetailData.getContactNumber());
 
       siteDetails.put(
-          TemplateParams.ADDITIONAL_CONTACTS.text,
-          SiteDetailDao.lookupAdditionalSiteContacts(jdbi, id));
+          TemplateParams.ADDITIONAL_CONTACTS.text, loggedInSections.additionalContacts().get());
 
       siteDetails.put(
           TemplateParams.EDIT_RECEIVING_LINK.text, SiteReceivingController.buildLink(id));
@@ -266,7 +324,13 @@ public class SiteDetailController {
               : siteDetailData.getReceivingNotes());
       siteDetails.put(TemplateParams.MAX_SUPPLY_LOAD.text, siteDetailData.getMaxSupply());
 
-      List<Delivery> allDeliveries = DeliveryDao.fetchDeliveriesBySiteId(jdbi, id);
+      DeliveryDao.DeliveryPage deliveryPage = loggedInSections.deliveries().get();
+      List<Delivery> allDeliveries = deliveryPage.getDeliveries();
+      siteDetails.put(
+          TemplateParams.MORE_DELIVERIES_LINK.text,
+          deliveryPage.getNextCursor() == null
+              ? null
+              : buildSiteLink(id) + "&deliveriesBefore=" + urlEncode(deliveryPage.getNextCursor()));
 
       // Should filter out any deliveries that are cancelled or deleted
       List<Delivery> incomingDeliveries =
@@ -300,22 +364,22 @@ public class SiteDetailController {
       siteDetails.put(TemplateParams.HAS_OUTGOING_DELIVERIES.text, !outgoingDeliveries.isEmpty());
       siteDetails.put(TemplateParams.OUTGOING_DELIVERIES.text, outgoingDeliveries);
 
-      // site needs list
+      // site needs list, the page is shown without it if it is slow to load
       List<NeedsMatchingDao.NeedsMatchingResult> needsMatching =
-          NeedsMatchingDao.executeByInternalId(jdbi, id, stateList);
+          loggedInSections.needsMatching().getOrElse(List.of());
       siteDetails.put(TemplateParams.NEEDS_MATCHING.text, needsMatching);
       siteDetails.put(TemplateParams.NEEDS_MATCH_COUNT.text, needsMatching.size());
     }
     return new ModelAndView("supplies/site-detail", siteDetails);
   }
 
-  @Value
+  @lombok.Value
   static class InventoryItem {
     private final String name;
     private final String displayClass;
 
-    InventoryItem(SuppliesDao.SuppliesQueryResult result) {
-      name = result.getItem();
+    InventoryItem(SiteDetailDao.SiteInventoryItem result) {
+      name = result.getItemName();
       displayClass = ItemStatus.fromTextValue(result.getItemStatus()).getCssClass();
     }
   }
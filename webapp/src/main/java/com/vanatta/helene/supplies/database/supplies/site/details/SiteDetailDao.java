@@ -118,4 +118,32 @@ public class SiteDetailDao {
                 .mapToBean(SiteContact.class)
                 .list());
   }
+
+  @Data
+  @NoArgsConstructor
+  public static class SiteInventoryItem {
+    String itemName;
+    String itemStatus;
+  }
+
+  /** Returns the items of one site, sorted by item status and then by name. */
+  public static List<SiteInventoryItem> lookupSiteInventory(Jdbi jdbi, long siteId) {
+    return jdbi.withHandle(
+        handle ->
+            handle
+                .createQuery(
+                    """
+                    select
+                      i.name itemName,
+                      ist.name itemStatus
+                    from site_item si
+                    join item i on i.id = si.item_id
+                    join item_status ist on ist.id = si.item_status_id
+                    where si.site_id = :siteId
+                    order by ist.sort_order, i.name
+                    """)
+                .bind("siteId", siteId)
+                .mapToBean(SiteInventoryItem.class)
+                .list());
+  }
 }
@@ -0,0 +1,193 @@
+package com.vanatta.helene.supplies.database.twilio.sms;
+
+import com.vanatta.helene.supplies.database.util.TruncateString;
+import java.util.Comparator;
+import java.util.List;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
+
+/** Reads and writes the 'sms_outbox' table. */
+class SmsOutboxDao {
+
+  @Data
+  @NoArgsConstructor
+  public static class OutboxMessage {
+    long id;
+    String number;
+    String message;
+
+    /** Number of attempts, including the one about to be made. */
+    int attempts;
+  }
+
+  /** Adds messages to the outbox, returns their ids in the same order. */
+  static List<Long> enqueue(Jdbi jdbi, List<SmsSender.Sms> messages) {
+    return jdbi.withHandle(
+        handle -> {
+          PreparedBatch batch =
+              handle.prepareBatch(
+                  "insert into sms_outbox(number, message) values(:phoneNumber, :message)");
+          messages.forEach(m -> batch.bindBean(m).add());
+          return batch.executePreparedBatch("id").mapTo(Long.class).list();
+        });
+  }
+
+  /**
+   * Adds messages to the outbox already claimed (see {@link #claim}), for a sender that sends them
+   * right away. No other sender can claim them until the lease expires. Returns the messages in the
+   * same order.
+   */
+  static List<OutboxMessage> enqueueClaimed(
+      Jdbi jdbi, List<SmsSender.Sms> messages, int leaseSeconds) {
+    return jdbi.withHandle(
+        handle -> {
+          PreparedBatch batch =
+              handle.prepareBatch(
+                  """
+                  insert into sms_outbox(number, message, attempts, next_attempt_at)
+                  values(
+                    :phoneNumber, :message, 1, now() + make_interval(secs => :leaseSeconds))
+                  """);
+          messages.forEach(m -> batch.bindBean(m).bind("leaseSeconds", leaseSeconds).add());
+          return batch
+              .executePreparedBatch("id", "number", "message", "attempts")
+              .mapToBean(OutboxMessage.class)
+              .list();
+        });
+  }
+
+  /**
+   * Claims messages for sending by moving their 'next_attempt_at' forward by 'leaseSeconds'. A
+   * message is claimed by one sender only, once claimed it is not claimed again until the lease
+   * expires.
+   *
+   * @param ids Claims these messages if they are due, or null to claim any due messages.
+   */
+  static List<OutboxMessage> claim(Jdbi jdbi, List<Long> ids, int limit, int leaseSeconds) {
+    String query =
+        """
+        update sms_outbox set
+          next_attempt_at = now() + make_interval(secs => :leaseSeconds),
+          attempts = attempts + 1
+        where id in (
+          select id
+          from sms_outbox
+          where status = 'PENDING'
+            and next_attempt_at <= now()
+            <idFilter>
+          order by id
+          limit :limit
+          for update skip locked
+        )
+        returning id, number, message, attempts
+        """;
+    return jdbi.withHandle(
+        handle -> {
+          var claimQuery =
+              handle
+                  .createQuery(query)
+                  .define("idFilter", ids == null ? "" : "and id = any(:ids)")
+                  .bind("leaseSeconds", leaseSeconds)
+                  .bind("limit", limit);
+          if (ids != null) {
+            claimQuery.bind("ids", ids.toArray(Long[]::new));
+          }
+          return claimQuery.mapToBean(OutboxMessage.class).list().stream()
+              .sorted(Comparator.comparingLong(OutboxMessage::getId))
+              .toList();
+        });
+  }
+
+  @lombok.Value
+  static class Completed {
+    long id;
+    SmsTransport.Outcome outcome;
+    SmsSender.MessageResult result;
+
+    /** For retried messages, how long until the next attempt. */
+    long retryDelayMs;
+  }
+
+  /**
+   * Records the results of a batch of send attempts: one insert of all send history rows, and one
+   * batch of outbox updates.
+   */
+  static void complete(Jdbi jdbi, List<Completed> completed) {
+    if (completed.isEmpty()) {
+      return;
+    }
+    jdbi.useTransaction(
+        handle -> {
+          PreparedBatch history =
+              handle.prepareBatch(
+                  """
+                  insert into sms_send_history(
+                    number, message_length, success, message_link, error_code, error_message)
+                  values(
+                    :number, :messageLength, :success, :messageLink, :errorCode, :errorMessage)
+                  """);
+          PreparedBatch outbox =
+              handle.prepareBatch(
+                  """
+                  update sms_outbox set
+                    status = :status,
+                    date_sent = case when :status = 'SENT' then now() end,
+                    next_attempt_at = now() + make_interval(secs => :retryDelayMs / 1000.0)
+                  where id = :id
+                  """);
+          for (Completed c : completed) {
+            SmsSender.MessageResult result = c.getResult();
+            history
+                .bind("number", result.getToNumber())
+                .bind("messageLength", result.getMessageLength())
+                .bind("success", result.isSuccess())
+                .bind("messageLink", result.getMessageLink())
+                .bind("errorCode", result.getErrorCode())
+                .bind("errorMessage", TruncateString.truncate(result.getErrorMessage(), 512))
+                .add();
+            String status =
+                c.getOutcome() == SmsTransport.Outcome.RETRY ? "PENDING" : c.getOutcome().name();
+            outbox
+                .bind("id", c.getId())
+                .bind("status", status)
+                .bind("retryDelayMs", c.getRetryDelayMs())
+                .add();
+          }
+          history.execute();
+          outbox.execute();
+        });
+  }
+
+  /** Puts claimed messages back, to be sent after 'delayMs'. Does not count as an attempt. */
+  static void release(Jdbi jdbi, List<Long> ids, long delayMs) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    jdbi.withHandle(
+        handle ->
+            handle
+                .createUpdate(
+                    """
+                    update sms_outbox set
+                      attempts = attempts - 1,
+                      next_attempt_at = now() + make_interval(secs => :delayMs / 1000.0)
+                    where id in (<ids>)
+                    """)
+                .bind("delayMs", delayMs)
+                .bindList("ids", ids)
+                .execute());
+  }
+
+  // @VisibleForTesting
+  static String fetchStatus(Jdbi jdbi, long id) {
+    return jdbi.withHandle(
+        handle ->
+            handle
+                .createQuery("select status from sms_outbox where id = :id")
+                .bind("id", id)
+                .mapTo(String.class)
+                .one());
+  }
+}
@@ -1,57 +1,148 @@
 package com.vanatta.helene.supplies.database.twilio.sms;
 
-import com.twilio.Twilio;
 import com.twilio.rest.api.v2010.account.Message;
-import com.twilio.type.PhoneNumber;
-import com.vanatta.helene.supplies.database.util.TruncateString;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 import org.jdbi.v3.core.Jdbi;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+/**
+ * Sends SMS messages (through Twilio) in the background.
+ *
+ * <p>Messages are written to the 'sms_outbox' table and then sent from virtual threads, request
+ * threads do not wait on Twilio. At most 'maxConcurrent' messages are sent at a time. Messages to
+ * the same number are sent at least 'minIntervalPerNumberMs' apart. Failures that may be temporary
+ * are retried with exponential backoff, up to 'maxAttempts'. The results of a batch of messages are
+ * written to 'sms_send_history' together.
+ *
+ * <p>Order is not guaranteed: messages to the same number that are sent together go out in order,
+ * but a message that is retried, or put back because of the per-number rate limit, may be sent
+ * after later messages to that number.
+ *
+ * <p>Messages that are still in the outbox after a restart, and messages waiting to be retried,
+ * are sent by {@link #sendDue()}. That hands the sending off to a virtual thread, the scheduler
+ * thread (shared with other scheduled jobs) does not wait on Twilio.
+ */
 @Component
 @Slf4j
 public class SmsSender {
+  private static final int SEND_DUE_INTERVAL_MS = 5_000;
+
+  /** Claimed messages are not claimed again for this long. */
+  private static final int LEASE_SECONDS = 60;
+
+  private static final int CLAIM_LIMIT = 50;
+
+  /**
+   * Messages that would wait longer than this for the per-number rate limit are put back in the
+   * outbox instead.
+   */
+  private static final long MAX_RATE_LIMIT_WAIT_MS = 10_000;
 
   // @VisibleForTesting
   public static SmsSender newDisabled(Jdbi jdbi) {
-    return new SmsSender("+1", "", "", false, jdbi);
+    return new SmsSender(jdbi, disabledTransport(), 4, 1, 0, 0, 5_000);
   }
 
-  private final String twilioFromNumber;
-  private final boolean twilioSmsEnabled;
   private final Jdbi jdbi;
+  private final SmsTransport transport;
+  private final int maxAttempts;
+  private final long backoffMs;
+  private final long minIntervalPerNumberMs;
+  private final long waitMs;
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final Semaphore sendPermits;
+
+  /** Per phone number, the earliest time the next message may be sent. */
+  private final Map<String, Long> nextSendTime = new ConcurrentHashMap<>();
 
+  /** Outbox ids of messages that a caller is waiting on, see {@link #sendAndWait}. */
+  private final Map<Long, CompletableFuture<Boolean>> waiting = new ConcurrentHashMap<>();
+
+  /** True while due messages are being sent, a 'sendDue' run does not overlap the previous one. */
+  private final AtomicBoolean sendingDue = new AtomicBoolean(false);
+
+  @Autowired
   SmsSender(
       @Value("${twilio.from.number}") String twilioFromNumber,
       @Value("${twilio.account.sid}") String twilioAccountSid,
       @Value("${twilio.auth.token}") String twilioAuthToken,
       @Value("${twilio.sms.enabled}") boolean twilioSmsEnabled,
+      @Value("${sms.max.concurrent}") int maxConcurrent,
+      @Value("${sms.max.attempts}") int maxAttempts,
+      @Value("${sms.backoff.ms}") long backoffMs,
+      @Value("${sms.min.interval.per.number.ms}") long minIntervalPerNumberMs,
+      @Value("${sms.wait.ms}") long waitMs,
       Jdbi jdbi) {
-    this.twilioFromNumber = twilioFromNumber;
-    if (!twilioFromNumber.startsWith("+1")) {
-      throw new IllegalArgumentException(
-          "Twilio from number must start with '+1', number provided: " + twilioFromNumber);
-    }
-    this.twilioSmsEnabled = twilioSmsEnabled;
-    if (twilioSmsEnabled) {
-      Twilio.init(twilioAccountSid, twilioAuthToken);
-    }
+    this(
+        jdbi,
+        createTransport(twilioFromNumber, twilioAccountSid, twilioAuthToken, twilioSmsEnabled),
+        maxConcurrent,
+        maxAttempts,
+        backoffMs,
+        minIntervalPerNumberMs,
+        waitMs);
+  }
+
+  // @VisibleForTesting
+  SmsSender(
+      Jdbi jdbi,
+      SmsTransport transport,
+      int maxConcurrent,
+      int maxAttempts,
+      long backoffMs,
+      long minIntervalPerNumberMs,
+      long waitMs) {
     this.jdbi = jdbi;
+    this.transport = transport;
+    this.sendPermits = new Semaphore(maxConcurrent);
+    this.maxAttempts = maxAttempts;
+    this.backoffMs = backoffMs;
+    this.minIntervalPerNumberMs = minIntervalPerNumberMs;
+    this.waitMs = waitMs;
   }
 
-  public boolean send(String phoneNumber, String message) {
-    if (phoneNumber == null || message == null) {
+  private static SmsTransport createTransport(
+      String twilioFromNumber,
+      String twilioAccountSid,
+      String twilioAuthToken,
+      boolean twilioSmsEnabled) {
+    if (!twilioFromNumber.startsWith("+1")) {
       throw new IllegalArgumentException(
-          String.format("Null input, phoneNumber: %s, message: %s", phoneNumber, message));
+          "Twilio from number must start with '+1', number provided: " + twilioFromNumber);
     }
+    return twilioSmsEnabled
+        ? new TwilioSmsTransport(twilioFromNumber, twilioAccountSid, twilioAuthToken)
+        : disabledTransport();
+  }
 
-    if (!twilioSmsEnabled) {
+  /** Sends nothing, every message is recorded as sent. */
+  private static SmsTransport disabledTransport() {
+    return (phoneNumber, message) -> {
       log.info("SMS disabled, would have sent to: {}, message: {}", phoneNumber, message);
-      recordMessage(
-          jdbi,
+      return new SmsTransport.Attempt(
+          SmsTransport.Outcome.SENT,
           MessageResult.builder()
               .toNumber(phoneNumber)
               .messageLength(message.length())
@@ -60,35 +151,219 @@ public class SmsSender {
               .errorCode(-1)
               .errorMessage("SMS not enabled")
               .build());
+    };
+  }
+
+  @lombok.Value
+  public static class Sms {
+    String phoneNumber;
+    String message;
+  }
+
+  /** Queues a message to be sent in the background. Returns true once the message is queued. */
+  public boolean send(String phoneNumber, String message) {
+    sendAll(List.of(new Sms(phoneNumber, message)));
+    return true;
+  }
+
+  /** Queues messages to be sent in the background. */
+  public void sendAll(List<Sms> messages) {
+    if (!messages.isEmpty()) {
+      submit(enqueue(messages));
+    }
+  }
+
+  /**
+   * Queues a message and waits (up to 'waitMs') for it to be sent. For when the caller needs to
+   * know if the phone number is valid. Returns false if the message could not be sent. If the
+   * message is still being sent after waiting, returns true, the message remains queued.
+   */
+  public boolean sendAndWait(String phoneNumber, String message) {
+    List<Sms> messages = List.of(new Sms(phoneNumber, message));
+    validate(messages);
+    // claimed as it is added, 'sendDue' cannot send it (and miss the waiting caller) before the
+    // result is registered below
+    SmsOutboxDao.OutboxMessage claimed =
+        SmsOutboxDao.enqueueClaimed(jdbi, messages, LEASE_SECONDS).getFirst();
+    long id = claimed.getId();
+    CompletableFuture<Boolean> result = new CompletableFuture<>();
+    waiting.put(id, result);
+    try {
+      executor.execute(() -> send(List.of(claimed)));
+    } catch (RejectedExecutionException e) {
+      log.warn("Shutting down, SMS message remains queued: {}", id);
+      waiting.remove(id);
+      return true;
+    }
+    try {
+      return result.get(waitMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      log.warn("SMS to: {} not yet sent after {} ms, it remains queued", phoneNumber, waitMs);
       return true;
-    } else {
-      log.info("Sending SMS to: {}, message length: {}", phoneNumber, message.length());
-
-      try {
-        Message smsMessage =
-            Message.creator(
-                    new PhoneNumber(
-                        phoneNumber.startsWith("+1") ? phoneNumber : "+1" + phoneNumber),
-                    new PhoneNumber(twilioFromNumber),
-                    TruncateString.truncate(message, 1500))
-                .create();
-        recordMessage(jdbi, new MessageResult(smsMessage, message.length()));
-        return true;
-      } catch (Exception e) {
-        log.warn("Failed to send SMS to: {}, with message: {}", phoneNumber, message, e);
-        recordMessage(
-            jdbi,
-            MessageResult.builder()
-                .toNumber(phoneNumber)
-                .messageLength(message.length())
-                .errorMessage(
-                    "Potentially invalid phone number. Failed to send SMS: " + e.getMessage())
-                .build());
-        return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return true;
+    } catch (ExecutionException e) {
+      return false;
+    } finally {
+      waiting.remove(id);
+    }
+  }
+
+  private List<Long> enqueue(List<Sms> messages) {
+    validate(messages);
+    return SmsOutboxDao.enqueue(jdbi, messages);
+  }
+
+  private static void validate(List<Sms> messages) {
+    for (Sms sms : messages) {
+      if (sms.getPhoneNumber() == null || sms.getMessage() == null) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Null input, phoneNumber: %s, message: %s",
+                sms.getPhoneNumber(), sms.getMessage()));
       }
     }
   }
 
+  private void submit(List<Long> outboxIds) {
+    try {
+      executor.execute(
+          () -> send(SmsOutboxDao.claim(jdbi, outboxIds, outboxIds.size(), LEASE_SECONDS)));
+    } catch (RejectedExecutionException e) {
+      log.warn("Shutting down, SMS messages remain queued: {}", outboxIds);
+    }
+  }
+
+  /** Sends messages that are due: retries, and messages left in the outbox by a previous run. */
+  @Scheduled(fixedDelay = SEND_DUE_INTERVAL_MS, initialDelay = SEND_DUE_INTERVAL_MS)
+  void sendDue() {
+    long now = System.currentTimeMillis();
+    nextSendTime.values().removeIf(next -> next < now);
+
+    if (!sendingDue.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      executor.execute(
+          () -> {
+            try {
+              List<SmsOutboxDao.OutboxMessage> claimed;
+              do {
+                claimed = SmsOutboxDao.claim(jdbi, null, CLAIM_LIMIT, LEASE_SECONDS);
+                send(claimed);
+              } while (claimed.size() == CLAIM_LIMIT);
+            } finally {
+              sendingDue.set(false);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      sendingDue.set(false);
+    }
+  }
+
+  /** Sends claimed messages concurrently, then records all the results at once. */
+  private void send(List<SmsOutboxDao.OutboxMessage> claimed) {
+    if (claimed.isEmpty()) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    List<Callable<SmsOutboxDao.Completed>> attempts = new ArrayList<>();
+    for (SmsOutboxDao.OutboxMessage message : claimed) {
+      long sendAt = reserveSendTime(message.getNumber(), now);
+      if (sendAt - now > MAX_RATE_LIMIT_WAIT_MS) {
+        SmsOutboxDao.release(jdbi, List.of(message.getId()), sendAt - now);
+      } else {
+        attempts.add(() -> attempt(message, sendAt));
+      }
+    }
+
+    List<SmsOutboxDao.Completed> completed = new ArrayList<>();
+    try {
+      for (Future<SmsOutboxDao.Completed> result : executor.invokeAll(attempts)) {
+        completed.add(result.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      // not expected, 'attempt' does not throw. Unrecorded messages are sent again later.
+      log.error("Unexpected error sending SMS messages", e);
+    }
+    SmsOutboxDao.complete(jdbi, completed);
+
+    for (SmsOutboxDao.Completed c : completed) {
+      if (c.getOutcome() != SmsTransport.Outcome.RETRY) {
+        CompletableFuture<Boolean> result = waiting.remove(c.getId());
+        if (result != null) {
+          result.complete(c.getOutcome() == SmsTransport.Outcome.SENT);
+        }
+      }
+    }
+  }
+
+  /** Returns when the next message to a number may be sent, and reserves that time. */
+  private long reserveSendTime(String phoneNumber, long now) {
+    long[] sendAt = new long[1];
+    nextSendTime.compute(
+        phoneNumber,
+        (_, next) -> {
+          sendAt[0] = next == null ? now : Math.max(now, next);
+          return sendAt[0] + minIntervalPerNumberMs;
+        });
+    return sendAt[0];
+  }
+
+  private SmsOutboxDao.Completed attempt(SmsOutboxDao.OutboxMessage message, long sendAt)
+      throws InterruptedException {
+    long delay = sendAt - System.currentTimeMillis();
+    if (delay > 0) {
+      Thread.sleep(delay);
+    }
+
+    SmsTransport.Attempt attempt;
+    sendPermits.acquire();
+    try {
+      attempt = transport.send(message.getNumber(), message.getMessage());
+    } catch (RuntimeException e) {
+      log.warn("Unexpected error sending SMS to: {}", message.getNumber(), e);
+      attempt =
+          new SmsTransport.Attempt(
+              SmsTransport.Outcome.RETRY,
+              MessageResult.builder()
+                  .toNumber(message.getNumber())
+                  .messageLength(message.getMessage().length())
+                  .errorMessage("Failed to send SMS: " + e.getMessage())
+                  .build());
+    } finally {
+      sendPermits.release();
+    }
+
+    SmsTransport.Outcome outcome = attempt.getOutcome();
+    long retryDelayMs = 0;
+    if (outcome == SmsTransport.Outcome.RETRY) {
+      if (message.getAttempts() >= maxAttempts) {
+        log.error(
+            "Giving up sending SMS to: {}, after {} attempts",
+            message.getNumber(),
+            message.getAttempts());
+        outcome = SmsTransport.Outcome.FAILED;
+      } else {
+        retryDelayMs = backoffMs * (1L << (message.getAttempts() - 1));
+      }
+    }
+    return new SmsOutboxDao.Completed(message.getId(), outcome, attempt.getResult(), retryDelayMs);
+  }
+
+  /** Waits briefly for messages being sent, anything not sent stays in the outbox. */
+  @PreDestroy
+  void shutdown() throws InterruptedException {
+    executor.shutdown();
+    if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+      log.warn("SMS sender shut down with messages still being sent");
+      executor.shutdownNow();
+    }
+  }
+
   @Builder
   @AllArgsConstructor
   @lombok.Value
@@ -109,24 +384,4 @@ public class SmsSender {
       errorMessage = smsMessage.getErrorMessage();
     }
   }
-
-  // @VisibleForTesting
-  static void recordMessage(Jdbi jdbi, MessageResult result) {
-    String insert =
-        """
-        insert into sms_send_history(number, message_length, success, message_link, error_code, error_message)
-        values(:number, :messageLength, :success, :messageLink, :errorCode, :errorMessage)
-        """;
-    jdbi.withHandle(
-        handle ->
-            handle
-                .createUpdate(insert)
-                .bind("number", result.getToNumber())
-                .bind("messageLength", result.getMessageLength())
-                .bind("success", result.isSuccess())
-                .bind("messageLink", result.getMessageLink())
-                .bind("errorCode", result.getErrorCode())
-                .bind("errorMessage", result.getErrorMessage())
-                .execute());
-  }
 }
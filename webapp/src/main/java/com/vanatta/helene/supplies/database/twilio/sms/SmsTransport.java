@@ -0,0 +1,22 @@
+package com.vanatta.helene.supplies.database.twilio.sms;
+
+/** Sends one SMS message, implemented by Twilio (and by stubs in tests). */
+interface SmsTransport {
+
+  enum Outcome {
+    SENT,
+    /** Failed, but may succeed later (eg: Twilio is down or rate limiting us). */
+    RETRY,
+    FAILED,
+  }
+
+  @lombok.Value
+  class Attempt {
+    Outcome outcome;
+
+    /** Recorded to 'sms_send_history'. */
+    SmsSender.MessageResult result;
+  }
+
+  Attempt send(String phoneNumber, String message);
+}
@@ -0,0 +1,67 @@
+package com.vanatta.helene.supplies.database.twilio.sms;
+
+import com.twilio.Twilio;
+import com.twilio.exception.ApiConnectionException;
+import com.twilio.exception.ApiException;
+import com.twilio.rest.api.v2010.account.Message;
+import com.twilio.type.PhoneNumber;
+import com.vanatta.helene.supplies.database.util.TruncateString;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+class TwilioSmsTransport implements SmsTransport {
+
+  private final String twilioFromNumber;
+
+  TwilioSmsTransport(String twilioFromNumber, String twilioAccountSid, String twilioAuthToken) {
+    this.twilioFromNumber = twilioFromNumber;
+    Twilio.init(twilioAccountSid, twilioAuthToken);
+  }
+
+  @Override
+  public Attempt send(String phoneNumber, String message) {
+    log.info("Sending SMS to: {}, message length: {}", phoneNumber, message.length());
+    try {
+      Message smsMessage =
+          Message.creator(
+                  new PhoneNumber(phoneNumber.startsWith("+1") ? phoneNumber : "+1" + phoneNumber),
+                  new PhoneNumber(twilioFromNumber),
+                  TruncateString.truncate(message, 1500))
+              .create();
+      return new Attempt(Outcome.SENT, new SmsSender.MessageResult(smsMessage, message.length()));
+    } catch (ApiConnectionException e) {
+      log.warn("Failed to connect to Twilio sending SMS to: {}", phoneNumber, e);
+      return new Attempt(
+          Outcome.RETRY, failure(phoneNumber, message, "Failed to connect: " + e.getMessage()));
+    } catch (ApiException e) {
+      Integer status = e.getStatusCode();
+      if (status != null && (status == 429 || status >= 500)) {
+        log.warn("Twilio error sending SMS to: {}, status: {}", phoneNumber, status, e);
+        return new Attempt(
+            Outcome.RETRY, failure(phoneNumber, message, "Twilio error: " + e.getMessage()));
+      }
+      return invalidNumber(phoneNumber, message, e);
+    } catch (Exception e) {
+      return invalidNumber(phoneNumber, message, e);
+    }
+  }
+
+  private static Attempt invalidNumber(String phoneNumber, String message, Exception e) {
+    log.warn("Failed to send SMS to: {}, with message: {}", phoneNumber, message, e);
+    return new Attempt(
+        Outcome.FAILED,
+        failure(
+            phoneNumber,
+            message,
+            "Potentially invalid phone number. Failed to send SMS: " + e.getMessage()));
+  }
+
+  private static SmsSender.MessageResult failure(
+      String phoneNumber, String message, String errorMessage) {
+    return SmsSender.MessageResult.builder()
+        .toNumber(phoneNumber)
+        .messageLength(message.length())
+        .errorMessage(errorMessage)
+        .build();
+  }
+}
@@ -0,0 +1,98 @@
+package com.vanatta.helene.supplies.database.util;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+/**
+ * Runs tasks on virtual threads, copying over the MDC of the calling thread. Used by {@link
+ * OutboundDispatcher}.
+ *
+ * <p>At most 'maxActive' tasks run at a time, further tasks wait for a running task to finish. At
+ * most 'maxPending' tasks are running or waiting. Beyond that, or once shut down, a task is run on
+ * the calling thread instead, which slows down the caller rather than dropping the task.
+ */
+@Slf4j
+class BoundedVirtualThreadExecutor {
+  private final String name;
+  private final int maxPending;
+  private final Semaphore permits;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  private final AtomicInteger pending = new AtomicInteger(0);
+
+  BoundedVirtualThreadExecutor(String name, int maxActive, int maxPending) {
+    this.name = name;
+    this.permits = new Semaphore(maxActive);
+    this.maxPending = maxPending;
+  }
+
+  void execute(Runnable task) {
+    if (pending.incrementAndGet() > maxPending) {
+      pending.decrementAndGet();
+      log.warn("{} queue is full ({}), running task on calling thread", name, maxPending);
+      runTask(task);
+      return;
+    }
+
+    final Map<String, String> mdcCopy = MDC.getCopyOfContextMap();
+    try {
+      executor.execute(
+          () -> {
+            try {
+              if (mdcCopy != null) {
+                MDC.setContextMap(mdcCopy);
+              }
+              permits.acquire();
+              try {
+                runTask(task);
+              } finally {
+                permits.release();
+              }
+            } catch (InterruptedException e) {
+              log.warn("{} interrupted while waiting to run task", name);
+            } finally {
+              pending.decrementAndGet();
+              MDC.clear();
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      // we are shutting down
+      pending.decrementAndGet();
+      runTask(task);
+    }
+  }
+
+  private void runTask(Runnable task) {
+    try {
+      task.run();
+    } catch (RuntimeException e) {
+      log.error("{} task failed", name, e);
+    }
+  }
+
+  /** Tasks that are running or waiting to run. */
+  int pending() {
+    return pending.get();
+  }
+
+  /**
+   * Stops accepting tasks and waits up to 'timeout' for queued and running tasks to finish. Returns
+   * false if tasks were still running, they are then interrupted.
+   */
+  boolean shutdown(Duration timeout) throws InterruptedException {
+    executor.shutdown();
+    if (executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+      return true;
+    }
+    executor.shutdownNow();
+    return false;
+  }
+}
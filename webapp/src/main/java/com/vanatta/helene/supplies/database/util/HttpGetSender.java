@@ -1,9 +1,7 @@
 package com.vanatta.helene.supplies.database.util;
 
-import com.google.gson.Gson;
 import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.util.Map;
@@ -13,7 +11,6 @@ import lombok.extern.slf4j.Slf4j;
 /** Utility class for sending HTTP POST messages. */
 @Slf4j
 public class HttpGetSender {
-
   // @VisibleForTesting
   static String buildUrl(String url, Map<String, String> params) {
     if (url == null) {
@@ -38,23 +35,22 @@ public class HttpGetSender {
 
     var uri = URI.create(buildUrl(url, params));
     log.info("Sending get request to uri: {}", uri);
-    try (var client = HttpClient.newHttpClient()) {
-      var request = HttpRequest.newBuilder(uri).GET().build();
+    var request =
+        HttpRequest.newBuilder(uri).GET().timeout(SharedHttpClient.REQUEST_TIMEOUT).build();
 
-      try {
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-          log.info("Response success: 200, response length: {}", response.body().length());
-        } else {
-          log.error(
-              "Failed, bad response received: {}, {}", response.statusCode(), response.body());
-        }
-        log.debug("raw response: {}", response.body());
-        return new Gson().fromJson(response.body(), responseClass);
-      } catch (IOException | InterruptedException e) {
-        log.error("Failed to send data to URL: {}", url, e);
-        throw new RuntimeException(e);
+    try {
+      HttpResponse<String> response =
+          SharedHttpClient.get().send(request, HttpResponse.BodyHandlers.ofString());
+      if (response.statusCode() == 200) {
+        log.info("Response success: 200, response length: {}", response.body().length());
+      } else {
+        log.error("Failed, bad response received: {}, {}", response.statusCode(), response.body());
       }
+      log.debug("raw response: {}", response.body());
+      return JsonCodec.fromJson(response.body(), responseClass);
+    } catch (IOException | InterruptedException e) {
+      log.error("Failed to send data to URL: {}", url, e);
+      throw new RuntimeException(e);
     }
   }
 }
@@ -0,0 +1,101 @@
+package com.vanatta.helene.supplies.database.util;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.Strictness;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+
+/**
+ * The Gson instances used to read and write JSON. Gson builds the type adapter of a class by
+ * reflection the first time it sees the class, and caches it per Gson instance. A new Gson per call
+ * repeats that work on every call.
+ *
+ * <p>Webhook payloads look up their adapter once, when the payload class is loaded, with {@link
+ * #adapter(Class)}, and are read from the request body reader with {@link #fromJson(Reader,
+ * TypeAdapter)} without first copying the body into a String.
+ */
+public class JsonCodec {
+  private static final Gson gson = new Gson();
+
+  /** For output that lists every field, null or not. */
+  private static final Gson gsonWithNulls = gson.newBuilder().serializeNulls().create();
+
+  /** Returns the (cached) type adapter of a class, building it now if this is the first use. */
+  public static <T> TypeAdapter<T> adapter(Class<T> type) {
+    return gson.getAdapter(type);
+  }
+
+  public static String toJson(Object value) {
+    return gson.toJson(value);
+  }
+
+  /** Writes 'value' to 'writer', null fields are written as null rather than left out. */
+  public static <T> void writeWithNulls(JsonWriter writer, T value, Class<T> type) {
+    gsonWithNulls.toJson(value, type, writer);
+  }
+
+  /** Same as {@link #fromJson(Reader, TypeAdapter)}, null if 'json' is null. */
+  public static <T> T fromJson(String json, Class<T> type) {
+    return fromJson(json, adapter(type));
+  }
+
+  /** Same as {@link #fromJson(Reader, TypeAdapter)}, null if 'json' is null. */
+  public static <T> T fromJson(String json, TypeAdapter<T> adapter) {
+    return json == null ? null : fromJson(new StringReader(json), adapter);
+  }
+
+  /**
+   * Reads a request body, same as {@link #fromJson(Reader, TypeAdapter)} except that an empty body
+   * is not valid.
+   */
+  public static <T> T readBody(Reader body, TypeAdapter<T> adapter) {
+    T value = fromJson(body, adapter);
+    if (value == null) {
+      throw new IllegalArgumentException("Invalid request, empty body");
+    }
+    return value;
+  }
+
+  /**
+   * Reads a JSON document, leniently like {@link Gson#fromJson(Reader, Class)}.
+   *
+   * @return Null if the document is empty.
+   * @throws IllegalArgumentException if the JSON is not valid, or does not match the type.
+   */
+  public static <T> T fromJson(Reader reader, TypeAdapter<T> adapter) {
+    JsonReader jsonReader = gson.newJsonReader(reader);
+    jsonReader.setStrictness(Strictness.LENIENT);
+    try {
+      if (isEmpty(jsonReader)) {
+        return null;
+      }
+      T value = adapter.read(jsonReader);
+      if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+        throw new IllegalArgumentException("Invalid JSON, document was not fully consumed");
+      }
+      return value;
+    } catch (EOFException | MalformedJsonException | JsonParseException | IllegalStateException e) {
+      throw new IllegalArgumentException("Invalid JSON: " + e.getMessage(), e);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read JSON", e);
+    }
+  }
+
+  private static boolean isEmpty(JsonReader jsonReader) throws IOException {
+    try {
+      jsonReader.peek();
+      return false;
+    } catch (EOFException e) {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package com.vanatta.helene.supplies.database.util;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends outgoing webhook messages (to Make & Airtable) in the background, using the shared HTTP
+ * client.
+ *
+ * <p>Messages are sent from virtual threads. The number of queued and in-flight messages is bounded
+ * by 'maxQueueSize', when full a message is sent on the calling thread instead (slowing down the
+ * caller rather than dropping the message). At most 'maxPerDestination' requests are sent to any
+ * one host at a time. Connection errors, 429 and 5xx responses are retried with exponential
+ * backoff.
+ */
+@Slf4j
+@Component
+public class OutboundDispatcher {
+  private static final int LOG_STATS_INTERVAL_MS = 5 * 60 * 1000;
+
+  private final int maxQueueSize;
+  private final int maxPerDestination;
+  private final int maxAttempts;
+  private final long backoffMs;
+
+  private final BoundedVirtualThreadExecutor executor;
+  private final Map<String, Semaphore> destinationPermits = new ConcurrentHashMap<>();
+
+  private final AtomicLong sentCount = new AtomicLong(0);
+  private final AtomicLong failedCount = new AtomicLong(0);
+  private final AtomicLong retryCount = new AtomicLong(0);
+  private final AtomicLong totalLatencyMs = new AtomicLong(0);
+  private final AtomicLong maxLatencyMs = new AtomicLong(0);
+  private long lastLoggedCount = 0;
+
+  OutboundDispatcher(
+      @Value("${outbound.max.queue}") int maxQueueSize,
+      @Value("${outbound.max.per.destination}") int maxPerDestination,
+      @Value("${outbound.max.attempts}") int maxAttempts,
+      @Value("${outbound.backoff.ms}") long backoffMs) {
+    this.maxQueueSize = maxQueueSize;
+    this.maxPerDestination = maxPerDestination;
+    this.maxAttempts = maxAttempts;
+    this.backoffMs = backoffMs;
+    // no limit on messages in flight, the per destination limits apply when sending
+    this.executor =
+        new BoundedVirtualThreadExecutor("Outbound dispatcher", Integer.MAX_VALUE, maxQueueSize);
+  }
+
+  /** Converts 'payload' to JSON (on the calling thread) and sends it in the background. */
+  public void send(String url, Object payload) {
+    sendJson(url, JsonCodec.toJson(payload));
+  }
+
+  /**
+   * Builds the payload in the background (for example when it is looked up from the database), and
+   * then sends it. If building the payload fails, the message is counted as failed.
+   */
+  public void sendLater(String url, Supplier<?> payload) {
+    final long enqueueTime = System.nanoTime();
+    executor.execute(
+        () -> {
+          String json;
+          try {
+            json = JsonCodec.toJson(payload.get());
+          } catch (RuntimeException e) {
+            failedCount.incrementAndGet();
+            log.error("Failed to build message to URL: {}, not sent", url, e);
+            return;
+          }
+          deliver(url, json, enqueueTime);
+        });
+  }
+
+  /** Sends a message already formatted as JSON in the background. */
+  public void sendJson(String url, String json) {
+    final long enqueueTime = System.nanoTime();
+    executor.execute(() -> deliver(url, json, enqueueTime));
+  }
+
+  /**
+   * Sends on the calling thread (with retries). For messages that must be received before any
+   * message that is sent after them. Returns true if the message was sent.
+   */
+  public boolean sendNow(String url, Object payload) {
+    return deliver(url, JsonCodec.toJson(payload), System.nanoTime());
+  }
+
+  private enum Outcome {
+    SENT,
+    RETRY,
+    FAILED
+  }
+
+  private boolean deliver(String url, String json, long enqueueTime) {
+    Semaphore permits =
+        destinationPermits.computeIfAbsent(destination(url), _ -> new Semaphore(maxPerDestination));
+    Outcome outcome = Outcome.RETRY;
+    try {
+      for (int attempt = 1; attempt <= maxAttempts && outcome == Outcome.RETRY; attempt++) {
+        if (attempt > 1) {
+          retryCount.incrementAndGet();
+          Thread.sleep(backoffMs * (1L << (attempt - 2)));
+        }
+        permits.acquire();
+        try {
+          outcome = attemptSend(url, json, attempt);
+        } finally {
+          permits.release();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.warn("Interrupted while sending JSON: {}, to URL: {}", json, url);
+    }
+
+    if (outcome == Outcome.SENT) {
+      sentCount.incrementAndGet();
+      long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueueTime);
+      totalLatencyMs.addAndGet(latencyMs);
+      maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+      return true;
+    } else {
+      failedCount.incrementAndGet();
+      log.error("Failed to send JSON: {}, to URL: {}, giving up", json, url);
+      return false;
+    }
+  }
+
+  private static Outcome attemptSend(String url, String json, int attempt) {
+    try {
+      HttpResponse<String> response = HttpPostSender.postJson(url, json);
+      int status = response.statusCode();
+      if (status >= 200 && status < 300) {
+        log.info("Successfully sent to url: {}, JSON: {}", url, json);
+        return Outcome.SENT;
+      }
+      log.warn(
+          "Bad response sending to URL: {}, attempt: {}, response: {}, {}",
+          url,
+          attempt,
+          status,
+          response.body());
+      return status == 429 || status >= 500 ? Outcome.RETRY : Outcome.FAILED;
+    } catch (IOException e) {
+      log.warn("Error sending to URL: {}, attempt: {}", url, attempt, e);
+      return Outcome.RETRY;
+    } catch (IllegalArgumentException e) {
+      log.error("Invalid URL: {}", url, e);
+      return Outcome.FAILED;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Outcome.FAILED;
+    }
+  }
+
+  /** Concurrency limits are per host. */
+  private static String destination(String url) {
+    try {
+      String host = URI.create(url).getHost();
+      return host == null ? url : host;
+    } catch (IllegalArgumentException e) {
+      return url;
+    }
+  }
+
+  @Builder
+  @lombok.Value
+  public static class Stats {
+    int queueDepth;
+    long sent;
+    long failed;
+    long retries;
+    long averageLatencyMs;
+    long maxLatencyMs;
+  }
+
+  public Stats stats() {
+    long sent = sentCount.get();
+    return Stats.builder()
+        .queueDepth(executor.pending())
+        .sent(sent)
+        .failed(failedCount.get())
+        .retries(retryCount.get())
+        .averageLatencyMs(sent == 0 ? 0 : totalLatencyMs.get() / sent)
+        .maxLatencyMs(maxLatencyMs.get())
+        .build();
+  }
+
+  @Scheduled(fixedDelay = LOG_STATS_INTERVAL_MS, initialDelay = LOG_STATS_INTERVAL_MS)
+  void logStats() {
+    Stats stats = stats();
+    long count = stats.getSent() + stats.getFailed();
+    if (count != lastLoggedCount || stats.getQueueDepth() > 0) {
+      lastLoggedCount = count;
+      log.info("Outbound dispatcher stats: {}", stats);
+    }
+  }
+
+  /** Waits briefly for queued messages to be sent before shutting down. */
+  @PreDestroy
+  void shutdown() throws InterruptedException {
+    if (!executor.shutdown(Duration.ofSeconds(30))) {
+      log.warn("Outbound dispatcher shut down with {} messages unsent", executor.pending());
+    }
+  }
+}
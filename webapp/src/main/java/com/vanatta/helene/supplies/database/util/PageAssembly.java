@@ -0,0 +1,180 @@
+package com.vanatta.helene.supplies.database.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+/**
+ * Loads the independent sections of a page concurrently, each on its own virtual thread, against
+ * one deadline for the whole page. At most 'maxConcurrent' sections load at a time, the rest wait
+ * their turn, so a page holds at most that many database connections.
+ *
+ * <pre>
+ * try (var page = PageAssembly.withDeadline(Duration.ofSeconds(2), 2)) {
+ *   var site = page.load("site", () -> SiteDao.lookup(jdbi, id));
+ *   var matches = page.load("matches", () -> MatchDao.lookup(jdbi, id));
+ *   render(site.get(), matches.getOrElse(List.of()));
+ * }
+ * </pre>
+ *
+ * <p>Required sections are read with {@link Section#get()}, which fails the page if the section
+ * fails or misses the deadline. Optional sections are read with {@link Section#getOrElse(Object)},
+ * the page is rendered without them if they fail or are too slow.
+ *
+ * <p>Closing the page interrupts sections that are still loading (for example those that missed
+ * the deadline), so they do not keep holding a database connection after the page is rendered.
+ * A virtual thread interrupted in socket I/O has its socket closed, the connection pool then
+ * replaces that connection.
+ */
+@Slf4j
+public class PageAssembly implements AutoCloseable {
+  private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  private final long deadlineNanos;
+  private final Semaphore permits;
+  private final List<Section<?>> sections = new ArrayList<>();
+  private volatile boolean closed = false;
+
+  private PageAssembly(Duration deadline, int maxConcurrent) {
+    this.deadlineNanos = System.nanoTime() + deadline.toNanos();
+    this.permits = new Semaphore(maxConcurrent);
+  }
+
+  public static PageAssembly withDeadline(Duration deadline, int maxConcurrent) {
+    if (maxConcurrent < 1) {
+      throw new IllegalArgumentException("maxConcurrent must be at least 1: " + maxConcurrent);
+    }
+    return new PageAssembly(deadline, maxConcurrent);
+  }
+
+  /** Starts loading a section of the page. */
+  public <T> Section<T> load(String name, Supplier<T> loader) {
+    final Map<String, String> mdcCopy = MDC.getCopyOfContextMap();
+    final AtomicReference<Thread> loadingThread = new AtomicReference<>();
+    CompletableFuture<T> future =
+        CompletableFuture.supplyAsync(
+            () -> {
+              if (mdcCopy != null) {
+                MDC.setContextMap(mdcCopy);
+              }
+              try {
+                acquirePermit(name);
+                try {
+                  loadingThread.set(Thread.currentThread());
+                  if (closed) {
+                    throw new CancellationException("Page closed before loading section: " + name);
+                  }
+                  return loader.get();
+                } finally {
+                  loadingThread.set(null);
+                  permits.release();
+                }
+              } finally {
+                MDC.clear();
+              }
+            },
+            executor);
+    Section<T> section = new Section<>(name, future, loadingThread);
+    sections.add(section);
+    return section;
+  }
+
+  public class Section<T> {
+    private final String name;
+    private final CompletableFuture<T> future;
+
+    /** Set while the loader runs. */
+    private final AtomicReference<Thread> loadingThread;
+
+    private Section(
+        String name, CompletableFuture<T> future, AtomicReference<Thread> loadingThread) {
+      this.name = name;
+      this.future = future;
+      this.loadingThread = loadingThread;
+    }
+
+    private void cancel() {
+      if (future.cancel(false)) {
+        Thread thread = loadingThread.get();
+        if (thread != null) {
+          thread.interrupt();
+        }
+      }
+    }
+
+    /** Waits for the section, throws if it fails or is not loaded by the page deadline. */
+    public T get() {
+      try {
+        return future.get(remainingNanos(), TimeUnit.NANOSECONDS);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+          throw runtimeException;
+        }
+        throw new IllegalStateException("Failed to load page section: " + name, e.getCause());
+      } catch (TimeoutException e) {
+        throw new IllegalStateException("Timed out loading page section: " + name, e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted loading page section: " + name, e);
+      }
+    }
+
+    /**
+     * Waits for the section, returns 'fallback' if the section fails or is not loaded by the page
+     * deadline.
+     */
+    public T getOrElse(T fallback) {
+      try {
+        return future.get(remainingNanos(), TimeUnit.NANOSECONDS);
+      } catch (ExecutionException e) {
+        log.warn("Failed to load page section: {}, rendering page without it", name, e.getCause());
+        return fallback;
+      } catch (TimeoutException e) {
+        log.warn("Timed out loading page section: {}, rendering page without it", name);
+        return fallback;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return fallback;
+      }
+    }
+  }
+
+  /** Waits for a turn to load, gives up at the deadline. */
+  private void acquirePermit(String name) {
+    try {
+      if (!permits.tryAcquire(remainingNanos(), TimeUnit.NANOSECONDS)) {
+        throw new IllegalStateException("Timed out waiting to load page section: " + name);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting to load page section: " + name, e);
+    }
+  }
+
+  private long remainingNanos() {
+    return Math.max(0, deadlineNanos - System.nanoTime());
+  }
+
+  /**
+   * Cancels the sections that have not finished. Sections still waiting for their turn are not
+   * loaded, sections still loading are interrupted.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    sections.forEach(Section::cancel);
+  }
+}
@@ -0,0 +1,24 @@
+package com.vanatta.helene.supplies.database.util;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * One HTTP client shared by all outgoing requests (webhooks, Google APIs). The client holds a
+ * connection pool, creating a client per request would mean a new connection (and TLS handshake)
+ * for every request.
+ */
+public class SharedHttpClient {
+  public static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+  private static final HttpClient client =
+      HttpClient.newBuilder()
+          .version(HttpClient.Version.HTTP_2)
+          .connectTimeout(Duration.ofSeconds(10))
+          .followRedirects(HttpClient.Redirect.NORMAL)
+          .build();
+
+  public static HttpClient get() {
+    return client;
+  }
+}
@@ -1,23 +0,0 @@
-package com.vanatta.helene.supplies.database.util;
-
-import java.util.Map;
-import org.slf4j.MDC;
-
-/** Util to run new threads and copy over MDC to the new thread. */
-public class ThreadRunner {
-
-  public static void run(Runnable runnable) {
-    final Map<String, String> mdcCopy = MDC.getCopyOfContextMap();
-
-    new Thread(
-            () -> {
-              try {
-                MDC.setContextMap(mdcCopy);
-                runnable.run();
-              } finally {
-                MDC.clear();
-              }
-            })
-        .start();
-  }
-}
@@ -0,0 +1,95 @@
+package com.vanatta.helene.supplies.database.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Lock-free token bucket rate limiter, keyed by string (eg: phone number, IP address).
+ *
+ * <p>Buckets live in a fixed array of stripes, each key hashes to one stripe. Keys that land on
+ * the same stripe share a bucket, so the stripe count should be well above the number of keys that
+ * are active at once. In exchange memory use is fixed and there is nothing to evict.
+ *
+ * <p>A bucket is a single long: the time at which the bucket will be full again. Taking a token
+ * moves that time forward by one refill interval, a token is available as long as that time is
+ * less than 'capacity' refill intervals ahead of now. (This is the 'generic cell rate algorithm'
+ * form of a token bucket.) Updates are a compare-and-set on the stripe, rejecting a request is a
+ * read and a comparison.
+ */
+public class TokenBucketRateLimiter {
+
+  private final AtomicLongArray buckets;
+  private final int stripeMask;
+  private final long refillIntervalNanos;
+  private final long capacityNanos;
+  private final LongSupplier clock;
+  private final long startNanos;
+
+  private final AtomicLong allowedCount = new AtomicLong(0);
+  private final AtomicLong rejectedCount = new AtomicLong(0);
+
+  /**
+   * @param capacity Max number of requests that can be made at once (bucket size).
+   * @param refillPerMinute How many tokens are added back to the bucket per minute.
+   * @param stripes Number of buckets, rounded up to a power of two.
+   */
+  public TokenBucketRateLimiter(int capacity, int refillPerMinute, int stripes) {
+    this(capacity, refillPerMinute, stripes, System::nanoTime);
+  }
+
+  // @VisibleForTesting
+  TokenBucketRateLimiter(int capacity, int refillPerMinute, int stripes, LongSupplier clock) {
+    if (capacity < 1 || refillPerMinute < 1 || stripes < 1) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Invalid rate limit, capacity: %s, refill per minute: %s, stripes: %s",
+              capacity, refillPerMinute, stripes));
+    }
+    int stripeCount = Integer.highestOneBit(stripes - 1) << 1;
+    this.buckets = new AtomicLongArray(Math.max(stripeCount, 1));
+    this.stripeMask = buckets.length() - 1;
+    this.refillIntervalNanos = TimeUnit.MINUTES.toNanos(1) / refillPerMinute;
+    this.capacityNanos = refillIntervalNanos * capacity;
+    this.clock = clock;
+    this.startNanos = clock.getAsLong();
+  }
+
+  /** Takes a token from the bucket of 'key', returns false if the bucket is empty. */
+  public boolean tryAcquire(String key) {
+    int stripe = stripe(key);
+    // time since start, buckets start out at 0 (full)
+    long now = clock.getAsLong() - startNanos;
+    while (true) {
+      long fullAt = buckets.get(stripe);
+      long newFullAt = Math.max(fullAt, now) + refillIntervalNanos;
+      if (newFullAt - now > capacityNanos) {
+        rejectedCount.incrementAndGet();
+        return false;
+      }
+      if (buckets.compareAndSet(stripe, fullAt, newFullAt)) {
+        allowedCount.incrementAndGet();
+        return true;
+      }
+    }
+  }
+
+  private int stripe(String key) {
+    int hash = key.hashCode();
+    return (hash ^ (hash >>> 16)) & stripeMask;
+  }
+
+  @Builder
+  @Value
+  public static class Stats {
+    long allowed;
+    long rejected;
+  }
+
+  public Stats stats() {
+    return Stats.builder().allowed(allowedCount.get()).rejected(rejectedCount.get()).build();
+  }
+}
@@ -0,0 +1,89 @@
+package com.vanatta.helene.supplies.database.util;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Small in-memory cache where entries expire after a fixed time, or a time that depends on the
+ * value. Bounded, least recently used entries are evicted first.
+ *
+ * <p>Values are loaded outside of the cache lock, two threads missing on the same key at the same
+ * time may both load it. A value that was being loaded when the cache was invalidated is returned
+ * to its caller but not cached.
+ */
+public class TtlCache<K, V> {
+  private record CacheEntry<V>(V value, long expiresAt) {}
+
+  private final Function<? super V, Duration> ttl;
+  private final LongSupplier clock;
+  private final Map<K, CacheEntry<V>> cache;
+
+  /** Incremented on every invalidation, guarded by 'cache'. */
+  private long generation = 0;
+
+  public TtlCache(int maxSize, Duration ttl) {
+    this(maxSize, value -> ttl, System::currentTimeMillis);
+  }
+
+  /** Entries expire after 'ttl' of their value, eg: to cache misses for less time than hits. */
+  public TtlCache(int maxSize, Function<? super V, Duration> ttl) {
+    this(maxSize, ttl, System::currentTimeMillis);
+  }
+
+  // @VisibleForTesting
+  TtlCache(int maxSize, Duration ttl, LongSupplier clock) {
+    this(maxSize, value -> ttl, clock);
+  }
+
+  // @VisibleForTesting
+  TtlCache(int maxSize, Function<? super V, Duration> ttl, LongSupplier clock) {
+    this.ttl = ttl;
+    this.clock = clock;
+    this.cache =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  /** Returns the cached value of 'key', or loads and caches it if missing or expired. */
+  public V get(K key, Function<K, V> loader) {
+    long now = clock.getAsLong();
+    long loadGeneration;
+    synchronized (cache) {
+      CacheEntry<V> entry = cache.get(key);
+      if (entry != null && entry.expiresAt() > now) {
+        return entry.value();
+      }
+      loadGeneration = generation;
+    }
+
+    V value = loader.apply(key);
+    long expiresAt = now + ttl.apply(value).toMillis();
+    synchronized (cache) {
+      if (generation == loadGeneration) {
+        cache.put(key, new CacheEntry<>(value, expiresAt));
+      }
+    }
+    return value;
+  }
+
+  public void invalidate(K key) {
+    synchronized (cache) {
+      generation++;
+      cache.remove(key);
+    }
+  }
+
+  public void invalidateAll() {
+    synchronized (cache) {
+      generation++;
+      cache.clear();
+    }
+  }
+}
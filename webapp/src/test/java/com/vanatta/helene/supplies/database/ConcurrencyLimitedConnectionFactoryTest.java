@@ -0,0 +1,94 @@
+package com.vanatta.helene.supplies.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimitedConnectionFactoryTest {
+
+  /** A data source with unlimited connections, connections do nothing. */
+  private static final DataSource stubDataSource =
+      (DataSource)
+          Proxy.newProxyInstance(
+              DataSource.class.getClassLoader(),
+              new Class<?>[] {DataSource.class},
+              (proxy, method, args) ->
+                  method.getName().equals("getConnection")
+                      ? Proxy.newProxyInstance(
+                          Connection.class.getClassLoader(),
+                          new Class<?>[] {Connection.class},
+                          (p, m, a) -> null)
+                      : null);
+
+  @Test
+  void connectionsAreLimited() throws Exception {
+    var factory = new ConcurrencyLimitedConnectionFactory(stubDataSource, 1, 1, 10, 50);
+
+    Connection first = factory.openConnection();
+    Assertions.assertThrows(
+        ConcurrencyLimitedConnectionFactory.DatabaseBusyException.class, factory::openConnection);
+
+    // once closed, a connection can be opened again
+    factory.closeConnection(first);
+    factory.closeConnection(factory.openConnection());
+  }
+
+  /**
+   * A thread holding a connection opens more without a permit, also beyond 'maxPerThread' (that is
+   * only logged).
+   */
+  @Test
+  void nestedConnectionsDoNotTakePermits() throws Exception {
+    var factory = new ConcurrencyLimitedConnectionFactory(stubDataSource, 1, 2, 10, 50);
+
+    Connection first = factory.openConnection();
+    Connection nested = factory.openConnection();
+    Connection deeper = factory.openConnection();
+
+    // the permit is released once the thread's last connection is closed
+    factory.closeConnection(deeper);
+    factory.closeConnection(nested);
+    factory.closeConnection(first);
+    factory.closeConnection(factory.openConnection());
+  }
+
+  @Test
+  void waitingThreadGetsConnectionWhenReleased() throws Exception {
+    var factory = new ConcurrencyLimitedConnectionFactory(stubDataSource, 1, 1, 10, 5_000);
+    Connection first = factory.openConnection();
+
+    CountDownLatch opened = new CountDownLatch(1);
+    Thread.ofVirtual()
+        .start(
+            () -> {
+              try {
+                factory.closeConnection(factory.openConnection());
+                opened.countDown();
+              } catch (Exception e) {
+                throw new RuntimeException(e);
+              }
+            });
+    assertThat(opened.await(50, TimeUnit.MILLISECONDS)).isFalse();
+
+    factory.closeConnection(first);
+    assertThat(opened.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  /** When too many threads are already waiting, fail right away. */
+  @Test
+  void tooManyWaiting() throws Exception {
+    var factory = new ConcurrencyLimitedConnectionFactory(stubDataSource, 1, 1, 0, 5_000);
+    factory.openConnection();
+
+    long start = System.currentTimeMillis();
+    Assertions.assertThrows(
+        ConcurrencyLimitedConnectionFactory.DatabaseBusyException.class, factory::openConnection);
+    assertThat(System.currentTimeMillis() - start).isLessThan(1_000);
+  }
+}
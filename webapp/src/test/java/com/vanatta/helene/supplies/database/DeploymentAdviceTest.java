@@ -9,17 +9,31 @@ import org.junit.jupiter.params.provider.CsvSource;
 
 class DeploymentAdviceTest {
 
+  private final DeploymentRegistry deploymentRegistry = new DeploymentRegistry(jdbiTest);
+
   @ParameterizedTest
   @CsvSource({"wnc-supply-sites.com,WNC & Appalachian", "socal-supply-sites.com,SoCal"})
   void getShortNameForHost(String input, String output) {
-    assertThat(DeploymentAdvice.getShortNameForHost(jdbiTest, input)).isEqualTo(output);
+    assertThat(deploymentRegistry.lookupByDomain(input).orElseThrow().getShortName())
+        .isEqualTo(output);
   }
 
   @Test
   void fetchStateListForHost() {
-    assertThat(DeploymentAdvice.fetchStateListForHost(jdbiTest, "wnc-supply-sites.com"))
+    assertThat(deploymentRegistry.lookupByDomain("wnc-supply-sites.com").orElseThrow().getStates())
         .contains("NC", "TN");
-    assertThat(DeploymentAdvice.fetchStateListForHost(jdbiTest, "socal-supply-sites.com"))
+    assertThat(
+            deploymentRegistry.lookupByDomain("socal-supply-sites.com").orElseThrow().getStates())
         .contains("CA");
   }
+
+  @Test
+  void lookupIsCaseInsensitive() {
+    assertThat(deploymentRegistry.lookupByDomain("WNC-Supply-Sites.com")).isPresent();
+  }
+
+  @Test
+  void unknownDomain() {
+    assertThat(deploymentRegistry.lookupByDomain("127.0.0.1")).isEmpty();
+  }
 }
@@ -8,7 +8,8 @@ class DomainNameInterceptorTest {
 
   @Test
   void fetchValidDomains() {
-    var results = DomainNameInterceptor.fetchValidDomains(TestConfiguration.jdbiTest);
+    var results =
+        DomainNameInterceptor.fetchValidDomains(new DeploymentRegistry(TestConfiguration.jdbiTest));
 
     assertThat(results).contains("localhost", "wnc-supply-sites.com", "socal-supply-sites.com");
   }
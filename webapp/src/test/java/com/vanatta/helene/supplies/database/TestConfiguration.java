@@ -1,6 +1,10 @@
 package com.vanatta.helene.supplies.database;
 
+import com.vanatta.helene.supplies.database.auth.AuthTokenCache;
+import com.vanatta.helene.supplies.database.auth.UserPrincipalResolver;
+import com.vanatta.helene.supplies.database.data.ItemDictionary;
 import com.vanatta.helene.supplies.database.data.ItemStatus;
+import com.vanatta.helene.supplies.database.data.SiteDictionary;
 import com.vanatta.helene.supplies.database.data.SiteType;
 import com.vanatta.helene.supplies.database.driver.Driver;
 import com.vanatta.helene.supplies.database.manage.add.site.AddSiteDao;
@@ -46,6 +50,11 @@ public class TestConfiguration {
     try {
       var sql = TestDataFile.TEST_DATA_SCHEMA.readData();
       TestConfiguration.jdbiTest.withHandle(handle -> handle.createScript(sql).execute());
+      // test data re-creates items with new ids
+      ItemDictionary.clear();
+      SiteDictionary.clear();
+      AuthTokenCache.invalidateAll();
+      UserPrincipalResolver.invalidateAll();
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -7,6 +7,8 @@ import com.vanatta.helene.supplies.database.TestConfiguration;
 import com.vanatta.helene.supplies.database.driver.DriverDao;
 import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -21,15 +23,59 @@ class LoginControllerTest {
   @Test
   void registeredPhoneNumbersAreRedirectedToCreatePassword() {
     LoginController loginController =
-        new LoginController(TestConfiguration.jdbiTest, "", "", false);
+        new LoginController(
+            TestConfiguration.jdbiTest,
+            "",
+            "",
+            false,
+            AuthRateLimiter.unlimited(),
+            new LoginHistoryRecorder(TestConfiguration.jdbiTest));
 
     DriverDao.upsert(jdbiTest, TestConfiguration.buildDriver(-555999L, "987 345 6789"));
 
     MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
     params.put("user", List.of("987 345 6789"));
     params.put("password", List.of("a guess"));
-    ModelAndView modelAndView = loginController.doLogin(params, new MockHttpServletResponse());
+    ModelAndView modelAndView =
+        loginController.doLogin(
+            params, new MockHttpServletRequest(), new MockHttpServletResponse());
 
     assertThat(modelAndView.getViewName()).isEqualTo("redirect:/login/setup-password");
   }
+
+  /** Logins with names that are not phone numbers are not all limited as one account. */
+  @Test
+  void junkLoginsDoNotLimitOtherUsers() {
+    LoginController loginController =
+        new LoginController(
+            TestConfiguration.jdbiTest,
+            "universal",
+            "secret",
+            true,
+            new AuthRateLimiter(100, 100, 1, 1),
+            new LoginHistoryRecorder(TestConfiguration.jdbiTest));
+
+    // uses up the one attempt allowed for 'junk'
+    login(loginController, "junk", "a guess");
+    assertThat(login(loginController, " Junk", "a guess").getStatus())
+        .isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+
+    assertThat(login(loginController, "universal", "secret").getViewName())
+        .isEqualTo("redirect:/");
+  }
+
+  @Test
+  void rateLimitAccount() {
+    assertThat(LoginController.rateLimitAccount("(987) 345-6789")).isEqualTo("9873456789");
+    assertThat(LoginController.rateLimitAccount(" Universal ")).isEqualTo("user:universal");
+    assertThat(LoginController.rateLimitAccount("  ")).isNull();
+  }
+
+  private static ModelAndView login(LoginController loginController, String user, String pass) {
+    MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+    params.put("user", List.of(user));
+    params.put("password", List.of(pass));
+    return loginController.doLogin(
+        params, new MockHttpServletRequest(), new MockHttpServletResponse());
+  }
 }
@@ -4,6 +4,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.vanatta.helene.supplies.database.TestConfiguration;
 import com.vanatta.helene.supplies.database.auth.setup.password.SetupPasswordHelper;
+import com.vanatta.helene.supplies.database.auth.user.whitelist.UserWhiteListWebhook;
+import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -48,18 +50,17 @@ class LoginDaoTest {
   }
 
   @Test
-  void loginHistory() {
+  void loginHistoryIsWrittenInBatches() {
     long preCount = Helper.countLoginHistoryRows();
+    var recorder = new LoginHistoryRecorder(TestConfiguration.jdbiTest);
 
-    LoginDao.recordLoginSuccess(TestConfiguration.jdbiTest, "199-199-199-199");
+    recorder.recordSuccess("199-199-199-199");
+    recorder.recordFailure("199-199-199-199");
+    recorder.recordFailure("199-199-199-199");
+    assertThat(Helper.countLoginHistoryRows()).isEqualTo(preCount);
 
-    long postCount = Helper.countLoginHistoryRows();
-    assertThat(postCount).isEqualTo(preCount + 1);
-
-    LoginDao.recordLoginFailure(TestConfiguration.jdbiTest, "199-199-199-199");
-
-    long postFailureCount = Helper.countLoginHistoryRows();
-    assertThat(postFailureCount).isEqualTo(postCount + 1);
+    recorder.flush();
+    assertThat(Helper.countLoginHistoryRows()).isEqualTo(preCount + 3);
   }
 
   @Test
@@ -72,4 +73,37 @@ class LoginDaoTest {
     assertThat(LoginDao.isLoggedIn(TestConfiguration.jdbiTest, token)).isTrue();
     assertThat(LoginDao.isLoggedIn(TestConfiguration.jdbiTest, "wrong value")).isFalse();
   }
+
+  @Test
+  void revokedTokenIsNotLoggedIn() {
+    SetupPasswordHelper.setup();
+    String number = "1113332245";
+    SetupPasswordHelper.withRegisteredNumber(number);
+    String token = LoginDao.generateAuthToken(TestConfiguration.jdbiTest, number);
+    assertThat(LoginDao.isLoggedIn(TestConfiguration.jdbiTest, token)).isTrue();
+
+    LoginDao.revokeAuthToken(TestConfiguration.jdbiTest, token);
+
+    assertThat(LoginDao.isLoggedIn(TestConfiguration.jdbiTest, token)).isFalse();
+  }
+
+  /** Tokens of a removed user are no longer valid, even when the token is cached as valid. */
+  @Test
+  void removedUserIsNotLoggedIn() {
+    SetupPasswordHelper.setup();
+    String number = "1113332246";
+    SetupPasswordHelper.withRegisteredNumber(number);
+    String token = LoginDao.generateAuthToken(TestConfiguration.jdbiTest, number);
+    assertThat(LoginDao.isLoggedIn(TestConfiguration.jdbiTest, token)).isTrue();
+
+    UserWhiteListWebhook.upsertUser(
+        TestConfiguration.jdbiTest,
+        UserWhiteListWebhook.UserWhiteListRequest.builder()
+            .phoneNumber(number)
+            .removed(true)
+            .roles(List.of())
+            .build());
+
+    assertThat(LoginDao.isLoggedIn(TestConfiguration.jdbiTest, token)).isFalse();
+  }
 }
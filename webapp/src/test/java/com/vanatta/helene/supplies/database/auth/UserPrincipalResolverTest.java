@@ -0,0 +1,64 @@
+package com.vanatta.helene.supplies.database.auth;
+
+import static com.vanatta.helene.supplies.database.TestConfiguration.jdbiTest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.vanatta.helene.supplies.database.TestConfiguration;
+import com.vanatta.helene.supplies.database.auth.setup.password.SetupPasswordHelper;
+import com.vanatta.helene.supplies.database.driver.DriverDao;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class UserPrincipalResolverTest {
+
+  String number = "3334442255";
+  String token;
+  UserPrincipalResolver userPrincipalResolver;
+
+  @BeforeEach
+  void setup() {
+    SetupPasswordHelper.setup();
+    TestConfiguration.setupDatabase();
+    SetupPasswordHelper.withRegisteredNumber(number);
+    token = LoginDao.generateAuthToken(jdbiTest, number);
+    userPrincipalResolver = new UserPrincipalResolver(jdbiTest);
+  }
+
+  private static MockHttpServletRequest requestWithAuth(String authToken) {
+    var request = new MockHttpServletRequest();
+    request.setCookies(new Cookie("auth", authToken));
+    return request;
+  }
+
+  @Test
+  void noAuthCookie() {
+    assertThat(userPrincipalResolver.resolve(new MockHttpServletRequest())).isEmpty();
+  }
+
+  @Test
+  void invalidAuthCookie() {
+    assertThat(userPrincipalResolver.resolve(requestWithAuth("bad token"))).isEmpty();
+  }
+
+  @Test
+  void resolvesPrincipal() {
+    var principal = userPrincipalResolver.resolve(requestWithAuth(token)).orElseThrow();
+
+    assertThat(principal.getPhoneNumber()).isEqualTo(number);
+    assertThat(principal.getRoles()).containsExactly(UserRole.AUTHORIZED);
+    assertThat(principal.getSiteIds()).isEmpty();
+  }
+
+  /** Role changes made through the DAOs invalidate cached principals. */
+  @Test
+  void roleChangesInvalidateCache() {
+    userPrincipalResolver.resolve(requestWithAuth(token));
+
+    DriverDao.upsert(jdbiTest, TestConfiguration.buildDriver(-605L, number));
+
+    assertThat(userPrincipalResolver.resolve(requestWithAuth(token)).orElseThrow().getRoles())
+        .containsExactly(UserRole.AUTHORIZED, UserRole.DRIVER);
+  }
+}
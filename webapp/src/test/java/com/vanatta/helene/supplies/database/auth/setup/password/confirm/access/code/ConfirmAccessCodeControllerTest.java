@@ -3,10 +3,12 @@ package com.vanatta.helene.supplies.database.auth.setup.password.confirm.access.
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.vanatta.helene.supplies.database.TestConfiguration;
+import com.vanatta.helene.supplies.database.auth.AuthRateLimiter;
 import com.vanatta.helene.supplies.database.auth.setup.password.SetupPasswordHelper;
 import com.vanatta.helene.supplies.database.auth.setup.password.send.access.code.SendAccessTokenDao;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
 
 class ConfirmAccessCodeControllerTest {
   static final String jsonInput =
@@ -14,7 +16,8 @@ class ConfirmAccessCodeControllerTest {
       {"confirmCode":"557603","csrf":"1a24abcd-029f-49fe-8d76-af1c4b93bc28"}
       """;
   ConfirmAccessCodeController controller =
-      new ConfirmAccessCodeController(TestConfiguration.jdbiTest, () -> "validation token");
+      new ConfirmAccessCodeController(
+          TestConfiguration.jdbiTest, AuthRateLimiter.unlimited(), () -> "validation token");
 
   @BeforeEach
   void cleanDb() {
@@ -92,7 +95,7 @@ class ConfirmAccessCodeControllerTest {
             .csrfToken("1a24abcd-029f-49fe-8d76-af1c4b93bc28")
             .build());
 
-    var response = controller.confirmAccessCode(jsonInput);
+    var response = controller.confirmAccessCode(jsonInput, new MockHttpServletRequest());
     assertThat(response.getStatusCode().value()).isEqualTo(200);
     assertThat(response.getBody().getError()).isNull();
     assertThat(response.getBody().getValidationToken()).isEqualTo("validation token");
@@ -114,7 +117,7 @@ class ConfirmAccessCodeControllerTest {
             .csrfToken("1a24abcd-029f-49fe-8d76-af1c4b93bc28")
             .build());
 
-    var response = controller.confirmAccessCode(jsonInput);
+    var response = controller.confirmAccessCode(jsonInput, new MockHttpServletRequest());
     assertThat(response.getStatusCode().value()).isEqualTo(401);
     assertThat(response.getBody().getError()).isNotNull();
     assertThat(response.getBody().getValidationToken()).isNull();
@@ -132,7 +135,7 @@ class ConfirmAccessCodeControllerTest {
             .csrfToken("some other value")
             .build());
 
-    var response = controller.confirmAccessCode(jsonInput);
+    var response = controller.confirmAccessCode(jsonInput, new MockHttpServletRequest());
     assertThat(response.getStatusCode().value()).isEqualTo(401);
     assertThat(response.getBody().getError()).isNotNull();
     assertThat(response.getBody().getValidationToken()).isNull();
@@ -4,6 +4,7 @@ import static com.vanatta.helene.supplies.database.TestConfiguration.jdbiTest;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.vanatta.helene.supplies.database.TestConfiguration;
+import com.vanatta.helene.supplies.database.auth.AuthRateLimiter;
 import com.vanatta.helene.supplies.database.auth.setup.password.SetupPasswordHelper;
 import com.vanatta.helene.supplies.database.manage.ManageSiteDao;
 import com.vanatta.helene.supplies.database.twilio.sms.SmsSender;
@@ -11,6 +12,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 
 class SendAccessTokenControllerTest {
 
@@ -27,6 +29,7 @@ class SendAccessTokenControllerTest {
               return accessCode;
             }
           },
+          AuthRateLimiter.unlimited(),
           () -> csrf);
 
   static final String number = "1111111111";
@@ -51,7 +54,7 @@ class SendAccessTokenControllerTest {
   @Test
   void sendAccessCode_case_notRegistered() {
     ResponseEntity<SendAccessTokenController.SendAccessCodeResponse> response =
-        controller.sendAccessCode(input, "wnc-supply-sites.com");
+        controller.sendAccessCode(input, "wnc-supply-sites.com", new MockHttpServletRequest());
     assertThat(response.getStatusCode().value()).isEqualTo(401);
     assertThat(response.getBody().getError()).isNotNull();
     assertThat(response.getBody().getCsrf()).isNull();
@@ -64,7 +67,7 @@ class SendAccessTokenControllerTest {
     int numberOfSmsSendsRow = SetupPasswordHelper.countSendHistoryRecords();
 
     ResponseEntity<SendAccessTokenController.SendAccessCodeResponse> response =
-        controller.sendAccessCode(input, "wnc-supply-sites.com");
+        controller.sendAccessCode(input, "wnc-supply-sites.com", new MockHttpServletRequest());
 
     assertThat(response.getStatusCode().value()).isEqualTo(200);
     assertThat(response.getBody().getError()).isNull();
@@ -89,9 +92,37 @@ class SendAccessTokenControllerTest {
     // now try to register with that phone number
     ResponseEntity<SendAccessTokenController.SendAccessCodeResponse> response =
         controller.sendAccessCode(
-            String.format("{\"number\":\"%s\"}", siteManagerNumber), "wnc-supply-sites.com");
+            String.format("{\"number\":\"%s\"}", siteManagerNumber),
+            "wnc-supply-sites.com",
+            new MockHttpServletRequest());
 
     assertThat(response.getStatusCode().value()).isEqualTo(200);
     assertThat(response.getBody().getError()).isNull();
   }
+
+  /** Once the phone number is out of tokens, no more access codes are sent. */
+  @Test
+  void sendAccessCode_rateLimited() {
+    SetupPasswordHelper.withRegisteredNumber(number);
+    var rateLimitedController =
+        new SendAccessTokenController(
+            SmsSender.newDisabled(jdbiTest),
+            jdbiTest,
+            new AccessTokenGenerator(),
+            new AuthRateLimiter(100, 1, 1, 1),
+            () -> csrf);
+
+    var response =
+        rateLimitedController.sendAccessCode(
+            input, "wnc-supply-sites.com", new MockHttpServletRequest());
+    assertThat(response.getStatusCode().value()).isEqualTo(200);
+    int numberOfSmsSendsRow = SetupPasswordHelper.countSendHistoryRecords();
+
+    response =
+        rateLimitedController.sendAccessCode(
+            input, "wnc-supply-sites.com", new MockHttpServletRequest());
+    assertThat(response.getStatusCode().value()).isEqualTo(429);
+    assertThat(response.getBody().getError()).isNotNull();
+    assertThat(SetupPasswordHelper.countSendHistoryRecords()).isEqualTo(numberOfSmsSendsRow);
+  }
 }
@@ -4,6 +4,7 @@ import static com.vanatta.helene.supplies.database.TestConfiguration.jdbiTest;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.vanatta.helene.supplies.database.auth.UserRole;
+import java.io.StringReader;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -59,7 +60,7 @@ class UserWhiteListWebhookTest {
       """
       })
   void badInputs(String badInput) {
-    var response = webhook.whiteListUser(badInput);
+    var response = webhook.whiteListUser(new StringReader(badInput));
     assertThat(response.getStatusCode().value()).isEqualTo(400);
   }
 
@@ -69,7 +70,7 @@ class UserWhiteListWebhookTest {
    */
   @Test
   void whiteListUser() {
-    var response = webhook.whiteListUser(input);
+    var response = webhook.whiteListUser(new StringReader(input));
     assertThat(response.getStatusCode().value()).isEqualTo(200);
     List<String> roles = lookupRoles("9995554444");
     assertThat(roles).contains("SITE_MANAGER", "DATA_ADMIN");
@@ -85,7 +86,7 @@ class UserWhiteListWebhookTest {
             """,
             role.name());
 
-    var response = webhook.whiteListUser(input);
+    var response = webhook.whiteListUser(new StringReader(input));
     assertThat(response.getStatusCode().value()).isEqualTo(200);
     List<String> roles = lookupRoles("9995554444");
     assertThat(roles).containsExactly(role.name());
@@ -119,7 +120,7 @@ class UserWhiteListWebhookTest {
     """;
 
     // white list user with 2 roles
-    webhook.whiteListUser(input);
+    webhook.whiteListUser(new StringReader(input));
 
     // white list user again, overwriting all roles.
     input =
@@ -127,7 +128,7 @@ class UserWhiteListWebhookTest {
        {"name":"test","phoneNumber":"9995554444","roles":["DATA_ADMIN", "DRIVER"]}
     """;
 
-    var response = webhook.whiteListUser(input);
+    var response = webhook.whiteListUser(new StringReader(input));
     assertThat(response.getStatusCode().value()).isEqualTo(200);
 
     List<String> roles = lookupRoles("9995554444");
@@ -140,13 +141,13 @@ class UserWhiteListWebhookTest {
         """
        {"name":"test","phoneNumber":"9995554444","roles":["DATA_ADMIN", "DRIVER"]}
     """;
-    var response = webhook.whiteListUser(input);
+    var response = webhook.whiteListUser(new StringReader(input));
 
     var update =
         """
        {"name":"test","phoneNumber":"9995554444","roles":["SITE_MANAGER"]}
     """;
-    response = webhook.updateUser(update);
+    response = webhook.updateUser(new StringReader(update));
 
     assertThat(response.getStatusCode().value()).isEqualTo(200);
     List<String> roles = lookupRoles("9995554444");
@@ -159,13 +160,13 @@ class UserWhiteListWebhookTest {
         """
        {"name":"test","phoneNumber":"9995554444","roles":["DATA_ADMIN", "DRIVER"]}
     """;
-    var response = webhook.whiteListUser(input);
+    var response = webhook.whiteListUser(new StringReader(input));
 
     var update =
         """
        {"name":"test","phoneNumber":"9995554444","roles":["DATA_ADMIN", "DRIVER"], "removed": true}
     """;
-    response = webhook.updateUser(update);
+    response = webhook.updateUser(new StringReader(update));
 
     assertThat(response.getStatusCode().value()).isEqualTo(200);
     List<String> roles = lookupRoles("9995554444");
@@ -181,7 +182,7 @@ class UserWhiteListWebhookTest {
        {"name":"test","phoneNumber":"9995554444","roles":["DATA_ADMIN", "DRIVER"]}
     """;
     // we are updating without having first done an insert, user DNE
-    var response = webhook.updateUser(input);
+    var response = webhook.updateUser(new StringReader(input));
     assertThat(response.getStatusCode().value()).isEqualTo(200);
   }
 }
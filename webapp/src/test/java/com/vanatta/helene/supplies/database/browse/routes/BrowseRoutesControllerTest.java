@@ -61,7 +61,12 @@ class BrowseRoutesControllerTest {
   /** Simple check that the browse routes page renders with all of its parameters. */
   @Test
   void validatePageRenders() {
-    var controller = new BrowseRoutesController(TestConfiguration.jdbiTest, "");
+    var controller =
+        new BrowseRoutesController(
+            TestConfiguration.jdbiTest,
+            "",
+            new RouteCandidateGraph(TestConfiguration.jdbiTest, true),
+            30);
 
     ModelAndView modelAndView =
         controller.browseRoutes(null, null, null, List.of(UserRole.DRIVER), List.of("NC"));
@@ -82,6 +87,30 @@ class BrowseRoutesControllerTest {
         .isNotEmpty();
   }
 
+  /** Cached drop downs are refreshed by the next request after a site is added. */
+  @Test
+  void cacheRefreshedAfterSiteChange() {
+    var controller =
+        new BrowseRoutesController(
+            TestConfiguration.jdbiTest,
+            "",
+            new RouteCandidateGraph(TestConfiguration.jdbiTest, true),
+            30);
+    controller.browseRoutes(null, null, null, List.of(UserRole.DRIVER), List.of("NC"));
+
+    String newSite = TestConfiguration.addSite("new");
+    ModelAndView modelAndView =
+        controller.browseRoutes(null, null, null, List.of(UserRole.DRIVER), List.of("NC"));
+
+    @SuppressWarnings("unchecked")
+    var sites =
+        (List<BrowseRoutesController.Site>)
+            modelAndView
+                .getModelMap()
+                .getAttribute(BrowseRoutesController.TemplateParams.siteList.name());
+    assertThat(sites).anyMatch(site -> site.getSiteName().equals(newSite));
+  }
+
   @Test
   void getVolunteerDays() {
     List<String> results = BrowseRoutesController.getVolunteerDays(LocalDate.of(2020, 12, 30));
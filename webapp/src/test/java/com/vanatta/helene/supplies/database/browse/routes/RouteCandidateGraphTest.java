@@ -0,0 +1,156 @@
+package com.vanatta.helene.supplies.database.browse.routes;
+
+import static com.vanatta.helene.supplies.database.TestConfiguration.jdbiTest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.vanatta.helene.supplies.database.TestConfiguration;
+import com.vanatta.helene.supplies.database.data.ItemStatus;
+import com.vanatta.helene.supplies.database.jobs.distance.DistanceDao;
+import com.vanatta.helene.supplies.database.manage.inventory.InventoryDao;
+import com.vanatta.helene.supplies.database.supplies.site.details.NeedsMatchingDao;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class RouteCandidateGraphTest {
+
+  private RouteCandidateGraph graph;
+  private RouteCandidateGraph databaseGraph;
+
+  @BeforeEach
+  void setup() {
+    TestConfiguration.setupDatabase();
+    // new graph after DB reset, otherwise the graph would hold data from a previous test
+    graph = new RouteCandidateGraph(jdbiTest, true);
+    databaseGraph = new RouteCandidateGraph(jdbiTest, false);
+  }
+
+  /** Routes from the graph should be identical to routes computed by database. */
+  @ParameterizedTest
+  @ValueSource(strings = {"", "Watauga, NC", "Buncombe, NC"})
+  void routesMatchDatabase(String county) {
+    // give the routes a distance, otherwise they would not pass route weighting
+    long site1 = TestConfiguration.getSiteId("site1");
+    long site2 = TestConfiguration.getSiteId("site2");
+    DistanceDao.updateDistance(jdbiTest, site1, site2, 5.0, 300);
+
+    String currentCounty = county.isEmpty() ? null : county;
+    assertThat(graph.findRoutes(null, currentCounty, List.of("NC")))
+        .isEqualTo(databaseGraph.findRoutes(null, currentCounty, List.of("NC")));
+    assertThat(graph.findRoutes(TestConfiguration.SITE1_WSS_ID, currentCounty, List.of("NC")))
+        .isEqualTo(
+            databaseGraph.findRoutes(TestConfiguration.SITE1_WSS_ID, currentCounty, List.of("NC")));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"site1", "site2", "site3", "site4"})
+  void needsMatchesMatchDatabase(String siteName) {
+    long siteId = TestConfiguration.getSiteId(siteName);
+
+    assertThat(sorted(graph.findNeedsMatches(siteId, List.of("NC"))))
+        .isEqualTo(sorted(NeedsMatchingDao.fetchNeedsMatches(jdbiTest, siteId, List.of("NC"))));
+  }
+
+  private static List<NeedsMatchingDao.NeedsMatchingDbResult> sorted(
+      List<NeedsMatchingDao.NeedsMatchingDbResult> results) {
+    return results.stream()
+        .sorted(
+            Comparator.comparing(NeedsMatchingDao.NeedsMatchingDbResult::getSiteId)
+                .thenComparing(NeedsMatchingDao.NeedsMatchingDbResult::getItemName))
+        .toList();
+  }
+
+  /** Inventory and distance changes should be reflected without a rebuild. */
+  @Test
+  void changesAreReflected() {
+    String needySite = TestConfiguration.addSite("needs");
+    long needySiteId = TestConfiguration.getSiteId(needySite);
+    String givingSite = TestConfiguration.addSite("gives");
+    long givingSiteId = TestConfiguration.getSiteId(givingSite);
+    Long givingSiteWssId = lookupWssId(givingSiteId);
+
+    // populate the graph before any changes are made
+    assertThat(graph.findRoutes(givingSiteWssId, null, List.of("NC"))).isEmpty();
+
+    InventoryDao.updateSiteItemActive(
+        jdbiTest, needySiteId, "heater", ItemStatus.URGENTLY_NEEDED.getText());
+    InventoryDao.updateSiteItemActive(
+        jdbiTest, givingSiteId, "heater", ItemStatus.OVERSUPPLY.getText());
+    // without a distance the route is not good enough to be listed
+    assertThat(graph.findRoutes(givingSiteWssId, null, List.of("NC"))).isEmpty();
+
+    DistanceDao.updateDistance(jdbiTest, needySiteId, givingSiteId, 10.0, 600);
+    var routes = graph.findRoutes(givingSiteWssId, null, List.of("NC"));
+    assertThat(routes).hasSize(1);
+    assertThat(routes.getFirst().getFromSiteName()).isEqualTo(givingSite);
+    assertThat(routes.getFirst().getToSiteName()).isEqualTo(needySite);
+    assertThat(routes.getFirst().getDistanceMiles()).isEqualTo(10.0);
+
+    InventoryDao.updateItemStatus(jdbiTest, givingSiteId, "heater", ItemStatus.AVAILABLE.getText());
+    assertThat(graph.findRoutes(givingSiteWssId, null, List.of("NC"))).isEmpty();
+  }
+
+  /** Routes are listed highest score first, changing an item weight changes the order. */
+  @Test
+  void routesOrderedByWeight() {
+    String givingSite = TestConfiguration.addSite("gives");
+    long givingSiteId = TestConfiguration.getSiteId(givingSite);
+    String needsHeaterSite = TestConfiguration.addSite("needs heater");
+    long needsHeaterSiteId = TestConfiguration.getSiteId(needsHeaterSite);
+    String needsWaterSite = TestConfiguration.addSite("needs water");
+    long needsWaterSiteId = TestConfiguration.getSiteId(needsWaterSite);
+    Long givingSiteWssId = lookupWssId(givingSiteId);
+
+    InventoryDao.updateSiteItemActive(
+        jdbiTest, givingSiteId, "heater", ItemStatus.OVERSUPPLY.getText());
+    InventoryDao.updateSiteItemActive(
+        jdbiTest, givingSiteId, "water", ItemStatus.OVERSUPPLY.getText());
+    InventoryDao.updateSiteItemActive(
+        jdbiTest, needsHeaterSiteId, "heater", ItemStatus.NEEDED.getText());
+    InventoryDao.updateSiteItemActive(
+        jdbiTest, needsWaterSiteId, "water", ItemStatus.NEEDED.getText());
+    // same distance, routes only differ by the weight of their item
+    DistanceDao.updateDistance(jdbiTest, givingSiteId, needsHeaterSiteId, 10.0, 600);
+    DistanceDao.updateDistance(jdbiTest, givingSiteId, needsWaterSiteId, 10.0, 600);
+
+    setItemWeight("water", 3.0);
+    graph.rebuild();
+    assertThat(routeDestinations(graph, givingSiteWssId))
+        .containsExactly(needsWaterSite, needsHeaterSite);
+    assertThat(routeDestinations(databaseGraph, givingSiteWssId))
+        .containsExactly(needsWaterSite, needsHeaterSite);
+
+    setItemWeight("water", null);
+    setItemWeight("heater", 3.0);
+    graph.rebuild();
+    assertThat(routeDestinations(graph, givingSiteWssId))
+        .containsExactly(needsHeaterSite, needsWaterSite);
+  }
+
+  private static void setItemWeight(String itemName, Double weight) {
+    jdbiTest.useHandle(
+        h ->
+            h.createUpdate("update item set route_weight = :weight where name = :name")
+                .bind("weight", weight)
+                .bind("name", itemName)
+                .execute());
+  }
+
+  private static List<String> routeDestinations(RouteCandidateGraph graph, Long siteWssId) {
+    return graph.findRoutes(siteWssId, null, List.of("NC")).stream()
+        .map(DeliveryOption::getToSiteName)
+        .toList();
+  }
+
+  private static Long lookupWssId(long siteId) {
+    return jdbiTest.withHandle(
+        h ->
+            h.createQuery("select wss_id from site where id = :id")
+                .bind("id", siteId)
+                .mapTo(Long.class)
+                .one());
+  }
+}
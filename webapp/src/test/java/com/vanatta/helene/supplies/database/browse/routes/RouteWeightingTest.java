@@ -1,33 +1,40 @@
 package com.vanatta.helene.supplies.database.browse.routes;
 
+import static com.vanatta.helene.supplies.database.TestConfiguration.jdbiTest;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.google.gson.Gson;
+import com.vanatta.helene.supplies.database.TestConfiguration;
+import com.vanatta.helene.supplies.database.manage.inventory.ItemTagDao;
 import com.vanatta.helene.supplies.database.test.util.TestDataFile;
 import jakarta.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.Builder;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.assertj.core.data.Offset;
 import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
 @Slf4j
 class RouteWeightingTest {
 
+  private static final long WATER_WSS_ID = -40L;
+  private static final long SOAP_WSS_ID = -30L;
+  private static final long GLOVES_WSS_ID = -50L;
+  private static final Offset<Double> within = Offset.offset(0.001);
+
   @Value
   @Builder
   static class WeightingAlgorithm {
     /** 10, 25, 10 -> relatively optimal weights */
     List<Double> weights;
 
-    @Nonnull Function<String, Double> normalWeight;
-    @Nonnull Function<String, Double> urgentWeight;
-    @Nonnull Function<Double, Double> distanceWeight;
+    @Nonnull RouteWeighting routeWeighting;
   }
 
   static List<WeightingAlgorithm> routeWeighting() {
@@ -35,15 +42,10 @@ class RouteWeightingTest {
     for (double normal = 10.0; normal <= 13.0; normal += 3.0) {
       for (double urgent = Math.max(normal, 25.0); urgent <= 30.0; urgent += 3.0) {
         for (double distance = 9.0; distance <= 11.0; distance++) {
-          final double normalWeight = normal;
-          final double urgentWeight = urgent;
-          final double distanceWeight = distance;
           algorithms.add(
               WeightingAlgorithm.builder()
                   .weights(List.of(normal, urgent, distance))
-                  .normalWeight(itemName -> normalWeight)
-                  .urgentWeight(itemName -> urgentWeight)
-                  .distanceWeight(d -> Math.pow(d / distanceWeight, 2))
+                  .routeWeighting(RouteWeighting.withWeights(normal, urgent, distance))
                   .build());
         }
       }
@@ -108,23 +110,14 @@ class RouteWeightingTest {
     List<TrainingData.Delivery> showFails = new ArrayList<>();
 
     for (TrainingData.Delivery delivery : deliveries) {
+      int[] itemOrdinals = new int[delivery.getItems().size()];
+      boolean[] urgent = new boolean[delivery.getItems().size()];
+      for (int i = 0; i < delivery.getItems().size(); i++) {
+        itemOrdinals[i] = RouteWeighting.NO_ORDINAL;
+        urgent[i] = delivery.getItems().get(i).getPriority().equals("URGENT");
+      }
       boolean result =
-          RouteWeighting.filter(
-              RouteWeighting.RouteData.builder()
-                  .distance(delivery.getDistance())
-                  .items(
-                      delivery.getItems().stream()
-                          .map(
-                              i ->
-                                  RouteWeighting.RouteData.Item.builder()
-                                      .name(i.getName())
-                                      .priority(i.getPriority())
-                                      .build())
-                          .toList())
-                  .build(),
-              algorithm.normalWeight,
-              algorithm.urgentWeight,
-              algorithm.distanceWeight);
+          algorithm.routeWeighting.score(itemOrdinals, urgent, delivery.getDistance()) > 0;
 
       if (delivery.isShow() && result) {
         showPassCount++;
@@ -174,6 +167,65 @@ class RouteWeightingTest {
         .isTrue();
   }
 
+  /** Default weights: needed 10, urgently needed 25, distance penalty (distance / 10)^2. */
+  @Test
+  void defaultWeights() {
+    RouteWeighting weighting = RouteWeighting.defaults();
+
+    assertThat(weighting.score(deliveryOption(20.0, "needed", "urgent"))).isCloseTo(31.0, within);
+    // 72 miles with two urgent items is too far
+    assertThat(weighting.score(deliveryOption(72.0, "urgent", "urgent")))
+        .isCloseTo(-1.84, within);
+    // unknown distance is estimated at 100 miles
+    assertThat(weighting.score(deliveryOption(null, "urgent"))).isCloseTo(-75.0, within);
+    assertThat(weighting.filter(deliveryOption(0.0, "urgent"))).isFalse();
+  }
+
+  /** Item weights are loaded per item, or else per tag, and multiply the item status weight. */
+  @Test
+  void itemWeightsFromDatabase() {
+    TestConfiguration.setupDatabase();
+    jdbiTest.useHandle(
+        handle -> {
+          handle.execute("update item set route_weight = 2 where name = 'water'");
+          handle.execute(
+              "insert into item_tag_route_weight(tag_name, route_weight) values ('hygiene', 0.5)");
+        });
+    ItemTagDao.updateDescriptionTags(jdbiTest, SOAP_WSS_ID, List.of("hygiene"));
+    RouteWeighting weighting = RouteWeighting.load(jdbiTest);
+
+    DeliveryOption water = deliveryOption(10.0, WATER_WSS_ID, "needed");
+    assertThat(weighting.score(water)).isCloseTo(19.0, within);
+    DeliveryOption soap = deliveryOption(10.0, SOAP_WSS_ID, "urgent");
+    assertThat(weighting.score(soap)).isCloseTo(11.5, within);
+    // items without a weight of their own are weighted by status only
+    DeliveryOption gloves = deliveryOption(10.0, GLOVES_WSS_ID, "needed");
+    assertThat(weighting.score(gloves)).isCloseTo(9.0, within);
+
+    // encoded routes score the same
+    assertThat(weighting.score(weighting.encode(soap))).isCloseTo(11.5, within);
+  }
+
+  private static DeliveryOption deliveryOption(Double distance, String... urgencies) {
+    DeliveryOption deliveryOption = DeliveryOption.builder().distanceMiles(distance).build();
+    for (String urgency : urgencies) {
+      deliveryOption.addItem(
+          DeliveryOption.Item.builder().name("item").urgencyCssClass(urgency).build());
+    }
+    return deliveryOption;
+  }
+
+  private static DeliveryOption deliveryOption(Double distance, long itemWssId, String urgency) {
+    DeliveryOption deliveryOption = DeliveryOption.builder().distanceMiles(distance).build();
+    deliveryOption.addItem(
+        DeliveryOption.Item.builder()
+            .name("item")
+            .urgencyCssClass(urgency)
+            .wssId(itemWssId)
+            .build());
+    return deliveryOption;
+  }
+
   @Value
   static class TrainingData {
     List<Delivery> deliveries;
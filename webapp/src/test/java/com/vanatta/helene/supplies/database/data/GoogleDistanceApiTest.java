@@ -89,4 +89,65 @@ class GoogleDistanceApiTest {
     assertThat(result.getDistance()).isNull();
     assertThat(result.getDuration()).isNull();
   }
+
+  private static final String matrixResponse =
+      """
+      {
+         "rows" : [
+            {
+               "elements" : [
+                  { "distance" : { "value" : 16093 }, "duration" : { "value" : 600 }, "status" : "OK" },
+                  { "status" : "NOT_FOUND" }
+               ]
+            },
+            {
+               "elements" : [
+                  { "distance" : { "value" : 32187 }, "duration" : { "value" : 1200 }, "status" : "OK" },
+                  { "distance" : { "value" : 48280 }, "duration" : { "value" : 1800 }, "status" : "OK" }
+               ]
+            }
+         ],
+         "status" : "OK"
+      }
+      """;
+
+  /** Every element of a multi origin, multi destination response is parsed. */
+  @Test
+  void matrixResponseParsing() {
+    var result = new Gson().fromJson(matrixResponse, GoogleDistanceApi.GoogleDistanceJson.class);
+
+    assertThat(result.getResponse(0, 0).isValid()).isTrue();
+    assertThat(result.getResponse(0, 0).getDistance()).isEqualTo(10.0);
+    assertThat(result.getResponse(0, 0).getDuration()).isEqualTo(600L);
+
+    assertThat(result.getResponse(0, 1).isValid()).isFalse();
+    assertThat(result.getResponse(0, 1).getDistance()).isNull();
+
+    assertThat(result.getResponse(1, 0).getDistance()).isEqualTo(20.0);
+    assertThat(result.getResponse(1, 1).getDistance()).isEqualTo(30.0);
+    assertThat(result.getResponse(1, 1).getDuration()).isEqualTo(1800L);
+
+    // out of range elements are unknown rather than an error
+    assertThat(result.getResponse(2, 0)).isNull();
+    assertThat(result.isComplete(2, 2)).isTrue();
+    assertThat(result.isComplete(3, 2)).isFalse();
+  }
+
+  private static final String overQueryLimitResponse =
+      """
+      {
+         "error_message" : "You have exceeded your rate-limit for this API.",
+         "rows" : [],
+         "status" : "OVER_QUERY_LIMIT"
+      }
+      """;
+
+  /** A failed request is not complete, its elements are unknown rather than invalid. */
+  @Test
+  void failedRequestParsing() {
+    var result =
+        new Gson().fromJson(overQueryLimitResponse, GoogleDistanceApi.GoogleDistanceJson.class);
+    assertThat(result.isComplete(1, 1)).isFalse();
+    assertThat(result.getResponse(0, 0)).isNull();
+  }
 }
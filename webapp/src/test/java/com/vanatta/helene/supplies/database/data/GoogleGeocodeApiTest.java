@@ -0,0 +1,68 @@
+package com.vanatta.helene.supplies.database.data;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+class GoogleGeocodeApiTest {
+
+  private static final String sampleResponse =
+      """
+      {
+         "results" : [
+            {
+               "formatted_address" : "Mills River, NC 28759, USA",
+               "geometry" : {
+                  "location" : { "lat" : 35.3884, "lng" : -82.5668 },
+                  "location_type" : "APPROXIMATE"
+               }
+            }
+         ],
+         "status" : "OK"
+      }
+      """;
+
+  private static final String notFoundResponse =
+      """
+      {
+         "results" : [],
+         "status" : "ZERO_RESULTS"
+      }
+      """;
+
+  private static final String overQueryLimitResponse =
+      """
+      {
+         "error_message" : "You have exceeded your rate-limit for this API.",
+         "results" : [],
+         "status" : "OVER_QUERY_LIMIT"
+      }
+      """;
+
+  @Test
+  void responseParsing() {
+    var result = new Gson().fromJson(sampleResponse, GoogleGeocodeApi.GoogleGeocodeJson.class);
+    assertThat(result.getStatus()).isEqualTo(GoogleGeocodeApi.GeocodeStatus.OK);
+    var coordinates = result.getCoordinates();
+    assertThat(coordinates).isPresent();
+    assertThat(coordinates.get().getLatitude()).isEqualTo(35.3884);
+    assertThat(coordinates.get().getLongitude()).isEqualTo(-82.5668);
+  }
+
+  @Test
+  void notFoundResponseParsing() {
+    var result = new Gson().fromJson(notFoundResponse, GoogleGeocodeApi.GoogleGeocodeJson.class);
+    assertThat(result.getStatus()).isEqualTo(GoogleGeocodeApi.GeocodeStatus.NOT_FOUND);
+    assertThat(result.getCoordinates()).isEmpty();
+  }
+
+  /** A failed request is not the same as an address that is not found. */
+  @Test
+  void failedResponseParsing() {
+    var result =
+        new Gson().fromJson(overQueryLimitResponse, GoogleGeocodeApi.GoogleGeocodeJson.class);
+    assertThat(result.getStatus()).isEqualTo(GoogleGeocodeApi.GeocodeStatus.FAILED);
+    assertThat(result.getCoordinates()).isEmpty();
+  }
+}
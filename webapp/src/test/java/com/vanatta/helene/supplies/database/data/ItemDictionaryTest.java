@@ -0,0 +1,76 @@
+package com.vanatta.helene.supplies.database.data;
+
+import static com.vanatta.helene.supplies.database.TestConfiguration.jdbiTest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.vanatta.helene.supplies.database.TestConfiguration;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ItemDictionaryTest {
+
+  @BeforeAll
+  static void setup() {
+    TestConfiguration.setupDatabase();
+    ItemDictionary.reload(jdbiTest);
+  }
+
+  @Test
+  void lookupByNameAndWssId() {
+    long waterId =
+        jdbiTest.withHandle(
+            h -> h.createQuery("select id from item where name = 'water'").mapTo(Long.class).one());
+
+    assertThat(ItemDictionary.itemId(jdbiTest, "water")).contains(waterId);
+    assertThat(ItemDictionary.itemIdByWssId(jdbiTest, TestConfiguration.WATER_WSS_ID))
+        .contains(waterId);
+    assertThat(ItemDictionary.itemId(jdbiTest, "does not exist")).isEmpty();
+  }
+
+  /** Items added directly to the database, bypassing the DAOs, are still found. */
+  @Test
+  void itemsNotLoadedAreLookedUp() {
+    var item = TestConfiguration.addItem("dictionary");
+
+    assertThat(ItemDictionary.itemId(jdbiTest, item.getName())).contains(item.getId());
+    assertThat(ItemDictionary.itemIdByWssId(jdbiTest, item.getWssId())).contains(item.getId());
+  }
+
+  @Test
+  void itemsRemoved() {
+    var item = TestConfiguration.addItem("dictionary");
+    assertThat(ItemDictionary.itemId(jdbiTest, item.getName())).isPresent();
+
+    jdbiTest.withHandle(
+        h -> h.createUpdate("delete from item where id = :id").bind("id", item.getId()).execute());
+    ItemDictionary.itemsRemoved(List.of(item.getId()));
+
+    assertThat(ItemDictionary.itemId(jdbiTest, item.getName())).isEmpty();
+  }
+
+  @Test
+  void itemStatusId() {
+    for (ItemStatus status : ItemStatus.values()) {
+      assertThat(ItemDictionary.itemStatusId(jdbiTest, status)).isPositive();
+    }
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> ItemDictionary.itemStatusId(jdbiTest, "bad status"));
+  }
+
+  /** On a cold dictionary, statuses are loaded on the handle of the calling transaction. */
+  @Test
+  void itemStatusIdInTransaction() {
+    long expected = ItemDictionary.itemStatusId(jdbiTest, ItemStatus.AVAILABLE);
+    ItemDictionary.clear();
+    try {
+      long id =
+          jdbiTest.inTransaction(
+              handle -> ItemDictionary.itemStatusId(handle, ItemStatus.AVAILABLE.getText()));
+      assertThat(id).isEqualTo(expected);
+    } finally {
+      ItemDictionary.reload(jdbiTest);
+    }
+  }
+}
@@ -5,6 +5,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.google.gson.Gson;
 import com.vanatta.helene.supplies.database.TestConfiguration;
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -100,4 +101,90 @@ class DeliveryDaoTest {
             .getDeliveryStatus();
     assertThat(status).isEqualTo(DeliveryStatus.DELIVERY_CANCELLED.getAirtableName());
   }
+
+  /** Paging through deliveries one at a time should yield all deliveries, in the same order. */
+  @Test
+  void fetchDeliveriesBySiteIdPaged() {
+    long siteId = TestConfiguration.getSiteId("site3");
+    List<String> allDeliveries =
+        DeliveryDao.fetchDeliveriesBySiteId(jdbiTest, siteId).stream()
+            .map(Delivery::getPublicKey)
+            .toList();
+    assertThat(allDeliveries).hasSizeGreaterThan(1);
+
+    List<String> paged = new ArrayList<>();
+    String cursor = null;
+    do {
+      var page = DeliveryDao.fetchDeliveriesBySiteId(jdbiTest, siteId, 1, cursor);
+      assertThat(page.getDeliveries()).hasSizeLessThanOrEqualTo(1);
+      page.getDeliveries().forEach(d -> paged.add(d.getPublicKey()));
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+
+    assertThat(paged).isEqualTo(allDeliveries);
+  }
+
+  @Test
+  void fetchDeliveriesBySiteIdLimit() {
+    long siteId = TestConfiguration.getSiteId("site3");
+    int total = DeliveryDao.fetchDeliveriesBySiteId(jdbiTest, siteId).size();
+
+    var page = DeliveryDao.fetchDeliveriesBySiteId(jdbiTest, siteId, total, null);
+    assertThat(page.getDeliveries()).hasSize(total);
+    assertThat(page.getNextCursor()).isNull();
+
+    page = DeliveryDao.fetchDeliveriesBySiteId(jdbiTest, siteId, total - 1, null);
+    assertThat(page.getDeliveries()).hasSize(total - 1);
+    assertThat(page.getNextCursor()).isNotNull();
+  }
+
+  /** Items are fetched in batch, each delivery should get its own items. */
+  @Test
+  void itemsAreMatchedToTheirDelivery() {
+    DeliveryUpdate update =
+        new Gson()
+            .fromJson(upsertJson1, DeliveryUpdate.class).toBuilder()
+                .pickupSiteWssId(List.of(SITE1_WSS_ID))
+                .dropOffSiteWssId(List.of(SITE2_WSS_ID))
+                .itemListWssIds(List.of(WATER_WSS_ID, GLOVES_WSS_ID))
+                .itemList(List.of("item without wss id"))
+                .build();
+    DeliveryDao.upsert(jdbiTest, update);
+
+    var withItems =
+        DeliveryDao.fetchDeliveryByPublicKey(jdbiTest, update.getPublicUrlKey()).orElseThrow();
+    assertThat(withItems.getItemList()).containsExactly("gloves", "item without wss id", "water");
+
+    var noItems = DeliveryDao.fetchDeliveryByPublicKey(jdbiTest, "ABCD").orElseThrow();
+    assertThat(noItems.getItemList()).isEmpty();
+  }
+
+  /** Upsert returns the status from before the upsert, items are replaced on every upsert. */
+  @Test
+  void upsertReturnsPreviousStatus() {
+    DeliveryUpdate update =
+        DeliveryUpdate.parseJson(upsertJson2).toBuilder()
+            .deliveryId(96L)
+            .publicUrlKey("ckey")
+            .pickupSiteWssId(List.of(SITE1_WSS_ID))
+            .dropOffSiteWssId(List.of(SITE2_WSS_ID))
+            .itemListWssIds(List.of(WATER_WSS_ID, GLOVES_WSS_ID))
+            .build();
+
+    var result = DeliveryDao.upsert(jdbiTest, update);
+    assertThat(result.getPreviousStatus()).isNull();
+
+    update =
+        update.toBuilder()
+            .deliveryStatus("Delivery Completed")
+            .itemListWssIds(List.of(WATER_WSS_ID))
+            .build();
+    var secondResult = DeliveryDao.upsert(jdbiTest, update);
+    assertThat(secondResult.getDeliveryId()).isEqualTo(result.getDeliveryId());
+    assertThat(secondResult.getPreviousStatus()).isEqualTo("Assigning Driver");
+
+    var delivery = DeliveryDao.fetchDeliveryByPublicKey(jdbiTest, "ckey").orElseThrow();
+    assertThat(delivery.getDeliveryStatus()).isEqualTo("Delivery Completed");
+    assertThat(delivery.getItemList()).containsExactly("water");
+  }
 }
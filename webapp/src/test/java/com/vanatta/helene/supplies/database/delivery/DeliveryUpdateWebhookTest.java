@@ -7,6 +7,7 @@ import com.google.gson.Gson;
 import com.vanatta.helene.supplies.database.TestConfiguration;
 import com.vanatta.helene.supplies.database.supplies.site.details.SiteDetailDao;
 import com.vanatta.helene.supplies.database.test.util.TestDataFile;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
@@ -153,7 +154,7 @@ class DeliveryUpdateWebhookTest {
 
   @Test
   void canUpserSample3() {
-    deliveryUpdateWebhook.upsertDelivery(deliveryInput3);
+    deliveryUpdateWebhook.upsertDelivery(new StringReader(deliveryInput3));
   }
 
   @Test
@@ -189,7 +190,8 @@ class DeliveryUpdateWebhookTest {
         .isEmpty();
 
     // now store the delivery
-    var response = deliveryUpdateWebhook.upsertDelivery(new Gson().toJson(inputData));
+    var response =
+        deliveryUpdateWebhook.upsertDelivery(new StringReader(new Gson().toJson(inputData)));
     assertThat(response.getStatusCode().value()).isEqualTo(200);
 
     // fetch the deliveyr
@@ -244,7 +246,8 @@ class DeliveryUpdateWebhookTest {
             .build();
 
     // now update the delivery that we just inserted
-    response = deliveryUpdateWebhook.upsertDelivery(new Gson().toJson(updatedInput));
+    response =
+        deliveryUpdateWebhook.upsertDelivery(new StringReader(new Gson().toJson(updatedInput)));
     assertThat(response.getStatusCode().value()).isEqualTo(200);
 
     deliveries =
@@ -268,7 +271,7 @@ class DeliveryUpdateWebhookTest {
   void storeDeliveryWithSitesNotInLocalDatabase() {
     var input = TestDataFile.DELIVERY_DATA_JSON.readData();
 
-    var response = deliveryUpdateWebhook.upsertDelivery(input);
+    var response = deliveryUpdateWebhook.upsertDelivery(new StringReader(input));
     assertThat(response.getStatusCode().value()).isEqualTo(200);
 
     var update = DeliveryDao.fetchDeliveryByPublicKey(jdbiTest, "HHHH").orElseThrow();
@@ -9,7 +9,7 @@ import org.junit.jupiter.api.Test;
 
 class SendDeliveryUpdateTest {
   String domain = "http://localhost:8080";
-  SendDeliveryUpdate sendDeliveryUpdate = new SendDeliveryUpdate(jdbiTest, false, "");
+  SendDeliveryUpdate sendDeliveryUpdate = new SendDeliveryUpdate(jdbiTest, false, "", null);
 
   @BeforeEach
   void setup() {
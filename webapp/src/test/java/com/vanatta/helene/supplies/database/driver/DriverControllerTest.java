@@ -23,7 +23,7 @@ class DriverControllerTest {
 
   @Test
   void renderPage() {
-    var modelAndView = driverController.showDriverPortal("123-123-4444");
+    var modelAndView = driverController.showDriverPortal("123-123-4444", null);
     Arrays.stream(DriverController.PageParams.values())
         .forEach(
             param -> assertThat(modelAndView.getModelMap().getAttribute(param.name())).isNotNull());
@@ -49,13 +49,13 @@ class DriverControllerTest {
   void driverLookupWorksWithAnyFormatting() {
     DriverDao.upsert(
         jdbiTest, driver.toBuilder().airtableId(-10_000L).phone("(111) 111-1111").build());
-    var modelAndView = driverController.showDriverPortal("(111) 111-1111");
+    var modelAndView = driverController.showDriverPortal("(111) 111-1111", null);
     assertThat(modelAndView.getViewName()).isEqualTo("driver/portal");
 
-    modelAndView = driverController.showDriverPortal("111.111.1111");
+    modelAndView = driverController.showDriverPortal("111.111.1111", null);
     assertThat(modelAndView.getViewName()).isEqualTo("driver/portal");
 
-    modelAndView = driverController.showDriverPortal("1111111111");
+    modelAndView = driverController.showDriverPortal("1111111111", null);
     assertThat(modelAndView.getViewName()).isEqualTo("driver/portal");
   }
 
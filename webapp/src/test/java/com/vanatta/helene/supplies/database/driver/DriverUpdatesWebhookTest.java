@@ -5,6 +5,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.vanatta.helene.supplies.database.TestConfiguration;
 import com.vanatta.helene.supplies.database.util.PhoneNumberUtil;
+import java.io.StringReader;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -43,7 +44,7 @@ class DriverUpdatesWebhookTest {
   void upsert() {
     var driver = Driver.parseJson(newDriverInput);
 
-    driverUpdatesWebhook.receiveDriverUpdates(newDriverInput);
+    driverUpdatesWebhook.receiveDriverUpdates(new StringReader(newDriverInput));
 
     Driver resultFromDb = DriverDao.lookupByPhone(jdbiTest, driver.getPhone()).orElseThrow();
     assertThat(resultFromDb.getFullName()).isEqualTo(driver.getFullName());
@@ -88,8 +89,8 @@ class DriverUpdatesWebhookTest {
 
   @Test
   void blacklistFalse() {
-    driverUpdatesWebhook.receiveDriverUpdates(newDriverInput);
-    driverUpdatesWebhook.receiveDriveFieldUpdate(blackListFalse);
+    driverUpdatesWebhook.receiveDriverUpdates(new StringReader(newDriverInput));
+    driverUpdatesWebhook.receiveDriveFieldUpdate(new StringReader(blackListFalse));
 
     assertThat(DriverDao.lookupByPhone(jdbiTest, phoneNumber).orElseThrow().isBlacklisted())
         .isFalse();
@@ -97,8 +98,8 @@ class DriverUpdatesWebhookTest {
 
   @Test
   void blacklistTrue() {
-    driverUpdatesWebhook.receiveDriverUpdates(newDriverInput);
-    driverUpdatesWebhook.receiveDriveFieldUpdate(blackListTrue);
+    driverUpdatesWebhook.receiveDriverUpdates(new StringReader(newDriverInput));
+    driverUpdatesWebhook.receiveDriveFieldUpdate(new StringReader(blackListTrue));
 
     assertThat(DriverDao.lookupByPhone(jdbiTest, phoneNumber).orElseThrow().isBlacklisted())
         .isTrue();
@@ -106,24 +107,24 @@ class DriverUpdatesWebhookTest {
 
   @Test
   void activeTrue() {
-    driverUpdatesWebhook.receiveDriverUpdates(newDriverInput);
-    driverUpdatesWebhook.receiveDriveFieldUpdate(activeTrue);
+    driverUpdatesWebhook.receiveDriverUpdates(new StringReader(newDriverInput));
+    driverUpdatesWebhook.receiveDriveFieldUpdate(new StringReader(activeTrue));
 
     assertThat(DriverDao.lookupByPhone(jdbiTest, phoneNumber).orElseThrow().isActive()).isTrue();
   }
 
   @Test
   void activeFalse() {
-    driverUpdatesWebhook.receiveDriverUpdates(newDriverInput);
-    driverUpdatesWebhook.receiveDriveFieldUpdate(activeFalse);
+    driverUpdatesWebhook.receiveDriverUpdates(new StringReader(newDriverInput));
+    driverUpdatesWebhook.receiveDriveFieldUpdate(new StringReader(activeFalse));
 
     assertThat(DriverDao.lookupByPhone(jdbiTest, phoneNumber).orElseThrow().isActive()).isFalse();
   }
 
   @Test
   void setLicensePlateUpdate() {
-    driverUpdatesWebhook.receiveDriverUpdates(newDriverInput);
-    driverUpdatesWebhook.receiveDriveFieldUpdate(licensePlateUpdate);
+    driverUpdatesWebhook.receiveDriverUpdates(new StringReader(newDriverInput));
+    driverUpdatesWebhook.receiveDriveFieldUpdate(new StringReader(licensePlateUpdate));
 
     assertThat(DriverDao.lookupByPhone(jdbiTest, phoneNumber).orElseThrow().getLicensePlates())
         .isEqualTo("XXXX-123");
@@ -131,8 +132,8 @@ class DriverUpdatesWebhookTest {
 
   @Test
   void licensePlateToNull() {
-    driverUpdatesWebhook.receiveDriverUpdates(newDriverInput);
-    driverUpdatesWebhook.receiveDriveFieldUpdate(licensePlateUpdateToNull);
+    driverUpdatesWebhook.receiveDriverUpdates(new StringReader(newDriverInput));
+    driverUpdatesWebhook.receiveDriveFieldUpdate(new StringReader(licensePlateUpdateToNull));
 
     assertThat(DriverDao.lookupByPhone(jdbiTest, phoneNumber).orElseThrow().getLicensePlates())
         .isNull();
@@ -2,12 +2,23 @@ package com.vanatta.helene.supplies.database.export.bulk;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.google.gson.Gson;
 import com.vanatta.helene.supplies.database.TestConfiguration;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 class BulkDataExportControllerTest {
 
+  private final BulkDataExportController bulkDataExportController =
+      new BulkDataExportController(TestConfiguration.jdbiTest);
+
   @BeforeAll
   static void dbSetup() {
     TestConfiguration.setupDatabase();
@@ -15,10 +26,52 @@ class BulkDataExportControllerTest {
 
   @Test
   void bulkDataExport() {
-    var responseData =
-        new BulkDataExportController(TestConfiguration.jdbiTest).exportData().getBody();
+    var responseData = bulkDataExportController.exportData(null).getBody();
 
     assertThat(responseData.getItems()).isNotEmpty();
     assertThat(responseData.getSites()).isNotEmpty();
   }
+
+  @Test
+  void bulkDataExportStateFilter() {
+    var responseData = bulkDataExportController.exportData(List.of("CA")).getBody();
+
+    assertThat(responseData.getSites()).isNotEmpty();
+    assertThat(responseData.getSites()).allMatch(site -> site.getState().equals("CA"));
+  }
+
+  /** Streamed export should be the same data as the non-streamed export. */
+  @Test
+  void streamedExportMatches() throws IOException {
+    var outputStream = new ByteArrayOutputStream();
+    bulkDataExportController.writeExportData(outputStream, null);
+
+    var streamed =
+        new Gson()
+            .fromJson(
+                outputStream.toString(StandardCharsets.UTF_8),
+                BulkDataExportController.ExportDataJson.class);
+    var expected = bulkDataExportController.exportData(null).getBody();
+    assertThat(streamed.getItems()).isEqualTo(expected.getItems());
+    assertThat(streamed.getSites()).containsExactlyInAnyOrderElementsOf(expected.getSites());
+  }
+
+  @Test
+  void streamedExportGzip() throws IOException {
+    var response = bulkDataExportController.exportDataStream(List.of("NC"), "gzip, deflate");
+    assertThat(response.getHeaders().getFirst("Content-Encoding")).isEqualTo("gzip");
+
+    var outputStream = new ByteArrayOutputStream();
+    response.getBody().writeTo(outputStream);
+
+    try (var reader =
+        new InputStreamReader(
+            new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray())),
+            StandardCharsets.UTF_8)) {
+      var result = new Gson().fromJson(reader, BulkDataExportController.ExportDataJson.class);
+      assertThat(result.getItems()).isNotEmpty();
+      assertThat(result.getSites()).isNotEmpty();
+      assertThat(result.getSites()).allMatch(site -> site.getState().equals("NC"));
+    }
+  }
 }
@@ -3,6 +3,8 @@ package com.vanatta.helene.supplies.database.export.bulk;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.vanatta.helene.supplies.database.TestConfiguration;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -18,4 +20,16 @@ class BulkDataExportDaoTest {
     assertThat(BulkDataExportDao.getAllItems(TestConfiguration.jdbiTest)).isNotEmpty();
     assertThat(BulkDataExportDao.fetchAllSites(TestConfiguration.jdbiTest)).isNotEmpty();
   }
+
+  /** Paging through sites returns every site once, same as reading them all at once. */
+  @Test
+  void streamAllSitesInPages() {
+    var expected = BulkDataExportDao.fetchAllSites(TestConfiguration.jdbiTest);
+    assertThat(expected.size()).isGreaterThan(2);
+
+    List<BulkDataExportDao.SiteExportJson> streamed = new ArrayList<>();
+    BulkDataExportDao.streamAllSites(TestConfiguration.jdbiTest, null, 2, streamed::add);
+
+    assertThat(streamed).containsExactlyElementsOf(expected);
+  }
 }
@@ -0,0 +1,93 @@
+package com.vanatta.helene.supplies.database.export.bulk;
+
+import static com.vanatta.helene.supplies.database.TestConfiguration.jdbiTest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.vanatta.helene.supplies.database.TestConfiguration;
+import com.vanatta.helene.supplies.database.manage.ManageSiteDao;
+import com.vanatta.helene.supplies.database.manage.inventory.InventoryDao;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ChangeFeedDaoTest {
+
+  @BeforeEach
+  void setup() {
+    TestConfiguration.setupDatabase();
+  }
+
+  /** Pages through all existing changes, returns the cursor at the end of the feed. */
+  private static ChangeFeedDao.Cursor endOfFeed() {
+    var cursor = ChangeFeedDao.Cursor.START;
+    ChangeFeedDao.ChangePage page;
+    do {
+      page = ChangeFeedDao.fetchChanges(jdbiTest, cursor, 100);
+      cursor = page.getNextCursor();
+    } while (page.isHasMore());
+    return cursor;
+  }
+
+  @Test
+  void changesSinceCursor() {
+    var cursor = endOfFeed();
+    String siteName = TestConfiguration.addSite();
+    long siteId = TestConfiguration.getSiteId(siteName);
+
+    ManageSiteDao.updateSiteField(
+        jdbiTest, siteId, ManageSiteDao.SiteField.CONTACT_NAME, "new contact");
+    InventoryDao.updateSiteItemAudit(jdbiTest, siteId, "water", "active", "inactive");
+
+    var page = ChangeFeedDao.fetchChanges(jdbiTest, cursor, 100);
+    assertThat(page.isHasMore()).isFalse();
+    assertThat(page.getChanges()).hasSize(2);
+
+    var siteChange = page.getChanges().get(0);
+    assertThat(siteChange.getType()).isEqualTo(ChangeFeedDao.ChangeType.SITE);
+    assertThat(siteChange.getSiteName()).isEqualTo(siteName);
+    assertThat(siteChange.getField()).isEqualTo("contact_name");
+    assertThat(siteChange.getNewValue()).isEqualTo("new contact");
+
+    var inventoryChange = page.getChanges().get(1);
+    assertThat(inventoryChange.getType()).isEqualTo(ChangeFeedDao.ChangeType.INVENTORY);
+    assertThat(inventoryChange.getField()).isEqualTo("water");
+    assertThat(inventoryChange.getNewValue()).isEqualTo("inactive");
+
+    // once caught up, there are no more changes
+    var next = ChangeFeedDao.fetchChanges(jdbiTest, page.getNextCursor(), 100);
+    assertThat(next.getChanges()).isEmpty();
+    assertThat(next.getNextCursor()).isEqualTo(page.getNextCursor());
+  }
+
+  /** Paging one change at a time returns the same changes, in the same order. */
+  @Test
+  void paging() {
+    var cursor = endOfFeed();
+    long siteId = TestConfiguration.getSiteId("site1");
+    ManageSiteDao.updateSiteField(jdbiTest, siteId, ManageSiteDao.SiteField.WEBSITE, "a.com");
+    InventoryDao.updateSiteItemAudit(jdbiTest, siteId, "water", "active", "inactive");
+    ManageSiteDao.updateSiteField(jdbiTest, siteId, ManageSiteDao.SiteField.WEBSITE, "b.com");
+
+    var all = ChangeFeedDao.fetchChanges(jdbiTest, cursor, 100).getChanges();
+    assertThat(all).hasSize(3);
+
+    for (int i = 0; i < all.size(); i++) {
+      var page = ChangeFeedDao.fetchChanges(jdbiTest, cursor, 1);
+      assertThat(page.getChanges()).containsExactly(all.get(i));
+      assertThat(page.isHasMore()).isEqualTo(i < all.size() - 1);
+      cursor = page.getNextCursor();
+    }
+  }
+
+  @Test
+  void cursorToken() {
+    var cursor = new ChangeFeedDao.Cursor(1001, 12, 1002, 345);
+    assertThat(ChangeFeedDao.Cursor.parse(cursor.toToken())).isEqualTo(cursor);
+    assertThat(ChangeFeedDao.Cursor.parse(null)).isEqualTo(ChangeFeedDao.Cursor.START);
+
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> ChangeFeedDao.Cursor.parse("garbage"));
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> ChangeFeedDao.Cursor.parse("12-345"));
+  }
+}
@@ -7,6 +7,7 @@ import com.vanatta.helene.supplies.database.TestConfiguration;
 import com.vanatta.helene.supplies.database.manage.ManageSiteDao.ItemTagData;
 import com.vanatta.helene.supplies.database.manage.inventory.InventoryDao;
 import com.vanatta.helene.supplies.database.manage.inventory.ItemTagDao;
+import java.io.StringReader;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
@@ -55,7 +56,7 @@ class ItemCategoryWebhookTest {
       {"wssId":%s,"tags":["Work", "Construction"]}
       """,
             TestConfiguration.GLOVES_WSS_ID);
-    var response = itemCategoryWebhook.updateItemTags(input);
+    var response = itemCategoryWebhook.updateItemTags(new StringReader(input));
     assertThat(response.getStatusCode().value()).isEqualTo(200);
 
     assertThat(ItemTagDao.fetchAllDescriptionTags(jdbiTest)).contains("Work", "Construction");
@@ -82,7 +83,7 @@ class ItemCategoryWebhookTest {
       {"wssId":%s,"tags":["Work", "Construction"]}
       """,
             TestConfiguration.GLOVES_WSS_ID);
-    var response = itemCategoryWebhook.updateItemTags(input);
+    var response = itemCategoryWebhook.updateItemTags(new StringReader(input));
     assertThat(response.getStatusCode().value()).isEqualTo(200);
 
     /* We now overwrite the tag 'Work' with 'New Tag' */
@@ -92,7 +93,7 @@ class ItemCategoryWebhookTest {
       {"wssId":%s,"tags":["New Tag", "Construction"]}
       """,
             TestConfiguration.GLOVES_WSS_ID);
-    response = itemCategoryWebhook.updateItemTags(input);
+    response = itemCategoryWebhook.updateItemTags(new StringReader(input));
     assertThat(response.getStatusCode().value()).isEqualTo(200);
 
     var results = InventoryDao.fetchSiteInventory(jdbiTest, TestConfiguration.getSiteId());
@@ -120,7 +121,7 @@ class ItemCategoryWebhookTest {
       {"wssId":%s,"tags":["Orphan", "Construction"]}
       """,
             TestConfiguration.GLOVES_WSS_ID);
-    var response = itemCategoryWebhook.updateItemTags(input);
+    var response = itemCategoryWebhook.updateItemTags(new StringReader(input));
     assertThat(response.getStatusCode().value()).isEqualTo(200);
 
     String updatedTags =
@@ -129,7 +130,7 @@ class ItemCategoryWebhookTest {
       {"wssId":%s,"tags":["Construction"]}
       """,
             TestConfiguration.GLOVES_WSS_ID);
-    response = itemCategoryWebhook.updateItemTags(updatedTags);
+    response = itemCategoryWebhook.updateItemTags(new StringReader(updatedTags));
     assertThat(response.getStatusCode().value()).isEqualTo(200);
 
     assertThat(ItemTagDao.fetchAllDescriptionTags(jdbiTest)).doesNotContain("Orphan");
@@ -6,6 +6,7 @@ import com.vanatta.helene.supplies.database.TestConfiguration;
 import com.vanatta.helene.supplies.database.data.ItemStatus;
 import com.vanatta.helene.supplies.database.data.SiteType;
 import com.vanatta.helene.supplies.database.supplies.site.details.SiteDetailDao;
+import java.io.StringReader;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -23,7 +24,7 @@ class NeedsMatchingControllerTest {
           """;
       NeedsMatchingController controller =
           new NeedsMatchingController(TestConfiguration.jdbiTest, false, "");
-      ResponseEntity<String> response = controller.addSuppliesToDelivery(input);
+      ResponseEntity<String> response = controller.addSuppliesToDelivery(new StringReader(input));
       assertThat(response.getStatusCode().value()).isEqualTo(200);
     }
   }
@@ -2,11 +2,23 @@ package com.vanatta.helene.supplies.database.jobs.distance;
 
 import static org.assertj.core.api.Assertions.*;
 
+import com.sun.net.httpserver.HttpServer;
 import com.vanatta.helene.supplies.database.TestConfiguration;
 import com.vanatta.helene.supplies.database.data.GoogleDistanceApi;
+import com.vanatta.helene.supplies.database.data.GoogleGeocodeApi;
 import com.vanatta.helene.supplies.database.data.SiteAddress;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 class DistanceCalculatorTest {
@@ -69,4 +81,313 @@ class DistanceCalculatorTest {
         DistanceDao.queryDistance(TestConfiguration.jdbiTest, site2Id, site4Id);
     assertThat(result).isEmpty();
   }
+
+  /**
+   * Sites are geocoded with site4 far away from the others. Pairs with site4 are too far apart (in
+   * a straight line) and should not be sent for a road distance computation.
+   */
+  @Test
+  void farApartSitesAreSkipped() {
+    String geocodeSql =
+        """
+        update site set latitude = 35.6, longitude = -82.5, geocode_valid = true;
+        update site set latitude = 45.6 where name = 'site4';
+        """;
+    TestConfiguration.jdbiTest.withHandle(handle -> handle.createScript(geocodeSql).execute());
+    TestConfiguration.addSite();
+
+    AtomicInteger queryCount = new AtomicInteger(0);
+    DistanceCalculator calculator =
+        new DistanceCalculator(
+            TestConfiguration.jdbiTest,
+            new GoogleDistanceApi("") {
+              @Override
+              public GoogleDistanceResponse queryDistance(SiteAddress from, SiteAddress to) {
+                queryCount.incrementAndGet();
+                return GoogleDistanceResponse.builder()
+                    .distance(10.0)
+                    .duration(600L)
+                    .valid(true)
+                    .build();
+              }
+            },
+            null,
+            true,
+            0,
+            false,
+            100,
+            150.0);
+    calculator.calculateDistances();
+
+    long site1Id = TestConfiguration.getSiteId("site1");
+    long site4Id = TestConfiguration.getSiteId("site4");
+    var pending = DistanceDao.fetchUncalculatedPairs(TestConfiguration.jdbiTest);
+    assertThat(pending).isNotEmpty();
+    assertThat(pending)
+        .allMatch(pair -> pair.getSiteId1() == site4Id || pair.getSiteId2() == site4Id);
+    assertThat(queryCount.get()).isGreaterThan(0);
+    assertThat(DistanceDao.queryDistance(TestConfiguration.jdbiTest, site1Id, site4Id)).isEmpty();
+  }
+
+  /** Returns the given status for every address, counting the requests. */
+  private static GoogleGeocodeApi stubGeocoder(
+      GoogleGeocodeApi.GeocodeStatus status, AtomicInteger requestCount) {
+    return new GoogleGeocodeApi("", GoogleGeocodeApi.GOOGLE_GEOCODE_URL) {
+      @Override
+      public GeocodeResult geocode(SiteAddress address) {
+        requestCount.incrementAndGet();
+        return GeocodeResult.builder().status(status).build();
+      }
+    };
+  }
+
+  /** A failed geocode request (eg: over quota) is not stored, the site is geocoded again later. */
+  @Test
+  void failedGeocodeIsRetried() {
+    int sitesToGeocode = DistanceDao.fetchSitesToGeocode(TestConfiguration.jdbiTest).size();
+    assertThat(sitesToGeocode).isGreaterThan(1);
+
+    AtomicInteger geocodeCount = new AtomicInteger(0);
+    new DistanceCalculator(
+            TestConfiguration.jdbiTest,
+            GoogleDistanceApi.stubbed(),
+            stubGeocoder(GoogleGeocodeApi.GeocodeStatus.FAILED, geocodeCount),
+            true,
+            0,
+            false,
+            100,
+            0)
+        .calculateDistances();
+
+    // geocoding stops at the first failure
+    assertThat(geocodeCount.get()).isEqualTo(1);
+    assertThat(DistanceDao.fetchSitesToGeocode(TestConfiguration.jdbiTest))
+        .hasSize(sitesToGeocode);
+  }
+
+  /** Geocode requests use up the request budget, before any distance is requested. */
+  @Test
+  void geocodeRequestsCountAgainstBudget() {
+    int sitesToGeocode = DistanceDao.fetchSitesToGeocode(TestConfiguration.jdbiTest).size();
+    assertThat(sitesToGeocode).isGreaterThan(2);
+
+    AtomicInteger geocodeCount = new AtomicInteger(0);
+    AtomicInteger distanceCount = new AtomicInteger(0);
+    new DistanceCalculator(
+            TestConfiguration.jdbiTest,
+            new GoogleDistanceApi("") {
+              @Override
+              public GoogleDistanceResponse queryDistance(SiteAddress from, SiteAddress to) {
+                distanceCount.incrementAndGet();
+                return GoogleDistanceResponse.builder().valid(false).build();
+              }
+            },
+            stubGeocoder(GoogleGeocodeApi.GeocodeStatus.NOT_FOUND, geocodeCount),
+            true,
+            0,
+            false,
+            2,
+            0)
+        .calculateDistances();
+
+    assertThat(geocodeCount.get()).isEqualTo(2);
+    assertThat(distanceCount.get()).isEqualTo(0);
+    // sites that are not found are not asked again
+    assertThat(DistanceDao.fetchSitesToGeocode(TestConfiguration.jdbiTest))
+        .hasSize(sitesToGeocode - 2);
+  }
+
+  /**
+   * Runs the calculator in batched mode against a local stub of the distance matrix API. The stub
+   * returns a 10 mile distance for every origin/destination element, unless 'stubStatus' is set to
+   * a failed status.
+   */
+  @Nested
+  class Batched {
+    private HttpServer stubServer;
+    private final AtomicInteger requestCount = new AtomicInteger(0);
+    private volatile String stubStatus = "OK";
+
+    @BeforeEach
+    void startStubServer() throws IOException {
+      stubServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      stubServer.createContext(
+          "/distancematrix/json",
+          exchange -> {
+            requestCount.incrementAndGet();
+            String query = exchange.getRequestURI().getQuery();
+            byte[] response =
+                stubResponse(
+                    stubStatus,
+                    countAddresses(query, "origins"),
+                    countAddresses(query, "destinations"));
+            exchange.sendResponseHeaders(200, response.length);
+            exchange.getResponseBody().write(response);
+            exchange.close();
+          });
+      stubServer.start();
+    }
+
+    @AfterEach
+    void stopStubServer() {
+      stubServer.stop(0);
+    }
+
+    private DistanceCalculator calculator(int maxRequests) {
+      String url =
+          "http://localhost:" + stubServer.getAddress().getPort() + "/distancematrix/json";
+      return new DistanceCalculator(
+          TestConfiguration.jdbiTest,
+          new GoogleDistanceApi("", url),
+          null,
+          true,
+          0,
+          true,
+          maxRequests,
+          0);
+    }
+
+    @Test
+    void allPendingPairsAreCalculated() {
+      // new sites add pending pairs with every other site
+      TestConfiguration.addSite();
+      TestConfiguration.addSite();
+      int pendingCount = DistanceDao.fetchUncalculatedPairs(TestConfiguration.jdbiTest).size();
+      assertThat(pendingCount).isGreaterThan(2);
+
+      calculator(100).calculateDistances();
+
+      assertThat(DistanceDao.fetchUncalculatedPairs(TestConfiguration.jdbiTest)).isEmpty();
+      assertThat(requestCount.get()).isLessThan(pendingCount);
+
+      long site1Id = TestConfiguration.getSiteId("site1");
+      long site4Id = TestConfiguration.getSiteId("site4");
+      var result = DistanceDao.queryDistance(TestConfiguration.jdbiTest, site1Id, site4Id);
+      assertThat(result).isPresent();
+      assertThat(result.get().getDistance()).isEqualTo(10.0);
+      assertThat(result.get().getDurationSeconds()).isEqualTo(600L);
+    }
+
+    @Test
+    void requestBudgetIsRespected() {
+      TestConfiguration.addSite();
+      TestConfiguration.addSite();
+
+      calculator(1).calculateDistances();
+
+      assertThat(requestCount.get()).isEqualTo(1);
+      assertThat(DistanceDao.fetchUncalculatedPairs(TestConfiguration.jdbiTest)).isNotEmpty();
+    }
+
+    /** A failed request (eg: over quota) is not stored, the pairs are still pending after. */
+    @Test
+    void failedRequestLeavesPairsPending() {
+      TestConfiguration.addSite();
+      TestConfiguration.addSite();
+      var pending = DistanceDao.fetchUncalculatedPairs(TestConfiguration.jdbiTest);
+      stubStatus = "OVER_QUERY_LIMIT";
+
+      calculator(100).calculateDistances();
+
+      // run stops at the first failed request
+      assertThat(requestCount.get()).isEqualTo(1);
+      assertThat(DistanceDao.fetchUncalculatedPairs(TestConfiguration.jdbiTest))
+          .containsExactlyInAnyOrderElementsOf(pending);
+
+      // and the pairs are calculated once the API is available again
+      stubStatus = "OK";
+      calculator(100).calculateDistances();
+      assertThat(DistanceDao.fetchUncalculatedPairs(TestConfiguration.jdbiTest)).isEmpty();
+    }
+
+    private static int countAddresses(String query, String param) {
+      return Arrays.stream(query.split("&"))
+          .filter(p -> p.startsWith(param + "="))
+          .findFirst()
+          .map(p -> p.split("\\|").length)
+          .orElse(0);
+    }
+
+    private static byte[] stubResponse(String status, int origins, int destinations) {
+      if (!status.equals("OK")) {
+        String json =
+            String.format(
+                """
+                {"status": "%s", "error_message": "stubbed failure", "rows": []}""",
+                status);
+        return json.getBytes(StandardCharsets.UTF_8);
+      }
+      String element =
+          """
+          {"distance": {"value": 16093}, "duration": {"value": 600}, "status": "OK"}""";
+      String row =
+          "{\"elements\": [" + String.join(",", Collections.nCopies(destinations, element)) + "]}";
+      String json =
+          "{\"status\": \"OK\", \"rows\": ["
+              + String.join(",", Collections.nCopies(origins, row))
+              + "]}";
+      return json.getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  /** A site with many pending pairs becomes one origin, with its partners as destinations. */
+  @Test
+  void groupIntoRequests() {
+    List<DistanceDao.SitePair> pairs = new ArrayList<>();
+    for (long i = 1; i <= 30; i++) {
+      pairs.add(sitePair(i, 100L));
+    }
+    pairs.add(sitePair(1L, 2L));
+
+    var requests = DistanceCalculator.groupIntoRequests(pairs);
+
+    // site 100 with 30 destinations is split in two requests, then 1 -> 2
+    assertThat(requests).hasSize(3);
+    assertThat(requests.get(0).getOrigins().getFirst().getSiteId()).isEqualTo(100L);
+    assertThat(requests.get(0).getDestinations()).hasSize(GoogleDistanceApi.MAX_DESTINATIONS);
+    assertThat(requests.get(1).getDestinations()).hasSize(5);
+    assertThat(requests.get(2).getDestinations()).hasSize(1);
+
+    // every pair is requested exactly once
+    int elementCount =
+        requests.stream().mapToInt(r -> r.getOrigins().size() * r.getDestinations().size()).sum();
+    assertThat(elementCount).isEqualTo(pairs.size());
+  }
+
+  /** Origins sharing destinations are combined, but never beyond the element limit. */
+  @Test
+  void groupIntoRequestsElementLimit() {
+    List<DistanceDao.SitePair> pairs = new ArrayList<>();
+    for (long origin = 1; origin <= 10; origin++) {
+      for (long destination = 101; destination <= 120; destination++) {
+        pairs.add(sitePair(origin, destination));
+      }
+    }
+
+    var requests = DistanceCalculator.groupIntoRequests(pairs);
+
+    // 10 origins x 20 destinations, 5 origins per request
+    assertThat(requests).hasSize(2);
+    assertThat(requests)
+        .allSatisfy(
+            r ->
+                assertThat(r.getOrigins().size() * r.getDestinations().size())
+                    .isLessThanOrEqualTo(GoogleDistanceApi.MAX_ELEMENTS));
+    int elementCount =
+        requests.stream().mapToInt(r -> r.getOrigins().size() * r.getDestinations().size()).sum();
+    assertThat(elementCount).isEqualTo(pairs.size());
+  }
+
+  private static DistanceDao.SitePair sitePair(long site1, long site2) {
+    var pair = new DistanceDao.SitePair();
+    pair.setSiteId1(site1);
+    pair.setAddress1("address" + site1);
+    pair.setCity1("city");
+    pair.setState1("NC");
+    pair.setSiteId2(site2);
+    pair.setAddress2("address" + site2);
+    pair.setCity2("city");
+    pair.setState2("NC");
+    return pair;
+  }
 }
@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.vanatta.helene.supplies.database.TestConfiguration;
 import com.vanatta.helene.supplies.database.supplies.site.details.SiteDetailDao;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -33,4 +34,32 @@ class DistanceDaoTest {
     assertThat(sitePairs.getFirst().getCity2()).isEqualTo(site3Detail.getCity());
     assertThat(sitePairs.getFirst().getState2()).isEqualTo(site3Detail.getState());
   }
+
+  /** Pairs are stored once, lookups must work for either order of the sites. */
+  @Test
+  void queryDistanceIsSymmetric() {
+    long site1Id = TestConfiguration.getSiteId("site1");
+    long site2Id = TestConfiguration.getSiteId("site2");
+
+    var forward = DistanceDao.queryDistance(TestConfiguration.jdbiTest, site1Id, site2Id);
+    var reverse = DistanceDao.queryDistance(TestConfiguration.jdbiTest, site2Id, site1Id);
+
+    assertThat(forward).isPresent();
+    assertThat(forward).isEqualTo(reverse);
+  }
+
+  @Test
+  void reversedPairsAreRejected() {
+    String insert =
+        """
+        insert into site_distance_matrix(site1_id, site2_id)
+        values(
+          (select id from site where name = 'site3'),
+          (select id from site where name = 'site2')
+        )
+        """;
+    Assertions.assertThrows(
+        Exception.class,
+        () -> TestConfiguration.jdbiTest.withHandle(h -> h.createUpdate(insert).execute()));
+  }
 }
@@ -0,0 +1,24 @@
+package com.vanatta.helene.supplies.database.jobs.distance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class StraightLineDistanceTest {
+
+  /** Asheville -> Boone is about 65 miles in a straight line, same place is zero miles. */
+  @Test
+  void haversineMiles() {
+    double[] miles =
+        StraightLineDistance.haversineMiles(
+            new double[] {35.5951, 35.5951},
+            new double[] {-82.5515, -82.5515},
+            new double[] {36.2168, 35.5951},
+            new double[] {-81.6746, -82.5515});
+
+    assertThat(miles).hasSize(2);
+    assertThat(miles[0]).isCloseTo(65.2, within(0.5));
+    assertThat(miles[1]).isEqualTo(0.0);
+  }
+}
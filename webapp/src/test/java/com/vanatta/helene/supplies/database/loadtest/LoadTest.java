@@ -0,0 +1,124 @@
+package com.vanatta.helene.supplies.database.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test harness, measures p50/p99 latency of '/supplies/site-data' and '/supplies/site-detail'
+ * on a running server. Not run as part of the unit tests.
+ *
+ * <p>To compare request handling on platform threads and on virtual threads, run the server once
+ * with VIRTUAL_THREADS_ENABLED=false and once with VIRTUAL_THREADS_ENABLED=true, and run this
+ * against each:
+ *
+ * <pre>
+ *   ./gradlew loadTest --args="http://localhost:8080 [concurrency] [requests] [siteId] [label]"
+ * </pre>
+ */
+public class LoadTest {
+
+  public static void main(String[] args) throws Exception {
+    String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+    int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    int requests = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+    long siteId = args.length > 3 ? Long.parseLong(args[3]) : 1;
+    String label = args.length > 4 ? args[4] : "";
+
+    HttpClient client =
+        HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    HttpRequest siteData =
+        HttpRequest.newBuilder(URI.create(baseUrl + "/supplies/site-data"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{}"))
+            .timeout(Duration.ofSeconds(60))
+            .build();
+    HttpRequest siteDetail =
+        HttpRequest.newBuilder(URI.create(baseUrl + "/supplies/site-detail?id=" + siteId))
+            .GET()
+            .timeout(Duration.ofSeconds(60))
+            .build();
+
+    // warm up
+    run(client, siteData, concurrency, Math.min(requests, 100));
+    run(client, siteDetail, concurrency, Math.min(requests, 100));
+
+    System.out.printf(
+        "%-10s %-24s %8s %8s %8s %8s %8s%n",
+        "label", "endpoint", "requests", "errors", "p50 ms", "p99 ms", "max ms");
+    print(label, "/supplies/site-data", run(client, siteData, concurrency, requests));
+    print(label, "/supplies/site-detail", run(client, siteDetail, concurrency, requests));
+    System.exit(0);
+  }
+
+  record Result(List<Long> latenciesMs, int errors) {}
+
+  /** Sends 'requests' requests, at most 'concurrency' at a time. */
+  static Result run(HttpClient client, HttpRequest request, int concurrency, int requests)
+      throws Exception {
+    Semaphore inFlight = new Semaphore(concurrency);
+    AtomicInteger errors = new AtomicInteger(0);
+    List<Future<Long>> futures = new ArrayList<>();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < requests; i++) {
+        inFlight.acquire();
+        futures.add(
+            executor.submit(
+                () -> {
+                  long start = System.nanoTime();
+                  try {
+                    var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() >= 400) {
+                      errors.incrementAndGet();
+                    }
+                  } catch (Exception e) {
+                    errors.incrementAndGet();
+                  } finally {
+                    inFlight.release();
+                  }
+                  return (System.nanoTime() - start) / 1_000_000;
+                }));
+      }
+    }
+    List<Long> latencies = new ArrayList<>();
+    for (Future<Long> future : futures) {
+      latencies.add(future.get());
+    }
+    Collections.sort(latencies);
+    return new Result(latencies, errors.get());
+  }
+
+  static long percentile(List<Long> sorted, double percentile) {
+    if (sorted.isEmpty()) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+    return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+  }
+
+  private static void print(String label, String endpoint, Result result) {
+    System.out.printf(
+        "%-10s %-24s %8d %8d %8d %8d %8d%n",
+        label,
+        endpoint,
+        result.latenciesMs().size(),
+        result.errors(),
+        percentile(result.latenciesMs(), 50),
+        percentile(result.latenciesMs(), 99),
+        result.latenciesMs().isEmpty() ? 0 : result.latenciesMs().getLast());
+  }
+}
@@ -0,0 +1,111 @@
+package com.vanatta.helene.supplies.database.manage.inventory;
+
+import static com.vanatta.helene.supplies.database.TestConfiguration.jdbiTest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.vanatta.helene.supplies.database.TestConfiguration;
+import com.vanatta.helene.supplies.database.data.ItemStatus;
+import com.vanatta.helene.supplies.database.export.update.SendInventoryUpdate;
+import com.vanatta.helene.supplies.database.manage.ManageSiteDao;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class InventoryControllerTest {
+
+  /** Records sent inventory updates rather than sending them. */
+  private final List<SendInventoryUpdate.SiteDataDbResult> sent = new ArrayList<>();
+
+  private final InventoryController inventoryController =
+      new InventoryController(
+          jdbiTest,
+          null,
+          new SendInventoryUpdate(jdbiTest, "", true, null) {
+            @Override
+            public void send(SiteDataDbResult change) {
+              sent.add(change);
+            }
+          });
+
+  @BeforeAll
+  static void setup() {
+    TestConfiguration.setupDatabase();
+  }
+
+  /** Changes are applied, and each changed item is sent as its own update. */
+  @Test
+  void bulkUpdateSiteItems() {
+    long siteId = TestConfiguration.getSiteId(TestConfiguration.addSite());
+    InventoryDao.updateSiteItemActive(jdbiTest, siteId, "water", ItemStatus.NEEDED.getText());
+    InventoryDao.updateSiteItemActive(jdbiTest, siteId, "gloves", ItemStatus.NEEDED.getText());
+
+    var response =
+        inventoryController.bulkUpdateSiteItems(
+            List.of(siteId),
+            bulkUpdateRequest(
+                siteId,
+                new InventoryDao.ItemChange("water", true, ItemStatus.OVERSUPPLY.getText()),
+                new InventoryDao.ItemChange("gloves", false, null),
+                new InventoryDao.ItemChange("batteries", true, ItemStatus.AVAILABLE.getText())));
+
+    assertThat(response.getStatusCode().value()).isEqualTo(200);
+    assertThat(response.getBody()).isEqualTo("3");
+
+    var inventory = ManageSiteDao.fetchSiteInventory(jdbiTest, siteId);
+    assertThat(findItem(inventory, "water").getItemStatus())
+        .isEqualTo(ItemStatus.OVERSUPPLY.getText());
+    assertThat(findItem(inventory, "gloves").isActive()).isFalse();
+    assertThat(findItem(inventory, "batteries").getItemStatus())
+        .isEqualTo(ItemStatus.AVAILABLE.getText());
+
+    assertThat(sent)
+        .extracting(SendInventoryUpdate.SiteDataDbResult::getItemName)
+        .containsExactly("water", "gloves", "batteries");
+    assertThat(sent)
+        .extracting(SendInventoryUpdate.SiteDataDbResult::getItemStatus)
+        .containsExactly(
+            ItemStatus.OVERSUPPLY.getText(), "Removed", ItemStatus.AVAILABLE.getText());
+    assertThat(sent).allMatch(update -> update.getItemNeedWssId() != 0);
+  }
+
+  @Test
+  void bulkUpdateSiteItemsNotAuthorized() {
+    long siteId = TestConfiguration.getSiteId("site1");
+
+    var response =
+        inventoryController.bulkUpdateSiteItems(
+            List.of(),
+            bulkUpdateRequest(
+                siteId, new InventoryDao.ItemChange("water", true, ItemStatus.NEEDED.getText())));
+
+    assertThat(response.getStatusCode().value()).isEqualTo(401);
+    assertThat(sent).isEmpty();
+  }
+
+  @Test
+  void bulkUpdateSiteItemsNoChanges() {
+    long siteId = TestConfiguration.getSiteId("site1");
+
+    var response =
+        inventoryController.bulkUpdateSiteItems(List.of(siteId), bulkUpdateRequest(siteId));
+
+    assertThat(response.getStatusCode().value()).isEqualTo(400);
+  }
+
+  private static InventoryController.BulkUpdateRequest bulkUpdateRequest(
+      long siteId, InventoryDao.ItemChange... changes) {
+    var request = new InventoryController.BulkUpdateRequest();
+    request.setSiteId(String.valueOf(siteId));
+    request.setChanges(List.of(changes));
+    return request;
+  }
+
+  private static ManageSiteDao.SiteInventory findItem(
+      List<ManageSiteDao.SiteInventory> inventory, String itemName) {
+    return inventory.stream()
+        .filter(item -> item.getItemName().equals(itemName))
+        .findAny()
+        .orElseThrow();
+  }
+}
@@ -11,6 +11,7 @@ import com.vanatta.helene.supplies.database.supplies.SuppliesDao;
 import com.vanatta.helene.supplies.database.supplies.site.details.SiteDetailDao;
 import java.util.List;
 import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -160,6 +161,89 @@ class InventoryDaoTest {
             handle.createQuery("select count(*) from site_item_audit").mapTo(Integer.class).one());
   }
 
+  @Nested
+  class BulkUpdateSiteItems {
+
+    /** Adds, changes, removes and no-op changes, all in one call. */
+    @Test
+    void bulkUpdate() {
+      long siteId = TestConfiguration.getSiteId(TestConfiguration.addSite());
+      InventoryDao.updateSiteItemActive(jdbiTest, siteId, "water", ItemStatus.NEEDED.getText());
+      InventoryDao.updateSiteItemActive(jdbiTest, siteId, "gloves", ItemStatus.NEEDED.getText());
+      InventoryDao.updateSiteItemActive(jdbiTest, siteId, "heater", ItemStatus.NEEDED.getText());
+      long glovesWssId = InventoryDao.getInventoryWssId(jdbiTest, siteId, "gloves").orElseThrow();
+      int auditCount = countSiteItemAuditRecords();
+
+      var applied =
+          InventoryDao.bulkUpdateSiteItems(
+              jdbiTest,
+              siteId,
+              List.of(
+                  new InventoryDao.ItemChange("water", true, ItemStatus.OVERSUPPLY.getText()),
+                  new InventoryDao.ItemChange("gloves", false, null),
+                  new InventoryDao.ItemChange("heater", true, ItemStatus.NEEDED.getText()),
+                  new InventoryDao.ItemChange("batteries", true, ItemStatus.AVAILABLE.getText())));
+
+      // 'heater' is unchanged
+      assertThat(applied).hasSize(3);
+      assertThat(countSiteItemAuditRecords()).isEqualTo(auditCount + 3);
+
+      assertThat(applied.get(0).getNewValue()).isEqualTo(ItemStatus.OVERSUPPLY.getText());
+      assertThat(applied.get(1).getItemWssId()).isEqualTo(glovesWssId);
+      assertThat(applied.get(1).getNewValue()).isEqualTo("inactive");
+      assertThat(applied.get(2).getItemWssId())
+          .isEqualTo(InventoryDao.getInventoryWssId(jdbiTest, siteId, "batteries").orElseThrow());
+
+      var inventory = ManageSiteDao.fetchSiteInventory(jdbiTest, siteId);
+      assertThat(findItemByName(inventory, "water").getItemStatus())
+          .isEqualTo(ItemStatus.OVERSUPPLY.getText());
+      assertThat(findItemByName(inventory, "gloves").isActive()).isFalse();
+      assertThat(findItemByName(inventory, "heater").getItemStatus())
+          .isEqualTo(ItemStatus.NEEDED.getText());
+      assertThat(findItemByName(inventory, "batteries").getItemStatus())
+          .isEqualTo(ItemStatus.AVAILABLE.getText());
+    }
+
+    /** Item names are matched as they are stored, surrounding whitespace included. */
+    @Test
+    void itemNameWithWhitespace() {
+      long siteId = TestConfiguration.getSiteId(TestConfiguration.addSite());
+      String itemName = " padded item " + System.currentTimeMillis() + " ";
+      InventoryDao.addNewItem(jdbiTest, itemName);
+
+      var applied =
+          InventoryDao.bulkUpdateSiteItems(
+              jdbiTest,
+              siteId,
+              List.of(new InventoryDao.ItemChange(itemName, true, ItemStatus.NEEDED.getText())));
+
+      assertThat(applied).hasSize(1);
+      assertThat(applied.getFirst().getItemName()).isEqualTo(itemName);
+      assertThat(InventoryDao.getInventoryWssId(jdbiTest, siteId, itemName)).isPresent();
+    }
+
+    /** An invalid item fails the whole batch, nothing is changed. */
+    @Test
+    void invalidItemChangesNothing() {
+      long siteId = TestConfiguration.getSiteId(TestConfiguration.addSite());
+      int auditCount = countSiteItemAuditRecords();
+
+      Assertions.assertThrows(
+          IllegalArgumentException.class,
+          () ->
+              InventoryDao.bulkUpdateSiteItems(
+                  jdbiTest,
+                  siteId,
+                  List.of(
+                      new InventoryDao.ItemChange("water", true, ItemStatus.NEEDED.getText()),
+                      new InventoryDao.ItemChange(
+                          "does not exist", true, ItemStatus.NEEDED.getText()))));
+
+      assertThat(countSiteItemAuditRecords()).isEqualTo(auditCount);
+      assertThat(InventoryDao.getInventoryWssId(jdbiTest, siteId, "water")).isEmpty();
+    }
+  }
+
   @Nested
   class MarkNoLongerNeeded {
 
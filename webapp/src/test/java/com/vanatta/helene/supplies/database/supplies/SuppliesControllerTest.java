@@ -26,7 +26,10 @@ class SuppliesControllerTest {
   static final Jdbi jdbiTest = TestConfiguration.jdbiTest;
 
   private final SuppliesController suppliesController =
-      new SuppliesController(jdbiTest, new CookieAuthenticator(jdbiTest, false));
+      new SuppliesController(
+          jdbiTest,
+          new CookieAuthenticator(jdbiTest, false),
+          new SupplySearchIndex(jdbiTest, true));
 
   @BeforeAll
   static void clearDatabase() {
@@ -0,0 +1,148 @@
+package com.vanatta.helene.supplies.database.supplies;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.vanatta.helene.supplies.database.TestConfiguration;
+import com.vanatta.helene.supplies.database.data.ItemStatus;
+import com.vanatta.helene.supplies.database.data.SiteType;
+import com.vanatta.helene.supplies.database.manage.ManageSiteDao;
+import com.vanatta.helene.supplies.database.manage.inventory.InventoryDao;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class SupplySearchIndexTest {
+
+  private SupplySearchIndex supplySearchIndex;
+
+  @BeforeEach
+  void setup() {
+    TestConfiguration.setupDatabase();
+    // new index after DB reset, otherwise the index would hold data from a previous test
+    supplySearchIndex = new SupplySearchIndex(TestConfiguration.jdbiTest, true);
+  }
+
+  static Stream<SiteSupplyRequest> requests() {
+    return Stream.of(
+        SiteSupplyRequest.builder().build(),
+        SiteSupplyRequest.builder().isAuthenticatedUser(true).build(),
+        SiteSupplyRequest.builder().sites(List.of("site1", "site2")).build(),
+        SiteSupplyRequest.builder().items(List.of("water", "new clothes")).build(),
+        SiteSupplyRequest.builder().counties(List.of("Buncombe, NC", "Watauga, NC")).build(),
+        SiteSupplyRequest.builder().counties(List.of("Buncombe")).build(),
+        SiteSupplyRequest.builder().counties(List.of("Buncombe", "Watauga, NC")).build(),
+        SiteSupplyRequest.builder()
+            .itemStatus(
+                List.of(ItemStatus.OVERSUPPLY.getText(), ItemStatus.URGENTLY_NEEDED.getText()))
+            .build(),
+        SiteSupplyRequest.builder().itemStatus(ItemStatus.allItemStatus()).build(),
+        SiteSupplyRequest.builder().siteType(List.of(SiteType.SUPPLY_HUB.getText())).build(),
+        SiteSupplyRequest.builder().acceptingDonations(false).build(),
+        SiteSupplyRequest.builder().notAcceptingDonations(false).build());
+  }
+
+  /** Index results should be identical to the results from database. */
+  @ParameterizedTest
+  @MethodSource("requests")
+  void indexMatchesDatabase(SiteSupplyRequest request) {
+    var fromDb =
+        SuppliesDao.getSupplyResults(TestConfiguration.jdbiTest, request, List.of("NC"), 1);
+    var fromIndex = supplySearchIndex.search(request, List.of("NC"), 1);
+
+    assertThat(sorted(fromIndex)).isEqualTo(sorted(fromDb));
+  }
+
+  private static List<SuppliesDao.SuppliesQueryResult> sorted(
+      List<SuppliesDao.SuppliesQueryResult> results) {
+    return results.stream()
+        .peek(
+            r ->
+                r.setItemTags(
+                    r.getItemTags() == null
+                        ? null
+                        : String.join(
+                            ",",
+                            Stream.of(r.getItemTags().split(",")).distinct().sorted().toList())))
+        .sorted(
+            Comparator.comparing(SuppliesDao.SuppliesQueryResult::getSiteId)
+                .thenComparing(
+                    r -> r.getItem() == null ? "" : r.getItem(), Comparator.naturalOrder()))
+        .toList();
+  }
+
+  /** Only sites of the given deployment are searched, by both the index and the database. */
+  @Test
+  void otherDeployment() {
+    var request = SiteSupplyRequest.builder().build();
+
+    assertThat(SuppliesDao.getSupplyResults(TestConfiguration.jdbiTest, request, List.of("NC"), 2))
+        .isEmpty();
+    assertThat(supplySearchIndex.search(request, List.of("NC"), 2)).isEmpty();
+  }
+
+  /** A county filter without a state matches no site, same as the database query. */
+  @Test
+  void malformedCountyMatchesNothing() {
+    var request = SiteSupplyRequest.builder().counties(List.of("Buncombe")).build();
+
+    assertThat(supplySearchIndex.search(request, List.of("NC"), 1)).isEmpty();
+  }
+
+  @Test
+  void inventoryChangesAreReflected() {
+    String siteName = TestConfiguration.addSite();
+    long siteId = TestConfiguration.getSiteId(siteName);
+    var request = SiteSupplyRequest.builder().sites(List.of(siteName)).build();
+
+    var results = supplySearchIndex.search(request, List.of("NC"), 1);
+    assertThat(results).hasSize(1);
+    assertThat(results.getFirst().getItem()).isNull();
+
+    InventoryDao.updateSiteItemActive(
+        TestConfiguration.jdbiTest, siteId, "water", ItemStatus.NEEDED.getText());
+    results = supplySearchIndex.search(request, List.of("NC"), 1);
+    assertThat(results).hasSize(1);
+    assertThat(results.getFirst().getItem()).isEqualTo("water");
+    assertThat(results.getFirst().getItemStatus()).isEqualTo(ItemStatus.NEEDED.getText());
+
+    InventoryDao.updateItemStatus(
+        TestConfiguration.jdbiTest, siteId, "water", ItemStatus.OVERSUPPLY.getText());
+    results = supplySearchIndex.search(request, List.of("NC"), 1);
+    assertThat(results.getFirst().getItemStatus()).isEqualTo(ItemStatus.OVERSUPPLY.getText());
+  }
+
+  @Test
+  void siteChangesAreReflected() {
+    String siteName = TestConfiguration.addSite();
+    long siteId = TestConfiguration.getSiteId(siteName);
+    var request = SiteSupplyRequest.builder().sites(List.of(siteName)).build();
+    assertThat(supplySearchIndex.search(request, List.of("NC"), 1)).hasSize(1);
+
+    ManageSiteDao.updateSiteActiveFlag(TestConfiguration.jdbiTest, siteId, false);
+
+    assertThat(supplySearchIndex.search(request, List.of("NC"), 1)).isEmpty();
+  }
+
+  @Test
+  void newItemsAreSearchable() {
+    String siteName = TestConfiguration.addSite();
+    long siteId = TestConfiguration.getSiteId(siteName);
+    // populate the index before the item is created
+    supplySearchIndex.search(SiteSupplyRequest.builder().build(), List.of("NC"), 1);
+
+    String itemName = "index test item " + siteName;
+    InventoryDao.addNewItem(TestConfiguration.jdbiTest, itemName);
+    InventoryDao.updateSiteItemActive(
+        TestConfiguration.jdbiTest, siteId, itemName, ItemStatus.AVAILABLE.getText());
+
+    var results =
+        supplySearchIndex.search(
+            SiteSupplyRequest.builder().items(List.of(itemName)).build(), List.of("NC"), 1);
+    assertThat(results).hasSize(1);
+    assertThat(results.getFirst().getSite()).isEqualTo(siteName);
+  }
+}
@@ -5,10 +5,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 import com.vanatta.helene.supplies.database.TestConfiguration;
 import com.vanatta.helene.supplies.database.auth.CookieAuthenticator;
 import com.vanatta.helene.supplies.database.manage.ManageSiteDao;
+import com.vanatta.helene.supplies.database.manage.inventory.InventoryDao;
+import com.vanatta.helene.supplies.database.supplies.SupplySearchIndex;
 import java.util.List;
 import org.jdbi.v3.core.Jdbi;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
 
 class FilterDataControllerTest {
 
@@ -96,4 +100,55 @@ class FilterDataControllerTest {
         filterDataController.getFilterData(AuthenticatedMode.NOT_AUTHENTICATED, List.of("NC"));
     assertThat(response.getCounties()).doesNotContain("unique");
   }
+
+  /** Repeat requests with the current ETag get a 304 and no body. */
+  @Test
+  void notModified() {
+    var request = new MockHttpServletRequest();
+    var response = filterDataController.getFilterData(request, List.of("NC"));
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    String etag = response.getHeaders().getETag();
+    assertThat(etag).isNotNull();
+
+    request.addHeader("If-None-Match", etag);
+    response = filterDataController.getFilterData(request, List.of("NC"));
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    assertThat(response.getBody()).isNull();
+    assertThat(response.getHeaders().getETag()).isEqualTo(etag);
+  }
+
+  /** Delivery changes do not affect filter data, the snapshot is kept. */
+  @Test
+  void snapshotKeptOnDeliveryChange() {
+    var mode = AuthenticatedMode.NOT_AUTHENTICATED;
+    var snapshot = filterDataController.getSnapshot(mode, List.of("NC"));
+
+    SupplySearchIndex.markDeliveriesChanged();
+
+    assertThat(filterDataController.getSnapshot(mode, List.of("NC"))).isSameAs(snapshot);
+  }
+
+  /** Adding an item bumps the filter data version, the snapshot is rebuilt with a new ETag. */
+  @Test
+  void snapshotRebuiltOnChange() {
+    var mode = AuthenticatedMode.NOT_AUTHENTICATED;
+    var snapshot = filterDataController.getSnapshot(mode, List.of("NC"));
+    assertThat(filterDataController.getSnapshot(mode, List.of("NC"))).isSameAs(snapshot);
+
+    String newItem = "filter data item " + System.currentTimeMillis();
+    InventoryDao.addNewItem(jdbiTest, newItem);
+
+    var updated = filterDataController.getSnapshot(mode, List.of("NC"));
+    assertThat(updated.getResponse().getItems()).contains(newItem);
+    assertThat(updated.getEtag()).isNotEqualTo(snapshot.getEtag());
+  }
+
+  @Test
+  void etagMatches() {
+    assertThat(FilterDataController.etagMatches(null, "\"a\"")).isFalse();
+    assertThat(FilterDataController.etagMatches("\"a\"", "\"a\"")).isTrue();
+    assertThat(FilterDataController.etagMatches("\"b\", W/\"a\"", "\"a\"")).isTrue();
+    assertThat(FilterDataController.etagMatches("*", "\"a\"")).isTrue();
+    assertThat(FilterDataController.etagMatches("\"b\"", "\"a\"")).isFalse();
+  }
 }
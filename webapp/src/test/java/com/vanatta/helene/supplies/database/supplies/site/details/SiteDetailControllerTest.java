@@ -5,15 +5,24 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.vanatta.helene.supplies.database.TestConfiguration;
 import com.vanatta.helene.supplies.database.auth.CookieAuthenticator;
+import com.vanatta.helene.supplies.database.browse.routes.RouteCandidateGraph;
 import com.vanatta.helene.supplies.database.delivery.DeliveryDao;
 import com.vanatta.helene.supplies.database.delivery.DeliveryUpdate;
+import com.vanatta.helene.supplies.database.manage.ManageSiteDao;
+import com.vanatta.helene.supplies.database.supplies.SuppliesController;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import org.junit.jupiter.api.Test;
 
 class SiteDetailControllerTest {
   SiteDetailController siteDetailController =
-      new SiteDetailController(jdbiTest, new CookieAuthenticator(jdbiTest, false));
+      new SiteDetailController(
+          jdbiTest,
+          new CookieAuthenticator(jdbiTest, false),
+          new RouteCandidateGraph(jdbiTest, true),
+          5_000);
 
   /**
    * Validate that the site detail page contains all values from
@@ -25,7 +34,7 @@ class SiteDetailControllerTest {
 
     var model =
         siteDetailController.siteDetail(
-            List.of(site1Id), List.of("NC", "TN"), 1, site1Id, null, null, true);
+            List.of(site1Id), List.of("NC", "TN"), site1Id, null, null, null, true);
 
     assertThat(model.getModelMap().keySet())
         .containsAll(
@@ -48,6 +57,67 @@ class SiteDetailControllerTest {
             .dispatcherCode("DZAA")
             .build());
 
-    siteDetailController.siteDetail(List.of(siteId), List.of("NC"), 1, siteId, null, null, true);
+    siteDetailController.siteDetail(List.of(siteId), List.of("NC"), siteId, null, null, null, true);
+  }
+
+  /** Deliveries beyond the first page are reached with an 'older deliveries' link. */
+  @Test
+  void renderSiteDetail_moreDeliveriesLink() {
+    String site = TestConfiguration.addSite();
+    long siteId = TestConfiguration.getSiteId(site);
+    long wssId = SiteDetailDao.lookupSiteById(jdbiTest, siteId).getWssId();
+    for (int i = 0; i <= DeliveryDao.DEFAULT_PAGE_SIZE; i++) {
+      DeliveryDao.upsert(
+          jdbiTest,
+          DeliveryUpdate.builder()
+              .deliveryId(-900L - i)
+              .dropOffSiteWssId(List.of(wssId))
+              .publicUrlKey("more" + i)
+              .dispatcherCode("DZAA")
+              .build());
+    }
+
+    var firstPage =
+        siteDetailController.siteDetail(List.of(), List.of("NC"), siteId, null, null, null, true);
+    String moreLink = (String) firstPage.getModelMap().get("moreDeliveriesLink");
+    assertThat(moreLink).startsWith(SiteDetailController.buildSiteLink(siteId));
+
+    String cursor =
+        URLDecoder.decode(moreLink.split("deliveriesBefore=")[1], StandardCharsets.UTF_8);
+    var lastPage =
+        siteDetailController.siteDetail(List.of(), List.of("NC"), siteId, null, null, cursor, true);
+    assertThat(lastPage.getModelMap().get("moreDeliveriesLink")).isNull();
+  }
+
+  /** Inventory of the site is loaded with the page, needed and available items are split. */
+  @Test
+  void renderSiteDetail_inventory() {
+    long site1Id = TestConfiguration.getSiteId("site1");
+
+    var model =
+        siteDetailController.siteDetail(
+            List.of(site1Id), List.of("NC", "TN"), site1Id, null, null, null, false);
+
+    var inventory = SiteDetailDao.lookupSiteInventory(jdbiTest, site1Id);
+    assertThat(inventory).isNotEmpty();
+    int needsCount = (int) model.getModelMap().get("needsItemsCt");
+    int availableCount = (int) model.getModelMap().get("availableItemsCt");
+    assertThat(needsCount + availableCount).isEqualTo(inventory.size());
+  }
+
+  /** A site that is not publicly visible redirects logged out users, logged in users see it. */
+  @Test
+  void renderSiteDetail_notPubliclyVisible() {
+    long siteId = TestConfiguration.getSiteId(TestConfiguration.addSite());
+    ManageSiteDao.updateSitePubliclyVisible(jdbiTest, siteId, false);
+
+    var loggedOut =
+        siteDetailController.siteDetail(List.of(), List.of("NC"), siteId, null, null, null, false);
+    assertThat(loggedOut.getViewName())
+        .isEqualTo("redirect:" + SuppliesController.PATH_SUPPLY_SEARCH);
+
+    var loggedIn =
+        siteDetailController.siteDetail(List.of(), List.of("NC"), siteId, null, null, null, true);
+    assertThat(loggedIn.getViewName()).isEqualTo("supplies/site-detail");
   }
 }
@@ -3,27 +3,133 @@ package com.vanatta.helene.supplies.database.twilio.sms;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.vanatta.helene.supplies.database.TestConfiguration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
 import org.junit.jupiter.api.Test;
 
 class SmsSenderTest {
 
+  /**
+   * Stub transport, records what was sent. Fails a number as many times as 'failures' says, always
+   * fails the number "invalid".
+   */
+  private final List<String> sent = new CopyOnWriteArrayList<>();
+  private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+  private final Map<String, Long> sendTimes = new ConcurrentHashMap<>();
+
+  private final SmsTransport stubTransport =
+      (phoneNumber, message) -> {
+        var result =
+            SmsSender.MessageResult.builder()
+                .toNumber(phoneNumber)
+                .messageLength(message.length())
+                .build();
+        if (phoneNumber.equals("invalid")) {
+          return new SmsTransport.Attempt(SmsTransport.Outcome.FAILED, result);
+        }
+        if (failures.getOrDefault(phoneNumber, 0) > 0) {
+          failures.merge(phoneNumber, -1, Integer::sum);
+          return new SmsTransport.Attempt(SmsTransport.Outcome.RETRY, result);
+        }
+        sent.add(message);
+        sendTimes.put(message, System.currentTimeMillis());
+        return new SmsTransport.Attempt(SmsTransport.Outcome.SENT, result);
+      };
+
+  private SmsSender smsSender(long minIntervalPerNumberMs) {
+    return new SmsSender(
+        TestConfiguration.jdbiTest, stubTransport, 4, 3, 0, minIntervalPerNumberMs, 5_000);
+  }
+
   @Test
-  void recordMessage() {
+  void sendAndWait() {
     int beforeCount = countSendHistoryRecords();
-    SmsSender.recordMessage(
-        TestConfiguration.jdbiTest,
-        SmsSender.MessageResult.builder()
-            .toNumber("123")
-            .messageLength("message".length())
-            .messageLink("/fake/uri.json")
-            .success(false)
-            .errorCode(-1)
-            .errorMessage("SMS not enabled")
-            .build());
 
+    assertThat(smsSender(0).sendAndWait("123", "hello")).isTrue();
+
+    assertThat(sent).containsExactly("hello");
     assertThat(countSendHistoryRecords()).isEqualTo(beforeCount + 1);
   }
 
+  /** Numbers are queued as given, formatting included. */
+  @Test
+  void sendAndWaitFormattedNumber() {
+    assertThat(smsSender(0).sendAndWait("+1 (828) 555-1234", "formatted")).isTrue();
+    assertThat(sent).containsExactly("formatted");
+  }
+
+  @Test
+  void sendAndWaitInvalidNumber() {
+    assertThat(smsSender(0).sendAndWait("invalid", "hello")).isFalse();
+    assertThat(sent).isEmpty();
+  }
+
+  /** A 'sendAndWait' message is claimed as it is added, 'sendDue' cannot send it first. */
+  @Test
+  void sendAndWaitMessageIsClaimedWhenAdded() {
+    var claimed =
+        SmsOutboxDao.enqueueClaimed(
+                TestConfiguration.jdbiTest, List.of(new SmsSender.Sms("777", "claimed")), 60)
+            .getFirst();
+
+    assertThat(claimed.getAttempts()).isEqualTo(1);
+    assertThat(SmsOutboxDao.claim(TestConfiguration.jdbiTest, List.of(claimed.getId()), 1, 60))
+        .isEmpty();
+  }
+
+  @Test
+  void sendAllInBackground() {
+    int beforeCount = countSendHistoryRecords();
+
+    smsSender(0).sendAll(List.of(new SmsSender.Sms("1", "one"), new SmsSender.Sms("2", "two")));
+
+    // results are recorded once all messages of a batch are sent
+    awaitCondition(() -> countSendHistoryRecords() == beforeCount + 2);
+    assertThat(sent).containsExactlyInAnyOrder("one", "two");
+  }
+
+  /** A failed message stays in the outbox and is sent by a later 'sendDue'. */
+  @Test
+  void failuresAreRetried() {
+    failures.put("retry", 1);
+    var smsSender = smsSender(0);
+    int beforeCount = countSendHistoryRecords();
+
+    // first attempt fails, the failure is recorded
+    smsSender.sendAll(List.of(new SmsSender.Sms("retry", "retried message")));
+    awaitCondition(() -> countSendHistoryRecords() == beforeCount + 1);
+    assertThat(sent).isEmpty();
+
+    smsSender.sendDue();
+    awaitCondition(() -> sent.contains("retried message"));
+  }
+
+  /** Messages to the same number sent together go in order, spaced apart. */
+  @Test
+  void sendsToSameNumberAreSpacedApart() {
+    smsSender(200)
+        .sendAll(List.of(new SmsSender.Sms("555", "first"), new SmsSender.Sms("555", "second")));
+
+    awaitCondition(() -> sent.size() == 2);
+    assertThat(sent).containsExactly("first", "second");
+    assertThat(sendTimes.get("second") - sendTimes.get("first")).isGreaterThanOrEqualTo(190);
+  }
+
+  private static void awaitCondition(BooleanSupplier condition) {
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    assertThat(condition.getAsBoolean()).isTrue();
+  }
+
   private static int countSendHistoryRecords() {
     String count = "select count(*) from sms_send_history";
     return TestConfiguration.jdbiTest.withHandle(
@@ -0,0 +1,55 @@
+package com.vanatta.helene.supplies.database.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.gson.TypeAdapter;
+import java.io.StringReader;
+import java.util.List;
+import lombok.Value;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class JsonCodecTest {
+
+  @Value
+  static class Payload {
+    Long id;
+    List<String> tags;
+  }
+
+  private static final TypeAdapter<Payload> adapter = JsonCodec.adapter(Payload.class);
+
+  @Test
+  void readsFromReader() {
+    Payload payload =
+        JsonCodec.fromJson(new StringReader("{\"id\":12,\"tags\":[\"a\",\"b\"]}"), adapter);
+
+    assertThat(payload).isEqualTo(new Payload(12L, List.of("a", "b")));
+  }
+
+  @Test
+  void sameResultAsString() {
+    String json = "{\"id\":12,\"tags\":[\"a\"]}";
+
+    assertThat(JsonCodec.fromJson(json, Payload.class))
+        .isEqualTo(JsonCodec.fromJson(new StringReader(json), adapter));
+    assertThat(JsonCodec.fromJson(JsonCodec.toJson(new Payload(3L, List.of())), adapter))
+        .isEqualTo(new Payload(3L, List.of()));
+  }
+
+  @Test
+  void emptyDocument() {
+    assertThat(JsonCodec.fromJson("", adapter)).isNull();
+    assertThat(JsonCodec.fromJson((String) null, adapter)).isNull();
+    assertThrows(
+        IllegalArgumentException.class, () -> JsonCodec.readBody(new StringReader(""), adapter));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"{\"id\":", "{\"id\":\"abc\"}", "[1, 2]", "{\"id\":1} {\"id\":2}"})
+  void invalidJson(String json) {
+    assertThrows(IllegalArgumentException.class, () -> JsonCodec.fromJson(json, adapter));
+  }
+}
@@ -0,0 +1,146 @@
+package com.vanatta.helene.supplies.database.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Sends to a local stub server, the stub returns the status code given by 'responseStatus'. */
+class OutboundDispatcherTest {
+
+  private HttpServer stubServer;
+  private ExecutorService stubExecutor;
+  private final AtomicInteger requestCount = new AtomicInteger(0);
+  private final AtomicInteger concurrentRequests = new AtomicInteger(0);
+  private final AtomicInteger maxConcurrentRequests = new AtomicInteger(0);
+  private IntSupplier responseStatus = () -> 200;
+  private long responseDelayMs = 0;
+
+  @BeforeEach
+  void startStubServer() throws IOException {
+    stubServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    stubExecutor = Executors.newFixedThreadPool(10);
+    stubServer.setExecutor(stubExecutor);
+    stubServer.createContext(
+        "/webhook",
+        exchange -> {
+          requestCount.incrementAndGet();
+          maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+          try {
+            Thread.sleep(responseDelayMs);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          concurrentRequests.decrementAndGet();
+          exchange.getRequestBody().readAllBytes();
+          exchange.sendResponseHeaders(responseStatus.getAsInt(), -1);
+          exchange.close();
+        });
+    stubServer.start();
+  }
+
+  @AfterEach
+  void stopStubServer() {
+    stubServer.stop(0);
+    stubExecutor.shutdownNow();
+  }
+
+  private String url() {
+    return "http://localhost:" + stubServer.getAddress().getPort() + "/webhook";
+  }
+
+  private static OutboundDispatcher dispatcher(int maxPerDestination) {
+    return new OutboundDispatcher(100, maxPerDestination, 3, 1);
+  }
+
+  @Test
+  void send() {
+    var dispatcher = dispatcher(4);
+
+    dispatcher.send(url(), Map.of("name", "value"));
+
+    awaitSent(dispatcher, 1);
+    assertThat(requestCount.get()).isEqualTo(1);
+    assertThat(dispatcher.stats().getFailed()).isEqualTo(0);
+  }
+
+  /** The payload is built off the calling thread, then sent. */
+  @Test
+  void sendLater() {
+    var dispatcher = dispatcher(4);
+    Thread caller = Thread.currentThread();
+    AtomicReference<Thread> builtOn = new AtomicReference<>();
+
+    dispatcher.sendLater(
+        url(),
+        () -> {
+          builtOn.set(Thread.currentThread());
+          return Map.of("name", "value");
+        });
+
+    awaitSent(dispatcher, 1);
+    assertThat(builtOn.get()).isNotSameAs(caller);
+    assertThat(requestCount.get()).isEqualTo(1);
+  }
+
+  @Test
+  void serverErrorsAreRetried() {
+    AtomicInteger attempt = new AtomicInteger(0);
+    responseStatus = () -> attempt.incrementAndGet() < 3 ? 503 : 200;
+    var dispatcher = dispatcher(4);
+
+    boolean result = dispatcher.sendNow(url(), Map.of("name", "value"));
+
+    assertThat(result).isTrue();
+    assertThat(requestCount.get()).isEqualTo(3);
+    assertThat(dispatcher.stats().getRetries()).isEqualTo(2);
+    assertThat(dispatcher.stats().getSent()).isEqualTo(1);
+  }
+
+  @Test
+  void clientErrorsAreNotRetried() {
+    responseStatus = () -> 400;
+    var dispatcher = dispatcher(4);
+
+    boolean result = dispatcher.sendNow(url(), Map.of("name", "value"));
+
+    assertThat(result).isFalse();
+    assertThat(requestCount.get()).isEqualTo(1);
+    assertThat(dispatcher.stats().getFailed()).isEqualTo(1);
+  }
+
+  @Test
+  void concurrencyIsLimitedPerDestination() {
+    responseDelayMs = 50;
+    var dispatcher = dispatcher(2);
+
+    for (int i = 0; i < 8; i++) {
+      dispatcher.send(url(), Map.of("count", i));
+    }
+
+    awaitSent(dispatcher, 8);
+    assertThat(maxConcurrentRequests.get()).isLessThanOrEqualTo(2);
+  }
+
+  private static void awaitSent(OutboundDispatcher dispatcher, int expected) {
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (dispatcher.stats().getSent() < expected && System.currentTimeMillis() < deadline) {
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    assertThat(dispatcher.stats().getSent()).isEqualTo(expected);
+  }
+}
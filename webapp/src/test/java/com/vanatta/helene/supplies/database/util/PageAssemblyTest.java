@@ -0,0 +1,115 @@
+package com.vanatta.helene.supplies.database.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PageAssemblyTest {
+
+  /** Sections are loaded at the same time, not one after another. */
+  @Test
+  void sectionsLoadConcurrently() {
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    try (var page = PageAssembly.withDeadline(Duration.ofSeconds(5), 2)) {
+      var first = page.load("first", () -> awaitOther(bothStarted, "a"));
+      var second = page.load("second", () -> awaitOther(bothStarted, "b"));
+
+      assertThat(first.get()).isEqualTo("a");
+      assertThat(second.get()).isEqualTo("b");
+    }
+  }
+
+  /** No more than 'maxConcurrent' sections load at a time. */
+  @Test
+  void concurrentSectionsAreLimited() {
+    AtomicInteger loading = new AtomicInteger();
+    AtomicInteger maxLoading = new AtomicInteger();
+    try (var page = PageAssembly.withDeadline(Duration.ofSeconds(5), 2)) {
+      var sections =
+          IntStream.range(0, 6)
+              .mapToObj(i -> page.load("section" + i, () -> countLoading(loading, maxLoading)))
+              .toList();
+
+      sections.forEach(PageAssembly.Section::get);
+      assertThat(maxLoading.get()).isEqualTo(2);
+    }
+  }
+
+  private static int countLoading(AtomicInteger loading, AtomicInteger maxLoading) {
+    maxLoading.accumulateAndGet(loading.incrementAndGet(), Math::max);
+    try {
+      Thread.sleep(50);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+    return loading.decrementAndGet();
+  }
+
+  private static String awaitOther(CountDownLatch latch, String value) {
+    latch.countDown();
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+    return value;
+  }
+
+  /** A slow optional section is left out, the rest of the page is still rendered. */
+  @Test
+  void slowSectionFallsBack() {
+    CountDownLatch never = new CountDownLatch(1);
+    try (var page = PageAssembly.withDeadline(Duration.ofMillis(100), 2)) {
+      var fast = page.load("fast", () -> "fast");
+      var slow = page.load("slow", () -> awaitOther(never, "slow"));
+
+      assertThat(fast.get()).isEqualTo("fast");
+      assertThat(slow.getOrElse("fallback")).isEqualTo("fallback");
+    } finally {
+      never.countDown();
+    }
+  }
+
+  /** A section still loading when the page is closed is interrupted, it does not run on. */
+  @Test
+  void closeInterruptsSlowSection() throws Exception {
+    CountDownLatch never = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    try (var page = PageAssembly.withDeadline(Duration.ofMillis(100), 2)) {
+      var slow =
+          page.load(
+              "slow",
+              () -> {
+                try {
+                  never.await();
+                } catch (InterruptedException e) {
+                  interrupted.countDown();
+                }
+                return "slow";
+              });
+      assertThat(slow.getOrElse("fallback")).isEqualTo("fallback");
+    }
+    assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  void failedSectionFailsThePage() {
+    try (var page = PageAssembly.withDeadline(Duration.ofSeconds(5), 2)) {
+      PageAssembly.Section<String> failing =
+          page.load(
+              "failing",
+              () -> {
+                throw new IllegalArgumentException("bad input");
+              });
+
+      Assertions.assertThrows(IllegalArgumentException.class, failing::get);
+      assertThat(failing.getOrElse("fallback")).isEqualTo("fallback");
+    }
+  }
+}
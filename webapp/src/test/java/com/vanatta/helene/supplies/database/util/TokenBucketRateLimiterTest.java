@@ -0,0 +1,48 @@
+package com.vanatta.helene.supplies.database.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketRateLimiterTest {
+
+  private final AtomicLong clock = new AtomicLong(0);
+
+  @Test
+  void burstUpToCapacityThenRefill() {
+    var limiter = new TokenBucketRateLimiter(3, 6, 64, clock::get);
+
+    assertThat(limiter.tryAcquire("a")).isTrue();
+    assertThat(limiter.tryAcquire("a")).isTrue();
+    assertThat(limiter.tryAcquire("a")).isTrue();
+    assertThat(limiter.tryAcquire("a")).isFalse();
+
+    // 6 per minute, one token is added back every 10 seconds
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(9));
+    assertThat(limiter.tryAcquire("a")).isFalse();
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertThat(limiter.tryAcquire("a")).isTrue();
+    assertThat(limiter.tryAcquire("a")).isFalse();
+
+    // after a long wait the bucket is full again, but holds no more than 'capacity' tokens
+    clock.addAndGet(TimeUnit.HOURS.toNanos(1));
+    assertThat(limiter.tryAcquire("a")).isTrue();
+    assertThat(limiter.tryAcquire("a")).isTrue();
+    assertThat(limiter.tryAcquire("a")).isTrue();
+    assertThat(limiter.tryAcquire("a")).isFalse();
+
+    assertThat(limiter.stats().getAllowed()).isEqualTo(7);
+    assertThat(limiter.stats().getRejected()).isEqualTo(4);
+  }
+
+  @Test
+  void keysHaveTheirOwnBuckets() {
+    var limiter = new TokenBucketRateLimiter(1, 1, 4096, clock::get);
+
+    assertThat(limiter.tryAcquire("1112223333")).isTrue();
+    assertThat(limiter.tryAcquire("1112223333")).isFalse();
+    assertThat(limiter.tryAcquire("4445556666")).isTrue();
+  }
+}
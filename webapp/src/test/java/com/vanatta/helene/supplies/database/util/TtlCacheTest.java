@@ -0,0 +1,101 @@
+package com.vanatta.helene.supplies.database.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class TtlCacheTest {
+
+  private final AtomicLong clock = new AtomicLong(0);
+  private final AtomicInteger loadCount = new AtomicInteger(0);
+
+  private String load(String key) {
+    loadCount.incrementAndGet();
+    return key + "-value";
+  }
+
+  @Test
+  void valuesAreCachedUntilExpired() {
+    var cache = new TtlCache<String, String>(10, Duration.ofSeconds(30), clock::get);
+
+    assertThat(cache.get("a", this::load)).isEqualTo("a-value");
+    assertThat(cache.get("a", this::load)).isEqualTo("a-value");
+    assertThat(loadCount.get()).isEqualTo(1);
+
+    clock.addAndGet(Duration.ofSeconds(30).toMillis());
+    assertThat(cache.get("a", this::load)).isEqualTo("a-value");
+    assertThat(loadCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  void leastRecentlyUsedIsEvicted() {
+    var cache = new TtlCache<String, String>(2, Duration.ofSeconds(30), clock::get);
+    cache.get("a", this::load);
+    cache.get("b", this::load);
+    cache.get("a", this::load);
+    cache.get("c", this::load);
+    assertThat(loadCount.get()).isEqualTo(3);
+
+    // 'b' was evicted, 'a' was not
+    cache.get("a", this::load);
+    assertThat(loadCount.get()).isEqualTo(3);
+    cache.get("b", this::load);
+    assertThat(loadCount.get()).isEqualTo(4);
+  }
+
+  @Test
+  void invalidateAll() {
+    var cache = new TtlCache<String, String>(10, Duration.ofSeconds(30), clock::get);
+    cache.get("a", this::load);
+    cache.invalidateAll();
+    cache.get("a", this::load);
+    assertThat(loadCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  void invalidateOne() {
+    var cache = new TtlCache<String, String>(10, Duration.ofSeconds(30), clock::get);
+    cache.get("a", this::load);
+    cache.get("b", this::load);
+    cache.invalidate("a");
+    cache.get("a", this::load);
+    cache.get("b", this::load);
+    assertThat(loadCount.get()).isEqualTo(3);
+  }
+
+  /** A value loaded while the cache is invalidated is returned, but not cached. */
+  @Test
+  void invalidatedWhileLoading() {
+    var cache = new TtlCache<String, String>(10, Duration.ofSeconds(30), clock::get);
+    String value =
+        cache.get(
+            "a",
+            key -> {
+              cache.invalidateAll();
+              return load(key);
+            });
+    assertThat(value).isEqualTo("a-value");
+
+    cache.get("a", this::load);
+    assertThat(loadCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  void ttlDependsOnValue() {
+    var cache =
+        new TtlCache<String, String>(
+            10,
+            value -> value.startsWith("short") ? Duration.ofSeconds(1) : Duration.ofSeconds(30),
+            clock::get);
+    cache.get("short", this::load);
+    cache.get("long", this::load);
+
+    clock.addAndGet(Duration.ofSeconds(1).toMillis());
+    cache.get("short", this::load);
+    cache.get("long", this::load);
+    assertThat(loadCount.get()).isEqualTo(3);
+  }
+}